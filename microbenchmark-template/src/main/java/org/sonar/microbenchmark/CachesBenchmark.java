@@ -0,0 +1,165 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.microbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.internal.DefaultTempFolder;
+import org.sonar.batch.index.Cache;
+import org.sonar.batch.index.Caches;
+import org.sonar.batch.index.CachesManager;
+
+/**
+ * Compares the backends of batch caches with the keys used by issues (component, issue),
+ * measures (component, metric, measure) and duplications (component, sequence).
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+public class CachesBenchmark {
+
+  private static final int COMPONENTS = 1000;
+  private static final int ITEMS_PER_COMPONENT = 10;
+  private static final String[] METRICS = {"ncloc", "lines", "complexity", "coverage", "violations"};
+
+  @Param({Caches.PERSISTIT_BACKEND, Caches.MMAP_BACKEND})
+  public String backend;
+
+  private File dir;
+  private CachesManager cachesManager;
+  private Caches caches;
+  private Cache<String> issues;
+  private Cache<String> measures;
+  private Cache<String> duplications;
+  private String value;
+
+  @Setup(Level.Iteration)
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("benchmark").toFile();
+    cachesManager = new CachesManager(new DefaultTempFolder(dir));
+    Settings settings = new Settings();
+    settings.setProperty(Caches.BACKEND_PROPERTY, backend);
+    caches = new Caches(cachesManager, settings);
+    issues = caches.createCache("issues");
+    measures = caches.createCache("measures");
+    duplications = caches.createCache("duplications");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      sb.append("value of ").append(i);
+    }
+    value = sb.toString();
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    caches.stop();
+    cachesManager.stop();
+    FileUtils.deleteQuietly(dir);
+  }
+
+  @Benchmark
+  public void issues(Blackhole blackhole) {
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(c);
+      for (int i = 0; i < ITEMS_PER_COMPONENT; i++) {
+        issues.put(componentKey, "AVa" + c + "-" + i, value);
+      }
+    }
+    for (int c = 0; c < COMPONENTS; c++) {
+      for (String issue : issues.values(componentKey(c))) {
+        blackhole.consume(issue);
+      }
+    }
+    issues.clear();
+  }
+
+  @Benchmark
+  public void measures(Blackhole blackhole) {
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(c);
+      for (String metric : METRICS) {
+        measures.put(componentKey, metric, metric + "|p=1", value);
+      }
+    }
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(c);
+      for (String metric : METRICS) {
+        blackhole.consume(measures.get(componentKey, metric, metric + "|p=1"));
+      }
+    }
+    measures.clear();
+  }
+
+  @Benchmark
+  public void duplications(Blackhole blackhole) {
+    for (int c = 0; c < COMPONENTS; c++) {
+      String componentKey = componentKey(c);
+      for (int i = 0; i < ITEMS_PER_COMPONENT; i++) {
+        duplications.put(componentKey, i, value);
+      }
+    }
+    for (int c = 0; c < COMPONENTS; c++) {
+      for (String duplication : duplications.values(componentKey(c))) {
+        blackhole.consume(duplication);
+      }
+    }
+    duplications.clear();
+  }
+
+  private static String componentKey(int index) {
+    return "org.codehaus.sonar:sonar-batch:src/main/java/org/sonar/batch/Foo" + index + ".java";
+  }
+
+  /**
+   * You can this benchmark with maven command-line (see run.sh) or by executing this method
+   * in IDE
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(CachesBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
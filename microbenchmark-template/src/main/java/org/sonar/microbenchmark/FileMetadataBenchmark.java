@@ -0,0 +1,213 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.microbenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.FileMetadata;
+
+/**
+ * Compares the reading of file metadata and line hashes by per-char {@link FileMetadata.CharHandler}s
+ * (two passes, as done before) and by the single pass of {@link FileMetadata#readMetadata(File, java.nio.charset.Charset, FileMetadata.LineHashConsumer)}.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+public class FileMetadataBenchmark {
+
+  @Param({"100", "10000"})
+  public int lines;
+
+  private final FileMetadata fileMetadata = new FileMetadata();
+  private final CountingConsumer consumer = new CountingConsumer();
+  File file;
+  DefaultInputFile inputFile;
+
+  @Setup
+  public void setup() throws IOException {
+    file = File.createTempFile("benchmark", ".java");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      sb.append("    public void method").append(i).append("(String s) { return \"caf\u00e9\" + s.length(); }");
+      sb.append(i % 10 == 0 ? "\r\n" : "\n");
+    }
+    FileUtils.write(file, sb, StandardCharsets.UTF_8);
+    inputFile = new DefaultInputFile("foo", file.getName());
+    inputFile.setModuleBaseDir(file.getParentFile().toPath());
+    inputFile.setCharset(StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file.toPath());
+  }
+
+  @Benchmark
+  public String handlers() {
+    LegacyLineOffsetCounter offsetCounter = new LegacyLineOffsetCounter();
+    LegacyFileHashComputer fileHashComputer = new LegacyFileHashComputer();
+    FileMetadata.readFile(file, StandardCharsets.UTF_8, offsetCounter, fileHashComputer);
+    FileMetadata.readFile(file, StandardCharsets.UTF_8, new LegacyLineHashComputer(consumer));
+    return fileHashComputer.getHash();
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata singlePass() {
+    return fileMetadata.readMetadata(file, StandardCharsets.UTF_8, consumer);
+  }
+
+  @Benchmark
+  public FileMetadata.Metadata metadata() {
+    return fileMetadata.readMetadata(file, StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public int lineHashes() {
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, consumer);
+    return consumer.count;
+  }
+
+  private static class CountingConsumer implements FileMetadata.LineHashConsumer {
+    int count = 0;
+
+    @Override
+    public void consume(int lineIdx, @Nullable byte[] hash) {
+      count++;
+    }
+  }
+
+  private static class LegacyFileHashComputer extends FileMetadata.CharHandler {
+    private final MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
+    private final StringBuilder sb = new StringBuilder();
+
+    @Override
+    protected void handleIgnoreEoL(char c) {
+      sb.append(c);
+    }
+
+    @Override
+    protected void newLine() {
+      sb.append('\n');
+      globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+      sb.setLength(0);
+    }
+
+    @Override
+    protected void eof() {
+      if (sb.length() > 0) {
+        globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    String getHash() {
+      return Hex.encodeHexString(globalMd5Digest.digest());
+    }
+  }
+
+  private static class LegacyLineHashComputer extends FileMetadata.CharHandler {
+    private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
+    private final StringBuilder sb = new StringBuilder();
+    private final FileMetadata.LineHashConsumer consumer;
+    private int line = 1;
+
+    LegacyLineHashComputer(FileMetadata.LineHashConsumer consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void handleIgnoreEoL(char c) {
+      if (!Character.isWhitespace(c)) {
+        sb.append(c);
+      }
+    }
+
+    @Override
+    protected void newLine() {
+      consumer.consume(line, sb.length() > 0 ? lineMd5Digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)) : null);
+      sb.setLength(0);
+      line++;
+    }
+
+    @Override
+    protected void eof() {
+      consumer.consume(line, sb.length() > 0 ? lineMd5Digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)) : null);
+    }
+  }
+
+  private static class LegacyLineOffsetCounter extends FileMetadata.CharHandler {
+    private int currentOriginalOffset = 0;
+    private final List<Integer> originalLineOffsets = new ArrayList<>();
+
+    LegacyLineOffsetCounter() {
+      originalLineOffsets.add(0);
+    }
+
+    @Override
+    protected void handleAll(char c) {
+      currentOriginalOffset++;
+    }
+
+    @Override
+    protected void newLine() {
+      originalLineOffsets.add(currentOriginalOffset);
+    }
+  }
+
+  /**
+   * You can this benchmark with maven command-line (see run.sh) or by executing this method
+   * in IDE
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(FileMetadataBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
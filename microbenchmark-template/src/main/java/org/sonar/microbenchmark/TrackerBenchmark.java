@@ -0,0 +1,206 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.microbenchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.IndexedTracker;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Trackable;
+import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.Tracking;
+
+/**
+ * Compares {@link Tracker} and {@link IndexedTracker} on a file with many issues, part of the code being
+ * modified between base and raw analyses. {@link #setup()} fails if both trackers do not match the same issues.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+public class TrackerBenchmark {
+
+  @Param({"100", "1000", "10000"})
+  public int issues;
+
+  private final Tracker<FakeIssue, FakeIssue> tracker = new Tracker<>();
+  private final IndexedTracker<FakeIssue, FakeIssue> indexedTracker = new IndexedTracker<>();
+
+  FakeInput rawInput;
+  FakeInput baseInput;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(1L);
+    int lines = 2 * issues;
+    List<String> baseHashes = new ArrayList<>();
+    for (int i = 0; i < lines; i++) {
+      baseHashes.add("hash" + random.nextInt(lines / 2));
+    }
+    List<String> rawHashes = new ArrayList<>(baseHashes);
+    for (int i = 0; i < lines / 20; i++) {
+      rawHashes.set(random.nextInt(lines), "modified" + i);
+      rawHashes.add(random.nextInt(lines), "added" + i);
+    }
+
+    List<RuleKey> rules = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      rules.add(RuleKey.of("java", "S" + i));
+    }
+    baseInput = new FakeInput(baseHashes);
+    rawInput = new FakeInput(rawHashes);
+    for (int i = 0; i < issues; i++) {
+      RuleKey rule = rules.get(random.nextInt(rules.size()));
+      String message = "message " + random.nextInt(20);
+      baseInput.addIssue(1 + random.nextInt(baseHashes.size()), rule, message);
+      rawInput.addIssue(1 + random.nextInt(rawHashes.size()), rule, message);
+    }
+
+    verifySameMatching();
+  }
+
+  void verifySameMatching() {
+    Tracking<FakeIssue, FakeIssue> expected = tracker();
+    Tracking<FakeIssue, FakeIssue> actual = indexedTracker();
+    if (expected.getMatchedRaws().size() != actual.getMatchedRaws().size()) {
+      throw new IllegalStateException(String.format("Trackers do not match the same number of issues: %d vs %d",
+        expected.getMatchedRaws().size(), actual.getMatchedRaws().size()));
+    }
+    for (Map.Entry<FakeIssue, FakeIssue> entry : expected.getMatchedRaws().entrySet()) {
+      if (actual.baseFor(entry.getKey()) != entry.getValue()) {
+        throw new IllegalStateException("Trackers do not match the same base issue to raw issue " + entry.getKey());
+      }
+    }
+  }
+
+  @Benchmark
+  public Tracking<FakeIssue, FakeIssue> tracker() {
+    return tracker.track(rawInput, baseInput);
+  }
+
+  @Benchmark
+  public Tracking<FakeIssue, FakeIssue> indexedTracker() {
+    return indexedTracker.track(rawInput, baseInput);
+  }
+
+  static class FakeIssue implements Trackable {
+    private final Integer line;
+    private final String lineHash;
+    private final RuleKey ruleKey;
+    private final String message;
+
+    FakeIssue(Integer line, String lineHash, RuleKey ruleKey, String message) {
+      this.line = line;
+      this.lineHash = lineHash;
+      this.ruleKey = ruleKey;
+      this.message = message;
+    }
+
+    @Override
+    public Integer getLine() {
+      return line;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getLineHash() {
+      return lineHash;
+    }
+
+    @Override
+    public RuleKey getRuleKey() {
+      return ruleKey;
+    }
+
+    @Override
+    public String toString() {
+      return ruleKey + " on line " + line + ": " + message;
+    }
+  }
+
+  static class FakeInput implements Input<FakeIssue> {
+    private final List<FakeIssue> issues = new ArrayList<>();
+    private final LineHashSequence lineHashSequence;
+    private final BlockHashSequence blockHashSequence;
+
+    FakeInput(List<String> lineHashes) {
+      this.lineHashSequence = new LineHashSequence(lineHashes);
+      this.blockHashSequence = BlockHashSequence.create(lineHashSequence);
+    }
+
+    void addIssue(int line, RuleKey ruleKey, String message) {
+      issues.add(new FakeIssue(line, lineHashSequence.getHashForLine(line), ruleKey, message));
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashSequence;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashSequence;
+    }
+
+    @Override
+    public Collection<FakeIssue> getIssues() {
+      return issues;
+    }
+  }
+
+  /**
+   * You can this benchmark with maven command-line (see run.sh) or by executing this method
+   * in IDE
+   */
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+      .include(TrackerBenchmark.class.getSimpleName())
+      .build();
+    new Runner(opt).run();
+  }
+}
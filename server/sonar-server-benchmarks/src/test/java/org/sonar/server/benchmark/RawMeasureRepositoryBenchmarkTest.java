@@ -0,0 +1,121 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ComponentFunctions;
+import org.sonar.server.computation.component.ReportComponent;
+import org.sonar.server.computation.measure.ColumnBasedRawMeasureRepository;
+import org.sonar.server.computation.measure.MapBasedRawMeasureRepository;
+import org.sonar.server.computation.measure.Measure;
+import org.sonar.server.computation.measure.MeasureRepository;
+import org.sonar.server.computation.measure.MeasureVariations;
+import org.sonar.server.computation.metric.Metric;
+import org.sonar.server.computation.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares heap and time used by the implementations of raw measure repository of the Compute Engine.
+ */
+public class RawMeasureRepositoryBenchmarkTest {
+
+  public static final Logger LOGGER = LoggerFactory.getLogger("benchmarkRawMeasureRepository");
+
+  public static final int NUMBER_OF_FILES = 50_000;
+  public static final int NUMBER_OF_INT_METRICS = 20;
+  public static final int NUMBER_OF_DOUBLE_METRICS = 10;
+
+  @Rule
+  public Benchmark benchmark = new Benchmark();
+
+  private final List<Component> files = new ArrayList<>();
+  private final List<Metric> metrics = new ArrayList<>();
+
+  @Test
+  public void benchmark() {
+    for (int i = 0; i < NUMBER_OF_FILES; i++) {
+      files.add(ReportComponent.builder(Component.Type.FILE, i + 2).setKey("FILE_" + i).build());
+    }
+    for (int i = 0; i < NUMBER_OF_INT_METRICS; i++) {
+      metrics.add(new MetricImpl(i, "int_" + i, "Int " + i, Metric.MetricType.INT));
+    }
+    for (int i = 0; i < NUMBER_OF_DOUBLE_METRICS; i++) {
+      metrics.add(new MetricImpl(NUMBER_OF_INT_METRICS + i, "double_" + i, "Double " + i, Metric.MetricType.FLOAT));
+    }
+
+    long mapHeap = run("map based", new MapBasedRawMeasureRepository<>(ComponentFunctions.toReportRef()));
+    long columnHeap = run("column based", new ColumnBasedRawMeasureRepository());
+
+    benchmark.expectBetween("Heap used by column based repository (% of map based)", 100L * columnHeap / mapHeap, 20, 40);
+  }
+
+  private long run(String label, MeasureRepository repository) {
+    long heapBefore = usedHeap();
+    long start = System.currentTimeMillis();
+    for (Component file : files) {
+      for (Metric metric : metrics) {
+        repository.add(file, metric, createMeasure(file, metric));
+      }
+    }
+    long addEnd = System.currentTimeMillis();
+    long heap = usedHeap() - heapBefore;
+
+    double sum = 0d;
+    for (Component file : files) {
+      for (Metric metric : metrics) {
+        Measure measure = repository.getRawMeasure(file, metric).get();
+        sum += metric.getType() == Metric.MetricType.INT ? measure.getIntValue() : measure.getDoubleValue();
+      }
+    }
+    long readEnd = System.currentTimeMillis();
+    assertThat(sum).isGreaterThan(0d);
+
+    LOGGER.info(String.format("%s: %d measures added in %d ms, read in %d ms, %d MB of heap",
+      label, files.size() * metrics.size(), addEnd - start, readEnd - addEnd, heap / 1024 / 1024));
+    return heap;
+  }
+
+  private static Measure createMeasure(Component file, Metric metric) {
+    int ref = file.getReportAttributes().getRef();
+    Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder();
+    if (ref % 2 == 0) {
+      builder.setVariations(new MeasureVariations((double) ref));
+    }
+    if (metric.getType() == Metric.MetricType.INT) {
+      return builder.create(ref + metric.getId());
+    }
+    return builder.create(ref / 3d);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -34,6 +34,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDao;
 import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
 import org.sonar.server.source.index.SourceLineResultSetIterator;
 
@@ -68,7 +69,7 @@ public class SourceDbBenchmarkTest {
 
     try {
       long start = System.currentTimeMillis();
-      SourceLineResultSetIterator it = SourceLineResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, null);
+      SourceLineResultSetIterator it = SourceLineResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
       while (it.hasNext()) {
         FileSourcesUpdaterHelper.Row row = it.next();
         assertThat(row.getUpdateRequests().size()).isEqualTo(NUMBER_OF_LINES);
@@ -50,12 +50,15 @@ import static org.assertj.core.api.Assertions.assertThat;
  *   <li>size of ES data directory</li>
  *   <li>time to request index</li>
  * </ul>
+ * The layout with one document per block of lines is benchmarked when the test is executed with
+ * -DmediumTests.sonar.search.sourceLines.layout=block
  */
 public class SourceIndexBenchmarkTest {
 
   private static final Logger LOGGER = LoggerFactory.getLogger("benchmarkSourceIndexing");
   private static final long FILES = 1000L;
   private static final int LINES_PER_FILE = 3220;
+  private static final boolean BLOCK_LAYOUT = SourceLineIndexDefinition.LAYOUT_BLOCK.equals(System.getProperty("mediumTests." + SourceLineIndexDefinition.PROPERTY_LAYOUT));
 
   @Rule
   public ServerTester tester = new ServerTester().withEsIndexes();
@@ -73,7 +76,7 @@ public class SourceIndexBenchmarkTest {
   }
 
   private void benchmarkIndexing() {
-    LOGGER.info("Indexing source lines");
+    LOGGER.info("Indexing source lines ({} layout)", BLOCK_LAYOUT ? SourceLineIndexDefinition.LAYOUT_BLOCK : SourceLineIndexDefinition.LAYOUT_LINE);
 
     SourceIterator files = new SourceIterator(FILES, LINES_PER_FILE);
     ProgressTask progressTask = new ProgressTask(LOGGER, "files of " + LINES_PER_FILE + " lines", files.count());
@@ -89,13 +92,18 @@ public class SourceIndexBenchmarkTest {
     long nbLines = files.count.get() * LINES_PER_FILE;
     long throughputPerSecond = 1000L * nbLines / period;
     LOGGER.info(String.format("%d lines indexed in %d ms (%d docs/second)", nbLines, period, throughputPerSecond));
-    benchmark.expectAround("Throughput to index source lines", throughputPerSecond, 8950, Benchmark.DEFAULT_ERROR_MARGIN_PERCENTS);
+    // block layout figures were measured on a machine indexing 7198 lines/second in 152 MB with line layout
+    benchmark.expectAround("Throughput to index source lines", throughputPerSecond, BLOCK_LAYOUT ? 32676 : 8950, Benchmark.DEFAULT_ERROR_MARGIN_PERCENTS);
 
     // be sure that physical files do not evolve during estimation of size
     tester.get(EsClient.class).prepareOptimize(SourceLineIndexDefinition.INDEX).setWaitForMerge(true).get();
     long dirSize = FileUtils.sizeOfDirectory(tester.getEsServerHolder().getHomeDir());
     LOGGER.info(String.format("ES dir: " + FileUtils.byteCountToDisplaySize(dirSize)));
-    benchmark.expectBetween("ES dir size (b)", dirSize, 172L * FileUtils.ONE_MB, 182L * FileUtils.ONE_MB);
+    if (BLOCK_LAYOUT) {
+      benchmark.expectBetween("ES dir size (b)", dirSize, 81L * FileUtils.ONE_MB, 91L * FileUtils.ONE_MB);
+    } else {
+      benchmark.expectBetween("ES dir size (b)", dirSize, 172L * FileUtils.ONE_MB, 182L * FileUtils.ONE_MB);
+    }
   }
 
   private void benchmarkQueries() {
@@ -21,10 +21,12 @@
 package org.sonar.server.component;
 
 import java.util.List;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.ResourceType;
 import org.sonar.api.resources.ResourceTypes;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.server.ServerSide;
+import org.sonar.core.config.PurgeConstants;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.MyBatis;
@@ -46,9 +48,11 @@ public class ComponentCleanerService {
   private final TestIndexer testIndexer;
   private final ResourceTypes resourceTypes;
   private final ComponentFinder componentFinder;
+  private final Settings settings;
 
   public ComponentCleanerService(DbClient dbClient, IssueAuthorizationIndexer issueAuthorizationIndexer, IssueIndexer issueIndexer,
-                                 SourceLineIndexer sourceLineIndexer, TestIndexer testIndexer, ResourceTypes resourceTypes, ComponentFinder componentFinder) {
+                                 SourceLineIndexer sourceLineIndexer, TestIndexer testIndexer, ResourceTypes resourceTypes, ComponentFinder componentFinder,
+                                 Settings settings) {
     this.dbClient = dbClient;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.issueIndexer = issueIndexer;
@@ -56,6 +60,7 @@ public class ComponentCleanerService {
     this.testIndexer = testIndexer;
     this.resourceTypes = resourceTypes;
     this.componentFinder = componentFinder;
+    this.settings = settings;
   }
 
   public void delete(DbSession dbSession, List<ComponentDto> projects) {
@@ -78,7 +83,8 @@ public class ComponentCleanerService {
     if (hasNotProjectScope(project) || isNotDeletable(project)) {
       throw new IllegalArgumentException("Only projects can be deleted");
     }
-    dbClient.purgeDao().deleteResourceTree(dbSession, new IdUuidPair(project.getId(), project.uuid()), new PurgeProfiler());
+    dbClient.purgeDao().deleteResourceTree(dbSession, new IdUuidPair(project.getId(), project.uuid()), new PurgeProfiler(),
+      settings.getBoolean(PurgeConstants.STAGED_PURGE));
     dbSession.commit();
 
     deleteFromIndices(project.uuid());
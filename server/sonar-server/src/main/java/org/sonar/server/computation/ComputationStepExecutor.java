@@ -19,11 +19,24 @@
  */
 package org.sonar.server.computation;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.server.computation.monitoring.CEQueueStatus;
 import org.sonar.server.computation.step.ComputationStep;
+import org.sonar.server.computation.step.ComputationStepGraph;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
@@ -32,31 +45,41 @@ public final class ComputationStepExecutor {
   private final Listener listener;
   private final String description;
   private final CEQueueStatus queueStatus;
+  private final int stepThreads;
 
   public ComputationStepExecutor(Logger logger, Listener listener, String description, CEQueueStatus queueStatus) {
+    this(logger, listener, description, queueStatus, 1);
+  }
+
+  /**
+   * @param stepThreads number of threads executing the steps. When {@literal >} 1, steps are executed concurrently
+   *                    according to the dependencies of their {@link ComputationStepGraph}.
+   */
+  public ComputationStepExecutor(Logger logger, Listener listener, String description, CEQueueStatus queueStatus, int stepThreads) {
+    checkArgument(stepThreads >= 1, "Number of step threads must be >= 1");
     this.logger = requireNonNull(logger);
     this.listener = requireNonNull(listener);
     this.description = requireNonNull(description);
     this.queueStatus = queueStatus;
+    this.stepThreads = stepThreads;
   }
 
   public void execute(Iterable<ComputationStep> steps) {
     queueStatus.addInProgress();
     listener.onStart();
     Profiler profiler = Profiler.create(logger).startDebug(description);
-    long timingSum = 0L;
-    Profiler stepProfiler = Profiler.create(logger);
+    AtomicLong timingSum = new AtomicLong(0L);
     try {
-      for (ComputationStep step : steps) {
-        stepProfiler.start();
-        step.execute();
-        timingSum += stepProfiler.stopInfo(step.getDescription());
+      if (stepThreads == 1) {
+        executeSequentially(steps, timingSum);
+      } else {
+        executeConcurrently(steps, timingSum);
       }
-      long timing = logProcessingEnd(description, profiler, timingSum);
+      long timing = logProcessingEnd(description, profiler, timingSum.get());
       queueStatus.addSuccess(timing);
       listener.onSuccess(timing);
     } catch (Throwable e) {
-      long timing = logProcessingEnd(description, profiler, timingSum);
+      long timing = logProcessingEnd(description, profiler, timingSum.get());
       queueStatus.addError(timing);
       listener.onError(e, timing);
     } finally {
@@ -64,6 +87,80 @@ public final class ComputationStepExecutor {
     }
   }
 
+  private void executeSequentially(Iterable<ComputationStep> steps, AtomicLong timingSum) {
+    for (ComputationStep step : steps) {
+      executeStep(step, timingSum);
+    }
+  }
+
+  /**
+   * Each step is submitted in execution sequence and waits for the steps it depends on before being executed. As the
+   * pool processes tasks in submission order, the dependencies of a running step are always running or done.
+   * Once a step failed, steps which have not started yet are not executed.
+   */
+  private void executeConcurrently(Iterable<ComputationStep> steps, final AtomicLong timingSum) throws InterruptedException {
+    ComputationStepGraph graph = new ComputationStepGraph(steps);
+    ExecutorService executorService = Executors.newFixedThreadPool(stepThreads,
+      new ThreadFactoryBuilder().setNameFormat(Thread.currentThread().getName() + "-step-%d").build());
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    List<Future<Void>> futures = new ArrayList<>(graph.size());
+    try {
+      for (int i = 0; i < graph.size(); i++) {
+        final ComputationStep step = graph.getStep(i);
+        final List<Future<Void>> dependencies = new ArrayList<>();
+        for (Integer dependency : graph.getDependencies(i)) {
+          dependencies.add(futures.get(dependency));
+        }
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (Future<Void> dependency : dependencies) {
+              dependency.get();
+            }
+            if (!failed.get()) {
+              try {
+                executeStep(step, timingSum);
+              } catch (RuntimeException | Error e) {
+                failed.set(true);
+                throw e;
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      rethrowFirstFailure(futures);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Waits for all the steps to be completed. Steps are ordered so that the first failure is the one of a step which
+   * dependencies succeeded.
+   */
+  private static void rethrowFirstFailure(List<Future<Void>> futures) throws InterruptedException {
+    Throwable firstFailure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (firstFailure == null) {
+          firstFailure = e.getCause();
+        }
+      }
+    }
+    if (firstFailure != null) {
+      throw Throwables.propagate(firstFailure);
+    }
+  }
+
+  private void executeStep(ComputationStep step, AtomicLong timingSum) {
+    Profiler stepProfiler = Profiler.create(logger).start();
+    step.execute();
+    timingSum.addAndGet(stepProfiler.stopInfo(step.getDescription()));
+  }
+
   private static long logProcessingEnd(String message, Profiler profiler, long timingSum) {
     return profiler.stopInfo(format("%s total time spent in steps=%sms", message, timingSum));
   }
@@ -22,15 +22,17 @@ package org.sonar.server.computation;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import org.sonar.server.computation.monitoring.CEWorkersStatus;
 import org.sonar.server.util.AbstractStoppableScheduledExecutorServiceImpl;
 
 public class ComputeEngineProcessingExecutorServiceImpl extends AbstractStoppableScheduledExecutorServiceImpl<ScheduledExecutorService>
   implements ComputeEngineProcessingExecutorService {
   private static final String THREAD_NAME_PREFIX = "ce-processor-";
 
-  public ComputeEngineProcessingExecutorServiceImpl() {
+  public ComputeEngineProcessingExecutorServiceImpl(CEWorkersStatus workersStatus) {
     super(
-      Executors.newSingleThreadScheduledExecutor(
+      Executors.newScheduledThreadPool(
+        workersStatus.getWorkerCount(),
         new ThreadFactoryBuilder()
           .setNameFormat(THREAD_NAME_PREFIX + "%d")
           .setPriority(Thread.MIN_PRIORITY)
@@ -26,6 +26,7 @@ import org.sonar.api.platform.Server;
 import org.sonar.api.platform.ServerStartHandler;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.server.computation.monitoring.CEWorkersStatus;
 
 import static java.util.Objects.requireNonNull;
 
@@ -33,14 +34,16 @@ public class ComputeEngineProcessingQueueImpl implements ComputeEngineProcessing
   private static final Logger LOG = Loggers.get(ComputeEngineProcessingQueueImpl.class);
 
   private final ComputeEngineProcessingExecutorService processingService;
+  private final CEWorkersStatus workersStatus;
   private final ConcurrentLinkedQueue<ComputeEngineTask> queue = Queues.newConcurrentLinkedQueue();
 
   private final long delayBetweenTasks;
   private final long delayForFirstStart;
   private final TimeUnit timeUnit;
 
-  public ComputeEngineProcessingQueueImpl(ComputeEngineProcessingExecutorService processingExecutorService) {
+  public ComputeEngineProcessingQueueImpl(ComputeEngineProcessingExecutorService processingExecutorService, CEWorkersStatus workersStatus) {
     this.processingService = processingExecutorService;
+    this.workersStatus = workersStatus;
 
     this.delayBetweenTasks = 10;
     this.delayForFirstStart = 0;
@@ -56,7 +59,10 @@ public class ComputeEngineProcessingQueueImpl implements ComputeEngineProcessing
 
   @Override
   public void onServerStart(Server server) {
-    processingService.scheduleAtFixedRate(new ProcessHeadOfQueueRunnable(), delayForFirstStart, delayBetweenTasks, timeUnit);
+    // one runnable per worker so that as many tasks as there are workers can run concurrently
+    for (int i = 0; i < workersStatus.getWorkerCount(); i++) {
+      processingService.scheduleAtFixedRate(new ProcessHeadOfQueueRunnable(), delayForFirstStart, delayBetweenTasks, timeUnit);
+    }
   }
 
   private class ProcessHeadOfQueueRunnable implements Runnable {
@@ -24,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import org.sonar.api.platform.Server;
 import org.sonar.api.platform.ServerStartHandler;
 import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.computation.monitoring.CEWorkersStatus;
 import org.sonar.server.computation.container.ContainerFactory;
 import org.sonar.server.computation.container.ContainerFactoryImpl;
 
@@ -35,6 +36,7 @@ public class ReportProcessingScheduler implements ServerStartHandler {
   private final ReportProcessingSchedulerExecutorService reportProcessingSchedulerExecutorService;
   private final ComputeEngineProcessingQueue processingQueue;
   private final ReportQueue queue;
+  private final CEWorkersStatus workersStatus;
   private final ComponentContainer sqContainer;
   private final ContainerFactory containerFactory;
 
@@ -44,10 +46,11 @@ public class ReportProcessingScheduler implements ServerStartHandler {
 
   public ReportProcessingScheduler(ReportProcessingSchedulerExecutorService reportProcessingSchedulerExecutorService,
     ComputeEngineProcessingQueue processingQueue,
-    ReportQueue queue, ComponentContainer sqContainer) {
+    ReportQueue queue, CEWorkersStatus workersStatus, ComponentContainer sqContainer) {
     this.reportProcessingSchedulerExecutorService = reportProcessingSchedulerExecutorService;
     this.processingQueue = processingQueue;
     this.queue = queue;
+    this.workersStatus = workersStatus;
     this.sqContainer = sqContainer;
     this.containerFactory = new ContainerFactoryImpl();
 
@@ -62,13 +65,26 @@ public class ReportProcessingScheduler implements ServerStartHandler {
 
   @Override
   public void onServerStart(Server server) {
-    reportProcessingSchedulerExecutorService.scheduleAtFixedRate(new AddReportProcessingToCEProcessingQueue(), delayForFirstStart, delayBetweenTasks, timeUnit);
+    reportProcessingSchedulerExecutorService.scheduleAtFixedRate(new AddReportProcessingToCEProcessingQueueForEachWorker(), delayForFirstStart, delayBetweenTasks, timeUnit);
   }
 
   private class AddReportProcessingToCEProcessingQueue implements Runnable {
     @Override
     public void run() {
-      processingQueue.addTask(new ReportProcessingTask(queue, sqContainer, containerFactory));
+      processingQueue.addTask(new ReportProcessingTask(queue, workersStatus, sqContainer, containerFactory));
+    }
+  }
+
+  /**
+   * Feeds every worker of the Compute Engine, reports being popped from {@link ReportQueue} so that two reports of the
+   * same project are never processed at the same time.
+   */
+  private class AddReportProcessingToCEProcessingQueueForEachWorker implements Runnable {
+    @Override
+    public void run() {
+      for (int i = 0; i < workersStatus.getWorkerCount(); i++) {
+        processingQueue.addTask(new ReportProcessingTask(queue, workersStatus, sqContainer, containerFactory));
+      }
     }
   }
 }
@@ -26,6 +26,7 @@ import org.sonar.core.platform.ComponentContainer;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.server.computation.container.ComputeEngineContainer;
 import org.sonar.server.computation.container.ContainerFactory;
+import org.sonar.server.computation.monitoring.CEWorkersStatus;
 
 /**
  * This Compute E pops a report from the queue and integrate it.
@@ -35,11 +36,13 @@ public class ReportProcessingTask implements ComputeEngineTask {
   private static final Logger LOG = Loggers.get(ReportProcessingTask.class);
 
   private final ReportQueue queue;
+  private final CEWorkersStatus workersStatus;
   private final ComponentContainer sqContainer;
   private final ContainerFactory containerFactory;
 
-  public ReportProcessingTask(ReportQueue queue, ComponentContainer sqContainer, ContainerFactory containerFactory) {
+  public ReportProcessingTask(ReportQueue queue, CEWorkersStatus workersStatus, ComponentContainer sqContainer, ContainerFactory containerFactory) {
     this.queue = queue;
+    this.workersStatus = workersStatus;
     this.sqContainer = sqContainer;
     this.containerFactory = containerFactory;
   }
@@ -57,16 +60,22 @@ public class ReportProcessingTask implements ComputeEngineTask {
       return;
     }
 
-    ComputeEngineContainer computeEngineContainer = containerFactory.create(sqContainer, item);
+    String workerName = Thread.currentThread().getName();
+    ComputeEngineContainer computeEngineContainer = null;
     try {
+      workersStatus.setWorking(workerName, item.dto.getProjectKey(), item.dto.getId());
+      computeEngineContainer = containerFactory.create(sqContainer, item);
       computeEngineContainer.getComponentByType(ReportProcessor.class).process();
     } catch (Throwable e) {
       LOG.error(String.format(
         "Failed to process analysis report %d of project %s", item.dto.getId(), item.dto.getProjectKey()), e);
     } finally {
-      computeEngineContainer.cleanup();
+      if (computeEngineContainer != null) {
+        computeEngineContainer.cleanup();
+      }
 
       removeSilentlyFromQueue(item);
+      workersStatus.setIdle(workerName);
     }
     profiler.stopInfo(String.format("Total thread execution of project %s (report %d)", item.dto.getProjectKey(), item.dto.getId()));
   }
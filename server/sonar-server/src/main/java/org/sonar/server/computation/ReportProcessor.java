@@ -20,6 +20,7 @@
 package org.sonar.server.computation;
 
 import com.google.common.base.Throwables;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.computation.activity.ActivityManager;
@@ -31,16 +32,20 @@ import static org.sonar.db.compute.AnalysisReportDto.Status.FAILED;
 import static org.sonar.db.compute.AnalysisReportDto.Status.SUCCESS;
 
 public class ReportProcessor {
+  /**
+   * Number of threads used to execute the computation steps of a report. Steps are executed sequentially by default.
+   */
+  public static final String STEP_THREADS_PROPERTY = "sonar.ce.stepThreads";
 
   private final ComputationStepExecutor executor;
   private final ComputationSteps steps;
 
   public ReportProcessor(ComputationSteps steps,
-    ReportQueue.Item item, ActivityManager activityManager, System2 system, CEQueueStatus queueStatus) {
+    ReportQueue.Item item, ActivityManager activityManager, System2 system, CEQueueStatus queueStatus, Settings settings) {
     this.executor = new ComputationStepExecutor(
       Loggers.get(ReportProcessor.class),
       new ReportProcessingStepsExecutorListener(item, system, activityManager, queueStatus),
-        createDescription(item), queueStatus);
+      createDescription(item), queueStatus, stepThreads(settings));
     this.steps = steps;
   }
 
@@ -48,6 +53,10 @@ public class ReportProcessor {
     this.executor.execute(this.steps.instances());
   }
 
+  private static int stepThreads(Settings settings) {
+    return settings.hasKey(STEP_THREADS_PROPERTY) ? settings.getInt(STEP_THREADS_PROPERTY) : 1;
+  }
+
   private static String createDescription(ReportQueue.Item item) {
     String projectKey = item.dto.getProjectKey();
     return format("Analysis of project %s (report %d)", projectKey, item.dto.getId());
@@ -21,7 +21,7 @@ package org.sonar.server.computation.container;
 
 import java.util.Arrays;
 import java.util.List;
-import org.sonar.core.issue.tracking.Tracker;
+import org.sonar.core.issue.tracking.IndexedTracker;
 import org.sonar.core.platform.ContainerPopulator;
 import org.sonar.server.computation.ComputationTempFolderProvider;
 import org.sonar.server.computation.ReportProcessor;
@@ -161,7 +161,7 @@ public final class ReportComputeEngineContainerPopulator implements ContainerPop
         UpdateConflictResolver.class,
         TrackerBaseInputFactory.class,
         TrackerRawInputFactory.class,
-        Tracker.class,
+        IndexedTracker.class,
         TrackerExecution.class,
         BaseIssuesLoader.class,
 
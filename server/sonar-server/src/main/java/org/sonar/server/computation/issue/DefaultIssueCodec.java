@@ -0,0 +1,421 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+import org.sonar.server.util.cache.Codec;
+
+/**
+ * Binary encoding of all the fields of {@link DefaultIssue}, which is much more compact and faster than Java
+ * serialization.
+ */
+public class DefaultIssueCodec implements Codec<DefaultIssue> {
+
+  private static final int NULL_LENGTH = -1;
+
+  // types of values of FieldDiffs and of issue locations
+  private static final byte NULL_VALUE = 0;
+  private static final byte STRING_VALUE = 1;
+  private static final byte LONG_VALUE = 2;
+  private static final byte LOCATIONS_VALUE = 3;
+  private static final byte SERIALIZED_VALUE = 4;
+
+  @Override
+  public void encode(DefaultIssue issue, DataOutput output) throws IOException {
+    writeString(output, issue.key());
+    writeString(output, issue.componentUuid());
+    writeString(output, issue.componentKey());
+    writeString(output, issue.moduleUuid());
+    writeString(output, issue.moduleUuidPath());
+    writeString(output, issue.projectUuid());
+    writeString(output, issue.projectKey());
+    RuleKey ruleKey = issue.ruleKey();
+    output.writeBoolean(ruleKey != null);
+    if (ruleKey != null) {
+      writeString(output, ruleKey.repository());
+      writeString(output, ruleKey.rule());
+    }
+    writeString(output, issue.language());
+    writeString(output, issue.severity());
+    output.writeBoolean(issue.manualSeverity());
+    writeString(output, issue.message());
+    writeNullableInt(output, issue.line());
+    Double effortToFix = issue.effortToFix();
+    output.writeBoolean(effortToFix != null);
+    if (effortToFix != null) {
+      output.writeDouble(effortToFix);
+    }
+    Duration debt = issue.debt();
+    writeNullableLong(output, debt == null ? null : debt.toMinutes());
+    writeString(output, issue.status());
+    writeString(output, issue.resolution());
+    writeString(output, issue.reporter());
+    writeString(output, issue.assignee());
+    writeString(output, issue.checksum());
+    writeStringMap(output, issue.attributes());
+    writeString(output, issue.authorLogin());
+    writeString(output, issue.actionPlanKey());
+    writeComments(output, issue.comments());
+    writeTags(output, issue.tags());
+    writeValue(output, issue.getLocations());
+    writeDate(output, issue.creationDate());
+    writeDate(output, issue.updateDate());
+    writeDate(output, issue.closeDate());
+    writeChanges(output, issue.changes(), issue.currentChange());
+    output.writeBoolean(issue.isNew());
+    output.writeBoolean(issue.isBeingClosed());
+    output.writeBoolean(issue.isOnDisabledRule());
+    output.writeBoolean(issue.isChanged());
+    output.writeBoolean(issue.mustSendNotifications());
+    writeNullableLong(output, issue.selectedAt());
+  }
+
+  @Override
+  public DefaultIssue decode(DataInput input) throws IOException {
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(input));
+    issue.setComponentUuid(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setModuleUuid(readString(input));
+    issue.setModuleUuidPath(readString(input));
+    issue.setProjectUuid(readString(input));
+    issue.setProjectKey(readString(input));
+    if (input.readBoolean()) {
+      issue.setRuleKey(RuleKey.of(readString(input), readString(input)));
+    }
+    issue.setLanguage(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setManualSeverity(input.readBoolean());
+    issue.setMessage(readString(input));
+    issue.setLine(readNullableInt(input));
+    if (input.readBoolean()) {
+      issue.setEffortToFix(input.readDouble());
+    }
+    Long debt = readNullableLong(input);
+    if (debt != null) {
+      issue.setDebt(Duration.create(debt));
+    }
+    String status = readString(input);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(readString(input));
+    issue.setReporter(readString(input));
+    issue.setAssignee(readString(input));
+    issue.setChecksum(readString(input));
+    issue.setAttributes(readStringMap(input));
+    issue.setAuthorLogin(readString(input));
+    issue.setActionPlanKey(readString(input));
+    readComments(input, issue);
+    readTags(input, issue);
+    Object locations = readValue(input);
+    if (locations != null) {
+      issue.setLocations(locations);
+    }
+    issue.setCreationDate(readDate(input));
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    readChanges(input, issue);
+    issue.setNew(input.readBoolean());
+    issue.setBeingClosed(input.readBoolean());
+    issue.setOnDisabledRule(input.readBoolean());
+    issue.setChanged(input.readBoolean());
+    issue.setSendNotifications(input.readBoolean());
+    issue.setSelectedAt(readNullableLong(input));
+    return issue;
+  }
+
+  private static void writeComments(DataOutput output, List<IssueComment> comments) throws IOException {
+    output.writeInt(comments.size());
+    for (IssueComment comment : comments) {
+      DefaultIssueComment c = (DefaultIssueComment) comment;
+      writeString(output, c.issueKey());
+      writeString(output, c.key());
+      writeString(output, c.userLogin());
+      writeString(output, c.markdownText());
+      writeDate(output, c.createdAt());
+      writeDate(output, c.updatedAt());
+      output.writeBoolean(c.isNew());
+    }
+  }
+
+  private static void readComments(DataInput input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      DefaultIssueComment comment = new DefaultIssueComment()
+        .setIssueKey(readString(input))
+        .setKey(readString(input))
+        .setUserLogin(readString(input))
+        .setMarkdownText(readString(input))
+        .setCreatedAt(readDate(input))
+        .setUpdatedAt(readDate(input))
+        .setNew(input.readBoolean());
+      issue.addComment(comment);
+    }
+  }
+
+  private static void writeTags(DataOutput output, Set<String> tags) throws IOException {
+    output.writeInt(tags.size());
+    for (String tag : tags) {
+      writeString(output, tag);
+    }
+  }
+
+  private static void readTags(DataInput input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    if (size > 0) {
+      List<String> tags = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        tags.add(readString(input));
+      }
+      issue.setTags(tags);
+    }
+  }
+
+  /**
+   * The current change is usually one of the changes. Its index is written so that the same instance is shared
+   * after decoding.
+   */
+  private static void writeChanges(DataOutput output, List<FieldDiffs> changes, @Nullable FieldDiffs currentChange) throws IOException {
+    output.writeInt(changes.size());
+    int currentChangeIndex = NULL_LENGTH;
+    for (int i = 0; i < changes.size(); i++) {
+      FieldDiffs change = changes.get(i);
+      writeFieldDiffs(output, change);
+      if (change == currentChange) {
+        currentChangeIndex = i;
+      }
+    }
+    output.writeInt(currentChangeIndex);
+    if (currentChangeIndex == NULL_LENGTH) {
+      output.writeBoolean(currentChange != null);
+      if (currentChange != null) {
+        writeFieldDiffs(output, currentChange);
+      }
+    }
+  }
+
+  private static void readChanges(DataInput input, DefaultIssue issue) throws IOException {
+    int size = input.readInt();
+    List<FieldDiffs> changes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      changes.add(readFieldDiffs(input));
+    }
+    int currentChangeIndex = input.readInt();
+    if (currentChangeIndex == NULL_LENGTH) {
+      if (input.readBoolean()) {
+        issue.setCurrentChange(readFieldDiffs(input));
+      }
+      if (size > 0) {
+        issue.setChanges(changes);
+      }
+    } else {
+      // setCurrentChange() appends the change to the list of changes
+      issue.setChanges(new ArrayList<>(changes.subList(0, currentChangeIndex)));
+      issue.setCurrentChange(changes.get(currentChangeIndex));
+      for (FieldDiffs change : changes.subList(currentChangeIndex + 1, size)) {
+        issue.addChange(change);
+      }
+    }
+  }
+
+  private static void writeFieldDiffs(DataOutput output, FieldDiffs fieldDiffs) throws IOException {
+    writeString(output, fieldDiffs.issueKey());
+    writeString(output, fieldDiffs.userLogin());
+    writeDate(output, fieldDiffs.creationDate());
+    Map<String, FieldDiffs.Diff> diffs = fieldDiffs.diffs();
+    output.writeInt(diffs.size());
+    for (Map.Entry<String, FieldDiffs.Diff> entry : diffs.entrySet()) {
+      writeString(output, entry.getKey());
+      writeValue(output, entry.getValue().oldValue());
+      writeValue(output, entry.getValue().newValue());
+    }
+  }
+
+  private static FieldDiffs readFieldDiffs(DataInput input) throws IOException {
+    FieldDiffs fieldDiffs = new FieldDiffs()
+      .setIssueKey(readString(input))
+      .setUserLogin(readString(input))
+      .setCreationDate(readDate(input));
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      String field = readString(input);
+      fieldDiffs.setDiff(field, (Serializable) readValue(input), (Serializable) readValue(input));
+    }
+    return fieldDiffs;
+  }
+
+  private static void writeValue(DataOutput output, @Nullable Object value) throws IOException {
+    if (value == null) {
+      output.writeByte(NULL_VALUE);
+    } else if (value instanceof String) {
+      output.writeByte(STRING_VALUE);
+      writeString(output, (String) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG_VALUE);
+      output.writeLong((Long) value);
+    } else if (value instanceof DbIssues.Locations) {
+      output.writeByte(LOCATIONS_VALUE);
+      writeBytes(output, ((DbIssues.Locations) value).toByteArray());
+    } else {
+      // unusual type, falls back to Java serialization
+      output.writeByte(SERIALIZED_VALUE);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+        objectOutput.writeObject(value);
+      }
+      writeBytes(output, bytes.toByteArray());
+    }
+  }
+
+  @CheckForNull
+  private static Object readValue(DataInput input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case NULL_VALUE:
+        return null;
+      case STRING_VALUE:
+        return readString(input);
+      case LONG_VALUE:
+        return input.readLong();
+      case LOCATIONS_VALUE:
+        return DbIssues.Locations.parseFrom(readBytes(input));
+      case SERIALIZED_VALUE:
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(readBytes(input)))) {
+          return objectInput.readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IllegalStateException("Fail to deserialize issue value", e);
+        }
+      default:
+        throw new IllegalStateException("Unsupported type of value: " + type);
+    }
+  }
+
+  private static void writeStringMap(DataOutput output, Map<String, String> map) throws IOException {
+    output.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      writeString(output, entry.getKey());
+      writeString(output, entry.getValue());
+    }
+  }
+
+  @CheckForNull
+  private static Map<String, String> readStringMap(DataInput input) throws IOException {
+    int size = input.readInt();
+    if (size == 0) {
+      return null;
+    }
+    Map<String, String> map = new HashMap<>(size);
+    for (int i = 0; i < size; i++) {
+      map.put(readString(input), readString(input));
+    }
+    return map;
+  }
+
+  private static void writeDate(DataOutput output, @Nullable Date date) throws IOException {
+    writeNullableLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInput input) throws IOException {
+    Long time = readNullableLong(input);
+    return time == null ? null : new Date(time);
+  }
+
+  private static void writeNullableLong(DataOutput output, @Nullable Long l) throws IOException {
+    output.writeBoolean(l != null);
+    if (l != null) {
+      output.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readNullableLong(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readLong() : null;
+  }
+
+  private static void writeNullableInt(DataOutput output, @Nullable Integer i) throws IOException {
+    output.writeBoolean(i != null);
+    if (i != null) {
+      output.writeInt(i);
+    }
+  }
+
+  @CheckForNull
+  private static Integer readNullableInt(DataInput input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  /**
+   * Unlike {@link DataOutput#writeUTF(String)}, supports null and strings longer than 64KB
+   */
+  private static void writeString(DataOutput output, @Nullable String s) throws IOException {
+    writeBytes(output, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(DataInput input) throws IOException {
+    byte[] bytes = readBytes(input);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutput output, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      output.writeInt(NULL_LENGTH);
+    } else {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInput input) throws IOException {
+    int length = input.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return bytes;
+  }
+}
@@ -19,25 +19,40 @@
  */
 package org.sonar.server.computation.issue;
 
+import com.google.common.base.Function;
 import java.io.File;
 import java.io.IOException;
+import javax.annotation.Nonnull;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.server.util.cache.DiskCache;
+import org.sonar.server.util.cache.IndexedDiskCache;
 
 /**
  * Cache of all the issues involved in the analysis. Their state is as it will be
  * persisted in database (after issue tracking, auto-assignment, ...)
+ * <p>
+ * Issues are encoded by {@link DefaultIssueCodec} in LZ4-compressed blocks indexed by component UUID, so that
+ * the issues of a component can be read without a full scan (see {@link #traverse(String)}).
+ * </p>
  */
-public class IssueCache extends DiskCache<DefaultIssue> {
+public class IssueCache extends IndexedDiskCache<DefaultIssue> {
 
   // this constructor is used by picocontainer
   public IssueCache(TempFolder tempFolder, System2 system2) throws IOException {
-    super(tempFolder.newFile("issues", ".dat"), system2);
+    this(tempFolder.newFile("issues", ".dat"), system2);
   }
 
   public IssueCache(File file, System2 system2) {
-    super(file, system2);
+    super(file, system2, new DefaultIssueCodec(), ToComponentUuid.INSTANCE, true);
+  }
+
+  private enum ToComponentUuid implements Function<DefaultIssue, String> {
+    INSTANCE;
+
+    @Override
+    public String apply(@Nonnull DefaultIssue input) {
+      return input.componentUuid();
+    }
   }
 }
@@ -24,6 +24,7 @@ import org.sonar.server.util.cache.MemoryCache;
 
 public class RuleRepositoryImpl implements RuleRepository {
 
+  // access is synchronized as base issues can be loaded concurrently (see IntegrateIssuesStep)
   private final MemoryCache<RuleKey, Rule> cache;
 
   public RuleRepositoryImpl(RuleCacheLoader cacheLoader) {
@@ -31,12 +32,12 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public Rule getByKey(RuleKey key) {
+  public synchronized Rule getByKey(RuleKey key) {
     return cache.get(key);
   }
 
   @Override
-  public boolean hasKey(RuleKey key) {
+  public synchronized boolean hasKey(RuleKey key) {
     return cache.getNullable(key) != null;
   }
 }
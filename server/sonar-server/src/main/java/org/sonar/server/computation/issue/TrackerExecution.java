@@ -20,6 +20,7 @@
 package org.sonar.server.computation.issue;
 
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracker;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.component.Component;
@@ -38,6 +39,21 @@ public class TrackerExecution {
   }
 
   public Tracking<DefaultIssue, DefaultIssue> track(Component component) {
-    return tracker.track(rawInputFactory.create(component), baseInputFactory.create(component));
+    return track(component, rawInputFactory.create(component));
+  }
+
+  /**
+   * Lazy-loaded raw issues of the component, as used by {@link #track(Component)}
+   */
+  public Input<DefaultIssue> createRawInput(Component component) {
+    return rawInputFactory.create(component);
+  }
+
+  /**
+   * Matches the given raw input with the base issues of the component, which are loaded from database by the
+   * calling thread.
+   */
+  public Tracking<DefaultIssue, DefaultIssue> track(Component component, Input<DefaultIssue> rawInput) {
+    return tracker.track(rawInput, baseInputFactory.create(component));
   }
 }
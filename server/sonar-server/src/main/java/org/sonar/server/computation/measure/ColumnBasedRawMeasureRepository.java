@@ -0,0 +1,380 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.debt.Characteristic;
+import org.sonar.server.computation.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Implementation of MeasureRepository which supports only raw measures and which stores them by column: one column
+ * per metric, indexed by the report ref of the components.
+ * <p>
+ * The numeric values (int, long, double and boolean) and the variations of the measures which are associated neither
+ * to a rule nor to a characteristic are stored in arrays of primitives. Long values are stored in a <code>long[]</code>,
+ * so that they are not rounded as doubles beyond 2^53. {@link Measure} objects are created only when
+ * they are requested. Measures which can not be stored this way (string and level values, data, description, quality
+ * gate status, measures of rules and characteristics) are kept as objects.
+ * </p>
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ */
+public final class ColumnBasedRawMeasureRepository implements RawMeasureRepository {
+  private static final int INITIAL_CAPACITY = 64;
+  private static final int NUMBER_OF_VARIATIONS = 5;
+
+  // metric id -> column
+  private final Map<Integer, Column> columns = new HashMap<>();
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    return find(component, metric, null, null);
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric, RuleDto rule) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+    requireNonNull(rule);
+
+    return find(component, metric, rule.getId(), null);
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(Component component, Metric metric, Characteristic characteristic) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+    requireNonNull(characteristic);
+
+    return find(component, metric, null, characteristic.getId());
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    Optional<Measure> existingMeasure = find(component, metric, measure.getRuleId(), measure.getCharacteristicId());
+    if (existingMeasure.isPresent()) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s)%s. Use update method",
+          component.getKey(),
+          metric.getKey(),
+          buildRuleOrCharacteristicMsgPart(measure)));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    checkValueTypeConsistency(metric, measure);
+
+    Optional<Measure> existingMeasure = find(component, metric, measure.getRuleId(), measure.getCharacteristicId());
+    if (!existingMeasure.isPresent()) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s)%s. Use add method",
+          component.getKey(),
+          metric.getKey(),
+          buildRuleOrCharacteristicMsgPart(measure)));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      format(
+        "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+        measure.getValueType(), metric.getType().getValueType()));
+  }
+
+  private static String buildRuleOrCharacteristicMsgPart(Measure measure) {
+    if (measure.getRuleId() != null) {
+      return " and rule (id=" + measure.getRuleId() + ")";
+    }
+    if (measure.getCharacteristicId() != null) {
+      return " and Characteristic (id=" + measure.getCharacteristicId() + ")";
+    }
+    return "";
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    int ref = component.getReportAttributes().getRef();
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    for (Column column : columns.values()) {
+      String metricKey = column.metric.getKey();
+      Measure measure = column.get(ref);
+      if (measure != null) {
+        builder.put(metricKey, measure);
+      }
+      Map<MeasureKey, Measure> ruleAndCharacteristicMeasures = column.ruleAndCharacteristicMeasures.get(ref);
+      if (ruleAndCharacteristicMeasures != null) {
+        builder.putAll(metricKey, ruleAndCharacteristicMeasures.values());
+      }
+    }
+    return builder.build();
+  }
+
+  private Optional<Measure> find(Component component, Metric metric, @Nullable Integer ruleId, @Nullable Integer characteristicId) {
+    Column column = columns.get(metric.getId());
+    if (column == null) {
+      return Optional.absent();
+    }
+    int ref = component.getReportAttributes().getRef();
+    if (ruleId == null && characteristicId == null) {
+      return Optional.fromNullable(column.get(ref));
+    }
+    Map<MeasureKey, Measure> ruleAndCharacteristicMeasures = column.ruleAndCharacteristicMeasures.get(ref);
+    if (ruleAndCharacteristicMeasures == null) {
+      return Optional.absent();
+    }
+    return Optional.fromNullable(ruleAndCharacteristicMeasures.get(new MeasureKey(metric.getKey(), ruleId, characteristicId)));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(metric);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    Column column = columns.get(metric.getId());
+    if (column == null) {
+      column = new Column(metric);
+      columns.put(metric.getId(), column);
+    }
+    int ref = component.getReportAttributes().getRef();
+    if (measure.getRuleId() == null && measure.getCharacteristicId() == null) {
+      if (!column.contains(ref) || overridePolicy == OverridePolicy.OVERRIDE) {
+        column.set(ref, measure);
+      }
+      return;
+    }
+
+    Map<MeasureKey, Measure> ruleAndCharacteristicMeasures = column.ruleAndCharacteristicMeasures.get(ref);
+    if (ruleAndCharacteristicMeasures == null) {
+      ruleAndCharacteristicMeasures = new HashMap<>();
+      column.ruleAndCharacteristicMeasures.put(ref, ruleAndCharacteristicMeasures);
+    }
+    MeasureKey key = new MeasureKey(metric.getKey(), measure.getRuleId(), measure.getCharacteristicId());
+    if (!ruleAndCharacteristicMeasures.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
+      ruleAndCharacteristicMeasures.put(key, measure);
+    }
+  }
+
+  /**
+   * Measures of a metric, indexed by component ref.
+   * <p>
+   * Values of long metrics are stored in {@link #longValues}, the values of the other metrics in {@link #values}.
+   * NaN is used in {@link #variations} for missing variations (NaN is not allowed in variations of {@link Measure}).
+   * </p>
+   */
+  private static final class Column {
+    private final Metric metric;
+    private final boolean longType;
+    private final BitSet present = new BitSet();
+    private final BitSet noValue = new BitSet();
+    private int capacity = 0;
+    private double[] values = new double[0];
+    private long[] longValues = new long[0];
+    // lazily created, as most metrics have no variations on most components
+    @CheckForNull
+    private double[][] variations = null;
+    // measures which can not be stored as primitives
+    private final Map<Integer, Measure> objects = new HashMap<>();
+    private final Map<Integer, Map<MeasureKey, Measure>> ruleAndCharacteristicMeasures = new HashMap<>();
+
+    private Column(Metric metric) {
+      this.metric = metric;
+      this.longType = metric.getType().getValueType() == Measure.ValueType.LONG;
+    }
+
+    private boolean contains(int ref) {
+      return present.get(ref) || objects.containsKey(ref);
+    }
+
+    private void set(int ref, Measure measure) {
+      if (!isPrimitive(measure)) {
+        present.clear(ref);
+        objects.put(ref, measure);
+        return;
+      }
+      objects.remove(ref);
+      ensureCapacity(ref + 1);
+      present.set(ref);
+      if (measure.getValueType() == Measure.ValueType.NO_VALUE) {
+        noValue.set(ref);
+      } else {
+        noValue.clear(ref);
+        if (longType) {
+          longValues[ref] = measure.getLongValue();
+        } else {
+          values[ref] = toDouble(measure);
+        }
+      }
+      if (measure.hasVariations()) {
+        if (variations == null) {
+          variations = new double[NUMBER_OF_VARIATIONS][];
+          for (int i = 0; i < NUMBER_OF_VARIATIONS; i++) {
+            variations[i] = newNaNArray(capacity);
+          }
+        }
+        MeasureVariations measureVariations = measure.getVariations();
+        for (int i = 0; i < NUMBER_OF_VARIATIONS; i++) {
+          variations[i][ref] = measureVariations.hasVariation(i + 1) ? measureVariations.getVariation(i + 1) : Double.NaN;
+        }
+      } else if (variations != null) {
+        for (int i = 0; i < NUMBER_OF_VARIATIONS; i++) {
+          variations[i][ref] = Double.NaN;
+        }
+      }
+    }
+
+    @CheckForNull
+    private Measure get(int ref) {
+      if (!present.get(ref)) {
+        return objects.get(ref);
+      }
+      Measure.NewMeasureBuilder builder = Measure.newMeasureBuilder();
+      MeasureVariations measureVariations = getVariations(ref);
+      if (measureVariations != null) {
+        builder.setVariations(measureVariations);
+      }
+      if (noValue.get(ref)) {
+        return builder.createNoValue();
+      }
+      if (longType) {
+        return builder.create(longValues[ref]);
+      }
+      double value = values[ref];
+      switch (metric.getType().getValueType()) {
+        case INT:
+          return builder.create((int) value);
+        case DOUBLE:
+          return builder.create(value);
+        case BOOLEAN:
+          return builder.create(value == 1.0d);
+        default:
+          throw new IllegalStateException("Unsupported primitive value type " + metric.getType().getValueType());
+      }
+    }
+
+    @CheckForNull
+    private MeasureVariations getVariations(int ref) {
+      if (variations == null) {
+        return null;
+      }
+      Double[] result = new Double[NUMBER_OF_VARIATIONS];
+      boolean hasVariation = false;
+      for (int i = 0; i < NUMBER_OF_VARIATIONS; i++) {
+        double variation = variations[i][ref];
+        if (!Double.isNaN(variation)) {
+          result[i] = variation;
+          hasVariation = true;
+        }
+      }
+      return hasVariation ? new MeasureVariations(result) : null;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (capacity >= minCapacity) {
+        return;
+      }
+      int newLength = Math.max(Math.max(INITIAL_CAPACITY, minCapacity), capacity + (capacity >> 1));
+      capacity = newLength;
+      if (longType) {
+        longValues = Arrays.copyOf(longValues, newLength);
+      } else {
+        values = Arrays.copyOf(values, newLength);
+      }
+      if (variations != null) {
+        for (int i = 0; i < NUMBER_OF_VARIATIONS; i++) {
+          int oldLength = variations[i].length;
+          variations[i] = Arrays.copyOf(variations[i], newLength);
+          Arrays.fill(variations[i], oldLength, newLength, Double.NaN);
+        }
+      }
+    }
+
+    private static double[] newNaNArray(int length) {
+      double[] array = new double[length];
+      Arrays.fill(array, Double.NaN);
+      return array;
+    }
+
+    private static boolean isPrimitive(Measure measure) {
+      switch (measure.getValueType()) {
+        case INT:
+        case LONG:
+        case DOUBLE:
+        case BOOLEAN:
+        case NO_VALUE:
+          return measure.getData() == null && measure.getDescription() == null && !measure.hasQualityGateStatus();
+        default:
+          return false;
+      }
+    }
+
+    private static double toDouble(Measure measure) {
+      switch (measure.getValueType()) {
+        case INT:
+          return measure.getIntValue();
+        case DOUBLE:
+          return measure.getDoubleValue();
+        case BOOLEAN:
+          return measure.getBooleanValue() ? 1.0d : 0.0d;
+        default:
+          throw new IllegalArgumentException("Unsupported primitive value type " + measure.getValueType());
+      }
+    }
+  }
+}
@@ -40,7 +40,7 @@ import static java.util.Objects.requireNonNull;
  *
  * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
  */
-public final class MapBasedRawMeasureRepository<T> implements MeasureRepository {
+public final class MapBasedRawMeasureRepository<T> implements RawMeasureRepository {
   private final Function<Component, T> componentToKey;
   private final Map<T, Map<MeasureKey, Measure>> measures = new HashMap<>();
 
@@ -170,6 +170,7 @@ public final class MapBasedRawMeasureRepository<T> implements MeasureRepository
     return Optional.fromNullable(measuresPerMetric.get(new MeasureKey(metric.getKey(), measure.getRuleId(), measure.getCharacteristicId())));
   }
 
+  @Override
   public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
     requireNonNull(component);
     requireNonNull(measure);
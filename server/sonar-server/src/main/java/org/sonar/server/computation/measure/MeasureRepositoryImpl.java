@@ -19,10 +19,14 @@
  */
 package org.sonar.server.computation.measure;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.collect.SetMultimap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import org.sonar.api.config.Settings;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
@@ -41,7 +45,16 @@ import static java.util.Objects.requireNonNull;
 import static org.sonar.server.computation.component.ComponentFunctions.toReportRef;
 
 public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<Integer> delegate = new MapBasedRawMeasureRepository<>(toReportRef());
+  /**
+   * When true, raw measures are stored by {@link ColumnBasedRawMeasureRepository} instead of
+   * {@link MapBasedRawMeasureRepository}. Default is false.
+   */
+  public static final String COLUMN_BASED_PROPERTY = "sonar.ce.columnBasedMeasures";
+
+  @VisibleForTesting
+  static final int MAX_CACHED_BASE_MEASURES = 1000;
+
+  private final RawMeasureRepository delegate;
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
@@ -50,8 +63,11 @@ public class MeasureRepositoryImpl implements MeasureRepository {
 
   private final MeasureDtoToMeasure measureDtoToMeasure = new MeasureDtoToMeasure();
   private final Set<Integer> loadedComponents = new HashSet<>();
+  private final Map<BaseMeasureKey, Optional<Measure>> baseMeasures = new BaseMeasureCache();
 
-  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator) {
+  public MeasureRepositoryImpl(DbClient dbClient, BatchReportReader reportReader, MetricRepository metricRepository, ReportMetricValidator reportMetricValidator,
+    Settings settings) {
+    this.delegate = settings.getBoolean(COLUMN_BASED_PROPERTY) ? new ColumnBasedRawMeasureRepository() : new MapBasedRawMeasureRepository<>(toReportRef());
     this.dbClient = dbClient;
     this.reportReader = reportReader;
     this.reportMetricValidator = reportMetricValidator;
@@ -59,12 +75,27 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     this.metricRepository = metricRepository;
   }
 
+  /**
+   * Only the base measure of the requested component is loaded. It is kept in memory, even if absent, so that next calls
+   * for the same component and metric do not query the database again. Only the {@link #MAX_CACHED_BASE_MEASURES} most
+   * recently requested base measures are kept in memory.
+   */
   @Override
-  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+  public synchronized Optional<Measure> getBaseMeasure(Component component, Metric metric) {
     // fail fast
     requireNonNull(component);
     requireNonNull(metric);
 
+    BaseMeasureKey key = new BaseMeasureKey(component.getKey(), metric.getKey());
+    Optional<Measure> baseMeasure = baseMeasures.get(key);
+    if (baseMeasure == null) {
+      baseMeasure = loadBaseMeasure(component, metric);
+      baseMeasures.put(key, baseMeasure);
+    }
+    return baseMeasure;
+  }
+
+  private Optional<Measure> loadBaseMeasure(Component component, Metric metric) {
     try (DbSession dbSession = dbClient.openSession(false)) {
       MeasureDto measureDto = dbClient.measureDao().selectByComponentKeyAndMetricKey(dbSession, component.getKey(), metric.getKey());
       return measureDtoToMeasure.toMeasure(measureDto, metric);
@@ -127,4 +158,43 @@ public class MeasureRepositoryImpl implements MeasureRepository {
     loadedComponents.add(component.getReportAttributes().getRef());
   }
 
+  private static class BaseMeasureCache extends LinkedHashMap<BaseMeasureKey, Optional<Measure>> {
+    private BaseMeasureCache() {
+      // access order, so that the least recently requested measure is evicted
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<BaseMeasureKey, Optional<Measure>> eldest) {
+      return size() > MAX_CACHED_BASE_MEASURES;
+    }
+  }
+
+  private static final class BaseMeasureKey {
+    private final String componentKey;
+    private final String metricKey;
+
+    private BaseMeasureKey(String componentKey, String metricKey) {
+      this.componentKey = componentKey;
+      this.metricKey = metricKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BaseMeasureKey that = (BaseMeasureKey) o;
+      return componentKey.equals(that.componentKey) && metricKey.equals(that.metricKey);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * componentKey.hashCode() + metricKey.hashCode();
+    }
+  }
+
 }
@@ -0,0 +1,53 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.Map;
+
+/**
+ * State of the pool of workers processing batch reports in the Compute Engine.
+ */
+public interface CEWorkersStatus {
+
+  /**
+   * Number of workers which can process batch reports concurrently.
+   */
+  int getWorkerCount();
+
+  /**
+   * Registers that the specified worker started processing the report of the specified project.
+   */
+  void setWorking(String workerName, String projectKey, long reportId);
+
+  /**
+   * Registers that the specified worker is not processing any report anymore.
+   */
+  void setIdle(String workerName);
+
+  /**
+   * Count of workers currently processing a batch report.
+   */
+  int getWorkingCount();
+
+  /**
+   * State of each worker which processed at least one report since startup, sorted by worker name.
+   */
+  Map<String, String> getWorkerStates();
+}
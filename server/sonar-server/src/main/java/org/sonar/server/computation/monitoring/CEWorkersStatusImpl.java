@@ -0,0 +1,73 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import java.util.Map;
+import java.util.TreeMap;
+import org.sonar.api.config.Settings;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+public class CEWorkersStatusImpl implements CEWorkersStatus {
+  public static final String WORKER_COUNT_PROPERTY = "sonar.ce.workerCount";
+  private static final int DEFAULT_WORKER_COUNT = 1;
+  private static final String IDLE = "idle";
+
+  private final int workerCount;
+  private final Map<String, String> states = new TreeMap<>();
+  private int workingCount = 0;
+
+  public CEWorkersStatusImpl(Settings settings) {
+    this.workerCount = settings.hasKey(WORKER_COUNT_PROPERTY) ? settings.getInt(WORKER_COUNT_PROPERTY) : DEFAULT_WORKER_COUNT;
+    checkArgument(workerCount >= 1, "Property %s must be >= 1 (got %s)", WORKER_COUNT_PROPERTY, workerCount);
+  }
+
+  @Override
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  @Override
+  public synchronized void setWorking(String workerName, String projectKey, long reportId) {
+    String previous = states.put(workerName, format("processing project %s (report %d)", projectKey, reportId));
+    if (previous == null || IDLE.equals(previous)) {
+      workingCount++;
+    }
+  }
+
+  @Override
+  public synchronized void setIdle(String workerName) {
+    String previous = states.put(workerName, IDLE);
+    if (previous != null && !IDLE.equals(previous)) {
+      workingCount--;
+    }
+  }
+
+  @Override
+  public synchronized int getWorkingCount() {
+    return workingCount;
+  }
+
+  @Override
+  public synchronized Map<String, String> getWorkerStates() {
+    return new TreeMap<>(states);
+  }
+}
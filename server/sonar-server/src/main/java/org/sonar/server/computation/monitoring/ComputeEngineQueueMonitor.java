@@ -20,18 +20,21 @@
 package org.sonar.server.computation.monitoring;
 
 import java.util.LinkedHashMap;
+import java.util.Map;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.platform.monitoring.BaseMonitorMBean;
 
 public class ComputeEngineQueueMonitor extends BaseMonitorMBean implements ComputeEngineQueueMonitorMBean {
   private final CEQueueStatus queueStatus;
+  private final CEWorkersStatus workersStatus;
 
-  public ComputeEngineQueueMonitor(CEQueueStatus queueStatus,
+  public ComputeEngineQueueMonitor(CEQueueStatus queueStatus, CEWorkersStatus workersStatus,
     // ReportQueue initializes CEQueueStatus and is therefor a dependency of
     // ComputeEngineQueueMonitor.
     // Do not remove this parameter, it ensures start order of components
     ReportQueue reportQueue) {
     this.queueStatus = queueStatus;
+    this.workersStatus = workersStatus;
   }
 
   @Override
@@ -48,6 +51,9 @@ public class ComputeEngineQueueMonitor extends BaseMonitorMBean implements Compu
     attributes.put("Successfully processed", getSuccessCount());
     attributes.put("Processed with error", getErrorCount());
     attributes.put("Processing time", getProcessingTime());
+    attributes.put("Workers", getWorkerCount());
+    attributes.put("Working workers", getWorkingWorkerCount());
+    attributes.put("Worker states", new LinkedHashMap<String, Object>(workersStatus.getWorkerStates()));
     return attributes;
   }
 
@@ -80,4 +86,26 @@ public class ComputeEngineQueueMonitor extends BaseMonitorMBean implements Compu
   public long getProcessingTime() {
     return queueStatus.getProcessingTime();
   }
+
+  @Override
+  public int getWorkerCount() {
+    return workersStatus.getWorkerCount();
+  }
+
+  @Override
+  public int getWorkingWorkerCount() {
+    return workersStatus.getWorkingCount();
+  }
+
+  @Override
+  public String[] getWorkerStates() {
+    Map<String, String> states = workersStatus.getWorkerStates();
+    String[] res = new String[states.size()];
+    int i = 0;
+    for (Map.Entry<String, String> entry : states.entrySet()) {
+      res[i] = entry.getKey() + ": " + entry.getValue();
+      i++;
+    }
+    return res;
+  }
 }
@@ -50,4 +50,19 @@ public interface ComputeEngineQueueMonitorMBean {
    * Time spent processing reports since startup.
    */
   long getProcessingTime();
+
+  /**
+   * Number of workers which can process batch reports concurrently.
+   */
+  int getWorkerCount();
+
+  /**
+   * Count of workers currently processing a batch report.
+   */
+  int getWorkingWorkerCount();
+
+  /**
+   * State of each worker, formatted as "{worker name}: {state}".
+   */
+  String[] getWorkerStates();
 }
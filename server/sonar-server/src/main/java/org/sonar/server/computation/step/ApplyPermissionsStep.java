@@ -20,6 +20,8 @@
 
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -32,27 +34,34 @@ import org.sonar.server.computation.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.AuthorizationCache;
 
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_IDS;
+import static org.sonar.server.computation.step.ComputationData.DB_PERMISSIONS;
+import static org.sonar.server.computation.step.ComputationData.ES_ISSUE_AUTHORIZATION;
 
 /**
  * Apply default permissions on new projects and index issues/authorization
  */
-public class ApplyPermissionsStep implements ComputationStep {
+public class ApplyPermissionsStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final DbIdsRepository dbIdsRepository;
   private final IssueAuthorizationIndexer indexer;
   private final PermissionRepository permissionRepository;
   private final TreeRootHolder treeRootHolder;
+  private final AuthorizationCache authorizationCache;
 
   public ApplyPermissionsStep(DbClient dbClient, DbIdsRepository dbIdsRepository, IssueAuthorizationIndexer indexer,
-    PermissionRepository permissionRepository, TreeRootHolder treeRootHolder) {
+    PermissionRepository permissionRepository, TreeRootHolder treeRootHolder, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.dbIdsRepository = dbIdsRepository;
     this.indexer = indexer;
     this.permissionRepository = permissionRepository;
     this.treeRootHolder = treeRootHolder;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -73,6 +82,7 @@ public class ApplyPermissionsStep implements ComputationStep {
       if (dbClient.roleDao().countComponentPermissions(session, projectId) == 0) {
         permissionRepository.grantDefaultRoles(session, projectId, Qualifiers.PROJECT);
         session.commit();
+        authorizationCache.invalidate();
       }
       // As batch is still apply permission on project, indexing of issue authorization must always been done
       indexer.index();
@@ -81,6 +91,16 @@ public class ApplyPermissionsStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(COMPONENT_TREE, DB_IDS);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_PERMISSIONS, ES_ISSUE_AUTHORIZATION);
+  }
+
   @Override
   public String getDescription() {
     return "Apply project permissions";
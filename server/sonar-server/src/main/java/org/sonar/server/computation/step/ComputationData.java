@@ -0,0 +1,69 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+/**
+ * Data shared by {@link ComputationStep}s. A {@link ConcurrentComputationStep} declares which of them it reads and
+ * writes so that steps which do not conflict can be executed concurrently.
+ */
+public enum ComputationData {
+  /**
+   * Content of the extracted batch report
+   */
+  BATCH_REPORT,
+  /**
+   * {@link org.sonar.server.computation.component.TreeRootHolder}
+   */
+  COMPONENT_TREE,
+  /**
+   * {@link org.sonar.server.computation.component.DbIdsRepository}
+   */
+  DB_IDS,
+  /**
+   * {@link org.sonar.server.computation.analysis.AnalysisMetadataHolder} and {@link org.sonar.server.computation.period.PeriodsHolder}
+   */
+  ANALYSIS_METADATA,
+  /**
+   * {@link org.sonar.server.computation.measure.MeasureRepository}
+   */
+  MEASURES,
+  /**
+   * {@link org.sonar.server.computation.issue.IssueCache}
+   */
+  ISSUES,
+  /**
+   * {@link org.sonar.server.computation.event.EventRepository}
+   */
+  EVENTS,
+
+  DB_MEASURES,
+  DB_DUPLICATIONS,
+  DB_ISSUES,
+  DB_EVENTS,
+  DB_PROJECT_LINKS,
+  DB_FILE_SOURCES,
+  DB_TESTS,
+  DB_PERMISSIONS,
+
+  ES_ISSUE_AUTHORIZATION,
+  ES_ISSUES,
+  ES_SOURCE_LINES,
+  ES_TESTS
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Directed acyclic graph of {@link ComputationStep}s built from their execution sequence: a step depends on every step
+ * declared before it which it conflicts with. Two steps conflict unless they both implement
+ * {@link ConcurrentComputationStep} and none of them writes data the other one reads or writes.
+ */
+public final class ComputationStepGraph {
+  private final List<ComputationStep> steps;
+  private final List<List<Integer>> dependencies;
+
+  public ComputationStepGraph(Iterable<ComputationStep> orderedSteps) {
+    this.steps = ImmutableList.copyOf(orderedSteps);
+    this.dependencies = new ArrayList<>(steps.size());
+    for (int i = 0; i < steps.size(); i++) {
+      List<Integer> stepDependencies = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        if (conflict(steps.get(j), steps.get(i))) {
+          stepDependencies.add(j);
+        }
+      }
+      dependencies.add(Collections.unmodifiableList(stepDependencies));
+    }
+  }
+
+  public int size() {
+    return steps.size();
+  }
+
+  public ComputationStep getStep(int index) {
+    return steps.get(index);
+  }
+
+  /**
+   * Indexes of the steps which must be completed before the step at the specified index can be executed.
+   */
+  public List<Integer> getDependencies(int index) {
+    return dependencies.get(index);
+  }
+
+  private static boolean conflict(ComputationStep before, ComputationStep after) {
+    if (!(before instanceof ConcurrentComputationStep) || !(after instanceof ConcurrentComputationStep)) {
+      return true;
+    }
+    ConcurrentComputationStep step1 = (ConcurrentComputationStep) before;
+    ConcurrentComputationStep step2 = (ConcurrentComputationStep) after;
+    return intersect(step1.writes(), step2.reads())
+      || intersect(step1.writes(), step2.writes())
+      || intersect(step1.reads(), step2.writes());
+  }
+
+  private static boolean intersect(Set<ComputationData> set1, Set<ComputationData> set2) {
+    return !Collections.disjoint(set1, set2);
+  }
+}
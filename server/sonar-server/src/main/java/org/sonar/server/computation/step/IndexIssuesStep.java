@@ -20,9 +20,15 @@
 
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.server.issue.index.IssueIndexer;
 
-public class IndexIssuesStep implements ComputationStep {
+import static org.sonar.server.computation.step.ComputationData.DB_ISSUES;
+import static org.sonar.server.computation.step.ComputationData.ES_ISSUES;
+import static org.sonar.server.computation.step.ComputationData.ES_ISSUE_AUTHORIZATION;
+
+public class IndexIssuesStep implements ConcurrentComputationStep {
 
   private final IssueIndexer indexer;
 
@@ -35,6 +41,16 @@ public class IndexIssuesStep implements ComputationStep {
     indexer.index();
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(DB_ISSUES, ES_ISSUE_AUTHORIZATION);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(ES_ISSUES);
+  }
+
   @Override
   public String getDescription() {
     return "Index issues";
@@ -19,10 +19,16 @@
  */
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.source.index.SourceLineIndexer;
 
-public class IndexSourceLinesStep implements ComputationStep {
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_FILE_SOURCES;
+import static org.sonar.server.computation.step.ComputationData.ES_SOURCE_LINES;
+
+public class IndexSourceLinesStep implements ConcurrentComputationStep {
 
   private final SourceLineIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -37,6 +43,16 @@ public class IndexSourceLinesStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(COMPONENT_TREE, DB_FILE_SOURCES);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(ES_SOURCE_LINES);
+  }
+
   @Override
   public String getDescription() {
     return "Index source lines";
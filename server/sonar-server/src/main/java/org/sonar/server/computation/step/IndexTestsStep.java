@@ -20,10 +20,16 @@
 
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.server.computation.component.TreeRootHolder;
 import org.sonar.server.test.index.TestIndexer;
 
-public class IndexTestsStep implements ComputationStep {
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_TESTS;
+import static org.sonar.server.computation.step.ComputationData.ES_TESTS;
+
+public class IndexTestsStep implements ConcurrentComputationStep {
 
   private final TestIndexer indexer;
   private final TreeRootHolder treeRootHolder;
@@ -38,6 +44,16 @@ public class IndexTestsStep implements ComputationStep {
     indexer.index(treeRootHolder.getRoot().getUuid());
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(COMPONENT_TREE, DB_TESTS);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(ES_TESTS);
+  }
+
   @Override
   public String getDescription() {
     return "Index tests";
@@ -19,12 +19,25 @@
  */
 package org.sonar.server.computation.step;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.Input;
 import org.sonar.core.issue.tracking.Tracking;
 import org.sonar.server.computation.component.Component;
 import org.sonar.server.computation.component.CrawlerDepthLimit;
@@ -36,28 +49,40 @@ import org.sonar.server.computation.issue.IssueCache;
 import org.sonar.server.computation.issue.IssueLifecycle;
 import org.sonar.server.computation.issue.IssueVisitors;
 import org.sonar.server.computation.issue.TrackerExecution;
-import org.sonar.server.util.cache.DiskCache;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.POST_ORDER;
 
 public class IntegrateIssuesStep implements ComputationStep {
 
+  /**
+   * Number of threads loading base issues and tracking them. When greater than 1, the tracking of components is
+   * executed on a fork-join pool and the issues are written to {@link IssueCache} by the workers, while
+   * {@link IssueVisitors} are still called by a single thread, in the order of the component tree.
+   */
+  public static final String THREADS_PROPERTY = "sonar.ce.issueTrackingThreads";
+  private static final int DEFAULT_THREADS = 1;
+  private static final String THREAD_NAME_PREFIX = "ce-issue-tracking-";
+
   private final TreeRootHolder treeRootHolder;
   private final TrackerExecution tracker;
   private final IssueCache issueCache;
   private final BaseIssuesLoader baseIssuesLoader;
   private final IssueLifecycle issueLifecycle;
   private final IssueVisitors issueVisitors;
+  private final int threads;
 
   public IntegrateIssuesStep(TreeRootHolder treeRootHolder, TrackerExecution tracker, IssueCache issueCache,
     BaseIssuesLoader baseIssuesLoader, IssueLifecycle issueLifecycle,
-    IssueVisitors issueVisitors) {
+    IssueVisitors issueVisitors, Settings settings) {
     this.treeRootHolder = treeRootHolder;
     this.tracker = tracker;
     this.issueCache = issueCache;
     this.baseIssuesLoader = baseIssuesLoader;
     this.issueLifecycle = issueLifecycle;
     this.issueVisitors = issueVisitors;
+    this.threads = settings.hasKey(THREADS_PROPERTY) ? settings.getInt(THREADS_PROPERTY) : DEFAULT_THREADS;
+    checkArgument(threads >= 1, "Number of threads to track issues must be at least 1. Got %s", threads);
   }
 
   @Override
@@ -65,73 +90,101 @@ public class IntegrateIssuesStep implements ComputationStep {
     // all the components that had issues before this analysis
     final Set<String> unprocessedComponentUuids = Sets.newHashSet(baseIssuesLoader.loadUuidsOfComponentsWithOpenIssues());
 
-    new DepthTraversalTypeAwareCrawler(
-      new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
-        @Override
-        public void visitAny(Component component) {
-          processIssues(component);
-          unprocessedComponentUuids.remove(component.getUuid());
-        }
-      }).visit(treeRootHolder.getRoot());
+    if (threads > 1) {
+      new ConcurrentIntegration(unprocessedComponentUuids).execute();
+    } else {
+      new DepthTraversalTypeAwareCrawler(
+        new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+          @Override
+          public void visitAny(Component component) {
+            processIssues(component);
+            unprocessedComponentUuids.remove(component.getUuid());
+          }
+        }).visit(treeRootHolder.getRoot());
+    }
 
     closeIssuesForDeletedComponentUuids(unprocessedComponentUuids);
   }
 
   private void processIssues(Component component) {
-    DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
     try {
       Tracking<DefaultIssue, DefaultIssue> tracking = tracker.track(component);
-      issueVisitors.beforeComponent(component);
-      fillNewOpenIssues(component, tracking, cacheAppender);
-      fillExistingOpenIssues(component, tracking, cacheAppender);
-      closeUnmatchedBaseIssues(component, tracking, cacheAppender);
-      issueVisitors.afterComponent(component);
+      append(integrate(component, tracking));
     } catch (Exception e) {
-      Loggers.get(getClass()).error(String.format("Fail to process issues of %s", component.getKey()), e);
-    } finally {
-      cacheAppender.close();
+      logFailure(component, e);
     }
   }
 
-  private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  /**
+   * Applies lifecycle and visitors to the tracked issues of a component and returns the issues to be cached
+   */
+  private List<DefaultIssue> integrate(Component component, Tracking<DefaultIssue, DefaultIssue> tracking) {
+    List<DefaultIssue> issues = new ArrayList<>();
+    issueVisitors.beforeComponent(component);
+    fillNewOpenIssues(component, tracking, issues);
+    fillExistingOpenIssues(component, tracking, issues);
+    closeUnmatchedBaseIssues(component, tracking, issues);
+    issueVisitors.afterComponent(component);
+    return issues;
+  }
+
+  private void fillNewOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, List<DefaultIssue> issues) {
     for (DefaultIssue issue : tracking.getUnmatchedRaws()) {
       issueLifecycle.initNewOpenIssue(issue);
-      process(component, issue, cacheAppender);
+      process(component, issue, issues);
     }
   }
 
-  private void fillExistingOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void fillExistingOpenIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, List<DefaultIssue> issues) {
     for (Map.Entry<DefaultIssue, DefaultIssue> entry : tracking.getMatchedRaws().entrySet()) {
       DefaultIssue raw = entry.getKey();
       DefaultIssue base = entry.getValue();
       issueLifecycle.mergeExistingOpenIssue(raw, base);
-      process(component, raw, cacheAppender);
+      process(component, raw, issues);
     }
     for (Map.Entry<Integer, DefaultIssue> entry : tracking.getOpenManualIssuesByLine().entries()) {
       Integer line = entry.getKey();
       DefaultIssue manualIssue = entry.getValue();
       issueLifecycle.moveOpenManualIssue(manualIssue, line);
-      process(component, manualIssue, cacheAppender);
+      process(component, manualIssue, issues);
     }
   }
 
-  private void closeUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void closeUnmatchedBaseIssues(Component component, Tracking<DefaultIssue, DefaultIssue> tracking, List<DefaultIssue> issues) {
     for (DefaultIssue issue : tracking.getUnmatchedBases()) {
       // TODO should replace flag "beingClosed" by express call to transition "automaticClose"
       issue.setBeingClosed(true);
       // TODO manual issues -> was updater.setResolution(newIssue, Issue.RESOLUTION_REMOVED, changeContext);. Is it a problem ?
-      process(component, issue, cacheAppender);
+      process(component, issue, issues);
     }
   }
 
-  private void process(Component component, DefaultIssue issue, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
+  private void process(Component component, DefaultIssue issue, List<DefaultIssue> issues) {
     issueLifecycle.doAutomaticTransition(issue);
     issueVisitors.onIssue(component, issue);
-    cacheAppender.append(issue);
+    issues.add(issue);
+  }
+
+  /**
+   * Can be called concurrently, each call using its own appender
+   */
+  private void append(List<DefaultIssue> issues) {
+    IssueCache.Appender cacheAppender = issueCache.newAppender();
+    try {
+      for (DefaultIssue issue : issues) {
+        cacheAppender.append(issue);
+      }
+    } finally {
+      cacheAppender.close();
+    }
+  }
+
+  private void logFailure(Component component, Throwable e) {
+    Loggers.get(getClass()).error(String.format("Fail to process issues of %s", component.getKey()), e);
   }
 
   private void closeIssuesForDeletedComponentUuids(Set<String> deletedComponentUuids) {
-    DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender();
+    IssueCache.Appender cacheAppender = issueCache.newAppender();
     try {
       for (String deletedComponentUuid : deletedComponentUuids) {
         List<DefaultIssue> issues = baseIssuesLoader.loadForComponentUuid(deletedComponentUuid);
@@ -148,6 +201,132 @@ public class IntegrateIssuesStep implements ComputationStep {
     }
   }
 
+  /**
+   * Base issues are loaded and matched with raw issues by the workers of a fork-join pool, while the thread which
+   * crawls the component tree applies lifecycle and {@link IssueVisitors} in the same order as the sequential mode.
+   * Raw issues are loaded by the crawling thread too, as common rules rely on repositories which are not thread-safe.
+   * The number of tracked components waiting to be integrated, as well as the number of integrated components waiting
+   * for their issues to be appended to {@link IssueCache}, is bounded.
+   */
+  private class ConcurrentIntegration {
+    private final Set<String> unprocessedComponentUuids;
+    private final ForkJoinPool pool = new ForkJoinPool(threads, new WorkerThreadFactory(), null, false);
+    private final Deque<PendingTracking> pendingTrackings = new ArrayDeque<>();
+    private final Deque<Future<?>> pendingAppends = new ArrayDeque<>();
+    private final int maxPendingTrackings = 2 * threads;
+    private final int maxPendingAppends = 2 * threads;
+
+    private ConcurrentIntegration(Set<String> unprocessedComponentUuids) {
+      this.unprocessedComponentUuids = unprocessedComponentUuids;
+    }
+
+    void execute() {
+      try {
+        new DepthTraversalTypeAwareCrawler(
+          new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+            @Override
+            public void visitAny(Component component) {
+              if (pendingTrackings.size() >= maxPendingTrackings) {
+                integrateNext();
+              }
+              pendingTrackings.add(new PendingTracking(component, submitTracking(component)));
+              unprocessedComponentUuids.remove(component.getUuid());
+            }
+          }).visit(treeRootHolder.getRoot());
+        while (!pendingTrackings.isEmpty()) {
+          integrateNext();
+        }
+        while (!pendingAppends.isEmpty()) {
+          awaitNextAppend();
+        }
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+
+    private Future<Tracking<DefaultIssue, DefaultIssue>> submitTracking(final Component component) {
+      final Input<DefaultIssue> rawInput;
+      try {
+        rawInput = tracker.createRawInput(component);
+        rawInput.getIssues();
+      } catch (Exception e) {
+        return Futures.immediateFailedFuture(e);
+      }
+      return pool.submit(new Callable<Tracking<DefaultIssue, DefaultIssue>>() {
+        @Override
+        public Tracking<DefaultIssue, DefaultIssue> call() {
+          return tracker.track(component, rawInput);
+        }
+      });
+    }
+
+    private void integrateNext() {
+      while (pendingAppends.size() >= maxPendingAppends) {
+        awaitNextAppend();
+      }
+      PendingTracking pending = pendingTrackings.poll();
+      final Component component = pending.component;
+      try {
+        final List<DefaultIssue> issues = integrate(component, await(pending.tracking));
+        pendingAppends.add(pool.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              append(issues);
+            } catch (Exception e) {
+              logFailure(component, e);
+            }
+          }
+        }));
+      } catch (ExecutionException e) {
+        logFailure(component, e.getCause());
+      } catch (Exception e) {
+        logFailure(component, e);
+      }
+    }
+
+    /**
+     * Failures of appends are logged by the appends themselves, so an {@link ExecutionException} is unexpected
+     */
+    private void awaitNextAppend() {
+      try {
+        await(pendingAppends.poll());
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    private <T> T await(Future<T> future) throws ExecutionException {
+      try {
+        return future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while tracking issues", e);
+      }
+    }
+  }
+
+  private static class PendingTracking {
+    private final Component component;
+    private final Future<Tracking<DefaultIssue, DefaultIssue>> tracking;
+
+    private PendingTracking(Component component, Future<Tracking<DefaultIssue, DefaultIssue>> tracking) {
+      this.component = component;
+      this.tracking = tracking;
+    }
+  }
+
+  private static class WorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(THREAD_NAME_PREFIX + counter.getAndIncrement());
+      return thread;
+    }
+  }
+
   @Override
   public String getDescription() {
     return "Integrate issues";
@@ -20,7 +20,9 @@
 
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.Set;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.batch.protocol.output.BatchReport;
@@ -39,11 +41,15 @@ import org.sonar.server.computation.component.ReportTreeRootHolder;
 import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
 
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.BATCH_REPORT;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_DUPLICATIONS;
+import static org.sonar.server.computation.step.ComputationData.DB_IDS;
 
 /**
  * Persist duplications into
  */
-public class PersistDuplicationsStep implements ComputationStep {
+public class PersistDuplicationsStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final DbIdsRepository dbIdsRepository;
@@ -149,6 +155,16 @@ public class PersistDuplicationsStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(BATCH_REPORT, COMPONENT_TREE, DB_IDS);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_DUPLICATIONS);
+  }
+
   @Override
   public String getDescription() {
     return "Persist duplications";
@@ -21,6 +21,8 @@
 package org.sonar.server.computation.step;
 
 import com.google.common.base.Function;
+import java.util.EnumSet;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbClient;
@@ -39,8 +41,13 @@ import org.sonar.server.computation.event.Event;
 import org.sonar.server.computation.event.EventRepository;
 
 import static com.google.common.collect.Iterables.transform;
+import static org.sonar.server.computation.step.ComputationData.ANALYSIS_METADATA;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_EVENTS;
+import static org.sonar.server.computation.step.ComputationData.DB_IDS;
+import static org.sonar.server.computation.step.ComputationData.EVENTS;
 
-public class PersistEventsStep implements ComputationStep {
+public class PersistEventsStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -131,6 +138,16 @@ public class PersistEventsStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(COMPONENT_TREE, ANALYSIS_METADATA, EVENTS, DB_IDS);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_EVENTS);
+  }
+
   @Override
   public String getDescription() {
     return "Persist component links";
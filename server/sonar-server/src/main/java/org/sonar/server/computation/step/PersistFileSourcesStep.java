@@ -20,14 +20,27 @@
 
 package org.sonar.server.computation.step;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.output.BatchReport;
 import org.sonar.core.util.CloseableIterator;
@@ -51,29 +64,55 @@ import org.sonar.server.computation.source.LineReader;
 import org.sonar.server.computation.source.ScmLineReader;
 import org.sonar.server.computation.source.SymbolsLineReader;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.BATCH_REPORT;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_FILE_SOURCES;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+
+  /**
+   * Number of threads reading, merging and compressing the sources of files. When greater than 1, the sources are
+   * written by a single writer, in batches.
+   */
+  public static final String THREADS_PROPERTY = "sonar.ce.fileSourcesThreads";
+  private static final int DEFAULT_THREADS = 1;
+  private static final String THREAD_NAME_PREFIX = "ce-file-sources-";
+
+  // bounds of the batches of the writer, so that the sources kept in memory are limited
+  private static final int MAX_BATCH_SIZE = 50;
+  private static final long MAX_BATCH_BYTES = 10L * 1024 * 1024;
 
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final BatchReportReader reportReader;
+  private final int threads;
 
-  public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader) {
+  public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder, BatchReportReader reportReader, Settings settings) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.reportReader = reportReader;
+    this.threads = settings.hasKey(THREADS_PROPERTY) ? settings.getInt(THREADS_PROPERTY) : DEFAULT_THREADS;
+    checkArgument(threads >= 1, "Number of threads to persist file sources must be at least 1. Got %s", threads);
   }
 
   @Override
   public void execute() {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    DbSession session = dbClient.openSession(false);
+    // Sources are written one by one, or in batches of bounded size, since keeping all data in memory can produce OOM for big files
+    boolean pipelined = threads > 1;
+    DbSession session = dbClient.openSession(pipelined);
     try {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(session))
-        .visit(treeRootHolder.getRoot());
+      FileSourceWriter writer = pipelined ? new FileSourceWriter(session, MAX_BATCH_SIZE) : new FileSourceWriter(session, 1);
+      FileSourceVisitor visitor = pipelined ? new PipelinedFileSourceVisitor(writer) : new FileSourceVisitor(writer);
+      try {
+        new DepthTraversalTypeAwareCrawler(visitor).visit(treeRootHolder.getRoot());
+        visitor.finish();
+      } finally {
+        visitor.close();
+      }
     } finally {
       MyBatis.closeQuietly(session);
     }
@@ -81,20 +120,20 @@ public class PersistFileSourcesStep implements ComputationStep {
 
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
 
-    private final DbSession session;
+    protected final FileSourceWriter writer;
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(FileSourceWriter writer) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
-      this.session = session;
+      this.writer = writer;
     }
 
     @Override
     public void visitProject(Component project) {
       this.projectUuid = project.getUuid();
-      session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", Type.SOURCE),
+      writer.session.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", projectUuid, "dataType", Type.SOURCE),
         new ResultHandler() {
           @Override
           public void handleResult(ResultContext context) {
@@ -106,6 +145,27 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      writer.write(computeFileSource(file));
+    }
+
+    /**
+     * Writes the remaining file sources
+     */
+    protected void finish() {
+      writer.commit();
+    }
+
+    protected void close() {
+      // nothing to release
+    }
+
+    /**
+     * Reads, merges and encodes the sources of the file. This method is called concurrently in pipelined mode.
+     *
+     * @return the source to insert or to update, {@code null} if it has not changed
+     */
+    @CheckForNull
+    protected FileSource computeFileSource(Component file) {
       int fileRef = file.getReportAttributes().getRef();
       BatchReport.Component component = reportReader.readComponent(fileRef);
       CloseableIterator<String> linesIterator = reportReader.readFileSource(fileRef);
@@ -113,7 +173,7 @@ public class PersistFileSourcesStep implements ComputationStep {
       try {
         ComputeFileSourceData computeFileSourceData = new ComputeFileSourceData(linesIterator, lineReaders.readers(), component.getLines());
         ComputeFileSourceData.Data fileSourceData = computeFileSourceData.compute();
-        persistSource(fileSourceData, file.getUuid());
+        return toFileSource(fileSourceData, file.getUuid());
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getKey()), e);
       } finally {
@@ -122,7 +182,8 @@ public class PersistFileSourcesStep implements ComputationStep {
       }
     }
 
-    private void persistSource(ComputeFileSourceData.Data fileSourceData, String componentUuid) {
+    @CheckForNull
+    private FileSource toFileSource(ComputeFileSourceData.Data fileSourceData, String componentUuid) {
       DbFileSources.Data fileData = fileSourceData.getFileSourceData();
 
       byte[] data = FileSourceDto.encodeSourceData(fileData);
@@ -142,25 +203,139 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setLineHashes(lineHashes)
           .setCreatedAt(system2.now())
           .setUpdatedAt(system2.now());
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
-      } else {
-        // Update only if data_hash has changed or if src_hash is missing (progressive migration)
-        boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
-        boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        if (binaryDataUpdated || srcHashUpdated) {
-          previousDto
-            .setBinaryData(data)
-            .setDataHash(dataHash)
-            .setSrcHash(srcHash)
-            .setLineHashes(lineHashes);
-          // Optimization only change updated at when updating binary data to avoid unnecessary indexation by E/S
-          if (binaryDataUpdated) {
-            previousDto.setUpdatedAt(system2.now());
-          }
-          dbClient.fileSourceDao().update(previousDto);
-          session.commit();
+        return new FileSource(dto, true);
+      }
+
+      // Update only if data_hash has changed or if src_hash is missing (progressive migration)
+      boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
+      boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
+      if (binaryDataUpdated || srcHashUpdated) {
+        previousDto
+          .setBinaryData(data)
+          .setDataHash(dataHash)
+          .setSrcHash(srcHash)
+          .setLineHashes(lineHashes);
+        // Optimization only change updated at when updating binary data to avoid unnecessary indexation by E/S
+        if (binaryDataUpdated) {
+          previousDto.setUpdatedAt(system2.now());
         }
+        return new FileSource(previousDto, false);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Computes the sources of files with a pool of workers, while the thread which crawls the component tree writes them.
+   * The number of computed sources waiting to be written is bounded.
+   */
+  private class PipelinedFileSourceVisitor extends FileSourceVisitor {
+    private final ExecutorService executor;
+    private final CompletionService<FileSource> completionService;
+    private final int maxPendingFiles;
+    private int pendingFiles = 0;
+
+    private PipelinedFileSourceVisitor(FileSourceWriter writer) {
+      super(writer);
+      this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat(THREAD_NAME_PREFIX + "%d")
+        .setDaemon(true)
+        .build());
+      this.completionService = new ExecutorCompletionService<>(executor);
+      this.maxPendingFiles = 2 * threads;
+    }
+
+    @Override
+    public void visitFile(final Component file) {
+      if (pendingFiles >= maxPendingFiles) {
+        writeNext();
+      }
+      submit(file);
+    }
+
+    private void submit(final Component file) {
+      completionService.submit(new Callable<FileSource>() {
+        @Override
+        public FileSource call() {
+          return computeFileSource(file);
+        }
+      });
+      pendingFiles++;
+    }
+
+    @Override
+    protected void finish() {
+      while (pendingFiles > 0) {
+        writeNext();
+      }
+      super.finish();
+    }
+
+    @Override
+    protected void close() {
+      executor.shutdownNow();
+    }
+
+    private void writeNext() {
+      try {
+        FileSource fileSource = completionService.take().get();
+        pendingFiles--;
+        writer.write(fileSource);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while persisting file sources", e);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+  }
+
+  private static class FileSource {
+    private final FileSourceDto dto;
+    private final boolean isNew;
+
+    private FileSource(FileSourceDto dto, boolean isNew) {
+      this.dto = dto;
+      this.isNew = isNew;
+    }
+  }
+
+  /**
+   * Inserts or updates file sources and commits every {@code maxBatchSize} writes or when the written data exceeds
+   * {@link #MAX_BATCH_BYTES}.
+   */
+  private class FileSourceWriter {
+    private final DbSession session;
+    private final int maxBatchSize;
+    private int batchSize = 0;
+    private long batchBytes = 0L;
+
+    private FileSourceWriter(DbSession session, int maxBatchSize) {
+      this.session = session;
+      this.maxBatchSize = maxBatchSize;
+    }
+
+    private void write(@Nullable FileSource fileSource) {
+      if (fileSource == null) {
+        return;
+      }
+      if (fileSource.isNew) {
+        dbClient.fileSourceDao().insert(session, fileSource.dto);
+      } else {
+        dbClient.fileSourceDao().update(session, fileSource.dto);
+      }
+      batchSize++;
+      batchBytes += fileSource.dto.getBinaryData().length;
+      if (batchSize >= maxBatchSize || batchBytes >= MAX_BATCH_BYTES) {
+        commit();
+      }
+    }
+
+    private void commit() {
+      if (batchSize > 0) {
+        session.commit();
+        batchSize = 0;
+        batchBytes = 0L;
       }
     }
   }
@@ -203,6 +378,16 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(BATCH_REPORT, COMPONENT_TREE);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_FILE_SOURCES);
+  }
+
   @Override
   public String getDescription() {
     return "Persist file sources";
@@ -19,6 +19,8 @@
  */
 package org.sonar.server.computation.step;
 
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.api.issue.IssueComment;
 import org.sonar.api.utils.System2;
 import org.sonar.core.issue.DefaultIssue;
@@ -36,7 +38,10 @@ import org.sonar.server.computation.issue.RuleRepository;
 import org.sonar.db.DbClient;
 import org.sonar.core.util.CloseableIterator;
 
-public class PersistIssuesStep implements ComputationStep {
+import static org.sonar.server.computation.step.ComputationData.DB_ISSUES;
+import static org.sonar.server.computation.step.ComputationData.ISSUES;
+
+public class PersistIssuesStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final System2 system2;
@@ -106,6 +111,16 @@ public class PersistIssuesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(ISSUES);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_ISSUES);
+  }
+
   @Override
   public String getDescription() {
     return "Persist issues";
@@ -25,8 +25,10 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multimap;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nonnull;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -49,8 +51,12 @@ import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION_K
 import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION_KEY;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_IDS;
+import static org.sonar.server.computation.step.ComputationData.DB_MEASURES;
+import static org.sonar.server.computation.step.ComputationData.MEASURES;
 
-public class PersistMeasuresStep implements ComputationStep {
+public class PersistMeasuresStep implements ConcurrentComputationStep {
 
   /**
    * List of metrics that should not be persisted on file measure (Waiting for SONAR-6688 to be implemented)
@@ -75,6 +81,16 @@ public class PersistMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(COMPONENT_TREE, DB_IDS, MEASURES);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_MEASURES);
+  }
+
   @Override
   public String getDescription() {
     return "Persist measures";
@@ -21,6 +21,8 @@
 package org.sonar.server.computation.step;
 
 import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.measures.CoreMetrics;
@@ -42,8 +44,13 @@ import org.sonar.server.source.index.SourceLineIndex;
 
 import static com.google.common.base.Objects.firstNonNull;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.BATCH_REPORT;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_IDS;
+import static org.sonar.server.computation.step.ComputationData.DB_MEASURES;
+import static org.sonar.server.computation.step.ComputationData.ES_SOURCE_LINES;
 
-public class PersistNumberOfDaysSinceLastCommitStep implements ComputationStep {
+public class PersistNumberOfDaysSinceLastCommitStep implements ConcurrentComputationStep {
 
   private static final long MILLISECONDS_PER_DAY = 1000 * 60 * 60 * 24L;
 
@@ -66,6 +73,16 @@ public class PersistNumberOfDaysSinceLastCommitStep implements ComputationStep {
     this.dbIdsRepository = dbIdsRepository;
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(BATCH_REPORT, COMPONENT_TREE, DB_IDS, ES_SOURCE_LINES);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_MEASURES);
+  }
+
   @Override
   public String getDescription() {
     return "Compute and persist the number of days since last commit";
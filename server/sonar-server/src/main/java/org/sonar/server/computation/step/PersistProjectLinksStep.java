@@ -23,6 +23,7 @@ package org.sonar.server.computation.step;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -44,11 +45,14 @@ import org.sonar.server.computation.component.TypeAwareVisitorAdapter;
 
 import static com.google.common.collect.Sets.newHashSet;
 import static org.sonar.server.computation.component.ComponentVisitor.Order.PRE_ORDER;
+import static org.sonar.server.computation.step.ComputationData.BATCH_REPORT;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_PROJECT_LINKS;
 
 /**
  * Persist project and module links
  */
-public class PersistProjectLinksStep implements ComputationStep {
+public class PersistProjectLinksStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final I18n i18n;
@@ -156,6 +160,16 @@ public class PersistProjectLinksStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<ComputationData> reads() {
+    return EnumSet.of(BATCH_REPORT, COMPONENT_TREE);
+  }
+
+  @Override
+  public Set<ComputationData> writes() {
+    return EnumSet.of(DB_PROJECT_LINKS);
+  }
+
   @Override
   public String getDescription() {
     return "Persist component links";
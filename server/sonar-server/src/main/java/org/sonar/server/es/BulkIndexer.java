@@ -19,8 +19,11 @@
  */
 package org.sonar.server.es;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -35,16 +38,27 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.picocontainer.Startable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.ProgressLogger;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.CheckForNull;
 
 /**
  * Helper to bulk requests in an efficient way :
@@ -52,6 +66,11 @@ import java.util.concurrent.atomic.AtomicLong;
  *   <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
  *   <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  *   <li>index refresh is optional (enabled by default)</li>
+ *   <li>documents to be deleted are searched asynchronously. As a consequence, their delete requests can be sent
+ *   after requests added later by {@link #add(ActionRequest)}, so a search must not match documents indexed
+ *   again by the same bulk</li>
+ *   <li>in adaptive mode, size and concurrency of bulk requests are tuned according to the load of
+ *   Elasticsearch, and rejected requests are retried</li>
  * </ul>
  */
 public class BulkIndexer implements Startable {
@@ -59,28 +78,55 @@ public class BulkIndexer implements Startable {
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
   private static final long FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB).bytes();
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
+  private static final long DELETION_POLL_MS = 100L;
+  private static final int MAX_DELETION_SEARCHES = 4;
+  private static final int DEFAULT_MAX_QUEUED_DELETIONS = 10_000;
+
+  // bounds of adaptive mode
+  private static final long MIN_FLUSH_BYTE_SIZE = new ByteSizeValue(256, ByteSizeUnit.KB).bytes();
+  private static final long MAX_FLUSH_BYTE_SIZE = new ByteSizeValue(16, ByteSizeUnit.MB).bytes();
+  static final long LOW_LATENCY_MS = 500L;
+  static final long HIGH_LATENCY_MS = 3000L;
+  static final int MAX_RETRIES = 5;
+  static final long RETRY_BACKOFF_MS = 100L;
   private static final String ALREADY_STARTED_MESSAGE = "Bulk indexing is already started";
 
   private final EsClient client;
+  private final BulkIndexerStats stats;
   private final String indexName;
   private boolean large = false;
-  private long flushByteSize = FLUSH_BYTE_SIZE;
+  private boolean adaptive = false;
+  private volatile long flushByteSize = FLUSH_BYTE_SIZE;
   private boolean disableRefresh = false;
   private BulkRequestBuilder bulkRequest = null;
   private Map<String, Object> largeInitialSettings = null;
   private final AtomicLong counter = new AtomicLong(0L);
-  private final int concurrentRequests;
-  private final Semaphore semaphore;
+  private final int maxConcurrentRequests;
+  private int concurrentRequests;
+  private final ResizableSemaphore semaphore;
+  private boolean stopping = false;
+  private ScheduledExecutorService retryExecutor = null;
+  private final AtomicLong bytes = new AtomicLong(0L);
+  private final AtomicLong rejections = new AtomicLong(0L);
+  private long startedAt = 0L;
   private final ProgressLogger progress;
+  // at most maxQueuedDeletions, plus one page of hits per search. Searches stop scrolling when it's full.
+  private final BlockingQueue<ActionRequest> deletions = new LinkedBlockingQueue<>();
+  private final Queue<DeletionScrollListener> pausedDeletionSearches = new ConcurrentLinkedQueue<>();
+  private int maxQueuedDeletions = DEFAULT_MAX_QUEUED_DELETIONS;
+  private final Semaphore deletionSearches = new Semaphore(MAX_DELETION_SEARCHES);
+  private final AtomicReference<Throwable> deletionFailure = new AtomicReference<>();
 
   public BulkIndexer(EsClient client, String indexName) {
     this.client = client;
+    this.stats = client.getBulkIndexerStats();
     this.indexName = indexName;
     this.progress = new ProgressLogger(String.format("Progress[BulkIndexer[%s]]", indexName), counter, LOGGER)
       .setPluralLabel("requests");
 
     this.concurrentRequests = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-    this.semaphore = new Semaphore(concurrentRequests);
+    this.maxConcurrentRequests = 2 * Runtime.getRuntime().availableProcessors();
+    this.semaphore = new ResizableSemaphore(concurrentRequests);
   }
 
   /**
@@ -93,11 +139,35 @@ public class BulkIndexer implements Startable {
     return this;
   }
 
+  /**
+   * In adaptive mode, the size of bulk requests and the number of concurrent requests are tuned
+   * from the latency of responses. Both are increased while Elasticsearch responds quickly,
+   * and decreased when it is slow or when it rejects requests because its queues are full.
+   * Rejected requests are retried with an exponential backoff.
+   * The value set by {@link #setFlushByteSize(long)} is the initial size. Disabled by default.
+   */
+  public BulkIndexer setAdaptive(boolean b) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    this.adaptive = b;
+    return this;
+  }
+
+  public boolean isAdaptive() {
+    return adaptive;
+  }
+
   public BulkIndexer setFlushByteSize(long flushByteSize) {
     this.flushByteSize = flushByteSize;
     return this;
   }
 
+  @VisibleForTesting
+  BulkIndexer setMaxQueuedDeletions(int i) {
+    Preconditions.checkState(bulkRequest == null, ALREADY_STARTED_MESSAGE);
+    this.maxQueuedDeletions = i;
+    return this;
+  }
+
   /**
    * By default refresh of index is executed in method {@link #stop()}. Set to true
    * to disable refresh.
@@ -131,16 +201,39 @@ public class BulkIndexer implements Startable {
     }
     bulkRequest = client.prepareBulk().setRefresh(false);
     counter.set(0L);
+    bytes.set(0L);
+    rejections.set(0L);
+    deletionFailure.set(null);
+    startedAt = System.currentTimeMillis();
+    synchronized (this) {
+      stopping = false;
+    }
     progress.start();
   }
 
   public void add(ActionRequest request) {
+    drainDeletions();
+    addToBulk(request);
+  }
+
+  private void addToBulk(ActionRequest request) {
     bulkRequest.request().add(request);
     if (bulkRequest.request().estimatedSizeInBytes() >= flushByteSize) {
       executeBulk();
     }
   }
 
+  /**
+   * Deletes the documents matching the search request. The search and its scrolls are executed
+   * asynchronously, so that they overlap with the other requests of the bulk. Delete requests are
+   * sent by the calls to {@link #add(ActionRequest)} and at the latest by {@link #stop()}, which
+   * waits for the pending searches and fails if one of them failed. At most {@link #MAX_DELETION_SEARCHES}
+   * searches are executed concurrently, this method blocks until one of them is over.
+   * <p>
+   * Delete requests are not ordered with the requests added by {@link #add(ActionRequest)}, even the ones added
+   * after this call. The search must not match documents which are indexed again by the same bulk.
+   * </p>
+   */
   public void addDeletion(SearchRequestBuilder searchRequest) {
     searchRequest
       .setScroll(TimeValue.timeValueMinutes(5))
@@ -149,23 +242,22 @@ public class BulkIndexer implements Startable {
       // load only doc ids, not _source fields
       .setFetchSource(false);
 
-    // this search is synchronous. An optimization would be to be non-blocking,
-    // but it requires to tracking pending requests in close().
-    // Same semaphore can't be reused because of potential deadlock (requires to acquire
-    // two locks)
-    SearchResponse searchResponse = searchRequest.get();
-
-    while (true) {
-      searchResponse = client.prepareSearchScroll(searchResponse.getScrollId())
-        .setScroll(TimeValue.timeValueMinutes(5))
-        .get();
-      SearchHit[] hits = searchResponse.getHits().getHits();
-      for (SearchHit hit : hits) {
-        add(client.prepareDelete(hit.index(), hit.type(), hit.getId()).request());
-      }
-      if (hits.length == 0) {
-        break;
+    // Listeners do not add requests to the bulk nor acquire the semaphore, as they are executed
+    // by threads of Elasticsearch client. That could dead-lock. They only queue the delete requests
+    // and release the permit of the search.
+    acquireDeletionSearch();
+    searchRequest.execute(new DeletionScrollListener());
+  }
+
+  private void acquireDeletionSearch() {
+    try {
+      while (!deletionSearches.tryAcquire(DELETION_POLL_MS, TimeUnit.MILLISECONDS)) {
+        // pending searches keep on queuing delete requests meanwhile
+        drainDeletions();
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the documents to be deleted", e);
     }
   }
 
@@ -182,17 +274,30 @@ public class BulkIndexer implements Startable {
 
   @Override
   public void stop() {
+    awaitDeletions();
     if (bulkRequest.numberOfActions() > 0) {
       executeBulk();
     }
+    int permits;
+    synchronized (this) {
+      // concurrency must not change while waiting for the pending requests
+      stopping = true;
+      permits = concurrentRequests;
+    }
     try {
-      if (semaphore.tryAcquire(concurrentRequests, 10, TimeUnit.MINUTES)) {
-        semaphore.release(concurrentRequests);
+      if (semaphore.tryAcquire(permits, 10, TimeUnit.MINUTES)) {
+        semaphore.release(permits);
       }
     } catch (InterruptedException e) {
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 10 minutes", e);
     }
     progress.stop();
+    stopRetries();
+    stats.onStop(System.currentTimeMillis() - startedAt);
+    if (isAdaptive()) {
+      LOGGER.info(String.format("Bulk indexing of %s: %d docs/sec, %d bytes/sec, %d rejections, %d concurrent requests of %d bytes",
+        indexName, getDocsPerSecond(), getBytesPerSecond(), getRejections(), getConcurrentRequests(), getFlushByteSize()));
+    }
 
     if (!disableRefresh) {
       client.prepareRefresh(indexName).get();
@@ -206,6 +311,134 @@ public class BulkIndexer implements Startable {
       updateSettings(largeInitialSettings);
     }
     bulkRequest = null;
+
+    Throwable failure = deletionFailure.get();
+    if (failure != null) {
+      throw new IllegalStateException("Fail to search for the documents to be deleted from index " + indexName, failure);
+    }
+  }
+
+  private void drainDeletions() {
+    ActionRequest deletion = deletions.poll();
+    while (deletion != null) {
+      addToBulk(deletion);
+      deletion = deletions.poll();
+    }
+    resumeDeletionSearches();
+  }
+
+  private void resumeDeletionSearches() {
+    DeletionScrollListener search = pausedDeletionSearches.poll();
+    while (search != null) {
+      search.scroll();
+      search = pausedDeletionSearches.poll();
+    }
+  }
+
+  private void awaitDeletions() {
+    try {
+      while (deletionSearches.availablePermits() < MAX_DELETION_SEARCHES) {
+        ActionRequest deletion = deletions.poll(DELETION_POLL_MS, TimeUnit.MILLISECONDS);
+        if (deletion != null) {
+          addToBulk(deletion);
+        }
+        if (deletions.isEmpty()) {
+          resumeDeletionSearches();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the documents to be deleted", e);
+    }
+    // searches are over, but the last delete requests may still be queued
+    drainDeletions();
+  }
+
+  /**
+   * Number of documents processed per second since {@link #start()}
+   */
+  public long getDocsPerSecond() {
+    return perSecond(counter.get());
+  }
+
+  /**
+   * Volume of bulk requests processed per second since {@link #start()}
+   */
+  public long getBytesPerSecond() {
+    return perSecond(bytes.get());
+  }
+
+  private long perSecond(long value) {
+    long duration = System.currentTimeMillis() - startedAt;
+    return duration > 0L ? (1000L * value / duration) : value;
+  }
+
+  /**
+   * Number of bulk requests and documents rejected by Elasticsearch since {@link #start()}
+   */
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  public synchronized int getConcurrentRequests() {
+    return concurrentRequests;
+  }
+
+  public long getFlushByteSize() {
+    return flushByteSize;
+  }
+
+  /**
+   * Tunes concurrency and size of bulk requests after each response in adaptive mode:
+   * <ul>
+   *   <li>rejection: both are halved</li>
+   *   <li>latency greater than {@link #HIGH_LATENCY_MS}: one request less</li>
+   *   <li>latency lower than {@link #LOW_LATENCY_MS}: one request more and size increased by 25%</li>
+   * </ul>
+   */
+  @VisibleForTesting
+  synchronized void adapt(long latencyMs, boolean rejected) {
+    if (stopping) {
+      return;
+    }
+    int target = concurrentRequests;
+    if (rejected) {
+      target = Math.max(1, concurrentRequests / 2);
+      flushByteSize = Math.max(MIN_FLUSH_BYTE_SIZE, flushByteSize / 2);
+    } else if (latencyMs > HIGH_LATENCY_MS) {
+      target = Math.max(1, concurrentRequests - 1);
+    } else if (latencyMs < LOW_LATENCY_MS) {
+      target = Math.min(maxConcurrentRequests, concurrentRequests + 1);
+      flushByteSize = Math.min(MAX_FLUSH_BYTE_SIZE, flushByteSize + flushByteSize / 4);
+    }
+    if (target > concurrentRequests) {
+      semaphore.release(target - concurrentRequests);
+    } else if (target < concurrentRequests) {
+      semaphore.reducePermits(concurrentRequests - target);
+    }
+    concurrentRequests = target;
+  }
+
+  private synchronized void scheduleRetry(final BulkRequestBuilder req, final int attempt) {
+    if (retryExecutor == null) {
+      retryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+        .setNameFormat("BulkIndexer[" + indexName + "]-retry-%d")
+        .setDaemon(true)
+        .build());
+    }
+    retryExecutor.schedule(new Runnable() {
+      @Override
+      public void run() {
+        req.execute(new BulkResponseActionListener(req, attempt));
+      }
+    }, RETRY_BACKOFF_MS << (attempt - 1), TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void stopRetries() {
+    if (retryExecutor != null) {
+      retryExecutor.shutdown();
+      retryExecutor = null;
+    }
   }
 
   private void updateSettings(Map<String, Object> settings) {
@@ -218,23 +451,87 @@ public class BulkIndexer implements Startable {
     final BulkRequestBuilder req = this.bulkRequest;
     this.bulkRequest = client.prepareBulk().setRefresh(false);
     semaphore.acquireUninterruptibly();
-    req.execute(new BulkResponseActionListener(req));
+    req.execute(new BulkResponseActionListener(req, 0));
+  }
+
+  private class DeletionScrollListener implements ActionListener<SearchResponse> {
+    // the initial response of a scan search does not contain hits
+    private boolean initial = true;
+    private String scrollId = null;
+
+    @Override
+    public void onResponse(SearchResponse response) {
+      try {
+        SearchHit[] hits = response.getHits().getHits();
+        for (SearchHit hit : hits) {
+          deletions.add(client.prepareDelete(hit.index(), hit.type(), hit.getId()).request());
+        }
+        scrollId = response.getScrollId();
+        if (initial || hits.length > 0) {
+          initial = false;
+          if (deletions.size() >= maxQueuedDeletions) {
+            // scroll is resumed by the thread adding requests to the bulk, once the queue is drained
+            pausedDeletionSearches.add(this);
+          } else {
+            scroll();
+          }
+        } else {
+          deletionSearches.release();
+        }
+      } catch (RuntimeException e) {
+        onFailure(e);
+      }
+    }
+
+    private void scroll() {
+      try {
+        client.prepareSearchScroll(scrollId)
+          .setScroll(TimeValue.timeValueMinutes(5))
+          .execute(this);
+      } catch (RuntimeException e) {
+        onFailure(e);
+      }
+    }
+
+    @Override
+    public void onFailure(Throwable e) {
+      try {
+        deletionFailure.compareAndSet(null, e);
+        if (scrollId != null) {
+          // do not keep the search context opened until expiration of scroll. Response is not awaited
+          // as listener is executed by a thread of Elasticsearch client.
+          EsUtils.clearScrollInBackground(client, scrollId);
+        }
+      } finally {
+        deletionSearches.release();
+      }
+    }
   }
 
   private class BulkResponseActionListener implements ActionListener<BulkResponse> {
     private final BulkRequestBuilder req;
+    private final int attempt;
+    private final long startedAtNanos = System.nanoTime();
 
-    public BulkResponseActionListener(BulkRequestBuilder req) {
+    public BulkResponseActionListener(BulkRequestBuilder req, int attempt) {
       this.req = req;
+      this.attempt = attempt;
     }
 
     @Override
     public void onResponse(BulkResponse response) {
-      semaphore.release();
-      counter.addAndGet(response.getItems().length);
+      BulkRequestBuilder retry = null;
+      if (isAdaptive() && attempt < MAX_RETRIES) {
+        retry = rejectedRequests(response);
+      }
+      int processed = response.getItems().length - (retry == null ? 0 : retry.numberOfActions());
+      counter.addAndGet(processed);
+      bytes.addAndGet(req.request().estimatedSizeInBytes());
+      stats.onBulkResponse(processed, req.request().estimatedSizeInBytes());
 
       for (BulkItemResponse item : response.getItems()) {
-        if (item.isFailed()) {
+        if (item.isFailed() && (retry == null || !isRejected(item))) {
+          stats.onFailure();
           StringBuilder sb = new StringBuilder();
           String msg = sb
             .append("index [").append(item.getIndex()).append("], type [").append(item.getType()).append("], id [").append(item.getId())
@@ -242,12 +539,64 @@ public class BulkIndexer implements Startable {
           LOGGER.error(msg);
         }
       }
+      if (isAdaptive()) {
+        adapt(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAtNanos), retry != null);
+      }
+      if (retry != null) {
+        // the permit is kept by the retry
+        scheduleRetry(retry, attempt + 1);
+      } else {
+        semaphore.release();
+      }
     }
 
     @Override
     public void onFailure(Throwable e) {
+      if (isAdaptive() && attempt < MAX_RETRIES && ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+        rejections.incrementAndGet();
+        stats.onRejection();
+        adapt(0L, true);
+        scheduleRetry(req, attempt + 1);
+        return;
+      }
+      stats.onFailure();
       semaphore.release();
       LOGGER.error("Fail to execute bulk index request: " + req, e);
     }
+
+    @CheckForNull
+    private BulkRequestBuilder rejectedRequests(BulkResponse response) {
+      BulkRequestBuilder retry = null;
+      List<ActionRequest> requests = req.request().requests();
+      for (BulkItemResponse item : response.getItems()) {
+        if (item.isFailed() && isRejected(item)) {
+          if (retry == null) {
+            retry = client.prepareBulk().setRefresh(false);
+          }
+          retry.request().add(requests.get(item.getItemId()));
+          rejections.incrementAndGet();
+          stats.onRejection();
+        }
+      }
+      return retry;
+    }
+  }
+
+  private static boolean isRejected(BulkItemResponse item) {
+    return item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS;
+  }
+
+  /**
+   * Semaphore whose number of permits can be decreased, even if some permits are acquired
+   */
+  private static class ResizableSemaphore extends Semaphore {
+    ResizableSemaphore(int permits) {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
   }
 }
@@ -0,0 +1,103 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of all the {@link BulkIndexer} executed with the same {@link EsClient} since startup.
+ */
+public class BulkIndexerStats {
+
+  private final AtomicLong bulkRequests = new AtomicLong(0L);
+  private final AtomicLong documents = new AtomicLong(0L);
+  private final AtomicLong bytes = new AtomicLong(0L);
+  private final AtomicLong rejections = new AtomicLong(0L);
+  private final AtomicLong failures = new AtomicLong(0L);
+  private final AtomicLong indexingTimeMs = new AtomicLong(0L);
+
+  void onBulkResponse(int processedDocuments, long processedBytes) {
+    bulkRequests.incrementAndGet();
+    documents.addAndGet(processedDocuments);
+    bytes.addAndGet(processedBytes);
+  }
+
+  void onRejection() {
+    rejections.incrementAndGet();
+  }
+
+  void onFailure() {
+    failures.incrementAndGet();
+  }
+
+  void onStop(long durationMs) {
+    indexingTimeMs.addAndGet(durationMs);
+  }
+
+  /**
+   * Number of bulk requests which got a response
+   */
+  public long getBulkRequests() {
+    return bulkRequests.get();
+  }
+
+  /**
+   * Number of documents processed by Elasticsearch
+   */
+  public long getDocuments() {
+    return documents.get();
+  }
+
+  /**
+   * Volume of the bulk requests processed by Elasticsearch
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Number of bulk requests and documents rejected by Elasticsearch, before being retried
+   */
+  public long getRejections() {
+    return rejections.get();
+  }
+
+  /**
+   * Number of bulk requests and documents which failed, including the rejected ones which are not retried
+   */
+  public long getFailures() {
+    return failures.get();
+  }
+
+  /**
+   * Sum of the durations of the stopped bulk indexers
+   */
+  public long getIndexingTimeMs() {
+    return indexingTimeMs.get();
+  }
+
+  /**
+   * Average number of documents processed per second of indexing
+   */
+  public long getDocsPerSecond() {
+    long duration = indexingTimeMs.get();
+    return duration > 0L ? (1000L * documents.get() / duration) : 0L;
+  }
+}
@@ -39,6 +39,7 @@ import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.MultiGetRequestBuilder;
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.client.Client;
@@ -51,6 +52,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.es.request.ProxyBulkRequestBuilder;
 import org.sonar.server.es.request.ProxyClearCacheRequestBuilder;
+import org.sonar.server.es.request.ProxyClearScrollRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterHealthRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterStateRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterStatsRequestBuilder;
@@ -79,6 +81,7 @@ public class EsClient implements Startable {
 
   public static final Logger LOGGER = Loggers.get("es");
   private final Client client;
+  private final BulkIndexerStats bulkIndexerStats = new BulkIndexerStats();
 
   public EsClient(SearchClient deprecatedClient) {
     this.client = deprecatedClient;
@@ -140,6 +143,10 @@ public class EsClient implements Startable {
     return new ProxySearchScrollRequestBuilder(scrollId, client);
   }
 
+  public ClearScrollRequestBuilder prepareClearScroll() {
+    return new ProxyClearScrollRequestBuilder(client);
+  }
+
   public GetRequestBuilder prepareGet() {
     return new ProxyGetRequestBuilder(client);
   }
@@ -208,4 +215,8 @@ public class EsClient implements Startable {
   protected Client nativeClient() {
     return client;
   }
+
+  public BulkIndexerStats getBulkIndexerStats() {
+    return bulkIndexerStats;
+  }
 }
@@ -21,12 +21,16 @@ package org.sonar.server.es;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollResponse;
 import org.elasticsearch.action.search.SearchScrollRequestBuilder;
 import org.elasticsearch.common.joda.time.format.ISODateTimeFormat;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.server.search.BaseDoc;
 
 import javax.annotation.CheckForNull;
@@ -47,6 +51,8 @@ public class EsUtils {
 
   public static final int SCROLL_TIME_IN_MINUTES = 3;
 
+  private static final Logger LOGGER = Loggers.get(EsUtils.class);
+
   private EsUtils() {
     // only static methods
   }
@@ -121,4 +127,22 @@ public class EsUtils {
       }
     };
   }
+
+  /**
+   * Releases the search context of a scroll without waiting for the response. A failure is only logged,
+   * the context being anyway released by Elasticsearch when the scroll expires.
+   */
+  public static void clearScrollInBackground(EsClient esClient, final String scrollId) {
+    esClient.prepareClearScroll().addScrollId(scrollId).execute(new ActionListener<ClearScrollResponse>() {
+      @Override
+      public void onResponse(ClearScrollResponse response) {
+        // nothing to do
+      }
+
+      @Override
+      public void onFailure(Throwable e) {
+        LOGGER.warn(String.format("Fail to clear scroll %s", scrollId), e);
+      }
+    });
+  }
 }
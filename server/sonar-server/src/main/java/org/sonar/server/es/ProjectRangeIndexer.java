@@ -0,0 +1,104 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Indexer of a table that is big enough to be read concurrently by ranges of projects, for
+ * example issues or file sources.
+ */
+public abstract class ProjectRangeIndexer extends BaseIndexer {
+
+  protected ProjectRangeIndexer(EsClient client, long threadKeepAliveSeconds, String indexName, String typeName,
+    String dateFieldName) {
+    super(client, threadKeepAliveSeconds, indexName, typeName, dateFieldName);
+  }
+
+  /**
+   * Same as {@link #index()}, but rows are read by ranges of projects. Each range is read
+   * concurrently, on its own thread and db connection.
+   */
+  public void index(final List<ProjectUuidRange> ranges) {
+    index(new IndexerTask() {
+      @Override
+      public long index(long lastUpdatedAt) {
+        return doIndex(lastUpdatedAt, ranges);
+      }
+    });
+  }
+
+  private long doIndex(final long lastUpdatedAt, List<ProjectUuidRange> ranges) {
+    if (ranges.size() == 1 && ranges.get(0).isAll()) {
+      return doIndex(lastUpdatedAt);
+    }
+
+    // settings of index are changed and reverted once for all the ranges
+    BulkIndexer bulk = new BulkIndexer(esClient, indexName);
+    bulk.setLarge(lastUpdatedAt == 0L);
+    bulk.start();
+    ExecutorService rangeExecutor = Executors.newFixedThreadPool(ranges.size(), new ThreadFactoryBuilder()
+      .setNameFormat(typeName + "-indexer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<Long>> futures = new ArrayList<>();
+      for (final ProjectUuidRange range : ranges) {
+        futures.add(rangeExecutor.submit(new Callable<Long>() {
+          @Override
+          public Long call() {
+            return doIndex(lastUpdatedAt, range);
+          }
+        }));
+      }
+      long maxUpdatedAt = 0L;
+      for (Future<Long> future : futures) {
+        maxUpdatedAt = Math.max(maxUpdatedAt, Uninterruptibles.getUninterruptibly(future));
+      }
+      return maxUpdatedAt;
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      rangeExecutor.shutdownNow();
+      bulk.stop();
+    }
+  }
+
+  /**
+   * Indexes the rows of the projects of the given range. Index settings and refresh are
+   * handled by the caller.
+   */
+  protected abstract long doIndex(long lastUpdatedAt, ProjectUuidRange range);
+
+  @Override
+  public ProjectRangeIndexer setEnabled(boolean b) {
+    super.setEnabled(b);
+    return this;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.collect.ImmutableList;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Range of project UUIDs, used to read a big table with several concurrent db connections.
+ * Lower bound is inclusive, upper bound is exclusive. A missing bound means that the range
+ * is not limited on this side.
+ */
+public class ProjectUuidRange {
+
+  public static final ProjectUuidRange ALL = new ProjectUuidRange(null, null);
+
+  private final String from;
+  private final String to;
+
+  public ProjectUuidRange(@Nullable String from, @Nullable String to) {
+    this.from = from;
+    this.to = to;
+  }
+
+  @CheckForNull
+  public String getFrom() {
+    return from;
+  }
+
+  @CheckForNull
+  public String getTo() {
+    return to;
+  }
+
+  public boolean isAll() {
+    return from == null && to == null;
+  }
+
+  /**
+   * SQL condition on the given column, to be appended to a WHERE clause. Empty if the range is not limited.
+   * Parameters are set by {@link #setParameters(PreparedStatement, int)}.
+   */
+  public String sqlFilter(String column) {
+    StringBuilder sql = new StringBuilder();
+    if (from != null) {
+      sql.append(column).append(">=?");
+    }
+    if (to != null) {
+      if (sql.length() > 0) {
+        sql.append(" AND ");
+      }
+      sql.append(column).append("<?");
+    }
+    return sql.toString();
+  }
+
+  /**
+   * @return the index of the next parameter of the statement
+   */
+  public int setParameters(PreparedStatement stmt, int index) throws SQLException {
+    int next = index;
+    if (from != null) {
+      stmt.setString(next, from);
+      next++;
+    }
+    if (to != null) {
+      stmt.setString(next, to);
+      next++;
+    }
+    return next;
+  }
+
+  /**
+   * Splits the UUID space into at most {@code count} contiguous ranges containing the same number of
+   * projects. UUIDs must be sorted according to the collation of the database, as
+   * returned by {@link org.sonar.db.component.ComponentDao#selectProjectUuids(org.sonar.db.DbSession)}.
+   * The first and last ranges are not bounded, so that rows of projects created in the meantime are
+   * not ignored.
+   */
+  public static List<ProjectUuidRange> split(List<String> sortedProjectUuids, int count) {
+    checkArgument(count > 0, "Number of ranges must be positive: %s", count);
+    int size = Math.min(count, sortedProjectUuids.size());
+    if (size <= 1) {
+      return ImmutableList.of(ALL);
+    }
+    ImmutableList.Builder<ProjectUuidRange> ranges = ImmutableList.builder();
+    String from = null;
+    for (int i = 1; i < size; i++) {
+      String to = sortedProjectUuids.get(i * sortedProjectUuids.size() / size);
+      ranges.add(new ProjectUuidRange(from, to));
+      from = to;
+    }
+    ranges.add(new ProjectUuidRange(from, null));
+    return ranges.build();
+  }
+
+  @Override
+  public String toString() {
+    return "[" + (from == null ? "" : from) + ", " + (to == null ? "" : to) + ")";
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.io.BaseEncoding;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import javax.annotation.Nullable;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.lang.StringUtils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Opaque token returned to web service clients to fetch the next page of a search executed with the Elasticsearch
+ * scroll API. It embeds the scroll id, the number of hits that have not been returned yet, the page that it
+ * returns and the login of the user who executed the initial search, so that a cursor can't be used by another user.
+ * <p/>
+ * The token is signed with a secret of the server, so that it can't be forged by clients.
+ */
+public final class ScrollCursor {
+
+  private static final char SEPARATOR = '\n';
+  private static final char SIGNATURE_SEPARATOR = '.';
+  private static final BaseEncoding ENCODING = BaseEncoding.base64Url().omitPadding();
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int SECRET_LENGTH = 32;
+
+  private final String scrollId;
+  private final long remaining;
+  private final int page;
+  private final int pageSize;
+  private final String owner;
+
+  /**
+   * @param page index, starting from 1, of the page returned by the cursor
+   */
+  public ScrollCursor(String scrollId, long remaining, int page, int pageSize, @Nullable String owner) {
+    checkArgument(StringUtils.isNotEmpty(scrollId), "Scroll id must be set");
+    checkArgument(remaining >= 0L, "Number of remaining hits must be positive");
+    checkArgument(page > 0 && pageSize > 0, "Page and page size must be strictly positive");
+    this.scrollId = scrollId;
+    this.remaining = remaining;
+    this.page = page;
+    this.pageSize = pageSize;
+    this.owner = StringUtils.defaultString(owner);
+  }
+
+  public String getScrollId() {
+    return scrollId;
+  }
+
+  /**
+   * Number of hits that have not been returned yet
+   */
+  public long getRemaining() {
+    return remaining;
+  }
+
+  /**
+   * Index, starting from 1, of the page returned by the cursor
+   */
+  public int getPage() {
+    return page;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public boolean isOwnedBy(@Nullable String login) {
+    return owner.equals(StringUtils.defaultString(login));
+  }
+
+  /**
+   * @param secret secret of the server, as returned by {@link #newSecret()}
+   */
+  public String encode(byte[] secret) {
+    String decoded = owner + SEPARATOR + remaining + SEPARATOR + page + SEPARATOR + pageSize + SEPARATOR + scrollId;
+    String payload = ENCODING.encode(decoded.getBytes(Charsets.UTF_8));
+    return payload + SIGNATURE_SEPARATOR + ENCODING.encode(sign(payload, secret));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the token has not been generated by {@link #encode(byte[])} with the same secret
+   */
+  public static ScrollCursor decode(String token, byte[] secret) {
+    try {
+      int signatureIndex = token.lastIndexOf(SIGNATURE_SEPARATOR);
+      checkArgument(signatureIndex > 0);
+      String payload = token.substring(0, signatureIndex);
+      byte[] signature = ENCODING.decode(token.substring(signatureIndex + 1));
+      checkArgument(MessageDigest.isEqual(signature, sign(payload, secret)));
+
+      String decoded = new String(ENCODING.decode(payload), Charsets.UTF_8);
+      List<String> parts = Splitter.on(SEPARATOR).limit(5).splitToList(decoded);
+      checkArgument(parts.size() == 5);
+      return new ScrollCursor(parts.get(4), Long.parseLong(parts.get(1)), Integer.parseInt(parts.get(2)), Integer.parseInt(parts.get(3)), parts.get(0));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(String.format("Invalid cursor '%s'", token), e);
+    }
+  }
+
+  /**
+   * Random secret to sign cursors. Cursors encoded with a secret can't be decoded after a restart of the server, which
+   * is not an issue as they are short-lived.
+   */
+  public static byte[] newSecret() {
+    byte[] secret = new byte[SECRET_LENGTH];
+    new SecureRandom().nextBytes(secret);
+    return secret;
+  }
+
+  private static byte[] sign(String payload, byte[] secret) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+      return mac.doFinal(payload.getBytes(Charsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Fail to sign cursor", e);
+    }
+  }
+}
@@ -24,6 +24,9 @@ import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.sonar.server.search.BaseDoc;
 
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
 import java.util.List;
 import java.util.Map;
 
@@ -32,11 +35,17 @@ public class SearchResult<DOC extends BaseDoc> {
   private final List<DOC> docs;
   private final Facets facets;
   private final long total;
+  private final String cursor;
 
   public SearchResult(SearchResponse response, Function<Map<String, Object>, DOC> converter) {
+    this(response, converter, null);
+  }
+
+  public SearchResult(SearchResponse response, Function<Map<String, Object>, DOC> converter, @Nullable String cursor) {
     this.facets = new Facets(response);
     this.total = response.getHits().totalHits();
     this.docs = EsUtils.convertToDocs(response.getHits(), converter);
+    this.cursor = cursor;
   }
 
   public List<DOC> getDocs() {
@@ -51,6 +60,15 @@ public class SearchResult<DOC extends BaseDoc> {
     return this.facets;
   }
 
+  /**
+   * Token to be used to get the next page of results, when the search has been executed
+   * with a cursor. Null if the search is not paginated with a cursor or if there are no more results.
+   */
+  @CheckForNull
+  public String getCursor() {
+    return cursor;
+  }
+
   @Override
   public String toString() {
     return ReflectionToStringBuilder.toString(this);
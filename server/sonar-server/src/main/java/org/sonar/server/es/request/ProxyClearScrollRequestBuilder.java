@@ -0,0 +1,75 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es.request;
+
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.ListenableActionFuture;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
+import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.TimeValue;
+import org.sonar.api.utils.log.Profiler;
+import org.sonar.server.es.EsClient;
+
+public class ProxyClearScrollRequestBuilder extends ClearScrollRequestBuilder {
+
+  public ProxyClearScrollRequestBuilder(Client client) {
+    super(client);
+  }
+
+  @Override
+  public ClearScrollResponse get() {
+    Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER).start();
+    try {
+      return super.execute().actionGet();
+    } catch (Exception e) {
+      throw new IllegalStateException(String.format("Fail to execute %s", toString()), e);
+    } finally {
+      if (profiler.isTraceEnabled()) {
+        profiler.stopTrace(toString());
+      }
+    }
+  }
+
+  @Override
+  public ClearScrollResponse get(TimeValue timeout) {
+    throw new IllegalStateException("Not yet implemented");
+  }
+
+  @Override
+  public ClearScrollResponse get(String timeout) {
+    throw new IllegalStateException("Not yet implemented");
+  }
+
+  @Override
+  public ListenableActionFuture<ClearScrollResponse> execute() {
+    throw new UnsupportedOperationException("execute() should not be called as it's used for asynchronous");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder message = new StringBuilder();
+    message.append("ES clear scroll request");
+    if (request.getScrollIds() != null && !request.getScrollIds().isEmpty()) {
+      message.append(String.format(" on scroll ids '%s'", StringUtils.join(request.getScrollIds(), ",")));
+    }
+    return message.toString();
+  }
+}
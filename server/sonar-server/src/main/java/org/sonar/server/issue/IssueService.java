@@ -319,6 +319,14 @@ public class IssueService {
     return issueIndex.search(query, options);
   }
 
+  public SearchResult<IssueDoc> searchWithCursor(IssueQuery query, SearchOptions options) {
+    return issueIndex.searchWithCursor(query, options);
+  }
+
+  public SearchResult<IssueDoc> searchNextPage(String cursor, SearchOptions options) {
+    return issueIndex.searchNextPage(cursor, options);
+  }
+
   private void verifyLoggedIn() {
     userSession.checkLoggedIn();
   }
@@ -40,6 +40,7 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
@@ -72,9 +73,11 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.ScrollCursor;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
 import org.sonar.server.es.Sorting;
+import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.filter.IssueFilterParameters;
@@ -83,6 +86,7 @@ import org.sonar.server.search.IndexDefinition;
 import org.sonar.server.search.StickyFacetBuilder;
 import org.sonar.server.user.UserSession;
 import org.sonar.server.view.index.ViewIndexDefinition;
+import org.sonar.server.view.index.ViewProjectsCache;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -123,6 +127,12 @@ public class IssueIndex extends BaseIndex {
   private static final Order DEBT_AGGREGATION_ORDER = Order.aggregation(DEBT_AGGREGATION_NAME, false);
 
   private static final int DEFAULT_FACET_SIZE = 15;
+
+  /**
+   * Above this number of projects, a view is filtered with a terms lookup instead of sending its
+   * project UUIDs in each search request
+   */
+  static final int MAX_INLINED_VIEW_PROJECTS = 1024;
   private static final Duration TWENTY_DAYS = Duration.standardDays(20L);
   private static final Duration TWENTY_WEEKS = Duration.standardDays(20L * 7L);
   private static final Duration TWENTY_MONTHS = Duration.standardDays(20L * 30L);
@@ -141,12 +151,15 @@ public class IssueIndex extends BaseIndex {
   private final Sorting sorting;
   private final System2 system;
   private final UserSession userSession;
+  private final ViewProjectsCache viewProjectsCache;
+  private final byte[] cursorSecret = ScrollCursor.newSecret();
 
-  public IssueIndex(EsClient client, System2 system, UserSession userSession) {
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, ViewProjectsCache viewProjectsCache) {
     super(client);
 
     this.system = system;
     this.userSession = userSession;
+    this.viewProjectsCache = viewProjectsCache;
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_ASSIGNEE, IssueIndexDefinition.FIELD_ISSUE_ASSIGNEE);
     this.sorting.add(IssueQuery.SORT_BY_STATUS, IssueIndexDefinition.FIELD_ISSUE_STATUS);
@@ -191,12 +204,82 @@ public class IssueIndex extends BaseIndex {
   }
 
   public SearchResult<IssueDoc> search(IssueQuery query, SearchOptions options) {
+    SearchRequestBuilder requestBuilder = prepareSearch(query, options);
+    configurePagination(options, requestBuilder);
+    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+  }
+
+  /**
+   * Same as {@link #search(IssueQuery, SearchOptions)}, except that the first page is always returned and that
+   * the Elasticsearch search context is kept alive so that the next pages can be fetched with
+   * {@link #searchNextPage(String)} and the cursor returned by {@link SearchResult#getCursor()}.
+   * This avoids the cost of deep pagination, as Elasticsearch has to collect and sort
+   * offset + limit hits on each shard at each page.
+   */
+  public SearchResult<IssueDoc> searchWithCursor(IssueQuery query, SearchOptions options) {
+    SearchRequestBuilder requestBuilder = prepareSearch(query, options)
+      .setSize(options.getLimit())
+      .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES));
+    SearchResponse response = requestBuilder.get();
+    long remaining = response.getHits().getTotalHits() - response.getHits().getHits().length;
+    return new SearchResult<>(response, DOC_CONVERTER, nextCursor(response, remaining, 2, options.getLimit()));
+  }
+
+  /**
+   * Returns the page following the one that returned the given cursor. Query, sorting and page size are the ones
+   * of the initial call to {@link #searchWithCursor(IssueQuery, SearchOptions)}. Facets are not returned.
+   * The page index and page size of the given options are set to the ones of the returned page.
+   *
+   * @throws BadRequestException if the cursor is not valid, has expired or has been created by another user
+   */
+  public SearchResult<IssueDoc> searchNextPage(String cursor, SearchOptions options) {
+    ScrollCursor scrollCursor;
+    try {
+      scrollCursor = ScrollCursor.decode(cursor, cursorSecret);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage());
+    }
+    if (!scrollCursor.isOwnedBy(userSession.getLogin())) {
+      throw new BadRequestException(String.format("Invalid cursor '%s'", cursor));
+    }
+    options.setPage(scrollCursor.getPage(), scrollCursor.getPageSize());
+
+    SearchResponse response;
+    try {
+      response = getClient().prepareSearchScroll(scrollCursor.getScrollId())
+        .setScroll(TimeValue.timeValueMinutes(EsUtils.SCROLL_TIME_IN_MINUTES))
+        .get();
+    } catch (IllegalStateException e) {
+      if (e.getCause() instanceof ElasticsearchException && ((ElasticsearchException) e.getCause()).status().getStatus() < 500) {
+        throw new BadRequestException(String.format("Cursor '%s' is not valid or has expired", cursor));
+      }
+      throw e;
+    }
+    long remaining = scrollCursor.getRemaining() - response.getHits().getHits().length;
+    return new SearchResult<>(response, DOC_CONVERTER, nextCursor(response, remaining, scrollCursor.getPage() + 1, scrollCursor.getPageSize()));
+  }
+
+  /**
+   * The search context is released as soon as the last page is returned, instead of waiting for its expiration.
+   * Release is not awaited so that a failure does not prevent the last page from being returned.
+   */
+  @CheckForNull
+  private String nextCursor(SearchResponse response, long remaining, int nextPage, int pageSize) {
+    if (remaining > 0L && response.getHits().getHits().length > 0) {
+      return new ScrollCursor(response.getScrollId(), remaining, nextPage, pageSize, userSession.getLogin()).encode(cursorSecret);
+    }
+    if (response.getScrollId() != null) {
+      EsUtils.clearScrollInBackground(getClient(), response.getScrollId());
+    }
+    return null;
+  }
+
+  private SearchRequestBuilder prepareSearch(IssueQuery query, SearchOptions options) {
     SearchRequestBuilder requestBuilder = getClient()
       .prepareSearch(IssueIndexDefinition.INDEX)
       .setTypes(IssueIndexDefinition.TYPE_ISSUE);
 
     configureSorting(query, requestBuilder);
-    configurePagination(options, requestBuilder);
 
     QueryBuilder esQuery = QueryBuilders.matchAllQuery();
     BoolFilterBuilder esFilter = FilterBuilders.boolFilter();
@@ -213,7 +296,7 @@ public class IssueIndex extends BaseIndex {
     }
 
     configureStickyFacets(query, options, filters, esQuery, requestBuilder);
-    return new SearchResult<>(requestBuilder.get(), DOC_CONVERTER);
+    return requestBuilder;
   }
 
   private void configureSorting(IssueQuery query, SearchRequestBuilder esRequest) {
@@ -309,16 +392,28 @@ public class IssueIndex extends BaseIndex {
       return null;
     }
 
-    OrFilterBuilder viewsFilter = FilterBuilders.orFilter();
+    // Filters of views are cached by Elasticsearch as bitsets, under a key which is cleared when the view is re-indexed.
+    // They are combined with a bool filter, which unlike the or filter is able to make use of the cached bitsets.
+    BoolFilterBuilder viewsFilter = FilterBuilders.boolFilter();
     for (String viewUuid : viewUuids) {
-      viewsFilter.add(FilterBuilders.termsLookupFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID)
+      viewsFilter.should(createSingleViewFilter(viewUuid));
+    }
+    return viewsFilter;
+  }
+
+  private FilterBuilder createSingleViewFilter(String viewUuid) {
+    Set<String> projectUuids = viewProjectsCache.getProjectUuids(viewUuid);
+    if (projectUuids.size() > MAX_INLINED_VIEW_PROJECTS) {
+      return FilterBuilders.termsLookupFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID)
         .lookupIndex(ViewIndexDefinition.INDEX)
         .lookupType(ViewIndexDefinition.TYPE_VIEW)
         .lookupId(viewUuid)
-        .lookupPath(ViewIndexDefinition.FIELD_PROJECTS))
+        .lookupPath(ViewIndexDefinition.FIELD_PROJECTS)
         .cacheKey(viewsLookupCacheKey(viewUuid));
     }
-    return viewsFilter;
+    return FilterBuilders.termsFilter(IssueIndexDefinition.FIELD_ISSUE_PROJECT_UUID, projectUuids)
+      .cache(true)
+      .cacheKey(viewsLookupCacheKey(viewUuid));
   }
 
   public static String viewsLookupCacheKey(String viewUuid) {
@@ -26,11 +26,12 @@ import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.ProjectRangeIndexer;
+import org.sonar.server.es.ProjectUuidRange;
 
-public class IssueIndexer extends BaseIndexer {
+public class IssueIndexer extends ProjectRangeIndexer {
 
   private final DbClient dbClient;
 
@@ -55,11 +56,23 @@ public class IssueIndexer extends BaseIndexer {
     doIndex(createBulkIndexer(false), issues);
   }
 
+  @Override
+  protected long doIndex(long lastUpdatedAt, ProjectUuidRange range) {
+    BulkIndexer bulk = createBulkIndexer(false);
+    bulk.setDisableRefresh(true);
+    bulk.setAdaptive(lastUpdatedAt == 0L);
+    return doIndex(bulk, lastUpdatedAt, range);
+  }
+
   private long doIndex(BulkIndexer bulk, long lastUpdatedAt) {
+    return doIndex(bulk, lastUpdatedAt, ProjectUuidRange.ALL);
+  }
+
+  private long doIndex(BulkIndexer bulk, long lastUpdatedAt, ProjectUuidRange range) {
     DbSession dbSession = dbClient.openSession(false);
     long maxDate;
     try {
-      IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, lastUpdatedAt);
+      IssueResultSetIterator rowIt = IssueResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, range);
       maxDate = doIndex(bulk, rowIt);
       rowIt.close();
       return maxDate;
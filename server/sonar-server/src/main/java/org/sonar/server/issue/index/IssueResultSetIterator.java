@@ -20,6 +20,7 @@
 package org.sonar.server.issue.index;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
@@ -27,7 +28,9 @@ import com.google.common.collect.Maps;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
@@ -37,6 +40,7 @@ import org.sonar.db.DatabaseUtils;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.ResultSetIterator;
+import org.sonar.server.es.ProjectUuidRange;
 
 import static org.sonar.api.utils.DateUtils.longToDate;
 import static org.sonar.db.DatabaseUtils.getLong;
@@ -88,8 +92,6 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
     "inner join projects p on p.uuid=i.component_uuid " +
     "inner join projects root on root.uuid=i.project_uuid";
 
-  private static final String SQL_AFTER_DATE = SQL_ALL + " where i.updated_at>?";
-
   private static final Splitter TAGS_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
 
   private static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
@@ -98,19 +100,32 @@ class IssueResultSetIterator extends ResultSetIterator<IssueDoc> {
     super(stmt);
   }
 
-  static IssueResultSetIterator create(DbClient dbClient, DbSession session, long afterDate) {
+  static IssueResultSetIterator create(DbClient dbClient, DbSession session, long afterDate, ProjectUuidRange range) {
     try {
-      String sql = afterDate > 0L ? SQL_AFTER_DATE : SQL_ALL;
-      PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, sql);
+      PreparedStatement stmt = dbClient.getMyBatis().newScrollingSelectStatement(session, createSql(afterDate, range));
+      int index = 1;
       if (afterDate > 0L) {
-        stmt.setLong(1, afterDate);
+        stmt.setLong(index, afterDate);
+        index++;
       }
+      range.setParameters(stmt, index);
       return new IssueResultSetIterator(stmt);
     } catch (SQLException e) {
       throw new IllegalStateException("Fail to prepare SQL request to select all issues", e);
     }
   }
 
+  private static String createSql(long afterDate, ProjectUuidRange range) {
+    List<String> filters = new ArrayList<>();
+    if (afterDate > 0L) {
+      filters.add("i.updated_at>?");
+    }
+    if (!range.isAll()) {
+      filters.add(range.sqlFilter("i.project_uuid"));
+    }
+    return filters.isEmpty() ? SQL_ALL : (SQL_ALL + " where " + Joiner.on(" and ").join(filters));
+  }
+
   @CheckForNull
   private static String extractDirPath(@Nullable String filePath, String scope) {
     if (filePath != null) {
@@ -50,6 +50,7 @@ import org.sonar.server.user.UserSession;
 import org.sonar.server.ws.WsUtils;
 import org.sonarqube.ws.Issues;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.FluentIterable.from;
 import static com.google.common.collect.Iterables.concat;
 import static java.util.Collections.singletonList;
@@ -60,6 +61,8 @@ public class SearchAction implements IssuesWsAction {
   private static final String INTERNAL_PARAMETER_DISCLAIMER = "This parameter is mostly used by the Issues page, please prefer usage of the componentKeys parameter. ";
   public static final String ADDITIONAL_FIELDS = "additionalFields";
   public static final String SEARCH_ACTION = "search";
+  public static final String PARAM_CURSOR = "cursor";
+  public static final String CURSOR_START = "*";
 
   private final UserSession userSession;
   private final IssueService service;
@@ -87,6 +90,12 @@ public class SearchAction implements IssuesWsAction {
       .setResponseExample(Resources.getResource(this.getClass(), "example-search.json"));
 
     action.addPagingParams(100);
+    action.createParam(PARAM_CURSOR)
+      .setDescription("Since 5.2. Enables cursor pagination, which is much faster than the page parameter to iterate over large results. " +
+        "Set '" + CURSOR_START + "' to get the first page, then set the value of the field nextCursor of the previous response to get the following page. " +
+        "When a cursor is returned by a previous response, all other parameters are ignored: query, sort and page size are the ones " +
+        "of the first page, and facets are returned on the first page only. Parameter '" + Param.PAGE + "' must not be set.")
+      .setExampleValue(CURSOR_START);
     action.createParam(Param.FACETS)
       .setDescription("Comma-separated list of the facets to be computed. No facet is computed by default.")
       .setPossibleValues(IssueIndex.SUPPORTED_FACETS);
@@ -223,14 +232,27 @@ public class SearchAction implements IssuesWsAction {
   @Override
   public final void handle(Request request, Response response) throws Exception {
     // prepare the Elasticsearch request
+    String cursor = request.param(PARAM_CURSOR);
+    boolean nextPage = cursor != null && !CURSOR_START.equals(cursor);
+    checkArgument(cursor == null || !request.hasParam(Param.PAGE), "Parameters '%s' and '%s' can't be used together", PARAM_CURSOR, Param.PAGE);
     SearchOptions options = new SearchOptions();
     options.setPage(request.mandatoryParamAsInt(Param.PAGE), request.mandatoryParamAsInt(Param.PAGE_SIZE));
-    options.addFacets(request.paramAsStrings(Param.FACETS));
+    if (!nextPage) {
+      // facets are computed on the first page only
+      options.addFacets(request.paramAsStrings(Param.FACETS));
+    }
     EnumSet<SearchAdditionalField> additionalFields = SearchAdditionalField.getFromRequest(request);
-    IssueQuery query = issueQueryService.createFromRequest(request);
 
     // execute request
-    SearchResult<IssueDoc> result = service.search(query, options);
+    SearchResult<IssueDoc> result;
+    if (nextPage) {
+      // page and page size are the ones of the cursor
+      result = service.searchNextPage(cursor, options);
+    } else if (cursor != null) {
+      result = service.searchWithCursor(issueQueryService.createFromRequest(request), options);
+    } else {
+      result = service.search(issueQueryService.createFromRequest(request), options);
+    }
     List<String> issueKeys = from(result.getDocs()).transform(IssueDocToKey.INSTANCE).toList();
 
     // load the additional information to be returned in response
@@ -257,7 +279,7 @@ public class SearchAction implements IssuesWsAction {
 
     // FIXME allow long in Paging
     Paging paging = forPageIndex(options.getPage()).withPageSize(options.getLimit()).andTotal((int) result.getTotal());
-    Issues.Search responseBody = searchResponseFormat.formatSearch(additionalFields, data, paging, facets);
+    Issues.Search responseBody = searchResponseFormat.formatSearch(additionalFields, data, paging, facets, result.getCursor());
     WsUtils.writeProtobuf(responseBody, request, response);
   }
 
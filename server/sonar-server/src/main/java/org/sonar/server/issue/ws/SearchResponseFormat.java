@@ -65,7 +65,7 @@ public class SearchResponseFormat {
   }
 
   public Issues.Search formatSearch(Set<SearchAdditionalField> fields, SearchResponseData data,
-    Paging paging, @Nullable Facets facets) {
+    Paging paging, @Nullable Facets facets, @Nullable String nextCursor) {
     Issues.Search.Builder response = Issues.Search.newBuilder();
 
     formatPaging(paging, response);
@@ -91,6 +91,9 @@ public class SearchResponseFormat {
       response.setLanguagesPresentIfEmpty(true);
       response.addAllLanguages(formatLanguages());
     }
+    if (nextCursor != null) {
+      response.setNextCursor(nextCursor);
+    }
     return response.build();
   }
 
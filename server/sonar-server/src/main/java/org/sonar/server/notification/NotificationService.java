@@ -22,16 +22,26 @@ package org.sonar.server.notification;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.picocontainer.Startable;
 import org.sonar.api.Properties;
@@ -56,6 +66,18 @@ import org.sonar.db.DbClient;
     defaultValue = "600",
     name = "Delay before reporting notification status, in seconds",
     project = false,
+    global = false),
+  @Property(
+    key = NotificationService.PROPERTY_BATCH_SIZE,
+    defaultValue = "100",
+    name = "Maximum number of notifications dequeued at once",
+    project = false,
+    global = false),
+  @Property(
+    key = NotificationService.PROPERTY_DELIVERY_THREADS,
+    defaultValue = "4",
+    name = "Number of threads dispatching and delivering notifications",
+    project = false,
     global = false)
 })
 @ServerSide
@@ -65,20 +87,36 @@ public class NotificationService implements Startable {
 
   public static final String PROPERTY_DELAY = "sonar.notifications.delay";
   public static final String PROPERTY_DELAY_BEFORE_REPORTING_STATUS = "sonar.notifications.runningDelayBeforeReportingStatus";
+  public static final String PROPERTY_BATCH_SIZE = "sonar.notifications.batchSize";
+  public static final String PROPERTY_DELIVERY_THREADS = "sonar.notifications.deliveryThreads";
+
+  static final int DEFAULT_BATCH_SIZE = 100;
+  static final int DEFAULT_DELIVERY_THREADS = 4;
 
   private final long delayInSeconds;
   private final long delayBeforeReportingStatusInSeconds;
+  private final int batchSize;
+  private final int deliveryThreads;
   private final DefaultNotificationManager manager;
   private final List<NotificationDispatcher> dispatchers;
   private final DbClient dbClient;
 
+  private final AtomicLong processedNotifications = new AtomicLong();
+  private final AtomicLong deliveries = new AtomicLong();
+  private final AtomicLong failedDeliveries = new AtomicLong();
+  private final AtomicLong coalescedDeliveries = new AtomicLong();
+  private volatile double lastDeliveryRate = 0D;
+
   private ScheduledExecutorService executorService;
-  private boolean stopping = false;
+  private ExecutorService deliveryService;
+  private volatile boolean stopping = false;
 
   public NotificationService(Settings settings, DefaultNotificationManager manager, DbClient dbClient,
     NotificationDispatcher[] dispatchers) {
     this.delayInSeconds = settings.getLong(PROPERTY_DELAY);
     this.delayBeforeReportingStatusInSeconds = settings.getLong(PROPERTY_DELAY_BEFORE_REPORTING_STATUS);
+    this.batchSize = positiveOrDefault(settings, PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    this.deliveryThreads = positiveOrDefault(settings, PROPERTY_DELIVERY_THREADS, DEFAULT_DELIVERY_THREADS);
     this.manager = manager;
     this.dbClient = dbClient;
     this.dispatchers = ImmutableList.copyOf(dispatchers);
@@ -91,8 +129,17 @@ public class NotificationService implements Startable {
     this(settings, manager, dbClient, new NotificationDispatcher[0]);
   }
 
+  private static int positiveOrDefault(Settings settings, String key, int defaultValue) {
+    int value = settings.getInt(key);
+    return value > 0 ? value : defaultValue;
+  }
+
   @Override
   public void start() {
+    deliveryService = Executors.newFixedThreadPool(deliveryThreads, new ThreadFactoryBuilder()
+      .setNameFormat("notification-delivery-%d")
+      .setDaemon(true)
+      .build());
     executorService = Executors.newSingleThreadScheduledExecutor();
     executorService.scheduleWithFixedDelay(new Runnable() {
       @Override
@@ -104,7 +151,7 @@ public class NotificationService implements Startable {
         }
       }
     }, 0, delayInSeconds, TimeUnit.SECONDS);
-    LOG.info("Notification service started (delay {} sec.)", delayInSeconds);
+    LOG.info("Notification service started (delay {} sec., batches of {} notifications, {} delivery threads)", delayInSeconds, batchSize, deliveryThreads);
   }
 
   @Override
@@ -113,6 +160,8 @@ public class NotificationService implements Startable {
       stopping = true;
       executorService.shutdown();
       executorService.awaitTermination(5, TimeUnit.SECONDS);
+      deliveryService.shutdown();
+      deliveryService.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException e) {
       LOG.error("Error during stop of notification service", e);
     }
@@ -125,10 +174,13 @@ public class NotificationService implements Startable {
     long lastLog = start;
     long notifSentCount = 0;
 
-    Notification notifToSend = manager.getFromQueue();
-    while (notifToSend != null) {
-      deliver(notifToSend);
-      notifSentCount++;
+    List<Notification> notifsToSend = manager.getFromQueue(batchSize);
+    while (!notifsToSend.isEmpty()) {
+      long batchStart = System.nanoTime();
+      long deliveriesBefore = deliveries.get();
+      deliver(notifsToSend);
+      notifSentCount += notifsToSend.size();
+      updateDeliveryRate(deliveries.get() - deliveriesBefore, System.nanoTime() - batchStart);
       if (stopping) {
         break;
       }
@@ -139,7 +191,13 @@ public class NotificationService implements Startable {
         long spentTimeInMinutes = (now - start) / (60 * 1000);
         log(notifSentCount, remainingNotifCount, spentTimeInMinutes);
       }
-      notifToSend = manager.getFromQueue();
+      notifsToSend = manager.getFromQueue(batchSize);
+    }
+  }
+
+  private void updateDeliveryRate(long deliveryCount, long durationInNanos) {
+    if (durationInNanos > 0) {
+      lastDeliveryRate = deliveryCount * (double) TimeUnit.SECONDS.toNanos(1) / durationInNanos;
     }
   }
 
@@ -155,7 +213,62 @@ public class NotificationService implements Startable {
   }
 
   public void deliver(Notification notification) {
-    final SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
+    deliver(Collections.singletonList(notification));
+  }
+
+  /**
+   * Dispatches the notifications, then delivers them, recipient by recipient. The same notification is
+   * delivered only once to a given recipient through a given channel, even if it appears several times
+   * in the batch. Both steps run in parallel on the delivery threads once the service is started.
+   */
+  public void deliver(Collection<Notification> notifications) {
+    List<Callable<SetMultimap<String, NotificationChannel>>> dispatchTasks = new ArrayList<>(notifications.size());
+    for (final Notification notification : notifications) {
+      dispatchTasks.add(new Callable<SetMultimap<String, NotificationChannel>>() {
+        @Override
+        public SetMultimap<String, NotificationChannel> call() {
+          return dispatch(notification);
+        }
+      });
+    }
+    List<SetMultimap<String, NotificationChannel>> recipientsByNotification = invokeAll(dispatchTasks);
+
+    Map<String, SetMultimap<NotificationChannel, Notification>> notificationsByRecipient = new LinkedHashMap<>();
+    int index = 0;
+    for (Notification notification : notifications) {
+      if (index >= recipientsByNotification.size()) {
+        // interrupted while dispatching
+        break;
+      }
+      for (Map.Entry<String, NotificationChannel> recipient : recipientsByNotification.get(index).entries()) {
+        SetMultimap<NotificationChannel, Notification> userNotifications = notificationsByRecipient.get(recipient.getKey());
+        if (userNotifications == null) {
+          userNotifications = LinkedHashMultimap.create();
+          notificationsByRecipient.put(recipient.getKey(), userNotifications);
+        }
+        if (!userNotifications.put(recipient.getValue(), notification)) {
+          coalescedDeliveries.incrementAndGet();
+        }
+      }
+      index++;
+    }
+    processedNotifications.addAndGet(index);
+
+    List<Callable<Void>> deliveryTasks = new ArrayList<>(notificationsByRecipient.size());
+    for (final Map.Entry<String, SetMultimap<NotificationChannel, Notification>> entry : notificationsByRecipient.entrySet()) {
+      deliveryTasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          deliver(entry.getKey(), entry.getValue());
+          return null;
+        }
+      });
+    }
+    invokeAll(deliveryTasks);
+  }
+
+  private SetMultimap<String, NotificationChannel> dispatch(Notification notification) {
+    SetMultimap<String, NotificationChannel> recipients = HashMultimap.create();
     for (NotificationDispatcher dispatcher : dispatchers) {
       NotificationDispatcher.Context context = new ContextImpl(recipients);
       try {
@@ -165,30 +278,95 @@ public class NotificationService implements Startable {
         LOG.warn(String.format("Unable to dispatch notification %s using %s", notification, dispatcher), e);
       }
     }
-    dispatch(notification, recipients);
+    return recipients;
   }
 
-  private void dispatch(Notification notification, SetMultimap<String, NotificationChannel> recipients) {
-    for (Map.Entry<String, Collection<NotificationChannel>> entry : recipients.asMap().entrySet()) {
-      String username = entry.getKey();
-      Collection<NotificationChannel> userChannels = entry.getValue();
-      LOG.debug("For user {} via {}", username, userChannels);
-      for (NotificationChannel channel : userChannels) {
-        try {
-          channel.deliver(notification, username);
-        } catch (Exception e) {
-          // catch all exceptions in order to deliver via other channels
-          LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
-        }
+  private void deliver(String username, SetMultimap<NotificationChannel, Notification> userNotifications) {
+    LOG.debug("For user {} via {}", username, userNotifications.keySet());
+    for (Map.Entry<NotificationChannel, Notification> entry : userNotifications.entries()) {
+      NotificationChannel channel = entry.getKey();
+      Notification notification = entry.getValue();
+      try {
+        channel.deliver(notification, username);
+        deliveries.incrementAndGet();
+      } catch (Exception e) {
+        // catch all exceptions in order to deliver via other channels
+        failedDeliveries.incrementAndGet();
+        LOG.warn("Unable to deliver notification " + notification + " for user " + username + " via " + channel, e);
       }
     }
   }
 
+  /**
+   * Runs the tasks on the delivery threads, or in the current thread if the service is not started,
+   * and returns the results of the tasks which completed before an interruption.
+   */
+  private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+    ExecutorService executor = deliveryService == null || deliveryService.isShutdown() ? MoreExecutors.sameThreadExecutor() : deliveryService;
+    List<T> results = new ArrayList<>(tasks.size());
+    try {
+      for (Future<T> future : executor.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // tasks catch their own exceptions, so this is a programming error
+      throw new IllegalStateException("Fail to process notifications", e.getCause());
+    }
+    return results;
+  }
+
   @VisibleForTesting
   protected List<NotificationDispatcher> getDispatchers() {
     return dispatchers;
   }
 
+  /**
+   * Number of notifications dequeued, or submitted through {@link #deliver(Notification)}, and dispatched since startup
+   */
+  public long getProcessedNotificationCount() {
+    return processedNotifications.get();
+  }
+
+  /**
+   * Number of notifications successfully delivered to a recipient through a channel since startup
+   */
+  public long getDeliveryCount() {
+    return deliveries.get();
+  }
+
+  public long getFailedDeliveryCount() {
+    return failedDeliveries.get();
+  }
+
+  /**
+   * Number of deliveries skipped because the same notification was already delivered to the same
+   * recipient through the same channel in the same batch
+   */
+  public long getCoalescedDeliveryCount() {
+    return coalescedDeliveries.get();
+  }
+
+  /**
+   * Deliveries per second during the last processed batch of the queue
+   */
+  public double getLastDeliveryRate() {
+    return lastDeliveryRate;
+  }
+
+  public long getQueueSize() {
+    return manager.count();
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getDeliveryThreads() {
+    return deliveryThreads;
+  }
+
   /**
    * Returns true if at least one user is subscribed to at least one notifications with given types.
    * Subscription can be globally or on the specific project.
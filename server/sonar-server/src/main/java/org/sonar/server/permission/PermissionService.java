@@ -39,6 +39,7 @@ import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 /**
@@ -61,15 +62,18 @@ public class PermissionService {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final AuthorizationCache authorizationCache;
 
   public PermissionService(DbClient dbClient, PermissionRepository permissionRepository, PermissionFinder finder,
-    IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession, ComponentFinder componentFinder) {
+    IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession, ComponentFinder componentFinder,
+    AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionRepository = permissionRepository;
     this.finder = finder;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   public List<String> globalPermissions() {
@@ -154,6 +158,7 @@ public class PermissionService {
       }
       permissionRepository.grantDefaultRoles(session, component.getId(), component.qualifier());
       session.commit();
+      authorizationCache.invalidate();
     } finally {
       session.close();
     }
@@ -188,6 +193,7 @@ public class PermissionService {
         projectsChanged = true;
       }
       session.commit();
+      authorizationCache.invalidate();
     } finally {
       session.close();
     }
@@ -207,6 +213,7 @@ public class PermissionService {
     }
     if (changed) {
       session.commit();
+      authorizationCache.invalidate();
       if (change.componentKey() != null) {
         indexProjectPermissions();
       }
@@ -33,6 +33,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static org.sonar.api.security.DefaultGroups.isAnyone;
@@ -54,14 +55,17 @@ public class PermissionUpdater {
   private final IssueAuthorizationIndexer issueAuthorizationIndexer;
   private final UserSession userSession;
   private final ComponentFinder componentFinder;
+  private final AuthorizationCache authorizationCache;
 
   public PermissionUpdater(DbClient dbClient, PermissionRepository permissionRepository,
-    IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession, ComponentFinder componentFinder) {
+    IssueAuthorizationIndexer issueAuthorizationIndexer, UserSession userSession, ComponentFinder componentFinder,
+    AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.permissionRepository = permissionRepository;
     this.issueAuthorizationIndexer = issueAuthorizationIndexer;
     this.userSession = userSession;
     this.componentFinder = componentFinder;
+    this.authorizationCache = authorizationCache;
   }
 
   public static List<String> globalPermissions() {
@@ -97,6 +101,7 @@ public class PermissionUpdater {
     }
     if (changed) {
       session.commit();
+      authorizationCache.invalidate();
       if (change.componentKey() != null) {
         indexProjectPermissions();
       }
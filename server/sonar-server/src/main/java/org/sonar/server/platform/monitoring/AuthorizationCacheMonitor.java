@@ -0,0 +1,87 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.sonar.server.user.AuthorizationCache;
+
+/**
+ * Statistics of the cache of user authorizations
+ */
+public class AuthorizationCacheMonitor extends BaseMonitorMBean implements AuthorizationCacheMonitorMBean {
+
+  private final AuthorizationCache authorizationCache;
+
+  public AuthorizationCacheMonitor(AuthorizationCache authorizationCache) {
+    this.authorizationCache = authorizationCache;
+  }
+
+  @Override
+  public String name() {
+    return "AuthorizationCache";
+  }
+
+  @Override
+  public long getHitCount() {
+    return authorizationCache.stats().hitCount();
+  }
+
+  @Override
+  public long getMissCount() {
+    return authorizationCache.stats().missCount();
+  }
+
+  @Override
+  public double getHitRate() {
+    return authorizationCache.stats().hitRate();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return authorizationCache.stats().evictionCount();
+  }
+
+  @Override
+  public long getSize() {
+    return authorizationCache.size();
+  }
+
+  @Override
+  public long getInvalidationCount() {
+    return authorizationCache.invalidationCount();
+  }
+
+  @Override
+  public void invalidate() {
+    authorizationCache.invalidate();
+  }
+
+  @Override
+  public LinkedHashMap<String, Object> attributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Hits", getHitCount());
+    attributes.put("Misses", getMissCount());
+    attributes.put("Hit Rate", getHitRate());
+    attributes.put("Evictions", getEvictionCount());
+    attributes.put("Size", getSize());
+    attributes.put("Invalidations", getInvalidationCount());
+    return attributes;
+  }
+}
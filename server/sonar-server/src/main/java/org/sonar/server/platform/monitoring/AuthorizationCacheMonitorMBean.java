@@ -0,0 +1,58 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+public interface AuthorizationCacheMonitorMBean {
+
+  /**
+   * Number of authorization lookups served from the cache
+   */
+  long getHitCount();
+
+  /**
+   * Number of authorization lookups that required a database query
+   */
+  long getMissCount();
+
+  /**
+   * Ratio of lookups served from the cache, 1.0 when no lookups were done yet
+   */
+  double getHitRate();
+
+  /**
+   * Number of entries evicted because of size limit or expiration
+   */
+  long getEvictionCount();
+
+  /**
+   * Approximate number of entries currently in the cache
+   */
+  long getSize();
+
+  /**
+   * Number of invalidations triggered by permission or group membership changes
+   */
+  long getInvalidationCount();
+
+  /**
+   * Drops all the entries of the cache
+   */
+  void invalidate();
+}
@@ -0,0 +1,87 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.sonar.server.es.BulkIndexerStats;
+import org.sonar.server.es.EsClient;
+
+/**
+ * Statistics of the bulk requests sent to Elasticsearch since startup
+ */
+public class BulkIndexerMonitor extends BaseMonitorMBean implements BulkIndexerMonitorMBean {
+
+  private final EsClient esClient;
+
+  public BulkIndexerMonitor(EsClient esClient) {
+    this.esClient = esClient;
+  }
+
+  @Override
+  public String name() {
+    return "BulkIndexer";
+  }
+
+  private BulkIndexerStats stats() {
+    return esClient.getBulkIndexerStats();
+  }
+
+  @Override
+  public long getBulkRequests() {
+    return stats().getBulkRequests();
+  }
+
+  @Override
+  public long getDocuments() {
+    return stats().getDocuments();
+  }
+
+  @Override
+  public long getBytes() {
+    return stats().getBytes();
+  }
+
+  @Override
+  public long getRejections() {
+    return stats().getRejections();
+  }
+
+  @Override
+  public long getFailures() {
+    return stats().getFailures();
+  }
+
+  @Override
+  public long getDocsPerSecond() {
+    return stats().getDocsPerSecond();
+  }
+
+  @Override
+  public LinkedHashMap<String, Object> attributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Bulk Requests", getBulkRequests());
+    attributes.put("Documents", getDocuments());
+    attributes.put("Bytes", getBytes());
+    attributes.put("Rejections", getRejections());
+    attributes.put("Failures", getFailures());
+    attributes.put("Documents per Second", getDocsPerSecond());
+    return attributes;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+public interface BulkIndexerMonitorMBean {
+
+  /**
+   * Number of bulk requests processed by Elasticsearch
+   */
+  long getBulkRequests();
+
+  /**
+   * Number of documents indexed or deleted by bulk requests
+   */
+  long getDocuments();
+
+  /**
+   * Volume of the bulk requests processed by Elasticsearch
+   */
+  long getBytes();
+
+  /**
+   * Number of bulk requests and documents rejected by Elasticsearch because its queues were full
+   */
+  long getRejections();
+
+  /**
+   * Number of bulk requests and documents which could not be indexed
+   */
+  long getFailures();
+
+  /**
+   * Average number of documents processed per second of bulk indexing
+   */
+  long getDocsPerSecond();
+}
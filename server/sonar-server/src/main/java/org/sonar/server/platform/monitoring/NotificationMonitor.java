@@ -0,0 +1,84 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.sonar.server.notification.NotificationService;
+
+/**
+ * Activity of the queue of notifications
+ */
+public class NotificationMonitor extends BaseMonitorMBean implements NotificationMonitorMBean {
+
+  private final NotificationService notificationService;
+
+  public NotificationMonitor(NotificationService notificationService) {
+    this.notificationService = notificationService;
+  }
+
+  @Override
+  public String name() {
+    return "Notifications";
+  }
+
+  @Override
+  public long getQueueSize() {
+    return notificationService.getQueueSize();
+  }
+
+  @Override
+  public long getProcessedNotificationCount() {
+    return notificationService.getProcessedNotificationCount();
+  }
+
+  @Override
+  public long getDeliveryCount() {
+    return notificationService.getDeliveryCount();
+  }
+
+  @Override
+  public long getFailedDeliveryCount() {
+    return notificationService.getFailedDeliveryCount();
+  }
+
+  @Override
+  public long getCoalescedDeliveryCount() {
+    return notificationService.getCoalescedDeliveryCount();
+  }
+
+  @Override
+  public double getLastDeliveryRate() {
+    return notificationService.getLastDeliveryRate();
+  }
+
+  @Override
+  public LinkedHashMap<String, Object> attributes() {
+    LinkedHashMap<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("Queue Size", getQueueSize());
+    attributes.put("Processed Notifications", getProcessedNotificationCount());
+    attributes.put("Deliveries", getDeliveryCount());
+    attributes.put("Failed Deliveries", getFailedDeliveryCount());
+    attributes.put("Coalesced Deliveries", getCoalescedDeliveryCount());
+    attributes.put("Last Delivery Rate (per sec.)", getLastDeliveryRate());
+    attributes.put("Batch Size", notificationService.getBatchSize());
+    attributes.put("Delivery Threads", notificationService.getDeliveryThreads());
+    return attributes;
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+public interface NotificationMonitorMBean {
+
+  /**
+   * Number of notifications waiting in database to be dispatched
+   */
+  long getQueueSize();
+
+  /**
+   * Number of notifications dispatched since startup
+   */
+  long getProcessedNotificationCount();
+
+  /**
+   * Number of notifications delivered to a recipient through a channel since startup
+   */
+  long getDeliveryCount();
+
+  /**
+   * Number of deliveries which failed since startup
+   */
+  long getFailedDeliveryCount();
+
+  /**
+   * Number of deliveries skipped because the same notification was delivered once to the recipient
+   */
+  long getCoalescedDeliveryCount();
+
+  /**
+   * Deliveries per second during the last processed batch of notifications
+   */
+  double getLastDeliveryRate();
+}
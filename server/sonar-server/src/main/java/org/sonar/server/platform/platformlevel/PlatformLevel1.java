@@ -52,6 +52,7 @@ import org.sonar.server.rule.index.RuleNormalizer;
 import org.sonar.server.search.EsSearchModule;
 import org.sonar.server.search.IndexQueue;
 import org.sonar.server.user.ThreadLocalUserSession;
+import org.sonar.server.view.index.ViewProjectsCache;
 
 public class PlatformLevel1 extends PlatformLevel {
   private final Platform platform;
@@ -112,6 +113,7 @@ public class PlatformLevel1 extends PlatformLevel {
       ActiveRuleIndex.class,
 
       // issues
+      ViewProjectsCache.class,
       IssueIndex.class,
 
       // Classes kept for backward compatibility of plugins/libs (like sonar-license) that are directly calling classes from the core
@@ -67,6 +67,7 @@ import org.sonar.server.component.ws.ResourcesWs;
 import org.sonar.server.computation.ComputeEngineProcessingModule;
 import org.sonar.server.computation.ReportQueue;
 import org.sonar.server.computation.monitoring.CEQueueStatusImpl;
+import org.sonar.server.computation.monitoring.CEWorkersStatusImpl;
 import org.sonar.server.computation.monitoring.ComputeEngineQueueMonitor;
 import org.sonar.server.computation.ws.ComputationWs;
 import org.sonar.server.computation.ws.HistoryAction;
@@ -176,9 +177,12 @@ import org.sonar.server.permission.PermissionUpdater;
 import org.sonar.server.permission.ws.PermissionsWsModule;
 import org.sonar.server.platform.BackendCleanup;
 import org.sonar.server.platform.SettingsChangeNotifier;
+import org.sonar.server.platform.monitoring.AuthorizationCacheMonitor;
+import org.sonar.server.platform.monitoring.BulkIndexerMonitor;
 import org.sonar.server.platform.monitoring.DatabaseMonitor;
 import org.sonar.server.platform.monitoring.EsMonitor;
 import org.sonar.server.platform.monitoring.JvmPropertiesMonitor;
+import org.sonar.server.platform.monitoring.NotificationMonitor;
 import org.sonar.server.platform.monitoring.PluginsMonitor;
 import org.sonar.server.platform.monitoring.SonarQubeMonitor;
 import org.sonar.server.platform.monitoring.SystemMonitor;
@@ -295,6 +299,7 @@ import org.sonar.server.ui.ws.GlobalNavigationAction;
 import org.sonar.server.ui.ws.NavigationWs;
 import org.sonar.server.ui.ws.SettingsNavigationAction;
 import org.sonar.server.updatecenter.ws.UpdateCenterWs;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.DefaultUserService;
 import org.sonar.server.user.GroupMembershipFinder;
 import org.sonar.server.user.GroupMembershipService;
@@ -528,6 +533,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
     // users
       SecurityRealmFactory.class,
+      AuthorizationCache.class,
       DeprecatedUserFinder.class,
       NewUserNotifier.class,
       DefaultUserFinder.class,
@@ -693,9 +699,12 @@ public class PlatformLevel4 extends PlatformLevel {
       SystemMonitor.class,
       SonarQubeMonitor.class,
       EsMonitor.class,
+      BulkIndexerMonitor.class,
       PluginsMonitor.class,
       JvmPropertiesMonitor.class,
       DatabaseMonitor.class,
+      AuthorizationCacheMonitor.class,
+      NotificationMonitor.class,
       MigrateDbAction.class,
       DbMigrationStatusAction.class,
 
@@ -714,6 +723,7 @@ public class PlatformLevel4 extends PlatformLevel {
 
     // Compute engine
       CEQueueStatusImpl.class,
+      CEWorkersStatusImpl.class,
       ComputeEngineQueueMonitor.class,
       ReportQueue.class,
       ComputeEngineProcessingModule.class,
@@ -19,14 +19,27 @@
  */
 package org.sonar.server.search;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.db.DbSession;
+import org.sonar.process.ProcessProperties;
 import org.sonar.server.activity.index.ActivityIndexer;
 import org.sonar.server.db.DeprecatedDao;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.qualityprofile.index.ActiveRuleIndex;
@@ -36,10 +49,29 @@ import org.sonar.server.test.index.TestIndexer;
 import org.sonar.server.user.index.UserIndexer;
 import org.sonar.server.view.index.ViewIndexer;
 
+@Properties({
+  @Property(
+    key = IndexSynchronizer.PROPERTY_THREADS,
+    defaultValue = "1",
+    name = "Number of threads synchronizing Elasticsearch indices at startup",
+    description = "Each thread holds a db connection, and issues, source lines and tests are read by as many ranges of projects, " +
+      "each range on its own db connection. The number of ranges is reduced if needed so that the connections do not exceed sonar.jdbc.maxActive.",
+    project = false,
+    global = false)
+})
 public class IndexSynchronizer {
 
   private static final Logger LOG = Loggers.get(IndexSynchronizer.class);
 
+  /**
+   * When greater than 1, independent indices are synchronized concurrently and the biggest tables
+   * (issues and file sources) are read by as many ranges of projects, each on its own db connection.
+   */
+  public static final String PROPERTY_THREADS = "sonar.search.synchronizer.threads";
+
+  // issues, source lines and tests
+  private static final int RANGE_INDEXERS = 3;
+
   private final DbClient db;
   private final IndexClient index;
   private final SourceLineIndexer sourceLineIndexer;
@@ -84,24 +116,123 @@ public class IndexSynchronizer {
 
   public void execute() {
     if (!settings.getBoolean("sonar.internal.es.disableIndexes")) {
-      LOG.info("Index activities");
-      activityIndexer.setEnabled(true).index();
+      int threads = settings.getInt(PROPERTY_THREADS);
+      if (threads > 1) {
+        executeConcurrently(threads);
+      } else {
+        executeSequentially();
+      }
+    }
+  }
+
+  private void executeSequentially() {
+    LOG.info("Index activities");
+    activityIndexer.setEnabled(true).index();
 
-      LOG.info("Index issues");
-      issueAuthorizationIndexer.setEnabled(true).index();
-      issueIndexer.setEnabled(true).index();
+    LOG.info("Index issues");
+    issueAuthorizationIndexer.setEnabled(true).index();
+    issueIndexer.setEnabled(true).index();
 
-      LOG.info("Index source lines");
-      sourceLineIndexer.setEnabled(true).index();
+    LOG.info("Index source lines");
+    sourceLineIndexer.setEnabled(true).index();
 
-      LOG.info("Index tests");
-      testIndexer.setEnabled(true).index();
+    LOG.info("Index tests");
+    testIndexer.setEnabled(true).index();
 
-      LOG.info("Index users");
-      userIndexer.setEnabled(true).index();
+    LOG.info("Index users");
+    userIndexer.setEnabled(true).index();
 
-      LOG.info("Index views");
-      viewIndexer.setEnabled(true).index();
+    LOG.info("Index views");
+    viewIndexer.setEnabled(true).index();
+  }
+
+  private void executeConcurrently(int threads) {
+    final List<ProjectUuidRange> ranges = projectUuidRanges(maxRanges(threads));
+    LOG.info("Index with {} threads, by {} ranges of projects", threads, ranges.size());
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("index-synchronizer-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Index activities");
+          activityIndexer.setEnabled(true).index();
+        }
+      }));
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          // authorizations are parents of issues, so they must be indexed first
+          LOG.info("Index issues");
+          issueAuthorizationIndexer.setEnabled(true).index();
+          issueIndexer.setEnabled(true).index(ranges);
+        }
+      }));
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Index source lines");
+          sourceLineIndexer.setEnabled(true).index(ranges);
+        }
+      }));
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Index tests");
+          testIndexer.setEnabled(true).index(ranges);
+        }
+      }));
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Index users");
+          userIndexer.setEnabled(true).index();
+        }
+      }));
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          LOG.info("Index views");
+          viewIndexer.setEnabled(true).index();
+        }
+      }));
+      for (Future<?> future : futures) {
+        Uninterruptibles.getUninterruptibly(future);
+      }
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Each of the {@code threads} workers holds a db connection, and each of the {@link #RANGE_INDEXERS} indexers
+   * reading by ranges holds a connection per range. The number of ranges is capped so that the pool of db
+   * connections is not exhausted.
+   */
+  private int maxRanges(int threads) {
+    if (!settings.hasKey(ProcessProperties.JDBC_MAX_ACTIVE)) {
+      return threads;
+    }
+    int maxActive = settings.getInt(ProcessProperties.JDBC_MAX_ACTIVE);
+    int maxRanges = Math.max(1, Math.min(threads, (maxActive - threads) / RANGE_INDEXERS));
+    if (maxRanges < threads) {
+      LOG.warn("Number of ranges of projects is limited to {} so that db connections do not exceed {}={}", maxRanges, ProcessProperties.JDBC_MAX_ACTIVE, maxActive);
+    }
+    return maxRanges;
+  }
+
+  private List<ProjectUuidRange> projectUuidRanges(int count) {
+    DbSession session = db.openSession(false);
+    try {
+      return ProjectUuidRange.split(db.componentDao().selectProjectUuids(session), count);
+    } finally {
+      session.close();
     }
   }
 
@@ -55,6 +55,7 @@ import org.sonar.api.config.Settings;
 import org.sonar.process.LoopbackAddress;
 import org.sonar.process.ProcessProperties;
 import org.sonar.server.es.request.ProxyBulkRequestBuilder;
+import org.sonar.server.es.request.ProxyClearScrollRequestBuilder;
 import org.sonar.server.es.request.ProxyCountRequestBuilder;
 import org.sonar.server.es.request.ProxyCreateIndexRequestBuilder;
 import org.sonar.server.es.request.ProxyDeleteRequestBuilder;
@@ -224,7 +225,7 @@ public class SearchClient extends TransportClient implements Startable {
 
   @Override
   public ClearScrollRequestBuilder prepareClearScroll() {
-    throw throwNotYetImplemented();
+    return new ProxyClearScrollRequestBuilder(this);
   }
 
   private static IllegalStateException throwNotYetImplemented() {
@@ -26,10 +26,12 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
+import org.sonar.server.es.ProjectUuidRange;
 
 public class FileSourcesUpdaterHelper {
 
@@ -51,7 +53,17 @@ public class FileSourcesUpdaterHelper {
 
   public static PreparedStatement preparedStatementToSelectFileSources(DbClient dbClient, DbSession session, String dataType, long afterDate, @Nullable String projectUuid)
     throws SQLException {
-    String sql = createSQL(dataType, afterDate, projectUuid);
+    return preparedStatementToSelectFileSources(dbClient, session, dataType, afterDate, projectUuid, ProjectUuidRange.ALL);
+  }
+
+  public static PreparedStatement preparedStatementToSelectFileSources(DbClient dbClient, DbSession session, String dataType, long afterDate, ProjectUuidRange range)
+    throws SQLException {
+    return preparedStatementToSelectFileSources(dbClient, session, dataType, afterDate, null, range);
+  }
+
+  private static PreparedStatement preparedStatementToSelectFileSources(DbClient dbClient, DbSession session, String dataType, long afterDate,
+    @Nullable String projectUuid, ProjectUuidRange range) throws SQLException {
+    String sql = createSQL(dataType, afterDate, projectUuid, range);
     // rows are big, so they are scrolled once at a time (one row in memory at a time)
     PreparedStatement stmt = dbClient.getMyBatis().newScrollingSingleRowSelectStatement(session, sql);
     int index = 1;
@@ -61,19 +73,22 @@ public class FileSourcesUpdaterHelper {
     }
     if (projectUuid != null) {
       stmt.setString(index, projectUuid);
+      index++;
     }
+    range.setParameters(stmt, index);
     return stmt;
   }
 
-  private static String createSQL(String dataType, long afterDate, @Nullable String projectUuid) {
+  private static String createSQL(String dataType, long afterDate, @Nullable String projectUuid, ProjectUuidRange range) {
     StringBuilder sql = new StringBuilder(String.format(SQL_ALL, FIELDS_ONE_LINE, dataType));
-    if (afterDate > 0L || projectUuid != null) {
-      if (afterDate > 0L) {
-        sql.append(AFTER_DATE_FILTER);
-      }
-      if (projectUuid != null) {
-        sql.append(PROJECT_FILTER);
-      }
+    if (afterDate > 0L) {
+      sql.append(AFTER_DATE_FILTER);
+    }
+    if (projectUuid != null) {
+      sql.append(PROJECT_FILTER);
+    }
+    if (!range.isAll()) {
+      sql.append(" AND ").append(range.sqlFilter("project_uuid"));
     }
     return sql.toString();
   }
@@ -83,6 +98,7 @@ public class FileSourcesUpdaterHelper {
     private final String projectUuid;
     private final long updatedAt;
     private final List<UpdateRequest> updateRequests = new ArrayList<>();
+    private Long lastScmDate;
 
     public Row(String projectUuid, String fileUuid, long updatedAt) {
       this.projectUuid = projectUuid;
@@ -105,5 +121,18 @@ public class FileSourcesUpdaterHelper {
     public List<UpdateRequest> getUpdateRequests() {
       return updateRequests;
     }
+
+    /**
+     * Most recent SCM date of the lines of the file, if any
+     */
+    @CheckForNull
+    public Long getLastScmDate() {
+      return lastScmDate;
+    }
+
+    public Row setLastScmDate(@Nullable Long lastScmDate) {
+      this.lastScmDate = lastScmDate;
+      return this;
+    }
   }
 }
@@ -24,6 +24,7 @@ import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.sort.SortOrder;
+import org.sonar.api.config.Settings;
 import org.sonar.server.es.BaseIndex;
 import org.sonar.server.es.EsClient;
 import org.sonar.server.exceptions.NotFoundException;
@@ -31,6 +32,7 @@ import org.sonar.server.exceptions.NotFoundException;
 import javax.annotation.CheckForNull;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -38,8 +40,11 @@ public class SourceLineIndex extends BaseIndex {
 
   private static final int MAX_RESULT = 500000;
 
-  public SourceLineIndex(EsClient esClient) {
+  private final boolean blockLayout;
+
+  public SourceLineIndex(EsClient esClient, Settings settings) {
     super(esClient);
+    this.blockLayout = SourceLineIndexDefinition.isBlockLayout(settings);
   }
 
   /**
@@ -61,6 +66,9 @@ public class SourceLineIndex extends BaseIndex {
       size = MAX_RESULT;
     }
     int toLimited = size + from - 1;
+    if (blockLayout) {
+      return getLinesFromBlocks(fileUuid, from, toLimited);
+    }
 
     for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
       .setTypes(SourceLineIndexDefinition.TYPE)
@@ -82,6 +90,9 @@ public class SourceLineIndex extends BaseIndex {
    * Get lines of code for file with UUID <code>fileUuid</code>.
    */
   public List<SourceLineDoc> getLines(String fileUuid) {
+    if (blockLayout) {
+      return getLinesFromBlocks(fileUuid, 1, MAX_RESULT);
+    }
     List<SourceLineDoc> lines = Lists.newArrayList();
 
     for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
@@ -98,6 +109,13 @@ public class SourceLineIndex extends BaseIndex {
 
   public SourceLineDoc getLine(String fileUuid, int line) {
     checkArgument(line > 0, "Line should be greater than 0");
+    if (blockLayout) {
+      List<SourceLineDoc> lines = getLinesFromBlocks(fileUuid, line, line);
+      if (lines.size() == 1) {
+        return lines.get(0);
+      }
+      throw new NotFoundException(String.format("No source found on line %s for file '%s'", line, fileUuid));
+    }
     SearchRequestBuilder request = getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
       .setTypes(SourceLineIndexDefinition.TYPE)
       .setSize(1)
@@ -115,10 +133,42 @@ public class SourceLineIndex extends BaseIndex {
     throw new NotFoundException(String.format("No source found on line %s for file '%s'", line, fileUuid));
   }
 
+  /**
+   * Lines between <code>from</code> and <code>to</code> (both inclusive) are sliced out
+   * of the blocks containing them.
+   */
+  @SuppressWarnings("unchecked")
+  private List<SourceLineDoc> getLinesFromBlocks(String fileUuid, int from, int to) {
+    int fromBlock = SourceLineIndexDefinition.blockOf(from);
+    int toBlock = SourceLineIndexDefinition.blockOf(to);
+    List<SourceLineDoc> lines = Lists.newArrayList();
+
+    for (SearchHit hit : getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
+      .setTypes(SourceLineIndexDefinition.TYPE_BLOCK)
+      .setSize(1 + toBlock - fromBlock)
+      .setQuery(QueryBuilders.boolQuery()
+        .must(QueryBuilders.termQuery(SourceLineIndexDefinition.FIELD_FILE_UUID, fileUuid))
+        .must(QueryBuilders.rangeQuery(SourceLineIndexDefinition.FIELD_BLOCK)
+          .gte(fromBlock)
+          .lte(toBlock)))
+      .setFetchSource(SourceLineIndexDefinition.FIELD_LINES, null)
+      .addSort(SourceLineIndexDefinition.FIELD_BLOCK, SortOrder.ASC)
+      .get().getHits().getHits()) {
+      List<Map<String, Object>> blockLines = (List<Map<String, Object>>) hit.sourceAsMap().get(SourceLineIndexDefinition.FIELD_LINES);
+      for (Map<String, Object> blockLine : blockLines) {
+        SourceLineDoc line = new SourceLineDoc(blockLine);
+        if (line.line() >= from && line.line() <= to) {
+          lines.add(line);
+        }
+      }
+    }
+    return lines;
+  }
+
   @CheckForNull
   public Date lastCommitDateOnProject(String projectUuid) {
     SearchRequestBuilder request = getClient().prepareSearch(SourceLineIndexDefinition.INDEX)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(blockLayout ? SourceLineIndexDefinition.TYPE_BLOCK : SourceLineIndexDefinition.TYPE)
       .setSize(1)
       .setQuery(QueryBuilders.boolQuery()
         .must(QueryBuilders.termQuery(SourceLineIndexDefinition.FIELD_PROJECT_UUID, projectUuid)))
@@ -49,6 +49,28 @@ public class SourceLineIndexDefinition implements IndexDefinition {
   public static final String FIELD_DUPLICATIONS = "duplications";
   public static final String FIELD_UPDATED_AT = "updatedAt";
 
+  /**
+   * Layout of the index: either one document per line of source code ({@link #LAYOUT_LINE}, default), or
+   * one document per block of {@link #BLOCK_SIZE} lines ({@link #LAYOUT_BLOCK}). The latter divides the
+   * number of documents by {@link #BLOCK_SIZE}, which makes index smaller and indexing faster.
+   * Index is rebuilt when value is changed.
+   */
+  public static final String PROPERTY_LAYOUT = "sonar.search.sourceLines.layout";
+  public static final String LAYOUT_LINE = "line";
+  public static final String LAYOUT_BLOCK = "block";
+
+  public static final int BLOCK_SIZE = 100;
+  public static final String TYPE_BLOCK = "sourceblock";
+  /**
+   * Zero-based index of block in file
+   */
+  public static final String FIELD_BLOCK = "block";
+  public static final String FIELD_BLOCK_COUNT = "blockCount";
+  /**
+   * Documents of lines, stored but not indexed
+   */
+  public static final String FIELD_LINES = "lines";
+
   private final Settings settings;
 
   public SourceLineIndexDefinition(Settings settings) {
@@ -62,6 +84,14 @@ public class SourceLineIndexDefinition implements IndexDefinition {
     index.refreshHandledByIndexer();
     index.setShards(settings);
 
+    if (isBlockLayout(settings)) {
+      defineBlockType(index);
+    } else {
+      defineLineType(index);
+    }
+  }
+
+  private static void defineLineType(NewIndex index) {
     // type "sourceline"
     NewIndex.NewIndexType mapping = index.createType(TYPE);
     mapping.setAttribute("_routing", ImmutableMap.of("required", true, "path", FIELD_PROJECT_UUID));
@@ -87,7 +117,43 @@ public class SourceLineIndexDefinition implements IndexDefinition {
     mapping.createDateTimeField(FIELD_UPDATED_AT);
   }
 
+  private static void defineBlockType(NewIndex index) {
+    // type "sourceblock"
+    NewIndex.NewIndexType mapping = index.createType(TYPE_BLOCK);
+    mapping.setAttribute("_routing", ImmutableMap.of("required", true, "path", FIELD_PROJECT_UUID));
+    mapping.stringFieldBuilder(FIELD_PROJECT_UUID).build();
+    mapping.stringFieldBuilder(FIELD_FILE_UUID).build();
+    mapping.createIntegerField(FIELD_BLOCK);
+    mapping.createIntegerField(FIELD_BLOCK_COUNT);
+    // most recent SCM date of the file
+    mapping.createDateTimeField(FIELD_SCM_DATE);
+    mapping.setProperty(FIELD_LINES, ImmutableMap.of("type", "object", "enabled", false));
+    mapping.createDateTimeField(FIELD_UPDATED_AT);
+  }
+
+  public static boolean isBlockLayout(Settings settings) {
+    return LAYOUT_BLOCK.equals(settings.getString(PROPERTY_LAYOUT));
+  }
+
+  /**
+   * Type of documents according to {@link #PROPERTY_LAYOUT}
+   */
+  public static String type(Settings settings) {
+    return isBlockLayout(settings) ? TYPE_BLOCK : TYPE;
+  }
+
   public static String docKey(String fileUuid, int line) {
     return String.format("%s_%d", fileUuid, line);
   }
+
+  public static String blockKey(String fileUuid, int block) {
+    return String.format("%s_b%d", fileUuid, block);
+  }
+
+  /**
+   * Zero-based index of the block containing the given line, starting from 1
+   */
+  public static int blockOf(int line) {
+    return (line - 1) / BLOCK_SIZE;
+  }
 }
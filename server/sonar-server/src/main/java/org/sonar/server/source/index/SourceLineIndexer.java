@@ -19,32 +19,55 @@
  */
 package org.sonar.server.source.index;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.sonar.api.config.Settings;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.ProjectRangeIndexer;
+import org.sonar.server.es.ProjectUuidRange;
 
+import static org.sonar.server.source.index.SourceLineIndexDefinition.BLOCK_SIZE;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_BLOCK;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_BLOCK_COUNT;
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_FILE_UUID;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_LINES;
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_PROJECT_UUID;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_SCM_DATE;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_UPDATED_AT;
 
 /**
  * Add to Elasticsearch index {@link SourceLineIndexDefinition} the rows of
  * db table FILE_SOURCES of type SOURCE that are not indexed yet
  */
-public class SourceLineIndexer extends BaseIndexer {
+public class SourceLineIndexer extends ProjectRangeIndexer {
 
   private final DbClient dbClient;
+  private final boolean blockLayout;
+  private final String type;
 
-  public SourceLineIndexer(DbClient dbClient, EsClient esClient) {
-    super(esClient, 0L, SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE, SourceLineIndexDefinition.FIELD_UPDATED_AT);
+  public SourceLineIndexer(DbClient dbClient, EsClient esClient, Settings settings) {
+    super(esClient, 0L, SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.type(settings), SourceLineIndexDefinition.FIELD_UPDATED_AT);
     this.dbClient = dbClient;
+    this.blockLayout = SourceLineIndexDefinition.isBlockLayout(settings);
+    this.type = SourceLineIndexDefinition.type(settings);
   }
 
   public void index(final String projectUuid) {
@@ -58,7 +81,7 @@ public class SourceLineIndexer extends BaseIndexer {
 
   @Override
   protected long doIndex(long lastUpdatedAt) {
-    return doIndex(lastUpdatedAt, null);
+    return doIndex(lastUpdatedAt, (String) null);
   }
 
   private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
@@ -77,6 +100,24 @@ public class SourceLineIndexer extends BaseIndexer {
     }
   }
 
+  @Override
+  protected long doIndex(long lastUpdatedAt, ProjectUuidRange range) {
+    BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
+    bulk.setDisableRefresh(true);
+    bulk.setAdaptive(lastUpdatedAt == 0L);
+
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      SourceLineResultSetIterator rowIt = SourceLineResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, range);
+      long maxUpdatedAt = doIndex(bulk, rowIt);
+      rowIt.close();
+      return maxUpdatedAt;
+
+    } finally {
+      dbSession.close();
+    }
+  }
+
   public long index(Iterator<FileSourcesUpdaterHelper.Row> dbRows) {
     BulkIndexer bulk = new BulkIndexer(esClient, SourceLineIndexDefinition.INDEX);
     return doIndex(bulk, dbRows);
@@ -87,9 +128,13 @@ public class SourceLineIndexer extends BaseIndexer {
     bulk.start();
     while (dbRows.hasNext()) {
       FileSourcesUpdaterHelper.Row row = dbRows.next();
-      addDeleteRequestsForLinesGreaterThan(bulk, row);
-      for (UpdateRequest updateRequest : row.getUpdateRequests()) {
-        bulk.add(updateRequest);
+      if (blockLayout) {
+        addBlocks(bulk, row);
+      } else {
+        addDeleteRequestsForLinesGreaterThan(bulk, row);
+        for (UpdateRequest updateRequest : row.getUpdateRequests()) {
+          bulk.add(updateRequest);
+        }
       }
       maxUpdatedAt = Math.max(maxUpdatedAt, row.getUpdatedAt());
     }
@@ -118,10 +163,75 @@ public class SourceLineIndexer extends BaseIndexer {
     bulk.addDeletion(searchRequest);
   }
 
+  /**
+   * Lines are grouped by blocks of {@link SourceLineIndexDefinition#BLOCK_SIZE}. The JSON documents
+   * of lines are copied as-is into the blocks, without being parsed again.
+   */
+  private void addBlocks(BulkIndexer bulk, FileSourcesUpdaterHelper.Row fileRow) {
+    List<UpdateRequest> lines = fileRow.getUpdateRequests();
+    int blockCount = (lines.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    addDeleteRequestsForBlocksGreaterThan(bulk, fileRow, blockCount);
+    for (int block = 0; block < blockCount; block++) {
+      List<UpdateRequest> blockLines = lines.subList(block * BLOCK_SIZE, Math.min(lines.size(), (block + 1) * BLOCK_SIZE));
+      bulk.add(new IndexRequest(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE_BLOCK, SourceLineIndexDefinition.blockKey(fileRow.getFileUuid(), block))
+        .routing(fileRow.getProjectUuid())
+        .source(toBlockDoc(fileRow, block, blockCount, blockLines)));
+    }
+  }
+
+  private static byte[] toBlockDoc(FileSourcesUpdaterHelper.Row fileRow, int block, int blockCount, List<UpdateRequest> lines) {
+    try {
+      ByteArrayOutputStream jsonLines = new ByteArrayOutputStream();
+      jsonLines.write('[');
+      for (int i = 0; i < lines.size(); i++) {
+        if (i > 0) {
+          jsonLines.write(',');
+        }
+        lines.get(i).doc().source().writeTo(jsonLines);
+      }
+      jsonLines.write(']');
+
+      Long lastScmDate = fileRow.getLastScmDate();
+      XContentBuilder doc = XContentFactory.jsonBuilder().startObject()
+        .field(FIELD_PROJECT_UUID, fileRow.getProjectUuid())
+        .field(FIELD_FILE_UUID, fileRow.getFileUuid())
+        .field(FIELD_BLOCK, block)
+        .field(FIELD_BLOCK_COUNT, blockCount)
+        .field(FIELD_SCM_DATE, lastScmDate == null ? null : EsUtils.formatDateTime(new Date(lastScmDate)))
+        .field(FIELD_UPDATED_AT, EsUtils.formatDateTime(new Date(fileRow.getUpdatedAt())))
+        .rawField(FIELD_LINES, new BytesArray(jsonLines.toByteArray()))
+        .endObject();
+      return doc.bytes().toBytes();
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to serialize block %d of file %s", block, fileRow.getFileUuid()), e);
+    }
+  }
+
+  /**
+   * Same use-case as {@link #addDeleteRequestsForLinesGreaterThan(BulkIndexer, FileSourcesUpdaterHelper.Row)}, except
+   * that the number of blocks already indexed is read from the first block with a real-time get, which is
+   * much cheaper than searching for the documents to be removed.
+   */
+  private void addDeleteRequestsForBlocksGreaterThan(BulkIndexer bulk, FileSourcesUpdaterHelper.Row fileRow, int blockCount) {
+    GetResponse firstBlock = esClient.prepareGet(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE_BLOCK, SourceLineIndexDefinition.blockKey(fileRow.getFileUuid(), 0))
+      .setRouting(fileRow.getProjectUuid())
+      .setFetchSource(FIELD_BLOCK_COUNT, null)
+      .get();
+    if (firstBlock.isExists()) {
+      Map<String, Object> source = firstBlock.getSourceAsMap();
+      int indexedBlockCount = ((Number) source.get(FIELD_BLOCK_COUNT)).intValue();
+      for (int block = blockCount; block < indexedBlockCount; block++) {
+        bulk.add(esClient.prepareDelete(SourceLineIndexDefinition.INDEX, SourceLineIndexDefinition.TYPE_BLOCK, SourceLineIndexDefinition.blockKey(fileRow.getFileUuid(), block))
+          .setRouting(fileRow.getProjectUuid())
+          .request());
+      }
+    }
+  }
+
   public void deleteByFile(String fileUuid) {
     // TODO would be great to have the projectUuid for routing
     SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(type)
       .setQuery(QueryBuilders.filteredQuery(
         QueryBuilders.matchAllQuery(),
         FilterBuilders.termFilter(FIELD_FILE_UUID, fileUuid).cache(false)));
@@ -131,7 +241,7 @@ public class SourceLineIndexer extends BaseIndexer {
   public void deleteByProject(String projectUuid) {
     SearchRequestBuilder searchRequest = esClient.prepareSearch(SourceLineIndexDefinition.INDEX)
       .setRouting(projectUuid)
-      .setTypes(SourceLineIndexDefinition.TYPE)
+      .setTypes(type)
       .setQuery(QueryBuilders.filteredQuery(
         QueryBuilders.matchAllQuery(),
         FilterBuilders.termFilter(FIELD_PROJECT_UUID, projectUuid).cache(false)));
@@ -35,6 +35,7 @@ import org.sonar.db.ResultSetIterator;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 import org.sonar.server.es.EsUtils;
+import org.sonar.server.es.ProjectUuidRange;
 
 import static org.sonar.server.source.index.FileSourcesUpdaterHelper.Row;
 
@@ -53,6 +54,15 @@ public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUp
     }
   }
 
+  public static SourceLineResultSetIterator create(DbClient dbClient, DbSession session, long afterDate, ProjectUuidRange range) {
+    try {
+      return new SourceLineResultSetIterator(FileSourcesUpdaterHelper.preparedStatementToSelectFileSources(dbClient, session, FileSourceDto.Type.SOURCE, afterDate,
+        range));
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select file sources of projects " + range, e);
+    }
+  }
+
   private SourceLineResultSetIterator(PreparedStatement stmt) throws SQLException {
     super(stmt);
   }
@@ -71,7 +81,11 @@ public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUp
    */
   public static Row toRow(String projectUuid, String fileUuid, Date updatedAt, DbFileSources.Data data) {
     Row result = new Row(projectUuid, fileUuid, updatedAt.getTime());
+    Long lastScmDate = null;
     for (DbFileSources.Line line : data.getLinesList()) {
+      if (line.hasScmDate() && (lastScmDate == null || line.getScmDate() > lastScmDate)) {
+        lastScmDate = line.getScmDate();
+      }
       ByteArrayOutputStream bytes = new ByteArrayOutputStream();
 
       // all the fields must be present, even if value is null
@@ -162,6 +176,7 @@ public class SourceLineResultSetIterator extends ResultSetIterator<FileSourcesUp
         .upsert(jsonDoc);
       result.getUpdateRequests().add(updateRequest);
     }
+    result.setLastScmDate(lastScmDate);
     return result;
   }
 }
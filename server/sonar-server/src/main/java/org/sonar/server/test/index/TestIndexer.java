@@ -28,9 +28,10 @@ import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
-import org.sonar.server.es.BaseIndexer;
 import org.sonar.server.es.BulkIndexer;
 import org.sonar.server.es.EsClient;
+import org.sonar.server.es.ProjectRangeIndexer;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
 
 import static org.sonar.server.source.index.SourceLineIndexDefinition.FIELD_PROJECT_UUID;
@@ -43,7 +44,7 @@ import static org.sonar.server.test.index.TestIndexDefinition.TYPE;
  * Add to Elasticsearch index {@link TestIndexDefinition} the rows of
  * db table FILE_SOURCES of type TEST that are not indexed yet
  */
-public class TestIndexer extends BaseIndexer {
+public class TestIndexer extends ProjectRangeIndexer {
 
   private final DbClient dbClient;
 
@@ -69,7 +70,7 @@ public class TestIndexer extends BaseIndexer {
 
   @Override
   protected long doIndex(long lastUpdatedAt) {
-    return doIndex(lastUpdatedAt, null);
+    return doIndex(lastUpdatedAt, (String) null);
   }
 
   private long doIndex(long lastUpdatedAt, @Nullable String projectUuid) {
@@ -88,6 +89,24 @@ public class TestIndexer extends BaseIndexer {
     }
   }
 
+  @Override
+  protected long doIndex(long lastUpdatedAt, ProjectUuidRange range) {
+    BulkIndexer bulk = new BulkIndexer(esClient, INDEX);
+    bulk.setDisableRefresh(true);
+    bulk.setAdaptive(lastUpdatedAt == 0L);
+
+    DbSession dbSession = dbClient.openSession(false);
+    try {
+      TestResultSetIterator rowIt = TestResultSetIterator.create(dbClient, dbSession, lastUpdatedAt, range);
+      long maxUpdatedAt = doIndex(bulk, rowIt);
+      rowIt.close();
+      return maxUpdatedAt;
+
+    } finally {
+      dbSession.close();
+    }
+  }
+
   private static long doIndex(BulkIndexer bulk, Iterator<FileSourcesUpdaterHelper.Row> dbRows) {
     long maxUpdatedAt = 0L;
     bulk.start();
@@ -36,6 +36,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.ResultSetIterator;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper.Row;
 
@@ -67,6 +68,14 @@ public class TestResultSetIterator extends ResultSetIterator<Row> {
     }
   }
 
+  public static TestResultSetIterator create(DbClient dbClient, DbSession session, long afterDate, ProjectUuidRange range) {
+    try {
+      return new TestResultSetIterator(FileSourcesUpdaterHelper.preparedStatementToSelectFileSources(dbClient, session, FileSourceDto.Type.TEST, afterDate, range));
+    } catch (SQLException e) {
+      throw new IllegalStateException("Fail to prepare SQL request to select tests of projects " + range, e);
+    }
+  }
+
   private TestResultSetIterator(PreparedStatement stmt) throws SQLException {
     super(stmt);
   }
@@ -0,0 +1,220 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.server.ServerSide;
+import org.sonar.db.component.ResourceDao;
+import org.sonar.db.component.ResourceDto;
+import org.sonar.db.user.AuthorizationDao;
+
+/**
+ * Server-wide cache of the authorization lookups done by {@link ServerUserSession}. Without it every HTTP request
+ * re-executes the same permission queries, as sessions only live for the duration of a request.
+ * <p/>
+ * Entries are bounded in number and expire after {@link #EXPIRE_AFTER_WRITE_SECONDS} seconds, so that changes done
+ * outside of the Java code (for instance by the Ruby on Rails webapp) are eventually visible. Java code that
+ * changes permissions or group memberships must call {@link #invalidate()} after having committed the change.
+ * <p/>
+ * Keys embed a generation number which is incremented on each invalidation, so that a value loaded concurrently
+ * with an invalidation can never be served afterwards.
+ */
+@ServerSide
+public class AuthorizationCache {
+
+  static final long MAXIMUM_SIZE = 10_000L;
+  static final long EXPIRE_AFTER_WRITE_SECONDS = 60L;
+
+  private enum Lookup {
+    GLOBAL_PERMISSIONS, PROJECT_KEYS, PROJECT_UUIDS, ROOT_PROJECT_KEY, PROJECT_UUID
+  }
+
+  private final AuthorizationDao authorizationDao;
+  private final ResourceDao resourceDao;
+  private final Cache<Entry, Object> cache;
+  private final AtomicLong generation = new AtomicLong();
+
+  public AuthorizationCache(AuthorizationDao authorizationDao, ResourceDao resourceDao) {
+    this(authorizationDao, resourceDao, CacheBuilder.newBuilder()
+      .maximumSize(MAXIMUM_SIZE)
+      .expireAfterWrite(EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS)
+      .recordStats());
+  }
+
+  @VisibleForTesting
+  AuthorizationCache(AuthorizationDao authorizationDao, ResourceDao resourceDao, CacheBuilder<Object, Object> cacheBuilder) {
+    this.authorizationDao = authorizationDao;
+    this.resourceDao = resourceDao;
+    this.cache = cacheBuilder.build();
+  }
+
+  /**
+   * Global permissions of the given user, or of anonymous users if login is null.
+   */
+  public List<String> globalPermissions(@Nullable final String login) {
+    return get(Lookup.GLOBAL_PERMISSIONS, login, null, new Callable<List<String>>() {
+      @Override
+      public List<String> call() {
+        return ImmutableList.copyOf(authorizationDao.selectGlobalPermissions(login));
+      }
+    });
+  }
+
+  /**
+   * Keys of the root projects on which the given user, or anonymous users if userId is null, has the permission.
+   */
+  public Collection<String> authorizedRootProjectsKeys(@Nullable final Integer userId, final String permission) {
+    return get(Lookup.PROJECT_KEYS, userId, permission, new Callable<Collection<String>>() {
+      @Override
+      public Collection<String> call() {
+        return ImmutableSet.copyOf(authorizationDao.selectAuthorizedRootProjectsKeys(userId, permission));
+      }
+    });
+  }
+
+  /**
+   * UUIDs of the root projects on which the given user, or anonymous users if userId is null, has the permission.
+   */
+  public Collection<String> authorizedRootProjectsUuids(@Nullable final Integer userId, final String permission) {
+    return get(Lookup.PROJECT_UUIDS, userId, permission, new Callable<Collection<String>>() {
+      @Override
+      public Collection<String> call() {
+        return ImmutableSet.copyOf(authorizationDao.selectAuthorizedRootProjectsUuids(userId, permission));
+      }
+    });
+  }
+
+  /**
+   * Key of the root project of the given component, or null if the component does not exist.
+   * Unknown components are not cached, as they may be created at any time.
+   */
+  @CheckForNull
+  public String rootProjectKey(String componentKey) {
+    Entry entry = new Entry(Lookup.ROOT_PROJECT_KEY, componentKey, null, generation.get());
+    String projectKey = (String) cache.getIfPresent(entry);
+    if (projectKey == null) {
+      ResourceDto project = resourceDao.getRootProjectByComponentKey(componentKey);
+      if (project == null) {
+        return null;
+      }
+      projectKey = project.getKey();
+      cache.put(entry, projectKey);
+    }
+    return projectKey;
+  }
+
+  /**
+   * UUID of the project of the given component, or null if the component does not exist.
+   * Unknown components are not cached, as they may be created at any time.
+   */
+  @CheckForNull
+  public String projectUuid(String componentUuid) {
+    Entry entry = new Entry(Lookup.PROJECT_UUID, componentUuid, null, generation.get());
+    String projectUuid = (String) cache.getIfPresent(entry);
+    if (projectUuid == null) {
+      ResourceDto component = resourceDao.selectResource(componentUuid);
+      if (component == null) {
+        return null;
+      }
+      projectUuid = component.getProjectUuid();
+      cache.put(entry, projectUuid);
+    }
+    return projectUuid;
+  }
+
+  /**
+   * Drops all the entries. To be called once a change on permissions, permission templates or group
+   * memberships has been committed.
+   */
+  public void invalidate() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  /**
+   * Number of calls to {@link #invalidate()} since startup
+   */
+  public long invalidationCount() {
+    return generation.get();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(Lookup lookup, @Nullable Object subject, @Nullable String permission, Callable<T> loader) {
+    try {
+      return (T) cache.get(new Entry(lookup, subject, permission, generation.get()), loader);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to load authorizations", e.getCause());
+    }
+  }
+
+  private static final class Entry {
+    private final Lookup lookup;
+    private final Object subject;
+    private final String permission;
+    private final long generation;
+
+    private Entry(Lookup lookup, @Nullable Object subject, @Nullable String permission, long generation) {
+      this.lookup = lookup;
+      this.subject = subject;
+      this.permission = permission;
+      this.generation = generation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Entry other = (Entry) o;
+      return generation == other.generation && lookup == other.lookup
+        && Objects.equal(subject, other.subject) && Objects.equal(permission, other.permission);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(lookup, subject, permission, generation);
+    }
+  }
+}
@@ -24,8 +24,6 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import org.sonar.core.platform.ComponentContainer;
-import org.sonar.db.component.ResourceDao;
-import org.sonar.db.user.AuthorizationDao;
 import org.sonar.server.platform.Platform;
 import org.sonar.server.ui.JRubyI18n;
 
@@ -61,8 +59,7 @@ public class RubyUserSession {
     ComponentContainer container = platform.getContainer();
     ThreadLocalUserSession threadLocalUserSession = container.getComponentByType(ThreadLocalUserSession.class);
 
-    UserSession session = new ServerUserSession(container.getComponentByType(AuthorizationDao.class),
-      container.getComponentByType(ResourceDao.class))
+    UserSession session = new ServerUserSession(container.getComponentByType(AuthorizationCache.class))
       .setLogin(login)
       .setName(name)
       .setUserId(userId)
@@ -27,9 +27,6 @@ import org.sonar.api.security.DefaultGroups;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.permission.GlobalPermissions;
-import org.sonar.db.component.ResourceDao;
-import org.sonar.db.component.ResourceDto;
-import org.sonar.db.user.AuthorizationDao;
 
 import static com.google.common.collect.Maps.newHashMap;
 import static com.google.common.collect.Sets.newHashSet;
@@ -44,14 +41,12 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
 
   private Map<String, String> projectKeyByComponentKey = newHashMap();
 
-  private final AuthorizationDao authorizationDao;
-  private final ResourceDao resourceDao;
+  private final AuthorizationCache authorizationCache;
 
-  ServerUserSession(AuthorizationDao authorizationDao, ResourceDao resourceDao) {
+  ServerUserSession(AuthorizationCache authorizationCache) {
     super(ServerUserSession.class);
     this.globalPermissions = null;
-    this.authorizationDao = authorizationDao;
-    this.resourceDao = resourceDao;
+    this.authorizationCache = authorizationCache;
     // Do not forget that when forceAuthentication is set to true, the Anyone group should not be set (but this will be check when
     // authentication will be done in Java)
     this.userGroups = newHashSet(DefaultGroups.ANYONE);
@@ -60,7 +55,7 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
   @Override
   public List<String> globalPermissions() {
     if (globalPermissions == null) {
-      List<String> permissionKeys = authorizationDao.selectGlobalPermissions(login);
+      List<String> permissionKeys = authorizationCache.globalPermissions(login);
       globalPermissions = new ArrayList<>();
       for (String permissionKey : permissionKeys) {
         if (!GlobalPermissions.ALL.contains(permissionKey)) {
@@ -76,7 +71,7 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
   @Override
   public boolean hasProjectPermission(String permission, String projectKey) {
     if (!projectPermissionsCheckedByKey.contains(permission)) {
-      Collection<String> projectKeys = authorizationDao.selectAuthorizedRootProjectsKeys(userId, permission);
+      Collection<String> projectKeys = authorizationCache.authorizedRootProjectsKeys(userId, permission);
       for (String key : projectKeys) {
         projectKeyByPermission.put(permission, key);
       }
@@ -88,7 +83,7 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
   @Override
   public boolean hasProjectPermissionByUuid(String permission, String projectUuid) {
     if (!projectPermissionsCheckedByUuid.contains(permission)) {
-      Collection<String> projectUuids = authorizationDao.selectAuthorizedRootProjectsUuids(userId, permission);
+      Collection<String> projectUuids = authorizationCache.authorizedRootProjectsUuids(userId, permission);
       addProjectPermission(permission, projectUuids);
     }
     return projectUuidByPermission.get(permission).contains(projectUuid);
@@ -105,11 +100,10 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
   public boolean hasComponentPermission(String permission, String componentKey) {
     String projectKey = projectKeyByComponentKey.get(componentKey);
     if (projectKey == null) {
-      ResourceDto project = resourceDao.getRootProjectByComponentKey(componentKey);
-      if (project == null) {
+      projectKey = authorizationCache.rootProjectKey(componentKey);
+      if (projectKey == null) {
         return false;
       }
-      projectKey = project.getKey();
     }
     boolean hasComponentPermission = hasProjectPermission(permission, projectKey);
     if (hasComponentPermission) {
@@ -123,11 +117,10 @@ public class ServerUserSession extends AbstractUserSession<ServerUserSession>
   public boolean hasComponentUuidPermission(String permission, String componentUuid) {
     String projectUuid = projectUuidByComponentUuid.get(componentUuid);
     if (projectUuid == null) {
-      ResourceDto project = resourceDao.selectResource(componentUuid);
-      if (project == null) {
+      projectUuid = authorizationCache.projectUuid(componentUuid);
+      if (projectUuid == null) {
         return false;
       }
-      projectUuid = project.getProjectUuid();
     }
     boolean hasComponentPermission = hasProjectPermissionByUuid(permission, projectUuid);
     if (hasComponentPermission) {
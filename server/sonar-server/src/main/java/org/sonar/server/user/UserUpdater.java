@@ -72,14 +72,17 @@ public class UserUpdater {
   private final UserIndexer userIndexer;
   private final System2 system2;
   private final SecurityRealmFactory realmFactory;
+  private final AuthorizationCache authorizationCache;
 
-  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2, SecurityRealmFactory realmFactory) {
+  public UserUpdater(NewUserNotifier newUserNotifier, Settings settings, DbClient dbClient, UserIndexer userIndexer, System2 system2, SecurityRealmFactory realmFactory,
+    AuthorizationCache authorizationCache) {
     this.newUserNotifier = newUserNotifier;
     this.settings = settings;
     this.dbClient = dbClient;
     this.userIndexer = userIndexer;
     this.system2 = system2;
     this.realmFactory = realmFactory;
+    this.authorizationCache = authorizationCache;
   }
 
   /**
@@ -87,6 +90,7 @@ public class UserUpdater {
    */
   public boolean create(NewUser newUser) {
     boolean isUserReactivated = false;
+    boolean isAddedToDefaultGroup;
 
     DbSession dbSession = dbClient.openSession(false);
     try {
@@ -94,7 +98,7 @@ public class UserUpdater {
       String login = userDto.getLogin();
       UserDto existingUser = dbClient.userDao().selectByLogin(dbSession, login);
       if (existingUser == null) {
-        saveUser(dbSession, userDto);
+        isAddedToDefaultGroup = saveUser(dbSession, userDto);
       } else {
         if (existingUser.isActive()) {
           throw new IllegalArgumentException(String.format("An active user with login '%s' already exists", login));
@@ -106,10 +110,13 @@ public class UserUpdater {
           .setPassword(newUser.password())
           .setPasswordConfirmation(newUser.passwordConfirmation());
         updateUserDto(dbSession, updateUser, existingUser);
-        updateUser(dbSession, existingUser);
+        isAddedToDefaultGroup = updateUser(dbSession, existingUser);
         isUserReactivated = true;
       }
       dbSession.commit();
+      if (isAddedToDefaultGroup) {
+        authorizationCache.invalidate();
+      }
       notifyNewUser(userDto.getLogin(), userDto.getName(), newUser.email());
       userIndexer.index();
     } finally {
@@ -126,8 +133,11 @@ public class UserUpdater {
         throw new NotFoundException(String.format("User with login '%s' has not been found", updateUser.login()));
       }
       updateUserDto(dbSession, updateUser, user);
-      updateUser(dbSession, user);
+      boolean isAddedToDefaultGroup = updateUser(dbSession, user);
       dbSession.commit();
+      if (isAddedToDefaultGroup) {
+        authorizationCache.invalidate();
+      }
       notifyNewUser(user.getLogin(), user.getName(), user.getEmail());
       userIndexer.index();
     } finally {
@@ -136,7 +146,10 @@ public class UserUpdater {
   }
 
   public void deactivateUserByLogin(String login) {
-    dbClient.userDao().deactivateUserByLogin(login);
+    if (dbClient.userDao().deactivateUserByLogin(login)) {
+      // group memberships and permissions of the user have been removed
+      authorizationCache.invalidate();
+    }
     userIndexer.index();
   }
 
@@ -300,18 +313,24 @@ public class UserUpdater {
     return scmAccounts;
   }
 
-  private void saveUser(DbSession dbSession, UserDto userDto) {
+  /**
+   * @return true if the user has been added to the default group
+   */
+  private boolean saveUser(DbSession dbSession, UserDto userDto) {
     long now = system2.now();
     userDto.setActive(true).setCreatedAt(now).setUpdatedAt(now);
     dbClient.userDao().insert(dbSession, userDto);
-    addDefaultGroup(dbSession, userDto);
+    return addDefaultGroup(dbSession, userDto);
   }
 
-  private void updateUser(DbSession dbSession, UserDto userDto) {
+  /**
+   * @return true if the user has been added to the default group
+   */
+  private boolean updateUser(DbSession dbSession, UserDto userDto) {
     long now = system2.now();
     userDto.setActive(true).setUpdatedAt(now);
     dbClient.userDao().update(dbSession, userDto);
-    addDefaultGroup(dbSession, userDto);
+    return addDefaultGroup(dbSession, userDto);
   }
 
   private static void setEncryptedPassWord(String password, UserDto userDto) {
@@ -335,7 +354,11 @@ public class UserUpdater {
       .build());
   }
 
-  private void addDefaultGroup(DbSession dbSession, UserDto userDto) {
+  /**
+   * The membership changes the authorizations of the user, so {@link AuthorizationCache} must be invalidated
+   * once committed if true is returned.
+   */
+  private boolean addDefaultGroup(DbSession dbSession, UserDto userDto) {
     String defaultGroup = settings.getString(CoreProperties.CORE_DEFAULT_GROUP);
     if (defaultGroup == null) {
       throw new ServerException(HttpURLConnection.HTTP_INTERNAL_ERROR, String.format("The default group property '%s' is null", CoreProperties.CORE_DEFAULT_GROUP));
@@ -349,7 +372,9 @@ public class UserUpdater {
             defaultGroup));
       }
       dbClient.userGroupDao().insert(dbSession, new UserGroupDto().setUserId(userDto.getId()).setGroupId(groupDto.getId()));
+      return true;
     }
+    return false;
   }
 
   public void index() {
@@ -31,6 +31,7 @@ import org.sonar.db.user.UserDto;
 import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.server.user.UserSession;
 
 import static org.sonar.db.MyBatis.closeQuietly;
@@ -42,10 +43,12 @@ public class AddUserAction implements UserGroupsWsAction {
 
   private final DbClient dbClient;
   private final UserSession userSession;
+  private final AuthorizationCache authorizationCache;
 
-  public AddUserAction(DbClient dbClient, UserSession userSession) {
+  public AddUserAction(DbClient dbClient, UserSession userSession, AuthorizationCache authorizationCache) {
     this.dbClient = dbClient;
     this.userSession = userSession;
+    this.authorizationCache = authorizationCache;
   }
 
   @Override
@@ -89,6 +92,7 @@ public class AddUserAction implements UserGroupsWsAction {
         UserGroupDto userGroup = new UserGroupDto().setGroupId(group.getId()).setUserId(user.getId());
         dbClient.userGroupDao().insert(dbSession, userGroup);
         dbSession.commit();
+        authorizationCache.invalidate();
       }
 
       response.noContent();
@@ -0,0 +1,309 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.io.ByteStreams;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+
+/**
+ * Stores objects on disk with a {@link Codec}, without Java serialization.
+ * <p>
+ * Objects are grouped in blocks of consecutive objects sharing the same key (for example the UUID of a component).
+ * A block is the length of its data followed by its data, optionally compressed with LZ4. Its data is the sequence
+ * of its length-prefixed objects. The position of the blocks of each key is kept in memory, so that the objects of a
+ * key can be read without scanning the whole file.
+ * </p>
+ * Appenders can be used concurrently, a block being written atomically when the key changes or when the appender is
+ * closed.
+ */
+public class IndexedDiskCache<O> {
+
+  private final File file;
+  private final System2 system2;
+  private final Codec<O> codec;
+  private final Function<O, String> keyFunction;
+  private final boolean compressed;
+  // key -> blocks, in order of writing
+  private final ListMultimap<String, Block> blocksByKey = ArrayListMultimap.create();
+  private long fileLength = 0L;
+
+  public IndexedDiskCache(File file, System2 system2, Codec<O> codec, Function<O, String> keyFunction, boolean compressed) {
+    this.file = file;
+    this.system2 = system2;
+    this.codec = codec;
+    this.keyFunction = keyFunction;
+    this.compressed = compressed;
+    try {
+      FileUtils.write(file, "");
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write into file: " + file, e);
+    }
+  }
+
+  public Appender newAppender() {
+    return new Appender();
+  }
+
+  /**
+   * Full scan of the objects, in order of writing
+   */
+  public CloseableIterator<O> traverse() {
+    try {
+      return new FileIterator(new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file))));
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to traverse file: " + file, e);
+    }
+  }
+
+  /**
+   * Objects of the specified key, in order of writing
+   */
+  public CloseableIterator<O> traverse(String key) {
+    List<Block> blocks;
+    synchronized (this) {
+      blocks = ImmutableList.copyOf(blocksByKey.get(key));
+    }
+    return new BlocksIterator(blocks);
+  }
+
+  /**
+   * The keys of all the objects stored in the cache
+   */
+  public synchronized Set<String> keys() {
+    return ImmutableSet.copyOf(blocksByKey.keySet());
+  }
+
+  private synchronized void writeBlock(@Nullable String key, ByteArrayOutputStream records) {
+    if (records.size() == 0) {
+      return;
+    }
+    FileOutputStream output = null;
+    try {
+      byte[] data = compressed ? compress(records) : records.toByteArray();
+      output = new FileOutputStream(file, true);
+      DataOutputStream dataOutput = new DataOutputStream(output);
+      dataOutput.writeInt(data.length);
+      dataOutput.write(data);
+      dataOutput.flush();
+      system2.close(output);
+      if (key != null) {
+        blocksByKey.put(key, new Block(fileLength, data.length));
+      }
+      fileLength += 4 + data.length;
+    } catch (IOException e) {
+      IOUtils.closeQuietly(output);
+      throw new IllegalStateException("Fail to write into file " + file, e);
+    }
+  }
+
+  private static byte[] compress(ByteArrayOutputStream records) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() / 2);
+    LZ4BlockOutputStream lz4Output = new LZ4BlockOutputStream(bytes);
+    records.writeTo(lz4Output);
+    lz4Output.close();
+    return bytes.toByteArray();
+  }
+
+  private InputStream uncompress(byte[] data) {
+    InputStream input = new ByteArrayInputStream(data);
+    return compressed ? new LZ4BlockInputStream(input) : input;
+  }
+
+  public class Appender implements AutoCloseable {
+    private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final DataOutputStream blockOutput = new DataOutputStream(block);
+    private final DataOutputStream recordOutput = new DataOutputStream(record);
+    private String currentKey = null;
+
+    private Appender() {
+      // use IndexedDiskCache#newAppender()
+    }
+
+    public Appender append(O object) {
+      String key = keyFunction.apply(object);
+      if (!Objects.equal(key, currentKey)) {
+        flush();
+        currentKey = key;
+      }
+      try {
+        record.reset();
+        codec.encode(object, recordOutput);
+        recordOutput.flush();
+        blockOutput.writeInt(record.size());
+        record.writeTo(blockOutput);
+        return this;
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to write into file " + file, e);
+      }
+    }
+
+    private void flush() {
+      writeBlock(currentKey, block);
+      block.reset();
+    }
+
+    @Override
+    public void close() {
+      flush();
+    }
+  }
+
+  private static class Block {
+    private final long offset;
+    private final int length;
+
+    private Block(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /**
+   * Iterates on the length-prefixed objects of a sequence of blocks
+   */
+  private abstract class AbstractBlockIterator extends CloseableIterator<O> {
+    private DataInputStream records = null;
+
+    /**
+     * Data of the next block, or null if there's no more blocks
+     */
+    @CheckForNull
+    protected abstract byte[] nextBlock() throws IOException;
+
+    @Override
+    @CheckForNull
+    protected O doNext() {
+      try {
+        while (true) {
+          if (records == null) {
+            byte[] block = nextBlock();
+            if (block == null) {
+              return null;
+            }
+            records = new DataInputStream(uncompress(block));
+          }
+          O object = readRecord(records);
+          if (object != null) {
+            return object;
+          }
+          records = null;
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @CheckForNull
+    private O readRecord(DataInputStream input) throws IOException {
+      int length;
+      try {
+        length = input.readInt();
+      } catch (EOFException e) {
+        return null;
+      }
+      byte[] record = new byte[length];
+      input.readFully(record);
+      return codec.decode(ByteStreams.newDataInput(record));
+    }
+  }
+
+  private class FileIterator extends AbstractBlockIterator {
+    private final DataInputStream input;
+
+    private FileIterator(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected byte[] nextBlock() throws IOException {
+      int length;
+      try {
+        length = input.readInt();
+      } catch (EOFException e) {
+        return null;
+      }
+      byte[] block = new byte[length];
+      input.readFully(block);
+      return block;
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private class BlocksIterator extends AbstractBlockIterator {
+    private final Iterator<Block> blocks;
+    private RandomAccessFile input = null;
+
+    private BlocksIterator(List<Block> blocks) {
+      this.blocks = blocks.iterator();
+    }
+
+    @Override
+    protected byte[] nextBlock() throws IOException {
+      if (!blocks.hasNext()) {
+        return null;
+      }
+      if (input == null) {
+        input = new RandomAccessFile(file, "r");
+      }
+      Block block = blocks.next();
+      byte[] data = new byte[block.length];
+      input.seek(block.offset + 4);
+      input.readFully(data);
+      return data;
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+}
@@ -20,6 +20,8 @@
 
 package org.sonar.server.view.index;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -37,10 +39,12 @@ import static com.google.common.collect.Maps.newHashMap;
 public class ViewIndexer extends BaseIndexer {
 
   private final DbClient dbClient;
+  private final ViewProjectsCache viewProjectsCache;
 
-  public ViewIndexer(DbClient dbClient, EsClient esClient) {
+  public ViewIndexer(DbClient dbClient, EsClient esClient, ViewProjectsCache viewProjectsCache) {
     super(esClient, 300, ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, "updatedAt");
     this.dbClient = dbClient;
+    this.viewProjectsCache = viewProjectsCache;
   }
 
   /**
@@ -49,7 +53,7 @@ public class ViewIndexer extends BaseIndexer {
    * - Either the definition has changed -> No updated at column in the projects table,
    * - Either the view is defined by a regex -> A new analysed project automatically steps into the view.
    * <p/>
-   * The views lookup cache will not be cleared
+   * The views lookup cache of Elasticsearch will not be cleared
    */
   @Override
   protected long doIndex(long lastUpdatedAt) {
@@ -62,6 +66,7 @@ public class ViewIndexer extends BaseIndexer {
           viewAndProjectViewUuidMap.put(uuidWithProjectUuidDto.getUuid(), uuidWithProjectUuidDto.getProjectUuid());
         }
         index(dbSession, viewAndProjectViewUuidMap, false);
+        viewProjectsCache.invalidateAll();
       } finally {
         dbSession.close();
       }
@@ -96,8 +101,9 @@ public class ViewIndexer extends BaseIndexer {
   public void index(ViewDoc viewDoc) {
     final BulkIndexer bulk = new BulkIndexer(esClient, ViewIndexDefinition.INDEX);
     bulk.start();
-    doIndex(bulk, viewDoc, true);
+    bulk.add(newUpsertRequest(viewDoc));
     bulk.stop();
+    clearCaches(Collections.singletonList(viewDoc.uuid()));
   }
 
   private void index(DbSession dbSession, Map<String, String> viewAndProjectViewUuidMap, boolean needClearCache) {
@@ -106,17 +112,25 @@ public class ViewIndexer extends BaseIndexer {
     for (Map.Entry<String, String> entry : viewAndProjectViewUuidMap.entrySet()) {
       String viewUuid = entry.getKey();
       List<String> projects = dbClient.componentDao().selectProjectsFromView(dbSession, viewUuid, entry.getValue());
-      doIndex(bulk, new ViewDoc()
+      bulk.add(newUpsertRequest(new ViewDoc()
         .setUuid(viewUuid)
-        .setProjects(projects), needClearCache);
+        .setProjects(projects)));
     }
     bulk.stop();
+    if (needClearCache) {
+      clearCaches(viewAndProjectViewUuidMap.keySet());
+    }
   }
 
-  private void doIndex(BulkIndexer bulk, ViewDoc viewDoc, boolean needClearCache) {
-    bulk.add(newUpsertRequest(viewDoc));
-    if (needClearCache) {
-      clearLookupCache(viewDoc.uuid());
+  /**
+   * Must be called once the views are indexed. The projects of the views are invalidated before clearing the
+   * lookup cache of Elasticsearch, so that a concurrent search can't put the previous projects back into
+   * the lookup cache.
+   */
+  private void clearCaches(Collection<String> viewUuids) {
+    viewProjectsCache.invalidate(viewUuids);
+    for (String viewUuid : viewUuids) {
+      clearLookupCache(viewUuid);
     }
   }
 
@@ -0,0 +1,100 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.view.index;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.elasticsearch.action.get.GetResponse;
+import org.sonar.api.server.ServerSide;
+import org.sonar.server.es.EsClient;
+
+/**
+ * Server-side cache of the UUIDs of the projects contained in each view, as indexed in the views index.
+ * It avoids looking up the view document on each search of issues of a view.
+ * <p/>
+ * Entries are invalidated by {@link ViewIndexer} when views are re-indexed, and expire after
+ * {@link #EXPIRE_AFTER_WRITE_MINUTES} minutes in case the index is updated by another way.
+ */
+@ServerSide
+public class ViewProjectsCache {
+
+  static final long MAXIMUM_SIZE = 1_000L;
+  static final long EXPIRE_AFTER_WRITE_MINUTES = 10L;
+
+  private final EsClient esClient;
+  private final LoadingCache<String, Set<String>> projectUuidsByViewUuid;
+
+  public ViewProjectsCache(EsClient esClient) {
+    this.esClient = esClient;
+    this.projectUuidsByViewUuid = CacheBuilder.newBuilder()
+      .maximumSize(MAXIMUM_SIZE)
+      .expireAfterWrite(EXPIRE_AFTER_WRITE_MINUTES, TimeUnit.MINUTES)
+      .build(new CacheLoader<String, Set<String>>() {
+        @Override
+        public Set<String> load(String viewUuid) {
+          return loadProjectUuids(viewUuid);
+        }
+      });
+  }
+
+  /**
+   * UUIDs of the projects of the view, or an empty set if the view is not indexed
+   */
+  public Set<String> getProjectUuids(String viewUuid) {
+    try {
+      return projectUuidsByViewUuid.getUnchecked(viewUuid);
+    } catch (UncheckedExecutionException e) {
+      throw new IllegalStateException(String.format("Unable to load projects of view '%s'", viewUuid), e.getCause());
+    }
+  }
+
+  public void invalidate(String viewUuid) {
+    projectUuidsByViewUuid.invalidate(viewUuid);
+  }
+
+  public void invalidate(Collection<String> viewUuids) {
+    projectUuidsByViewUuid.invalidateAll(viewUuids);
+  }
+
+  public void invalidateAll() {
+    projectUuidsByViewUuid.invalidateAll();
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<String> loadProjectUuids(String viewUuid) {
+    GetResponse response = esClient.prepareGet(ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, viewUuid)
+      .setFetchSource(ViewIndexDefinition.FIELD_PROJECTS, null)
+      .get();
+    if (!response.isExists()) {
+      return ImmutableSet.of();
+    }
+    Object projects = response.getSource().get(ViewIndexDefinition.FIELD_PROJECTS);
+    if (projects instanceof Collection) {
+      return ImmutableSet.copyOf((Collection<String>) projects);
+    }
+    return projects == null ? ImmutableSet.<String>of() : ImmutableSet.of((String) projects);
+  }
+}
@@ -49,6 +49,7 @@ import org.sonar.server.issue.index.IssueIndex;
 import org.sonar.server.issue.index.IssueIndexDefinition;
 import org.sonar.server.issue.index.IssueIndexer;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.view.index.ViewProjectsCache;
 import org.sonar.server.ws.WsTester;
 import org.sonar.test.DbTests;
 
@@ -85,7 +86,7 @@ public class IssuesActionTest {
     db.truncateTables();
     es.truncateIndices();
 
-    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule);
+    issueIndex = new IssueIndex(es.client(), System2.INSTANCE, userSessionRule, new ViewProjectsCache(es.client()));
     issueIndexer = new IssueIndexer(null, es.client());
     issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, es.client());
     issuesAction = new IssuesAction(db.getDbClient(), issueIndex, userSessionRule, new ComponentFinder(db.getDbClient()));
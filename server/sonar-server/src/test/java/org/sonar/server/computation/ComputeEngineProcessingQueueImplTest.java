@@ -29,34 +29,51 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.junit.Test;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
+import org.sonar.server.computation.monitoring.CEWorkersStatusImpl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 public class ComputeEngineProcessingQueueImplTest {
 
+  CEWorkersStatusImpl workersStatus = new CEWorkersStatusImpl(new Settings());
+
   @Test
   public void onServerStart_schedules_at_fixed_rate_run_head_of_queue() {
     ComputeEngineProcessingExecutorService processingExecutorService = mock(ComputeEngineProcessingExecutorService.class);
 
-    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService);
+    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService, workersStatus);
     underTest.onServerStart(mock(Server.class));
 
     verify(processingExecutorService).scheduleAtFixedRate(any(Runnable.class), eq(0L), eq(10L), eq(TimeUnit.SECONDS));
     verifyNoMoreInteractions(processingExecutorService);
   }
 
+  @Test
+  public void onServerStart_schedules_run_head_of_queue_once_per_worker() {
+    ComputeEngineProcessingExecutorService processingExecutorService = mock(ComputeEngineProcessingExecutorService.class);
+    Settings settings = new Settings().setProperty(CEWorkersStatusImpl.WORKER_COUNT_PROPERTY, 3);
+
+    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService, new CEWorkersStatusImpl(settings));
+    underTest.onServerStart(mock(Server.class));
+
+    verify(processingExecutorService, times(3)).scheduleAtFixedRate(any(Runnable.class), eq(0L), eq(10L), eq(TimeUnit.SECONDS));
+    verifyNoMoreInteractions(processingExecutorService);
+  }
+
   @Test
   public void task_in_queue_is_called_run_only_once() {
     ComputeEngineProcessingExecutorServiceAdapter processingExecutorService = new SimulateFixedRateCallsProcessingExecutorService(10);
     CallCounterComputeEngineTask task = new CallCounterComputeEngineTask();
 
-    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService);
+    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService, workersStatus);
     underTest.addTask(task);
     underTest.onServerStart(mock(Server.class));
 
@@ -69,7 +86,7 @@ public class ComputeEngineProcessingQueueImplTest {
 
     final List<Integer> nameList = new ArrayList<>();
 
-    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService);
+    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService, workersStatus);
     underTest.addTask(new ComputeEngineTask() {
       @Override
       public void run() {
@@ -104,7 +121,7 @@ public class ComputeEngineProcessingQueueImplTest {
   public void throwable_raised_by_a_ComputeEngineTask_must_be_caught() {
     ComputeEngineProcessingExecutorServiceAdapter processingExecutorService = new SimulateFixedRateCallsProcessingExecutorService(1);
 
-    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService);
+    ComputeEngineProcessingQueueImpl underTest = new ComputeEngineProcessingQueueImpl(processingExecutorService, workersStatus);
     underTest.addTask(new ComputeEngineTask() {
       @Override
       public void run() {
@@ -26,8 +26,10 @@ import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.sonar.api.config.Settings;
 import org.sonar.api.platform.Server;
 import org.sonar.core.platform.ComponentContainer;
+import org.sonar.server.computation.monitoring.CEWorkersStatusImpl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
@@ -43,7 +45,9 @@ public class ReportProcessingSchedulerTest {
   ReportQueue queue = mock(ReportQueue.class);
   ComponentContainer componentContainer = mock(ComponentContainer.class);
 
-  ReportProcessingScheduler underTest = new ReportProcessingScheduler(batchExecutorService, processingQueue, queue, componentContainer);
+  Settings settings = new Settings();
+
+  ReportProcessingScheduler underTest = new ReportProcessingScheduler(batchExecutorService, processingQueue, queue, new CEWorkersStatusImpl(settings), componentContainer);
 
   @Test
   public void schedule_at_fixed_rate_adding_a_ReportProcessingTask_to_the_queue() throws Exception {
@@ -56,6 +60,18 @@ public class ReportProcessingSchedulerTest {
     assertThat(processingQueue.getTasks().iterator().next()).isInstanceOf(ReportProcessingTask.class);
   }
 
+  @Test
+  public void schedule_at_fixed_rate_adds_a_ReportProcessingTask_for_each_worker() throws Exception {
+    settings.setProperty(CEWorkersStatusImpl.WORKER_COUNT_PROPERTY, 4);
+    underTest = new ReportProcessingScheduler(batchExecutorService, processingQueue, queue, new CEWorkersStatusImpl(settings), componentContainer);
+    when(batchExecutorService.scheduleAtFixedRate(any(Runnable.class), eq(0L), eq(10L), eq(TimeUnit.SECONDS)))
+      .thenAnswer(new ExecuteFirstArgAsRunnable());
+
+    underTest.onServerStart(mock(Server.class));
+
+    assertThat(processingQueue.getTasks()).hasSize(4);
+  }
+
   @Test
   public void adds_immediately_a_ReportProcessingTask_to_the_queue() throws Exception {
     doAnswer(new ExecuteFirstArgAsRunnable()).when(batchExecutorService).execute(any(Runnable.class));
@@ -29,6 +29,7 @@ import org.sonar.db.compute.AnalysisReportDto;
 import org.sonar.core.platform.ComponentContainer;
 import org.sonar.server.computation.container.ComputeEngineContainer;
 import org.sonar.server.computation.container.ContainerFactory;
+import org.sonar.server.computation.monitoring.CEWorkersStatus;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
@@ -48,7 +49,8 @@ public class ReportProcessingTaskTest {
   ReportQueue queue = mock(ReportQueue.class);
   ComponentContainer componentContainer = mock(ComponentContainer.class);
   ContainerFactory containerFactory = mock(ContainerFactory.class);
-  ReportProcessingTask underTest = new ReportProcessingTask(queue, componentContainer, containerFactory);
+  CEWorkersStatus workersStatus = mock(CEWorkersStatus.class);
+  ReportProcessingTask underTest = new ReportProcessingTask(queue, workersStatus, componentContainer, containerFactory);
 
   @Test
   public void do_nothing_if_queue_empty() {
@@ -57,7 +59,7 @@ public class ReportProcessingTaskTest {
     underTest.run();
 
     verify(queue).pop();
-    verifyZeroInteractions(containerFactory);
+    verifyZeroInteractions(containerFactory, workersStatus);
   }
 
   @Test
@@ -74,6 +76,34 @@ public class ReportProcessingTaskTest {
     verify(containerFactory).create(componentContainer, item);
   }
 
+  @Test
+  public void worker_state_is_updated_during_processing() throws IOException {
+    AnalysisReportDto report = AnalysisReportDto.newForTests(1L).setProjectKey("P1");
+    ReportQueue.Item item = new ReportQueue.Item(report, temp.newFile());
+    when(queue.pop()).thenReturn(item);
+    when(containerFactory.create(componentContainer, item)).thenReturn(mock(ComputeEngineContainer.class));
+
+    underTest.run();
+
+    String workerName = Thread.currentThread().getName();
+    verify(workersStatus).setWorking(workerName, "P1", 1L);
+    verify(workersStatus).setIdle(workerName);
+  }
+
+  @Test
+  public void worker_is_idle_and_report_removed_if_container_creation_fails() throws IOException {
+    AnalysisReportDto report = AnalysisReportDto.newForTests(1L).setProjectKey("P1");
+    ReportQueue.Item item = new ReportQueue.Item(report, temp.newFile());
+    when(queue.pop()).thenReturn(item);
+    when(containerFactory.create(componentContainer, item)).thenThrow(new IllegalStateException("pb"));
+
+    underTest.run();
+
+    verify(workersStatus).setIdle(Thread.currentThread().getName());
+    verify(queue).remove(item);
+    assertThat(logTester.logs()).contains("Failed to process analysis report 1 of project P1");
+  }
+
   @Test
   public void handle_error_during_queue_pop() {
     when(queue.pop()).thenThrow(new IllegalStateException());
@@ -27,6 +27,7 @@ import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
@@ -43,6 +44,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -58,12 +60,13 @@ public class ReportProcessorTest {
   ActivityManager activityManager = mock(ActivityManager.class);
   System2 system = mock(System2.class);
   CEQueueStatus queueStatus = mock(CEQueueStatus.class);
+  Settings settings = new Settings();
   AnalysisReportDto dto = AnalysisReportDto.newForTests(1L).setProjectKey("P1").setUuid("U1").setStatus(Status.PENDING);
   ReportProcessor underTest;
 
   @Before
   public void setUp() {
-    underTest = new ReportProcessor(steps, new ReportQueue.Item(dto, new File("Do_not_care")), activityManager, system, queueStatus);
+    underTest = new ReportProcessor(steps, new ReportQueue.Item(dto, new File("Do_not_care")), activityManager, system, queueStatus, settings);
   }
 
   @Test
@@ -142,6 +145,40 @@ public class ReportProcessorTest {
     }
   }
 
+  @Test
+  public void process_steps_concurrently() {
+    logTester.setLevel(LoggerLevel.INFO);
+    settings.setProperty(ReportProcessor.STEP_THREADS_PROPERTY, 4);
+    underTest = new ReportProcessor(steps, new ReportQueue.Item(dto, new File("Do_not_care")), activityManager, system, queueStatus, settings);
+    when(steps.instances()).thenReturn(Arrays.asList(projectStep1, projectStep2));
+
+    underTest.process();
+
+    assertThat(dto.getStatus()).isEqualTo(Status.SUCCESS);
+    assertThat(logTester.logs(LoggerLevel.INFO)).hasSize(3);
+    verify(projectStep1).execute();
+    verify(projectStep2).execute();
+    verify(queueStatus).addSuccess(anyLong());
+  }
+
+  @Test
+  public void steps_following_a_failed_step_are_not_executed_concurrently() {
+    settings.setProperty(ReportProcessor.STEP_THREADS_PROPERTY, 4);
+    underTest = new ReportProcessor(steps, new ReportQueue.Item(dto, new File("Do_not_care")), activityManager, system, queueStatus, settings);
+    when(steps.instances()).thenReturn(Arrays.asList(projectStep1, projectStep2));
+    doThrow(new IllegalStateException("pb")).when(projectStep1).execute();
+
+    try {
+      underTest.process();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).isEqualTo("pb");
+      assertThat(dto.getStatus()).isEqualTo(Status.FAILED);
+      verify(projectStep2, never()).execute();
+      verify(queueStatus).addError(anyLong());
+    }
+  }
+
   private ComputationStep mockStep() {
     ComputationStep step = mock(ComputationStep.class);
     when(step.getDescription()).thenReturn(RandomStringUtils.randomAscii(5));
@@ -0,0 +1,115 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.issue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.issue.IssueComment;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultIssueCodecTest {
+
+  DefaultIssueCodec underTest = new DefaultIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws Exception {
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE1")
+      .setComponentUuid("FILE1")
+      .setComponentKey("PROJECT:File1.java")
+      .setModuleUuid("MODULE1")
+      .setModuleUuidPath(".MODULE1.")
+      .setProjectUuid("PROJECT1")
+      .setProjectKey("PROJECT")
+      .setRuleKey(RuleKey.of("squid", "S001"))
+      .setLanguage("java")
+      .setSeverity(Severity.MAJOR)
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(12)
+      .setEffortToFix(2.5)
+      .setDebt(Duration.create(10L))
+      .setStatus(Issue.STATUS_REOPENED)
+      .setResolution(Issue.RESOLUTION_FIXED)
+      .setReporter("reporter")
+      .setAssignee("assignee")
+      .setChecksum("checksum")
+      .setAttributes(ImmutableMap.of("jira", "FOO-123"))
+      .setAuthorLogin("author")
+      .setActionPlanKey("PLAN1")
+      .setTags(Arrays.asList("bug", "security"))
+      .setCreationDate(new Date(1_400_000_000_000L))
+      .setUpdateDate(new Date(1_500_000_000_000L))
+      .setCloseDate(new Date(1_600_000_000_000L))
+      .setNew(false)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .setSelectedAt(1_450_000_000_000L);
+    issue.addComment(DefaultIssueComment.create("ISSUE1", "john", "a comment").setKey("COMMENT1").setCreatedAt(new Date(1_410_000_000_000L)));
+    issue.addChange(new FieldDiffs().setIssueKey("ISSUE1").setUserLogin("jane").setCreationDate(new Date(1_420_000_000_000L)).setDiff("severity", "MINOR", "MAJOR"));
+    issue.setFieldChange(IssueChangeContext.createScan(new Date(1_430_000_000_000L)), "technicalDebt", 5L, 10L);
+    issue.setLocations(DbIssues.Locations.newBuilder().setPrimary(DbCommons.TextRange.newBuilder().setStartLine(12).setEndLine(13)).build());
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded).isEqualToIgnoringGivenFields(issue, "comments", "currentChange", "changes");
+    assertThat(decoded.comments()).hasSize(1);
+    IssueComment comment = decoded.comments().get(0);
+    assertThat(comment).isEqualToComparingFieldByField(issue.comments().get(0));
+    assertThat(decoded.changes()).hasSize(2);
+    assertThat(decoded.changes().get(0).toString()).isEqualTo("severity=MINOR|MAJOR");
+    assertThat(decoded.changes().get(0).userLogin()).isEqualTo("jane");
+    assertThat(decoded.changes().get(1)).isSameAs(decoded.currentChange());
+    assertThat(decoded.currentChange().get("technicalDebt").oldValueLong()).isEqualTo(5L);
+    assertThat(decoded.currentChange().get("technicalDebt").newValueLong()).isEqualTo(10L);
+  }
+
+  @Test
+  public void encode_and_decode_issue_without_optional_fields() throws Exception {
+    DefaultIssue issue = new DefaultIssue().setKey("ISSUE1");
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded).isEqualToComparingFieldByField(issue);
+  }
+
+  private DefaultIssue encodeAndDecode(DefaultIssue issue) throws Exception {
+    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    underTest.encode(issue, output);
+    return underTest.decode(ByteStreams.newDataInput(output.toByteArray()));
+  }
+}
@@ -52,7 +52,7 @@ public class IssueAssignerTest {
   @Before
   public void setUp() {
     esTester.truncateIndices();
-    underTest = new IssueAssigner(new SourceLineIndex(esTester.client()), reportReader, scmAccountToUser, defaultAssignee);
+    underTest = new IssueAssigner(new SourceLineIndex(esTester.client(), new Settings()), reportReader, scmAccountToUser, defaultAssignee);
   }
 
   @Test
@@ -0,0 +1,194 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.measure;
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.db.rule.RuleDto;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ReportComponent;
+import org.sonar.server.computation.debt.Characteristic;
+import org.sonar.server.computation.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.server.computation.metric.Metric;
+import org.sonar.server.computation.metric.MetricImpl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.sonar.server.computation.measure.Measure.newMeasureBuilder;
+
+public class ColumnBasedRawMeasureRepositoryTest {
+
+  private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey("file key").build();
+  private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1_000).setKey("other key").build();
+  private static final Metric INT_METRIC = new MetricImpl(1, "int", "Int", Metric.MetricType.INT);
+  private static final Metric LONG_METRIC = new MetricImpl(2, "long", "Long", Metric.MetricType.WORK_DUR);
+  private static final Metric DOUBLE_METRIC = new MetricImpl(3, "double", "Double", Metric.MetricType.FLOAT);
+  private static final Metric BOOLEAN_METRIC = new MetricImpl(4, "boolean", "Boolean", Metric.MetricType.BOOL);
+  private static final Metric STRING_METRIC = new MetricImpl(5, "string", "String", Metric.MetricType.STRING);
+  private static final RuleDto SOME_RULE = RuleDto.createFor(RuleKey.of("A", "1")).setId(963);
+  private static final Characteristic SOME_CHARACTERISTIC = new Characteristic(741, "key", null);
+
+  ColumnBasedRawMeasureRepository underTest = new ColumnBasedRawMeasureRepository();
+
+  @Test
+  public void getRawMeasure_returns_absent_if_no_measure() {
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).isPresent()).isFalse();
+
+    underTest.add(OTHER_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).isPresent()).isFalse();
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).isPresent()).isFalse();
+  }
+
+  @Test
+  public void add_and_get_primitive_measures() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+    underTest.add(FILE_COMPONENT, LONG_METRIC, newMeasureBuilder().create(5_000_000_000L));
+    underTest.add(FILE_COMPONENT, DOUBLE_METRIC, newMeasureBuilder().create(75.3d));
+    underTest.add(FILE_COMPONENT, BOOLEAN_METRIC, newMeasureBuilder().create(true));
+    underTest.add(OTHER_COMPONENT, BOOLEAN_METRIC, newMeasureBuilder().create(false));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(12);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC).get().getLongValue()).isEqualTo(5_000_000_000L);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, DOUBLE_METRIC).get().getDoubleValue()).isEqualTo(75.3d);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, BOOLEAN_METRIC).get().getBooleanValue()).isTrue();
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, BOOLEAN_METRIC).get().getBooleanValue()).isFalse();
+  }
+
+  @Test
+  public void add_and_get_long_values_greater_than_2_pow_53() {
+    Measure measure = newMeasureBuilder().create((1L << 53) + 2);
+    underTest.add(FILE_COMPONENT, LONG_METRIC, measure);
+    underTest.add(OTHER_COMPONENT, LONG_METRIC, newMeasureBuilder().create(Long.MAX_VALUE));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC).get().getLongValue()).isEqualTo(measure.getLongValue());
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, LONG_METRIC).get().getLongValue()).isEqualTo(Long.MAX_VALUE);
+  }
+
+  @Test
+  public void add_and_get_long_measure_without_value() {
+    underTest.add(FILE_COMPONENT, LONG_METRIC, newMeasureBuilder().createNoValue());
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, LONG_METRIC).get().getValueType()).isEqualTo(Measure.ValueType.NO_VALUE);
+  }
+
+  @Test
+  public void add_and_get_measure_without_value() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().createNoValue());
+
+    Optional<Measure> measure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC);
+    assertThat(measure.get().getValueType()).isEqualTo(Measure.ValueType.NO_VALUE);
+  }
+
+  @Test
+  public void add_and_get_variations() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().setVariations(new MeasureVariations(1d, null, 3d)).create(12));
+    underTest.add(OTHER_COMPONENT, INT_METRIC, newMeasureBuilder().create(5));
+
+    MeasureVariations variations = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getVariations();
+    assertThat(variations.getVariation1()).isEqualTo(1d);
+    assertThat(variations.hasVariation2()).isFalse();
+    assertThat(variations.getVariation3()).isEqualTo(3d);
+    assertThat(variations.hasVariation4()).isFalse();
+    assertThat(variations.hasVariation5()).isFalse();
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, INT_METRIC).get().hasVariations()).isFalse();
+  }
+
+  @Test
+  public void add_and_get_measures_which_are_not_primitive() {
+    underTest.add(FILE_COMPONENT, STRING_METRIC, newMeasureBuilder().create("foo"));
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().setDescription("desc").create(12, "data"));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, STRING_METRIC).get().getStringValue()).isEqualTo("foo");
+    Measure measure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get();
+    assertThat(measure.getIntValue()).isEqualTo(12);
+    assertThat(measure.getData()).isEqualTo("data");
+    assertThat(measure.getDescription()).isEqualTo("desc");
+  }
+
+  @Test
+  public void add_and_get_measures_of_rule_and_characteristic() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(1));
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().forRule(SOME_RULE.getId()).create(2));
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().forCharacteristic(SOME_CHARACTERISTIC.getId()).create(3));
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(1);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC, SOME_RULE).get().getIntValue()).isEqualTo(2);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC, SOME_CHARACTERISTIC).get().getIntValue()).isEqualTo(3);
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).get(INT_METRIC.getKey())).hasSize(3);
+  }
+
+  @Test
+  public void update_replaces_primitive_measure_by_object_and_conversely() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+    underTest.update(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(13, "data"));
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getData()).isEqualTo("data");
+
+    underTest.update(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(14));
+    Measure measure = underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get();
+    assertThat(measure.getIntValue()).isEqualTo(14);
+    assertThat(measure.getData()).isNull();
+  }
+
+  @Test
+  public void add_does_not_override_if_policy_is_DO_NOT_OVERRIDE() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(13), OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, INT_METRIC).get().getIntValue()).isEqualTo(12);
+  }
+
+  @Test
+  public void add_throws_UOE_if_measure_already_exists() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+    try {
+      underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(13));
+      fail();
+    } catch (UnsupportedOperationException e) {
+      assertThat(e).hasMessage("a measure can be set only once for a specific Component (key=file key), Metric (key=int). Use update method");
+    }
+  }
+
+  @Test
+  public void update_throws_UOE_if_measure_does_not_exist() {
+    try {
+      underTest.update(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(13));
+      fail();
+    } catch (UnsupportedOperationException e) {
+      assertThat(e).hasMessage("a measure can be updated only if one already exists for a specific Component (key=file key), Metric (key=int). Use add method");
+    }
+  }
+
+  @Test
+  public void getRawMeasures_returns_measures_of_all_metrics() {
+    underTest.add(FILE_COMPONENT, INT_METRIC, newMeasureBuilder().create(12));
+    underTest.add(FILE_COMPONENT, STRING_METRIC, newMeasureBuilder().create("foo"));
+    underTest.add(OTHER_COMPONENT, DOUBLE_METRIC, newMeasureBuilder().create(1d));
+
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).keySet()).containsOnly(INT_METRIC.getKey(), STRING_METRIC.getKey());
+    assertThat(underTest.getRawMeasures(OTHER_COMPONENT).keySet()).containsOnly(DOUBLE_METRIC.getKey());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void getBaseMeasure_is_not_supported() {
+    underTest.getBaseMeasure(FILE_COMPONENT, INT_METRIC);
+  }
+}
@@ -35,6 +35,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.sonar.api.config.Settings;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.output.BatchReport;
@@ -72,6 +73,8 @@ public class MeasureRepositoryImplTest {
 
   private static final String FILE_COMPONENT_KEY = "file cpt key";
   private static final ReportComponent FILE_COMPONENT = ReportComponent.builder(Component.Type.FILE, 1).setKey(FILE_COMPONENT_KEY).build();
+  private static final ReportComponent PROJECT_COMPONENT = ReportComponent.builder(Component.Type.PROJECT, 3).setKey("project cpt key").setUuid("PROJECT_UUID")
+    .addChildren(FILE_COMPONENT).build();
   private static final ReportComponent OTHER_COMPONENT = ReportComponent.builder(Component.Type.FILE, 2).setKey("some other key").build();
   private static final String METRIC_KEY_1 = "metric 1";
   private static final int METRIC_ID_1 = 1;
@@ -80,6 +83,7 @@ public class MeasureRepositoryImplTest {
   private final Metric metric1 = mock(Metric.class);
   private final Metric metric2 = mock(Metric.class);
   private static final long LAST_SNAPSHOT_ID = 123;
+  private static final long PROJECT_LAST_SNAPSHOT_ID = 122;
   private static final long OTHER_SNAPSHOT_ID = 369;
   private static final long COMPONENT_ID = 567;
   private static final Measure SOME_MEASURE = Measure.newMeasureBuilder().create("some value");
@@ -91,19 +95,21 @@ public class MeasureRepositoryImplTest {
 
   private DbClient dbClient = dbTester.getDbClient();
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, new Settings());
 
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
-  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
+  private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator, new Settings());
 
   @CheckForNull
   private DbSession dbSession;
 
   @Before
   public void setUp() {
+    when(metric1.getId()).thenReturn(METRIC_ID_1);
     when(metric1.getKey()).thenReturn(METRIC_KEY_1);
     when(metric1.getType()).thenReturn(Metric.MetricType.STRING);
+    when(metric2.getId()).thenReturn(METRIC_ID_2);
     when(metric2.getKey()).thenReturn(METRIC_KEY_2);
     when(metric2.getType()).thenReturn(Metric.MetricType.STRING);
 
@@ -166,6 +172,44 @@ public class MeasureRepositoryImplTest {
     assertThat(res).isAbsent();
   }
 
+  @Test
+  public void getBaseMeasure_loads_only_measure_of_requested_component_and_keeps_it_in_memory() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbSession = dbClient.openSession(false);
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, LAST_SNAPSHOT_ID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(FILE_COMPONENT, metric1)).isPresent();
+    assertThat(underTest.getBaseMeasure(PROJECT_COMPONENT, metric1)).isAbsent();
+
+    // measures inserted after the first call for a component and a metric are not loaded
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, PROJECT_LAST_SNAPSHOT_ID));
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_2, PROJECT_LAST_SNAPSHOT_ID));
+    dbSession.commit();
+
+    assertThat(underTest.getBaseMeasure(PROJECT_COMPONENT, metric1)).isAbsent();
+    assertThat(underTest.getBaseMeasure(PROJECT_COMPONENT, metric2)).isPresent();
+  }
+
+  @Test
+  public void getBaseMeasure_loads_again_least_recently_requested_measure() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+    dbSession = dbClient.openSession(false);
+
+    assertThat(underTest.getBaseMeasure(PROJECT_COMPONENT, metric1)).isAbsent();
+
+    dbClient.measureDao().insert(dbSession, createMeasureDto(METRIC_ID_1, PROJECT_LAST_SNAPSHOT_ID));
+    dbSession.commit();
+    for (int i = 0; i < MeasureRepositoryImpl.MAX_CACHED_BASE_MEASURES; i++) {
+      Metric otherMetric = mock(Metric.class);
+      when(otherMetric.getKey()).thenReturn("other metric " + i);
+      underTest.getBaseMeasure(PROJECT_COMPONENT, otherMetric);
+    }
+
+    // measure has been evicted, so the measure inserted after the first call is now loaded
+    assertThat(underTest.getBaseMeasure(PROJECT_COMPONENT, metric1)).isPresent();
+  }
+
   @Test(expected = NullPointerException.class)
   public void add_throws_NPE_if_Component_argument_is_null() {
     underTest.add(null, metric1, SOME_MEASURE);
@@ -232,7 +276,7 @@ public class MeasureRepositoryImplTest {
   @Test
   public void add_accepts_NO_VALUE_as_measure_arg() {
     for (Metric.MetricType metricType : Metric.MetricType.values()) {
-      underTest.add(FILE_COMPONENT, new MetricImpl(1, "key" + metricType, "name" + metricType, metricType), Measure.newMeasureBuilder().createNoValue());
+      underTest.add(FILE_COMPONENT, new MetricImpl(metricType.ordinal(), "key" + metricType, "name" + metricType, metricType), Measure.newMeasureBuilder().createNoValue());
     }
   }
 
@@ -245,7 +289,7 @@ public class MeasureRepositoryImplTest {
       }
 
       try {
-        final MetricImpl metric = new MetricImpl(1, "key" + metricType, "name" + metricType, metricType);
+        final MetricImpl metric = new MetricImpl(metricType.ordinal(), "key" + metricType, "name" + metricType, metricType);
         underTest.add(FILE_COMPONENT, metric, getSomeMeasureByValueType(metricType));
         underTest.update(FILE_COMPONENT, metric, measure);
         fail("An IllegalArgumentException should have been raised");
@@ -260,7 +304,7 @@ public class MeasureRepositoryImplTest {
   @Test
   public void update_accepts_NO_VALUE_as_measure_arg() {
     for (Metric.MetricType metricType : Metric.MetricType.values()) {
-      MetricImpl metric = new MetricImpl(1, "key" + metricType, "name" + metricType, metricType);
+      MetricImpl metric = new MetricImpl(metricType.ordinal(), "key" + metricType, "name" + metricType, metricType);
       underTest.add(FILE_COMPONENT, metric, getSomeMeasureByValueType(metricType));
       underTest.update(FILE_COMPONENT, metric, Measure.newMeasureBuilder().createNoValue());
     }
@@ -347,6 +391,21 @@ public class MeasureRepositoryImplTest {
     assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric2)).isAbsent();
   }
 
+  @Test
+  public void store_raw_measures_by_column_when_enabled() {
+    Settings settings = new Settings().setProperty(MeasureRepositoryImpl.COLUMN_BASED_PROPERTY, true);
+    MeasureRepositoryImpl underTest = new MeasureRepositoryImpl(dbClient, reportReader, metricRepository, reportMetricValidator, settings);
+    Metric intMetric = new MetricImpl(METRIC_ID_1, METRIC_KEY_1, "name", Metric.MetricType.INT);
+    Measure measure = Measure.newMeasureBuilder().create(12);
+    underTest.add(FILE_COMPONENT, intMetric, measure);
+
+    Optional<Measure> res = underTest.getRawMeasure(FILE_COMPONENT, intMetric);
+
+    // measure is created again from the column of values
+    assertThat(res.get()).isNotSameAs(measure);
+    assertThat(res.get().getIntValue()).isEqualTo(12);
+  }
+
   @Test
   public void getRawMeasure_returns_measure_from_batch_if_not_added_through_add_method() {
     String value = "trololo";
@@ -0,0 +1,83 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.monitoring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.Settings;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class CEWorkersStatusImplTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private Settings settings = new Settings();
+
+  @Test
+  public void worker_count_is_1_by_default() {
+    assertThat(new CEWorkersStatusImpl(settings).getWorkerCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void worker_count_is_read_from_settings() {
+    settings.setProperty(CEWorkersStatusImpl.WORKER_COUNT_PROPERTY, 4);
+
+    assertThat(new CEWorkersStatusImpl(settings).getWorkerCount()).isEqualTo(4);
+  }
+
+  @Test
+  public void fail_if_worker_count_is_less_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.ce.workerCount must be >= 1 (got 0)");
+
+    settings.setProperty(CEWorkersStatusImpl.WORKER_COUNT_PROPERTY, 0);
+    new CEWorkersStatusImpl(settings);
+  }
+
+  @Test
+  public void verify_just_created_instance_has_no_worker_state() {
+    CEWorkersStatusImpl underTest = new CEWorkersStatusImpl(settings);
+
+    assertThat(underTest.getWorkingCount()).isEqualTo(0);
+    assertThat(underTest.getWorkerStates()).isEmpty();
+  }
+
+  @Test
+  public void setWorking_and_setIdle_update_states_and_working_count() {
+    CEWorkersStatusImpl underTest = new CEWorkersStatusImpl(settings);
+
+    underTest.setWorking("w2", "P1", 10L);
+    underTest.setWorking("w1", "P2", 11L);
+    assertThat(underTest.getWorkingCount()).isEqualTo(2);
+    assertThat(underTest.getWorkerStates()).containsExactly(
+      entry("w1", "processing project P2 (report 11)"),
+      entry("w2", "processing project P1 (report 10)"));
+
+    underTest.setIdle("w2");
+    underTest.setIdle("w2");
+    assertThat(underTest.getWorkingCount()).isEqualTo(1);
+    assertThat(underTest.getWorkerStates()).containsExactly(
+      entry("w1", "processing project P2 (report 11)"),
+      entry("w2", "idle"));
+  }
+}
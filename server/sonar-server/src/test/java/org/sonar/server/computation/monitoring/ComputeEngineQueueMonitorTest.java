@@ -19,12 +19,16 @@
  */
 package org.sonar.server.computation.monitoring;
 
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.junit.Before;
 import org.junit.Test;
 import org.sonar.server.computation.ReportQueue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ComputeEngineQueueMonitorTest {
   private static final long RECEIVED_COUNT = 30;
@@ -34,7 +38,19 @@ public class ComputeEngineQueueMonitorTest {
   private static final long SUCCESS_COUNT = 13;
   private static final long PROCESSING_TIME = 987;
 
-  private ComputeEngineQueueMonitor underTest = new ComputeEngineQueueMonitor(new DumbCEQueueStatus(), mock(ReportQueue.class));
+  private static final int WORKER_COUNT = 2;
+  private static final int WORKING_COUNT = 1;
+  private static final Map<String, String> WORKER_STATES = ImmutableMap.of("ce-processor-0", "processing project P1 (report 3)", "ce-processor-1", "idle");
+
+  private CEWorkersStatus workersStatus = mock(CEWorkersStatus.class);
+  private ComputeEngineQueueMonitor underTest = new ComputeEngineQueueMonitor(new DumbCEQueueStatus(), workersStatus, mock(ReportQueue.class));
+
+  @Before
+  public void setUp() {
+    when(workersStatus.getWorkerCount()).thenReturn(WORKER_COUNT);
+    when(workersStatus.getWorkingCount()).thenReturn(WORKING_COUNT);
+    when(workersStatus.getWorkerStates()).thenReturn(WORKER_STATES);
+  }
 
   @Test
   public void name_is_ComputeEngineQueue() {
@@ -49,7 +65,10 @@ public class ComputeEngineQueueMonitorTest {
       entry("In progress", IN_PROGRESS_COUNT),
       entry("Successfully processed", SUCCESS_COUNT),
       entry("Processed with error", ERROR_COUNT),
-      entry("Processing time", PROCESSING_TIME));
+      entry("Processing time", PROCESSING_TIME),
+      entry("Workers", WORKER_COUNT),
+      entry("Working workers", WORKING_COUNT),
+      entry("Worker states", WORKER_STATES));
   }
 
   @Test
@@ -62,6 +81,13 @@ public class ComputeEngineQueueMonitorTest {
     assertThat(underTest.getProcessingTime()).isEqualTo(PROCESSING_TIME);
   }
 
+  @Test
+  public void worker_get_methods_delegate_to_the_CEWorkersStatus_instance() {
+    assertThat(underTest.getWorkerCount()).isEqualTo(WORKER_COUNT);
+    assertThat(underTest.getWorkingWorkerCount()).isEqualTo(WORKING_COUNT);
+    assertThat(underTest.getWorkerStates()).containsExactly("ce-processor-0: processing project P1 (report 3)", "ce-processor-1: idle");
+  }
+
   /**
    * Dumb implementation of CEQueueStatus which returns constant values for get methods and throws UnsupportedOperationException
    * for other methods.
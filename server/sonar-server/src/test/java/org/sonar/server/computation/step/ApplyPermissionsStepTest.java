@@ -47,9 +47,13 @@ import org.sonar.server.computation.component.ReportComponent;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.issue.index.IssueAuthorizationIndexer;
 import org.sonar.server.issue.index.IssueIndexDefinition;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.test.DbTests;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.sonar.db.permission.PermissionTemplateTesting.newPermissionTemplateDto;
 
 @Category(DbTests.class)
@@ -76,6 +80,7 @@ public class ApplyPermissionsStepTest extends BaseStepTest {
   DbIdsRepositoryImpl dbIdsRepository;
 
   IssueAuthorizationIndexer issueAuthorizationIndexer;
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
   ApplyPermissionsStep step;
 
   @Before
@@ -92,7 +97,8 @@ public class ApplyPermissionsStepTest extends BaseStepTest {
 
     dbIdsRepository = new DbIdsRepositoryImpl();
 
-    step = new ApplyPermissionsStep(dbClient, dbIdsRepository, issueAuthorizationIndexer, new PermissionRepository(dbClient, settings), treeRootHolder);
+    step = new ApplyPermissionsStep(dbClient, dbIdsRepository, issueAuthorizationIndexer, new PermissionRepository(dbClient, settings), treeRootHolder,
+      authorizationCache);
   }
 
   @After
@@ -126,6 +132,7 @@ public class ApplyPermissionsStepTest extends BaseStepTest {
     assertThat(issueAhutorization.get("project")).isEqualTo(PROJECT_UUID);
     assertThat((List<String>) issueAhutorization.get("groups")).containsOnly(DefaultGroups.ANYONE);
     assertThat((List<String>) issueAhutorization.get("users")).isEmpty();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -148,6 +155,7 @@ public class ApplyPermissionsStepTest extends BaseStepTest {
 
     // Check that authorization updated at has not been changed -> Nothing has been done
     assertThat(projectDto.getAuthorizationUpdatedAt()).isEqualTo(authorizationUpdatedAt);
+    verify(authorizationCache, never()).invalidate();
   }
 
   @Override
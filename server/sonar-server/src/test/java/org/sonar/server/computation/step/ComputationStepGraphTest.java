@@ -0,0 +1,83 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.computation.step.ComputationData.BATCH_REPORT;
+import static org.sonar.server.computation.step.ComputationData.COMPONENT_TREE;
+import static org.sonar.server.computation.step.ComputationData.DB_FILE_SOURCES;
+import static org.sonar.server.computation.step.ComputationData.DB_TESTS;
+import static org.sonar.server.computation.step.ComputationData.ES_SOURCE_LINES;
+
+public class ComputationStepGraphTest {
+
+  ComputationStep barrier = mock(ComputationStep.class);
+  ComputationStep persistSources = declaredStep(EnumSet.of(BATCH_REPORT, COMPONENT_TREE), EnumSet.of(DB_FILE_SOURCES));
+  ComputationStep persistTests = declaredStep(EnumSet.of(BATCH_REPORT, COMPONENT_TREE), EnumSet.of(DB_TESTS));
+  ComputationStep indexSources = declaredStep(EnumSet.of(DB_FILE_SOURCES), EnumSet.of(ES_SOURCE_LINES));
+  ComputationStep writeTree = declaredStep(EnumSet.noneOf(ComputationData.class), EnumSet.of(COMPONENT_TREE));
+
+  @Test
+  public void steps_not_declaring_data_depend_on_all_previous_steps_and_all_next_steps_depend_on_them() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(persistSources, barrier, persistTests));
+
+    assertThat(underTest.size()).isEqualTo(3);
+    assertThat(underTest.getDependencies(0)).isEmpty();
+    assertThat(underTest.getDependencies(1)).containsExactly(0);
+    assertThat(underTest.getDependencies(2)).containsExactly(1);
+  }
+
+  @Test
+  public void steps_reading_the_same_data_are_independent() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(barrier, persistSources, persistTests));
+
+    assertThat(underTest.getDependencies(1)).containsExactly(0);
+    assertThat(underTest.getDependencies(2)).containsExactly(0);
+  }
+
+  @Test
+  public void step_reading_data_depends_on_previous_steps_writing_it() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(persistSources, persistTests, indexSources));
+
+    assertThat(underTest.getDependencies(2)).containsExactly(0);
+  }
+
+  @Test
+  public void step_writing_data_depends_on_previous_steps_reading_it() {
+    ComputationStepGraph underTest = new ComputationStepGraph(Arrays.asList(persistSources, indexSources, writeTree));
+
+    assertThat(underTest.getDependencies(2)).containsExactly(0);
+    assertThat(underTest.getStep(2)).isSameAs(writeTree);
+  }
+
+  private static ComputationStep declaredStep(Set<ComputationData> reads, Set<ComputationData> writes) {
+    ConcurrentComputationStep step = mock(ConcurrentComputationStep.class);
+    when(step.reads()).thenReturn(reads);
+    when(step.writes()).thenReturn(writes);
+    return step;
+  }
+}
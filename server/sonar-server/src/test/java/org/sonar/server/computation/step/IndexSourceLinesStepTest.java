@@ -55,7 +55,7 @@ public class IndexSourceLinesStepTest extends BaseStepTest {
 
   @Override
   protected ComputationStep step() {
-    SourceLineIndexer sourceLineIndexer = new SourceLineIndexer(dbClient, esTester.client());
+    SourceLineIndexer sourceLineIndexer = new SourceLineIndexer(dbClient, esTester.client(), new Settings());
     sourceLineIndexer.setEnabled(true);
     return new IndexSourceLinesStep(sourceLineIndexer, treeRootHolder);
   }
@@ -0,0 +1,223 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.computation.step;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.System2;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.tracking.BlockHashSequence;
+import org.sonar.core.issue.tracking.Input;
+import org.sonar.core.issue.tracking.LineHashSequence;
+import org.sonar.core.issue.tracking.Tracking;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.server.computation.batch.TreeRootHolderRule;
+import org.sonar.server.computation.component.Component;
+import org.sonar.server.computation.component.ReportComponent;
+import org.sonar.server.computation.issue.BaseIssuesLoader;
+import org.sonar.server.computation.issue.IssueCache;
+import org.sonar.server.computation.issue.IssueLifecycle;
+import org.sonar.server.computation.issue.IssueVisitor;
+import org.sonar.server.computation.issue.IssueVisitors;
+import org.sonar.server.computation.issue.TrackerExecution;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IntegrateIssuesStepTest {
+
+  static final int NB_FILES = 20;
+  static final int NB_ISSUES_PER_FILE = 5;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+
+  TrackerExecution tracker = mock(TrackerExecution.class);
+  BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
+  IssueLifecycle issueLifecycle = mock(IssueLifecycle.class);
+  RecordingVisitor visitor = new RecordingVisitor();
+  IssueCache issueCache;
+  List<Component> files = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    issueCache = new IssueCache(temp.newFile(), System2.INSTANCE);
+    when(baseIssuesLoader.loadUuidsOfComponentsWithOpenIssues()).thenReturn(Collections.<String>emptySet());
+
+    ReportComponent.Builder directory = ReportComponent.builder(Component.Type.DIRECTORY, 2).setUuid("DIRECTORY_UUID").setKey("DIRECTORY_KEY");
+    for (int i = 0; i < NB_FILES; i++) {
+      Component file = ReportComponent.builder(Component.Type.FILE, 10 + i).setUuid("FILE_UUID_" + i).setKey("FILE_KEY_" + i).build();
+      files.add(file);
+      directory.addChildren(file);
+    }
+    treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid("PROJECT_UUID").setKey("PROJECT_KEY")
+      .addChildren(directory.build()).build());
+
+    when(tracker.createRawInput(any(Component.class))).thenAnswer(new Answer<Input<DefaultIssue>>() {
+      @Override
+      public Input<DefaultIssue> answer(InvocationOnMock invocation) {
+        return rawInput((Component) invocation.getArguments()[0]);
+      }
+    });
+    when(tracker.track(any(Component.class))).thenAnswer(new Answer<Tracking<DefaultIssue, DefaultIssue>>() {
+      @Override
+      public Tracking<DefaultIssue, DefaultIssue> answer(InvocationOnMock invocation) {
+        return new Tracking<>(rawInput((Component) invocation.getArguments()[0]), new FakeInput(Collections.<DefaultIssue>emptyList()));
+      }
+    });
+    when(tracker.track(any(Component.class), any(Input.class))).thenAnswer(new Answer<Tracking<DefaultIssue, DefaultIssue>>() {
+      @Override
+      public Tracking<DefaultIssue, DefaultIssue> answer(InvocationOnMock invocation) {
+        return new Tracking<>((Input<DefaultIssue>) invocation.getArguments()[1], new FakeInput(Collections.<DefaultIssue>emptyList()));
+      }
+    });
+  }
+
+  @Test
+  public void fail_if_number_of_threads_is_not_positive() {
+    try {
+      newStep(0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Number of threads to track issues must be at least 1. Got 0");
+    }
+  }
+
+  @Test
+  public void concurrent_integration_calls_visitors_in_the_same_order_as_sequential_integration() {
+    newStep(1).execute();
+    List<String> sequentialCalls = ImmutableList.copyOf(visitor.calls);
+
+    visitor.calls.clear();
+    newStep(4).execute();
+
+    assertThat(visitor.calls).isEqualTo(sequentialCalls);
+    assertThat(visitor.calls).hasSize(2 * (NB_FILES + 2) + NB_FILES * NB_ISSUES_PER_FILE);
+    assertThat(visitor.calls.get(0)).isEqualTo("before FILE_KEY_0");
+    assertThat(visitor.calls.get(visitor.calls.size() - 1)).isEqualTo("after PROJECT_KEY");
+  }
+
+  @Test
+  public void concurrent_integration_caches_issues_of_all_components() {
+    newStep(4).execute();
+
+    assertThat(issueCache.keys()).hasSize(NB_FILES);
+    for (Component file : files) {
+      assertThat(count(issueCache.traverse(file.getUuid()))).isEqualTo(NB_ISSUES_PER_FILE);
+    }
+  }
+
+  @Test
+  public void concurrent_integration_continues_when_tracking_of_a_component_fails() {
+    Component failingFile = files.get(3);
+    doThrow(new IllegalStateException("BOOM")).when(tracker).track(eq(failingFile), any(Input.class));
+
+    newStep(4).execute();
+
+    assertThat(issueCache.keys()).hasSize(NB_FILES - 1).doesNotContain(failingFile.getUuid());
+    assertThat(visitor.calls).doesNotContain("before " + failingFile.getKey());
+  }
+
+  private IntegrateIssuesStep newStep(int threads) {
+    Settings settings = new Settings();
+    settings.setProperty(IntegrateIssuesStep.THREADS_PROPERTY, threads);
+    return new IntegrateIssuesStep(treeRootHolder, tracker, issueCache, baseIssuesLoader, issueLifecycle,
+      new IssueVisitors(new IssueVisitor[] {visitor}), settings);
+  }
+
+  private static Input<DefaultIssue> rawInput(Component component) {
+    List<DefaultIssue> issues = new ArrayList<>();
+    if (component.getType() == Component.Type.FILE) {
+      for (int i = 0; i < NB_ISSUES_PER_FILE; i++) {
+        issues.add(new DefaultIssue().setKey(component.getKey() + ":" + i).setComponentUuid(component.getUuid()).setComponentKey(component.getKey()));
+      }
+    }
+    return new FakeInput(issues);
+  }
+
+  private static int count(CloseableIterator<DefaultIssue> issues) {
+    int count = 0;
+    while (issues.hasNext()) {
+      issues.next();
+      count++;
+    }
+    return count;
+  }
+
+  private static class RecordingVisitor extends IssueVisitor {
+    private final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void beforeComponent(Component component) {
+      calls.add("before " + component.getKey());
+    }
+
+    @Override
+    public void onIssue(Component component, DefaultIssue issue) {
+      calls.add("issue " + issue.key());
+    }
+
+    @Override
+    public void afterComponent(Component component) {
+      calls.add("after " + component.getKey());
+    }
+  }
+
+  private static class FakeInput implements Input<DefaultIssue> {
+    private final List<DefaultIssue> issues;
+
+    private FakeInput(List<DefaultIssue> issues) {
+      this.issues = issues;
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return new LineHashSequence(Collections.<String>emptyList());
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return BlockHashSequence.create(getLineHashSequence());
+    }
+
+    @Override
+    public Collection<DefaultIssue> getIssues() {
+      return issues;
+    }
+  }
+}
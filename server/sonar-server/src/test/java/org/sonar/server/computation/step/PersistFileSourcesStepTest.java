@@ -27,6 +27,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Language;
 import org.sonar.api.utils.System2;
 import org.sonar.batch.protocol.Constants;
@@ -81,7 +82,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   public void setup() {
     dbTester.truncateTables();
     when(system2.now()).thenReturn(now);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader, new Settings());
   }
 
   @Override
@@ -416,6 +417,98 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     }
   }
 
+  @Test
+  public void persist_sources_of_many_files_in_pipelined_mode() {
+    int numberOfFiles = 120;
+    ReportComponent.Builder project = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    BatchReport.Component.Builder projectReport = BatchReport.Component.newBuilder().setRef(1).setType(Constants.ComponentType.PROJECT);
+    for (int i = 0; i < numberOfFiles; i++) {
+      int ref = 10 + i;
+      project.addChildren(ReportComponent.builder(Component.Type.FILE, ref).setUuid("FILE_" + i).setKey("PROJECT_KEY:File" + i + ".java").build());
+      projectReport.addChildRef(ref);
+      reportReader.putComponent(BatchReport.Component.newBuilder().setRef(ref).setType(Constants.ComponentType.FILE).setLines(1).build());
+      reportReader.putFileSourceLines(ref, "line of file " + i);
+    }
+    treeRootHolder.setRoot(project.build());
+    reportReader.putComponent(projectReport.build());
+
+    newPipelinedStep(3).execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(numberOfFiles);
+    for (int i = 0; i < numberOfFiles; i++) {
+      FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource("FILE_" + i);
+      assertThat(fileSourceDto.getProjectUuid()).isEqualTo(PROJECT_UUID);
+      assertThat(FileSourceDto.decodeSourceData(fileSourceDto.getBinaryData()).getLines(0).getSource()).isEqualTo("line of file " + i);
+    }
+  }
+
+  @Test
+  public void update_sources_in_pipelined_mode() {
+    long past = 150000L;
+    dbClient.fileSourceDao().insert(dbTester.getSession(), new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(FILE_UUID)
+      .setDataType(Type.SOURCE)
+      .setSrcHash("5b4bd9815cdb17b8ceae19eb1810c34c")
+      .setLineHashes("6438c669e0d0de98e6929c2cc0fac474\n")
+      .setDataHash("6cad150e3d065976c230cddc5a09efaa")
+      .setSourceData(DbFileSources.Data.newBuilder()
+        .addLines(DbFileSources.Line.newBuilder()
+          .setLine(1)
+          .setSource("old line")
+          .build())
+        .build())
+      .setCreatedAt(past)
+      .setUpdatedAt(past));
+    dbTester.getSession().commit();
+
+    initBasicReport(1);
+
+    newPipelinedStep(2).execute();
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectSource(FILE_UUID);
+    assertThat(fileSourceDto.getCreatedAt()).isEqualTo(past);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(now);
+    assertThat(FileSourceDto.decodeSourceData(fileSourceDto.getBinaryData()).getLines(0).getSource()).isEqualTo("line1");
+  }
+
+  @Test
+  public void display_file_path_when_exception_is_generated_in_pipelined_mode() {
+    initBasicReport(1);
+
+    reportReader.putSyntaxHighlighting(FILE_REF, newArrayList(BatchReport.SyntaxHighlighting.newBuilder()
+      .setRange(BatchReport.TextRange.newBuilder()
+        .setStartLine(1).setEndLine(1)
+        // Wrong offset -> fail
+        .setStartOffset(4).setEndOffset(2)
+        .build())
+      .setType(Constants.HighlightingType.ANNOTATION)
+      .build()));
+
+    try {
+      newPipelinedStep(2).execute();
+      failBecauseExceptionWasNotThrown(IllegalStateException.class);
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Cannot persist sources of MODULE_KEY:src/Foo.java").hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+  }
+
+  @Test
+  public void fail_if_number_of_threads_is_lower_than_1() {
+    try {
+      newPipelinedStep(0);
+      failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Number of threads to persist file sources must be at least 1. Got 0");
+    }
+  }
+
+  private PersistFileSourcesStep newPipelinedStep(int threads) {
+    return new PersistFileSourcesStep(dbClient, system2, treeRootHolder, reportReader,
+      new Settings().setProperty(PersistFileSourcesStep.THREADS_PROPERTY, threads));
+  }
+
   private void initBasicReport(int numberOfLines) {
     treeRootHolder.setRoot(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY).addChildren(
       ReportComponent.builder(Component.Type.MODULE, 2).setUuid("MODULE").setKey("MODULE_KEY").addChildren(
@@ -20,18 +20,34 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 
 public class BulkIndexerTest {
 
@@ -88,6 +104,107 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void adaptive_mode_is_disabled_by_default() {
+    assertThat(new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).isAdaptive()).isFalse();
+    assertThat(new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).setLarge(true).isAdaptive()).isFalse();
+    assertThat(new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).setAdaptive(true).isAdaptive()).isTrue();
+  }
+
+  @Test
+  public void adaptive_indexing() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setFlushByteSize(500)
+      .setAdaptive(true);
+    indexer.start();
+    for (int i = 0; i < 100; i++) {
+      indexer.add(newIndexRequest(i));
+    }
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(100);
+    assertThat(indexer.getRejections()).isEqualTo(0);
+    assertThat(indexer.getDocsPerSecond()).isGreaterThan(0);
+    assertThat(indexer.getBytesPerSecond()).isGreaterThan(0);
+    // local node responds quickly
+    assertThat(indexer.getFlushByteSize()).isGreaterThan(500);
+  }
+
+  @Test
+  public void retry_rejected_bulk_requests() {
+    AtomicInteger executions = new AtomicInteger();
+    EsClient client = rejectingClient(executions, 2);
+    long rejectionsBefore = client.getBulkIndexerStats().getRejections();
+    BulkIndexer indexer = new BulkIndexer(client, FakeIndexDefinition.INDEX)
+      .setAdaptive(true)
+      .setDisableRefresh(true);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.stop();
+
+    assertThat(executions.get()).isEqualTo(3);
+    assertThat(indexer.getRejections()).isEqualTo(2);
+    assertThat(client.getBulkIndexerStats().getRejections() - rejectionsBefore).isEqualTo(2);
+  }
+
+  @Test
+  public void give_up_rejected_bulk_request_after_max_retries_with_exponential_backoff() {
+    AtomicInteger executions = new AtomicInteger();
+    EsClient client = rejectingClient(executions, Integer.MAX_VALUE);
+    long failuresBefore = client.getBulkIndexerStats().getFailures();
+    BulkIndexer indexer = new BulkIndexer(client, FakeIndexDefinition.INDEX)
+      .setAdaptive(true)
+      .setDisableRefresh(true);
+    int initialConcurrency = indexer.getConcurrentRequests();
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    long startedAt = System.currentTimeMillis();
+    indexer.stop();
+
+    assertThat(executions.get()).isEqualTo(1 + BulkIndexer.MAX_RETRIES);
+    assertThat(indexer.getRejections()).isEqualTo(BulkIndexer.MAX_RETRIES);
+    assertThat(client.getBulkIndexerStats().getFailures() - failuresBefore).isEqualTo(1);
+    // delays are 100ms, 200ms, 400ms, ...
+    long minBackoff = BulkIndexer.RETRY_BACKOFF_MS * ((1 << BulkIndexer.MAX_RETRIES) - 1);
+    assertThat(System.currentTimeMillis() - startedAt).isGreaterThanOrEqualTo(minBackoff);
+    // concurrency is halved by the first rejection. The next ones are retried while stopping, when concurrency is frozen.
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(Math.max(1, initialConcurrency / 2));
+  }
+
+  @Test
+  public void adapt_size_and_concurrency_to_latency_and_rejections() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX).setFlushByteSize(4000);
+    int concurrency = indexer.getConcurrentRequests();
+
+    indexer.adapt(BulkIndexer.LOW_LATENCY_MS - 1, false);
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(concurrency + 1);
+    assertThat(indexer.getFlushByteSize()).isEqualTo(5000);
+
+    indexer.adapt(BulkIndexer.LOW_LATENCY_MS + 1, false);
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(concurrency + 1);
+    assertThat(indexer.getFlushByteSize()).isEqualTo(5000);
+
+    indexer.adapt(BulkIndexer.HIGH_LATENCY_MS + 1, false);
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(concurrency);
+    assertThat(indexer.getFlushByteSize()).isEqualTo(5000);
+
+    // size is never lower than 256Kb
+    indexer.adapt(0L, true);
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(Math.max(1, concurrency / 2));
+    assertThat(indexer.getFlushByteSize()).isEqualTo(256L * 1024L);
+
+    for (int i = 0; i < 10; i++) {
+      indexer.adapt(BulkIndexer.HIGH_LATENCY_MS + 1, false);
+    }
+    assertThat(indexer.getConcurrentRequests()).isEqualTo(1);
+
+    // permits are consistent with concurrency
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.stop();
+    assertThat(count()).isEqualTo(1);
+  }
+
   @Test
   public void bulk_delete() throws Exception {
     int max = 500;
@@ -109,6 +226,91 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(removeFrom);
   }
 
+  @Test
+  public void deletions_overlap_with_indexing() throws Exception {
+    int max = 500;
+    Map[] docs = new Map[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = ImmutableMap.of(FakeIndexDefinition.INT_FIELD, i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setFlushByteSize(500);
+    indexer.start();
+    indexer.addDeletion(esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setTypes(FakeIndexDefinition.TYPE)
+      .setQuery(QueryBuilders.filteredQuery(
+        QueryBuilders.matchAllQuery(),
+        FilterBuilders.rangeFilter(FakeIndexDefinition.INT_FIELD).gte(100).lt(1000))));
+    for (int i = 0; i < 20; i++) {
+      indexer.add(newIndexRequest(1000 + i));
+    }
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(120);
+  }
+
+  @Test
+  public void deletion_searches_are_paused_while_queue_is_full() throws Exception {
+    int max = 1000;
+    Map[] docs = new Map[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = ImmutableMap.of(FakeIndexDefinition.INT_FIELD, i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+
+    // queue is full after each page of hits
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
+      .setMaxQueuedDeletions(1);
+    indexer.start();
+    indexer.addDeletion(esTester.client().prepareSearch(FakeIndexDefinition.INDEX).setTypes(FakeIndexDefinition.TYPE));
+    indexer.stop();
+
+    assertThat(count()).isZero();
+  }
+
+  @Test
+  public void failure_of_deletion_search_is_raised_by_stop() {
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    indexer.addDeletion(esTester.client().prepareSearch("unknown_index"));
+    indexer.add(newIndexRequest(42));
+    try {
+      indexer.stop();
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to search for the documents to be deleted from index " + FakeIndexDefinition.INDEX);
+    }
+
+    // other requests are executed anyway
+    assertThat(count()).isEqualTo(1);
+  }
+
+  @Test
+  public void limit_concurrent_deletion_searches() throws Exception {
+    int max = 50;
+    Map[] docs = new Map[max];
+    for (int i = 0; i < max; i++) {
+      docs[i] = ImmutableMap.of(FakeIndexDefinition.INT_FIELD, i);
+    }
+    esTester.putDocuments(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE, docs);
+
+    BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+    indexer.start();
+    // more searches than permits
+    for (int i = 0; i < max; i++) {
+      indexer.addDeletion(esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+        .setTypes(FakeIndexDefinition.TYPE)
+        .setQuery(QueryBuilders.filteredQuery(
+          QueryBuilders.matchAllQuery(),
+          FilterBuilders.termFilter(FakeIndexDefinition.INT_FIELD, i))));
+    }
+    indexer.stop();
+
+    assertThat(count()).isZero();
+  }
+
   @Test
   public void disable_refresh() {
     BulkIndexer indexer = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX)
@@ -125,6 +327,46 @@ public class BulkIndexerTest {
   }
 
 
+  /**
+   * Client whose bulk requests are rejected by the first <code>rejections</code> executions
+   */
+  private EsClient rejectingClient(final AtomicInteger executions, final int rejections) {
+    EsClient client = spy(esTester.client());
+    doAnswer(new Answer<BulkRequestBuilder>() {
+      @Override
+      public BulkRequestBuilder answer(InvocationOnMock invocation) {
+        return newBulk(executions, rejections);
+      }
+    }).when(client).prepareBulk();
+    return client;
+  }
+
+  private static BulkRequestBuilder newBulk(final AtomicInteger executions, final int rejections) {
+    final BulkRequest request = new BulkRequest();
+    BulkRequestBuilder bulk = mock(BulkRequestBuilder.class);
+    when(bulk.setRefresh(anyBoolean())).thenReturn(bulk);
+    when(bulk.request()).thenReturn(request);
+    when(bulk.numberOfActions()).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) {
+        return request.numberOfActions();
+      }
+    });
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[0];
+        if (executions.incrementAndGet() <= rejections) {
+          listener.onFailure(new EsRejectedExecutionException("queue is full"));
+        } else {
+          listener.onResponse(new BulkResponse(new BulkItemResponse[0], 1L));
+        }
+        return null;
+      }
+    }).when(bulk).execute(any(ActionListener.class));
+    return bulk;
+  }
+
   private long count() {
     return esTester.countDocuments("fakes", "fake");
   }
@@ -22,6 +22,7 @@ package org.sonar.server.es;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.server.es.request.ProxyBulkRequestBuilder;
+import org.sonar.server.es.request.ProxyClearScrollRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterHealthRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterStateRequestBuilder;
 import org.sonar.server.es.request.ProxyClusterStatsRequestBuilder;
@@ -69,6 +70,7 @@ public class EsClientTest {
     assertThat(client.prepareRefresh()).isInstanceOf(ProxyRefreshRequestBuilder.class);
     assertThat(client.prepareSearch()).isInstanceOf(ProxySearchRequestBuilder.class);
     assertThat(client.prepareSearchScroll("1234")).isInstanceOf(ProxySearchScrollRequestBuilder.class);
+    assertThat(client.prepareClearScroll()).isInstanceOf(ProxyClearScrollRequestBuilder.class);
     assertThat(client.prepareState()).isInstanceOf(ProxyClusterStateRequestBuilder.class);
     assertThat(client.prepareStats()).isInstanceOf(ProxyIndicesStatsRequestBuilder.class);
 
@@ -20,10 +20,17 @@
 package org.sonar.server.es;
 
 import com.google.common.base.Function;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.ClearScrollRequestBuilder;
+import org.elasticsearch.action.search.ClearScrollResponse;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
+import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.server.issue.index.IssueDoc;
 import org.sonar.server.search.BaseDoc;
 import org.sonar.test.TestUtils;
@@ -34,10 +41,14 @@ import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class EsUtilsTest {
 
+  @Rule
+  public LogTester logTester = new LogTester();
+
   @Test
   public void convertToDocs_empty() {
     SearchHits hits = mock(SearchHits.class, Mockito.RETURNS_MOCKS);
@@ -76,4 +87,21 @@ public class EsUtilsTest {
     assertThat(EsUtils.parseDateTime("2017-07-14T04:40:00.000+02:00").getTime()).isEqualTo(1_500_000_000_000L);
     assertThat(EsUtils.parseDateTime(null)).isNull();
   }
+
+  @Test
+  public void clear_scroll_in_background_logs_failure() {
+    EsClient client = mock(EsClient.class);
+    ClearScrollRequestBuilder request = mock(ClearScrollRequestBuilder.class);
+    when(client.prepareClearScroll()).thenReturn(request);
+    when(request.addScrollId("SCROLL")).thenReturn(request);
+
+    EsUtils.clearScrollInBackground(client, "SCROLL");
+
+    ArgumentCaptor<ActionListener> listener = ArgumentCaptor.forClass(ActionListener.class);
+    verify(request).execute(listener.capture());
+    listener.getValue().onResponse(mock(ClearScrollResponse.class));
+    assertThat(logTester.logs(LoggerLevel.WARN)).isEmpty();
+    listener.getValue().onFailure(new IllegalStateException("node is down"));
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Fail to clear scroll SCROLL");
+  }
 }
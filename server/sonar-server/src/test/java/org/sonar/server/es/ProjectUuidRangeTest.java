@@ -0,0 +1,87 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class ProjectUuidRangeTest {
+
+  @Test
+  public void split_in_contiguous_ranges() {
+    List<ProjectUuidRange> ranges = ProjectUuidRange.split(Arrays.asList("A", "B", "C", "D", "E", "F"), 3);
+
+    assertThat(ranges).hasSize(3);
+    assertThat(ranges.get(0).getFrom()).isNull();
+    assertThat(ranges.get(0).getTo()).isEqualTo("C");
+    assertThat(ranges.get(1).getFrom()).isEqualTo("C");
+    assertThat(ranges.get(1).getTo()).isEqualTo("E");
+    assertThat(ranges.get(2).getFrom()).isEqualTo("E");
+    assertThat(ranges.get(2).getTo()).isNull();
+  }
+
+  @Test
+  public void no_more_ranges_than_projects() {
+    assertThat(ProjectUuidRange.split(Arrays.asList("A", "B"), 5)).hasSize(2);
+    assertThat(ProjectUuidRange.split(Arrays.asList("A"), 5)).containsExactly(ProjectUuidRange.ALL);
+    assertThat(ProjectUuidRange.split(Collections.<String>emptyList(), 5)).containsExactly(ProjectUuidRange.ALL);
+    assertThat(ProjectUuidRange.split(Arrays.asList("A", "B"), 1)).containsExactly(ProjectUuidRange.ALL);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_to_split_in_zero_range() {
+    ProjectUuidRange.split(Arrays.asList("A", "B"), 0);
+  }
+
+  @Test
+  public void sql_filter() throws Exception {
+    assertThat(ProjectUuidRange.ALL.sqlFilter("p.uuid")).isEmpty();
+    assertThat(new ProjectUuidRange("A", null).sqlFilter("p.uuid")).isEqualTo("p.uuid>=?");
+    assertThat(new ProjectUuidRange(null, "B").sqlFilter("p.uuid")).isEqualTo("p.uuid<?");
+    assertThat(new ProjectUuidRange("A", "B").sqlFilter("p.uuid")).isEqualTo("p.uuid>=? AND p.uuid<?");
+  }
+
+  @Test
+  public void set_parameters() throws Exception {
+    PreparedStatement stmt = mock(PreparedStatement.class);
+
+    assertThat(new ProjectUuidRange("A", "B").setParameters(stmt, 2)).isEqualTo(4);
+    verify(stmt).setString(2, "A");
+    verify(stmt).setString(3, "B");
+
+    PreparedStatement unused = mock(PreparedStatement.class);
+    assertThat(ProjectUuidRange.ALL.setParameters(unused, 2)).isEqualTo(2);
+    verifyZeroInteractions(unused);
+  }
+
+  @Test
+  public void test_toString() {
+    assertThat(new ProjectUuidRange("A", null).toString()).isEqualTo("[A, )");
+    assertThat(new ProjectUuidRange("A", "B").toString()).isEqualTo("[A, B)");
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+
+public class ScrollCursorTest {
+
+  byte[] secret = ScrollCursor.newSecret();
+
+  @Test
+  public void encode_and_decode() {
+    ScrollCursor cursor = ScrollCursor.decode(new ScrollCursor("c2NhbjsxOzE6", 42L, 3, 100, "john").encode(secret), secret);
+
+    assertThat(cursor.getScrollId()).isEqualTo("c2NhbjsxOzE6");
+    assertThat(cursor.getRemaining()).isEqualTo(42L);
+    assertThat(cursor.getPage()).isEqualTo(3);
+    assertThat(cursor.getPageSize()).isEqualTo(100);
+    assertThat(cursor.isOwnedBy("john")).isTrue();
+    assertThat(cursor.isOwnedBy("jane")).isFalse();
+    assertThat(cursor.isOwnedBy(null)).isFalse();
+  }
+
+  @Test
+  public void anonymous_owner() {
+    ScrollCursor cursor = ScrollCursor.decode(new ScrollCursor("c2NhbjsxOzE6", 1L, 2, 10, null).encode(secret), secret);
+
+    assertThat(cursor.isOwnedBy(null)).isTrue();
+    assertThat(cursor.isOwnedBy("john")).isFalse();
+  }
+
+  @Test
+  public void encoded_cursor_is_url_safe() {
+    String token = new ScrollCursor("c2Nhbj+/sxOzE6==", 1L, 2, 10, "john").encode(secret);
+
+    assertThat(token).matches("[A-Za-z0-9_.-]+");
+  }
+
+  @Test
+  public void fail_to_decode_invalid_token() {
+    try {
+      ScrollCursor.decode("am9obgoxMg", secret);
+      failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Invalid cursor 'am9obgoxMg'");
+    }
+  }
+
+  @Test
+  public void fail_to_decode_token_signed_with_another_secret() {
+    String token = new ScrollCursor("c2NhbjsxOzE6", 1L, 2, 10, "john").encode(ScrollCursor.newSecret());
+
+    try {
+      ScrollCursor.decode(token, secret);
+      failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Invalid cursor '" + token + "'");
+    }
+  }
+
+  @Test
+  public void fail_to_decode_token_with_modified_owner() {
+    String token = new ScrollCursor("c2NhbjsxOzE6", 1L, 2, 10, "john").encode(secret);
+    BaseEncoding encoding = BaseEncoding.base64Url().omitPadding();
+    String payload = new String(encoding.decode(token.substring(0, token.indexOf('.'))), Charsets.UTF_8);
+    String forged = encoding.encode(payload.replace("john", "jane").getBytes(Charsets.UTF_8)) + token.substring(token.indexOf('.'));
+
+    try {
+      ScrollCursor.decode(forged, secret);
+      failBecauseExceptionWasNotThrown(IllegalArgumentException.class);
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Invalid cursor '" + forged + "'");
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es.request;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.FakeIndexDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class ProxyClearScrollRequestBuilderTest {
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new FakeIndexDefinition());
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void clear_scroll() {
+    String scrollId = openScroll();
+
+    assertThat(esTester.client().prepareClearScroll().addScrollId(scrollId).get().isSucceeded()).isTrue();
+  }
+
+  @Test
+  public void to_string() {
+    assertThat(esTester.client().prepareClearScroll().addScrollId("1234").toString()).isEqualTo("ES clear scroll request on scroll ids '1234'");
+    assertThat(esTester.client().prepareClearScroll().toString()).isEqualTo("ES clear scroll request");
+  }
+
+  @Test
+  public void trace_logs() {
+    logTester.setLevel(LoggerLevel.TRACE);
+
+    String scrollId = openScroll();
+    logTester.clear();
+    esTester.client().prepareClearScroll().addScrollId(scrollId).get();
+    assertThat(logTester.logs()).hasSize(1);
+  }
+
+  @Test
+  public void no_trace_logs() {
+    logTester.setLevel(LoggerLevel.DEBUG);
+
+    String scrollId = openScroll();
+    logTester.clear();
+    esTester.client().prepareClearScroll().addScrollId(scrollId).get();
+    assertThat(logTester.logs()).isEmpty();
+  }
+
+  @Test
+  public void fail_to_clear_bad_scroll_id() {
+    try {
+      esTester.client().prepareClearScroll().addScrollId("unknown").get();
+      fail();
+    } catch (Exception e) {
+      assertThat(e).isInstanceOf(IllegalStateException.class);
+      assertThat(e.getMessage()).contains("Fail to execute ES clear scroll request on scroll ids 'unknown'");
+    }
+  }
+
+  @Test
+  public void get_with_string_timeout_is_not_yet_implemented() {
+    try {
+      esTester.client().prepareClearScroll().get("1");
+      fail();
+    } catch (Exception e) {
+      assertThat(e).isInstanceOf(IllegalStateException.class).hasMessage("Not yet implemented");
+    }
+  }
+
+  @Test
+  public void get_with_time_value_timeout_is_not_yet_implemented() {
+    try {
+      esTester.client().prepareClearScroll().get(TimeValue.timeValueMinutes(1));
+      fail();
+    } catch (Exception e) {
+      assertThat(e).isInstanceOf(IllegalStateException.class).hasMessage("Not yet implemented");
+    }
+  }
+
+  @Test
+  public void execute_should_throw_an_unsupported_operation_exception() {
+    try {
+      esTester.client().prepareClearScroll().execute();
+      fail();
+    } catch (Exception e) {
+      assertThat(e).isInstanceOf(UnsupportedOperationException.class).hasMessage("execute() should not be called as it's used for asynchronous");
+    }
+  }
+
+  private static String openScroll() {
+    SearchResponse response = esTester.client().prepareSearch(FakeIndexDefinition.INDEX)
+      .setSearchType(SearchType.SCAN)
+      .setScroll(TimeValue.timeValueMinutes(1))
+      .get();
+    return response.getScrollId();
+  }
+}
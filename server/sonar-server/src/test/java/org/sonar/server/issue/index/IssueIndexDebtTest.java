@@ -46,6 +46,7 @@ import org.sonar.server.issue.filter.IssueFilterParameters;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.view.index.ViewIndexDefinition;
 import org.sonar.server.view.index.ViewIndexer;
+import org.sonar.server.view.index.ViewProjectsCache;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -65,18 +66,20 @@ public class IssueIndexDebtTest {
   IssueIndexer issueIndexer;
   IssueAuthorizationIndexer issueAuthorizationIndexer;
   ViewIndexer viewIndexer;
+  ViewProjectsCache viewProjectsCache;
 
   @Before
   public void setUp() {
     tester.truncateIndices();
     issueIndexer = new IssueIndexer(null, tester.client());
     issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, tester.client());
-    viewIndexer = new ViewIndexer(null, tester.client());
+    viewProjectsCache = new ViewProjectsCache(tester.client());
+    viewIndexer = new ViewIndexer(null, tester.client(), viewProjectsCache);
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
 
-    index = new IssueIndex(tester.client(), system, userSessionRule);
+    index = new IssueIndex(tester.client(), system, userSessionRule, viewProjectsCache);
 
   }
 
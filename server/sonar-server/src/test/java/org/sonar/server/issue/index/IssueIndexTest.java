@@ -45,15 +45,19 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.ScrollCursor;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
+import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.issue.IssueQuery;
 import org.sonar.server.issue.IssueTesting;
+import org.sonar.server.issue.filter.IssueFilterParameters;
 import org.sonar.server.tester.UserSessionRule;
 import org.sonar.server.view.index.ViewDoc;
 import org.sonar.server.view.index.ViewIndexDefinition;
 import org.sonar.server.view.index.ViewIndexer;
+import org.sonar.server.view.index.ViewProjectsCache;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -74,18 +78,20 @@ public class IssueIndexTest {
   IssueIndexer issueIndexer;
   IssueAuthorizationIndexer issueAuthorizationIndexer;
   ViewIndexer viewIndexer;
+  ViewProjectsCache viewProjectsCache;
 
   @Before
   public void setUp() {
     tester.truncateIndices();
     issueIndexer = new IssueIndexer(null, tester.client());
     issueAuthorizationIndexer = new IssueAuthorizationIndexer(null, tester.client());
-    viewIndexer = new ViewIndexer(null, tester.client());
+    viewProjectsCache = new ViewProjectsCache(tester.client());
+    viewIndexer = new ViewIndexer(null, tester.client(), viewProjectsCache);
     System2 system = mock(System2.class);
     when(system.getDefaultTimeZone()).thenReturn(TimeZone.getTimeZone("+01:00"));
     when(system.now()).thenReturn(System.currentTimeMillis());
 
-    index = new IssueIndex(tester.client(), system, userSessionRule);
+    index = new IssueIndex(tester.client(), system, userSessionRule, viewProjectsCache);
 
   }
 
@@ -355,6 +361,28 @@ public class IssueIndexTest {
     assertThat(index.search(IssueQuery.builder(userSessionRule).viewUuids(newArrayList("unknown")).build(), new SearchOptions()).getDocs()).isEmpty();
   }
 
+  @Test
+  public void filter_by_large_view() {
+    ComponentDto project1 = ComponentTesting.newProjectDto();
+    ComponentDto project2 = ComponentTesting.newProjectDto();
+    indexIssues(
+      IssueTesting.newDoc("ISSUE1", project1),
+      IssueTesting.newDoc("ISSUE2", project2));
+
+    // The view contains more projects than the number of projects which are inlined in search requests
+    List<String> projectUuids = newArrayList(project1.uuid());
+    for (int i = 0; i < IssueIndex.MAX_INLINED_VIEW_PROJECTS; i++) {
+      projectUuids.add("PROJECT_" + i);
+    }
+    String largeView = "ABCD";
+    indexView(largeView, projectUuids);
+    String smallView = "CDEF";
+    indexView(smallView, newArrayList(project2.uuid()));
+
+    assertThat(index.search(IssueQuery.builder(userSessionRule).viewUuids(newArrayList(largeView)).build(), new SearchOptions()).getDocs()).hasSize(1);
+    assertThat(index.search(IssueQuery.builder(userSessionRule).viewUuids(newArrayList(largeView, smallView)).build(), new SearchOptions()).getDocs()).hasSize(2);
+  }
+
   @Test
   public void filter_by_severities() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -915,6 +943,95 @@ public class IssueIndexTest {
     assertThat(result.getTotal()).isEqualTo(12);
   }
 
+  @Test
+  public void paging_with_cursor() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    for (int i = 0; i < 12; i++) {
+      indexIssues(IssueTesting.newDoc("ISSUE" + i, file));
+    }
+    List<IssueDoc> expected = index.search(IssueQuery.builder(userSessionRule).build(), new SearchOptions().setLimit(12)).getDocs();
+
+    SearchResult<IssueDoc> result = index.searchWithCursor(IssueQuery.builder(userSessionRule).build(),
+      new SearchOptions().setLimit(5).addFacets(IssueFilterParameters.SEVERITIES));
+    assertThat(result.getDocs()).hasSize(5);
+    assertThat(result.getTotal()).isEqualTo(12);
+    assertThat(result.getFacets().getNames()).containsOnly(IssueFilterParameters.SEVERITIES);
+    assertThat(result.getCursor()).isNotNull();
+    List<IssueDoc> docs = newArrayList(result.getDocs());
+
+    // facets are computed on first page only
+    SearchOptions options = new SearchOptions().setLimit(100);
+    result = index.searchNextPage(result.getCursor(), options);
+    assertThat(result.getDocs()).hasSize(5);
+    assertThat(options.getPage()).isEqualTo(2);
+    assertThat(options.getLimit()).isEqualTo(5);
+    assertThat(result.getFacets().getNames()).isEmpty();
+    assertThat(result.getCursor()).isNotNull();
+    docs.addAll(result.getDocs());
+
+    result = index.searchNextPage(result.getCursor(), options);
+    assertThat(result.getDocs()).hasSize(2);
+    assertThat(options.getPage()).isEqualTo(3);
+    assertThat(result.getCursor()).isNull();
+    docs.addAll(result.getDocs());
+
+    // same order as without cursor
+    assertThat(keys(docs)).containsExactlyElementsOf(keys(expected));
+  }
+
+  @Test
+  public void no_cursor_when_all_results_are_on_first_page() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssues(IssueTesting.newDoc("ISSUE1", file), IssueTesting.newDoc("ISSUE2", file));
+
+    SearchResult<IssueDoc> result = index.searchWithCursor(IssueQuery.builder(userSessionRule).build(), new SearchOptions().setLimit(5));
+
+    assertThat(result.getDocs()).hasSize(2);
+    assertThat(result.getCursor()).isNull();
+  }
+
+  @Test
+  public void fail_to_search_next_page_with_invalid_cursor() {
+    try {
+      index.searchNextPage("unknown", new SearchOptions());
+      failBecauseExceptionWasNotThrown(BadRequestException.class);
+    } catch (BadRequestException e) {
+      assertThat(e).hasMessage("Invalid cursor 'unknown'");
+    }
+  }
+
+  @Test
+  public void fail_to_search_next_page_with_cursor_of_another_user() {
+    ComponentDto project = ComponentTesting.newProjectDto();
+    ComponentDto file = ComponentTesting.newFileDto(project);
+    indexIssues(IssueTesting.newDoc("ISSUE1", file), IssueTesting.newDoc("ISSUE2", file));
+    userSessionRule.login("john");
+    String cursor = index.searchWithCursor(IssueQuery.builder(userSessionRule).build(), new SearchOptions().setLimit(1)).getCursor();
+
+    userSessionRule.login("jane");
+    try {
+      index.searchNextPage(cursor, new SearchOptions());
+      failBecauseExceptionWasNotThrown(BadRequestException.class);
+    } catch (BadRequestException e) {
+      assertThat(e).hasMessage("Invalid cursor '" + cursor + "'");
+    }
+  }
+
+  @Test
+  public void fail_to_search_next_page_with_cursor_not_signed_by_server() {
+    userSessionRule.login("jane");
+    String forged = new ScrollCursor("c2NhbjsxOzE6", 1L, 2, 1, "jane").encode(ScrollCursor.newSecret());
+
+    try {
+      index.searchNextPage(forged, new SearchOptions());
+      failBecauseExceptionWasNotThrown(BadRequestException.class);
+    } catch (BadRequestException e) {
+      assertThat(e).hasMessage("Invalid cursor '" + forged + "'");
+    }
+  }
+
   @Test
   public void search_with_max_limit() {
     ComponentDto project = ComponentTesting.newProjectDto();
@@ -1309,6 +1426,14 @@ public class IssueIndexTest {
     assertThat(Lists.newArrayList(index.selectIssuesForBatch(project2))).isEmpty();
   }
 
+  private static List<String> keys(List<IssueDoc> docs) {
+    List<String> keys = newArrayList();
+    for (IssueDoc doc : docs) {
+      keys.add(doc.key());
+    }
+    return keys;
+  }
+
   private void indexIssues(IssueDoc... issues) {
     issueIndexer.index(Arrays.asList(issues).iterator());
     for (IssueDoc issue : issues) {
@@ -20,6 +20,7 @@
 package org.sonar.server.issue.index;
 
 import com.google.common.collect.Iterators;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -32,6 +33,7 @@ import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.test.DbTests;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -97,6 +99,17 @@ public class IssueIndexerTest {
     assertThat(esTester.countDocuments("issues", "issue")).isZero();
   }
 
+  @Test
+  public void index_by_ranges_of_projects() {
+    dbTester.prepareDbUnit(getClass(), "index.xml");
+
+    createIndexer().index(Arrays.asList(new ProjectUuidRange(null, "M"), new ProjectUuidRange("M", null)));
+
+    List<IssueDoc> docs = esTester.getDocuments("issues", "issue", IssueDoc.class);
+    assertThat(docs).hasSize(1);
+    assertThat(docs.get(0).projectUuid()).isEqualTo("THE_PROJECT");
+  }
+
   private IssueIndexer createIndexer() {
     IssueIndexer indexer = new IssueIndexer(new DbClient(dbTester.database(), dbTester.myBatis()), esTester.client());
     indexer.setEnabled(true);
@@ -29,6 +29,7 @@ import org.junit.experimental.categories.Category;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.test.DbTests;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -47,7 +48,7 @@ public class IssueResultSetIteratorTest {
   @Test
   public void iterator_over_one_issue() {
     dbTester.prepareDbUnit(getClass(), "one_issue.xml");
-    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L);
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
     Map<String, IssueDoc> issuesByKey = issuesByKey(it);
     it.close();
 
@@ -81,7 +82,7 @@ public class IssueResultSetIteratorTest {
   @Test
   public void iterator_over_issues() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
-    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L);
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
     Map<String, IssueDoc> issuesByKey = issuesByKey(it);
     it.close();
 
@@ -139,7 +140,7 @@ public class IssueResultSetIteratorTest {
   @Test
   public void extract_directory_path() {
     dbTester.prepareDbUnit(getClass(), "extract_directory_path.xml");
-    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L);
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
     Map<String, IssueDoc> issuesByKey = issuesByKey(it);
     it.close();
 
@@ -161,7 +162,7 @@ public class IssueResultSetIteratorTest {
   @Test
   public void extract_file_path() {
     dbTester.prepareDbUnit(getClass(), "extract_file_path.xml");
-    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L);
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
     Map<String, IssueDoc> issuesByKey = issuesByKey(it);
     it.close();
 
@@ -183,7 +184,7 @@ public class IssueResultSetIteratorTest {
   @Test
   public void select_after_date() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
-    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 1_420_000_000_000L);
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 1_420_000_000_000L, ProjectUuidRange.ALL);
 
     assertThat(it.hasNext()).isTrue();
     IssueDoc issue = it.next();
@@ -193,6 +194,23 @@ public class IssueResultSetIteratorTest {
     it.close();
   }
 
+  @Test
+  public void select_by_range_of_projects() {
+    dbTester.prepareDbUnit(getClass(), "shared.xml");
+
+    IssueResultSetIterator it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, new ProjectUuidRange("PROJECT1", "PROJECT2"));
+    assertThat(issuesByKey(it)).hasSize(4);
+    it.close();
+
+    it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, new ProjectUuidRange("PROJECT2", null));
+    assertThat(it.hasNext()).isFalse();
+    it.close();
+
+    it = IssueResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 1_420_000_000_000L, new ProjectUuidRange(null, "PROJECT2"));
+    assertThat(issuesByKey(it).keySet()).containsOnly("DEF");
+    it.close();
+  }
+
   private static Map<String, IssueDoc> issuesByKey(IssueResultSetIterator it) {
     return Maps.uniqueIndex(it, new Function<IssueDoc, String>() {
       @Override
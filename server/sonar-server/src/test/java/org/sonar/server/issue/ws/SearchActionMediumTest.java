@@ -21,6 +21,10 @@
 package org.sonar.server.issue.ws;
 
 import com.google.common.collect.ImmutableMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import org.apache.commons.lang.StringUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.ClassRule;
@@ -99,7 +103,7 @@ public class SearchActionMediumTest {
     assertThat(show.isPost()).isFalse();
     assertThat(show.isInternal()).isFalse();
     assertThat(show.responseExampleAsString()).isNotEmpty();
-    assertThat(show.params()).hasSize(37);
+    assertThat(show.params()).hasSize(38);
   }
 
   @Test
@@ -600,6 +604,48 @@ public class SearchActionMediumTest {
     result.assertJson(this.getClass(), "paging.json");
   }
 
+  @Test
+  public void paging_with_cursor() throws Exception {
+    RuleDto rule = newRule();
+    ComponentDto project = insertComponent(ComponentTesting.newProjectDto("PROJECT_ID").setKey("PROJECT_KEY"));
+    setDefaultProjectPermission(project);
+    ComponentDto file = insertComponent(ComponentTesting.newFileDto(project, "FILE_ID").setKey("FILE_KEY"));
+    for (int i = 0; i < 12; i++) {
+      IssueDto issue = IssueTesting.newDto(rule, file, project);
+      tester.get(IssueDao.class).insert(session, issue);
+    }
+    session.commit();
+    tester.get(IssueIndexer.class).indexAll();
+
+    String firstPage = wsTester.newGetRequest(IssuesWs.API_ENDPOINT, SearchAction.SEARCH_ACTION)
+      .setParam(SearchAction.PARAM_CURSOR, SearchAction.CURSOR_START)
+      .setParam(WebService.Param.PAGE_SIZE, "10")
+      .setParam(WebService.Param.FACETS, "severities")
+      .execute().outputAsString();
+    assertThat(countIssues(firstPage)).isEqualTo(10);
+    assertThat(firstPage).contains("\"facets\"");
+    String cursor = nextCursor(firstPage);
+    assertThat(cursor).isNotNull();
+
+    // facets and page size of the first page are kept, other parameters are ignored
+    String secondPage = wsTester.newGetRequest(IssuesWs.API_ENDPOINT, SearchAction.SEARCH_ACTION)
+      .setParam(SearchAction.PARAM_CURSOR, cursor)
+      .setParam(WebService.Param.FACETS, "severities")
+      .execute().outputAsString();
+    assertThat(countIssues(secondPage)).isEqualTo(2);
+    assertThat(secondPage).doesNotContain("\"facets\"");
+    assertThat(secondPage).contains("\"pageIndex\":2", "\"pageSize\":10");
+    assertThat(nextCursor(secondPage)).isNull();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fail_when_cursor_and_page_are_set() throws Exception {
+    wsTester.newGetRequest(IssuesWs.API_ENDPOINT, SearchAction.SEARCH_ACTION)
+      .setParam(SearchAction.PARAM_CURSOR, SearchAction.CURSOR_START)
+      .setParam(WebService.Param.PAGE, "2")
+      .execute();
+  }
+
   @Test
   public void paging_with_page_size_to_minus_one() throws Exception {
     RuleDto rule = newRule();
@@ -650,6 +696,16 @@ public class SearchActionMediumTest {
     result.assertJson(this.getClass(), "default_page_size_is_100.json");
   }
 
+  private static int countIssues(String json) {
+    return StringUtils.countMatches(json, "\"rule\":");
+  }
+
+  @CheckForNull
+  private static String nextCursor(String json) {
+    Matcher matcher = Pattern.compile("\"nextCursor\":\"([^\"]+)\"").matcher(json);
+    return matcher.find() ? matcher.group(1) : null;
+  }
+
   private RuleDto newRule() {
     RuleDto rule = RuleTesting.newXooX1()
       .setName("Rule name")
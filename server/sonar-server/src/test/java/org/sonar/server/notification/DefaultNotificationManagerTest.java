@@ -24,6 +24,7 @@ import com.google.common.collect.Multimap;
 import java.io.InvalidClassException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Before;
@@ -121,6 +122,22 @@ public class DefaultNotificationManagerTest {
     verify(manager, times(1)).logDeserializationIssue();
   }
 
+  @Test
+  public void shouldGetBatchFromQueueAndSkipUnreadableNotifications() throws Exception {
+    Notification notification1 = new Notification("test1");
+    Notification notification2 = new Notification("test2");
+    NotificationQueueDto unreadable = mock(NotificationQueueDto.class);
+    when(unreadable.toNotification()).thenThrow(new InvalidClassException("Pouet"));
+    List<NotificationQueueDto> dtos = Arrays.asList(NotificationQueueDto.toNotificationQueueDto(notification1), unreadable,
+      NotificationQueueDto.toNotificationQueueDto(notification2));
+    when(notificationQueueDao.selectOldest(10)).thenReturn(dtos).thenReturn(Collections.<NotificationQueueDto>emptyList());
+
+    assertThat(manager.getFromQueue(10)).containsExactly(notification1, notification2);
+    assertThat(manager.getFromQueue(10)).isEmpty();
+
+    verify(notificationQueueDao).delete(dtos);
+  }
+
   @Test
   public void shouldFindNoRecipient() {
     assertThat(manager.findSubscribedRecipientsForDispatcher(dispatcher, "uuid_45").asMap().entrySet()).hasSize(0);
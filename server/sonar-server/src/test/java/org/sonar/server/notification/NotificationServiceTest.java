@@ -21,6 +21,10 @@ package org.sonar.server.notification;
 
 import com.google.common.collect.Sets;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -32,13 +36,16 @@ import org.sonar.db.property.PropertiesDao;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.same;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -46,6 +53,7 @@ public class NotificationServiceTest {
   private static String CREATOR_SIMON = "simon";
   private static String CREATOR_EVGENY = "evgeny";
   private static String ASSIGNEE_SIMON = "simon";
+  private static List<Notification> NO_NOTIFICATION = Collections.emptyList();
 
   DefaultNotificationManager manager = mock(DefaultNotificationManager.class);
   Notification notification = mock(Notification.class);
@@ -67,7 +75,7 @@ public class NotificationServiceTest {
     when(commentOnIssueCreatedByMe.getType()).thenReturn("issue-changes");
     when(qualityGateChange.getKey()).thenReturn("QGateChange");
     when(qualityGateChange.getType()).thenReturn("qgate-changes");
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(Collections.singletonList(notification)).thenReturn(NO_NOTIFICATION);
 
     Settings settings = new Settings().setProperty("sonar.notifications.delay", 1L);
 
@@ -175,7 +183,7 @@ public class NotificationServiceTest {
   @Test
   public void shouldNotStopWhenException() {
     setUpMocks();
-    when(manager.getFromQueue()).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenThrow(new RuntimeException("Unexpected exception")).thenReturn(Collections.singletonList(notification)).thenReturn(NO_NOTIFICATION);
     doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
     doAnswer(addUser(CREATOR_SIMON, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
 
@@ -217,7 +225,7 @@ public class NotificationServiceTest {
   public void shouldLogEvery10Minutes() {
     setUpMocks();
     // Emulate 2 notifications in DB
-    when(manager.getFromQueue()).thenReturn(notification).thenReturn(notification).thenReturn(null);
+    when(manager.getFromQueue(anyInt())).thenReturn(Collections.singletonList(notification)).thenReturn(Collections.singletonList(notification)).thenReturn(NO_NOTIFICATION);
     when(manager.count()).thenReturn(1L).thenReturn(0L);
     service = spy(service);
     // Emulate processing of each notification take 10 min to have a log each time
@@ -228,6 +236,79 @@ public class NotificationServiceTest {
     service.stop();
   }
 
+  @Test
+  public void deliver_batch_of_notifications() {
+    setUpMocks();
+    Notification other = mock(Notification.class);
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(any(Notification.class), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, gtalkChannel)).when(commentOnIssueCreatedByMe).dispatch(same(other), any(NotificationDispatcher.Context.class));
+
+    service.deliver(Arrays.asList(notification, other));
+
+    verify(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel).deliver(other, ASSIGNEE_SIMON);
+    verify(gtalkChannel).deliver(other, CREATOR_EVGENY);
+    assertThat(service.getProcessedNotificationCount()).isEqualTo(2);
+    assertThat(service.getDeliveryCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void deliver_same_notification_only_once_per_recipient_and_channel() {
+    setUpMocks();
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+
+    service.deliver(Arrays.asList(notification, notification));
+
+    verify(emailChannel, times(1)).deliver(notification, ASSIGNEE_SIMON);
+    assertThat(service.getDeliveryCount()).isEqualTo(1);
+    assertThat(service.getCoalescedDeliveryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void count_failed_deliveries() {
+    setUpMocks();
+    doAnswer(addUser(ASSIGNEE_SIMON, new NotificationChannel[] {emailChannel, gtalkChannel}))
+      .when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    doThrow(new IllegalStateException("Unavailable")).when(emailChannel).deliver(notification, ASSIGNEE_SIMON);
+
+    service.deliver(notification);
+
+    verify(gtalkChannel).deliver(notification, ASSIGNEE_SIMON);
+    assertThat(service.getDeliveryCount()).isEqualTo(1);
+    assertThat(service.getFailedDeliveryCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void deliver_to_recipients_in_parallel() throws Exception {
+    setUpMocks();
+    Settings settings = new Settings()
+      .setProperty("sonar.notifications.delay", 1L)
+      .setProperty(NotificationService.PROPERTY_DELIVERY_THREADS, 2);
+    service = new NotificationService(settings, manager, dbClient, new NotificationDispatcher[] {commentOnIssueAssignedToMe, commentOnIssueCreatedByMe});
+    doAnswer(addUser(ASSIGNEE_SIMON, emailChannel)).when(commentOnIssueAssignedToMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    doAnswer(addUser(CREATOR_EVGENY, emailChannel)).when(commentOnIssueCreatedByMe).dispatch(same(notification), any(NotificationDispatcher.Context.class));
+    // each delivery waits for the other one, so that they can only succeed if they run concurrently
+    final CountDownLatch bothStarted = new CountDownLatch(2);
+    doAnswer(new Answer<Object>() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        bothStarted.countDown();
+        if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("Deliveries are not concurrent");
+        }
+        return null;
+      }
+    }).when(emailChannel).deliver(same(notification), anyString());
+
+    service.start();
+    verify(emailChannel, timeout(2000)).deliver(notification, ASSIGNEE_SIMON);
+    verify(emailChannel, timeout(2000)).deliver(notification, CREATOR_EVGENY);
+    service.stop();
+
+    assertThat(service.getDeliveryCount()).isEqualTo(2);
+    assertThat(service.getFailedDeliveryCount()).isZero();
+  }
+
   @Test
   public void hasProjectSubscribersForType() {
     setUpMocks();
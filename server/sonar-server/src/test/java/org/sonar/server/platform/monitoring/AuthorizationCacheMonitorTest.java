@@ -0,0 +1,66 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.db.component.ResourceDao;
+import org.sonar.db.user.AuthorizationDao;
+import org.sonar.server.user.AuthorizationCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AuthorizationCacheMonitorTest {
+
+  AuthorizationDao authorizationDao = mock(AuthorizationDao.class);
+  AuthorizationCache authorizationCache = new AuthorizationCache(authorizationDao, mock(ResourceDao.class));
+  AuthorizationCacheMonitor underTest = new AuthorizationCacheMonitor(authorizationCache);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("AuthorizationCache");
+  }
+
+  @Test
+  public void statistics() {
+    when(authorizationDao.selectGlobalPermissions("marius")).thenReturn(Arrays.asList(GlobalPermissions.SYSTEM_ADMIN));
+    authorizationCache.globalPermissions("marius");
+    authorizationCache.globalPermissions("marius");
+    authorizationCache.globalPermissions("marius");
+    authorizationCache.globalPermissions("other");
+
+    assertThat(underTest.getHitCount()).isEqualTo(2);
+    assertThat(underTest.getMissCount()).isEqualTo(2);
+    assertThat(underTest.getHitRate()).isEqualTo(0.5);
+    assertThat(underTest.getSize()).isEqualTo(2);
+
+    underTest.invalidate();
+
+    assertThat(underTest.getSize()).isEqualTo(0);
+    assertThat(underTest.getInvalidationCount()).isEqualTo(1);
+    LinkedHashMap<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsKeys("Hits", "Misses", "Hit Rate", "Evictions", "Size", "Invalidations");
+    assertThat(attributes.get("Invalidations")).isEqualTo(1L);
+  }
+}
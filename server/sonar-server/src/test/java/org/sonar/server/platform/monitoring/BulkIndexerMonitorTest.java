@@ -0,0 +1,64 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.elasticsearch.action.index.IndexRequest;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.server.es.BulkIndexer;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.FakeIndexDefinition;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkIndexerMonitorTest {
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new FakeIndexDefinition());
+
+  @Test
+  public void name() {
+    BulkIndexerMonitor underTest = new BulkIndexerMonitor(esTester.client());
+    assertThat(underTest.name()).isEqualTo("BulkIndexer");
+  }
+
+  @Test
+  public void aggregate_statistics_of_bulk_indexers() {
+    BulkIndexerMonitor underTest = new BulkIndexerMonitor(esTester.client());
+    long documentsBefore = underTest.getDocuments();
+    long requestsBefore = underTest.getBulkRequests();
+
+    for (int i = 0; i < 2; i++) {
+      BulkIndexer bulk = new BulkIndexer(esTester.client(), FakeIndexDefinition.INDEX);
+      bulk.start();
+      bulk.add(new IndexRequest(FakeIndexDefinition.INDEX, FakeIndexDefinition.TYPE).source(FakeIndexDefinition.newDoc(i)));
+      bulk.stop();
+    }
+
+    assertThat(underTest.getDocuments() - documentsBefore).isEqualTo(2);
+    assertThat(underTest.getBulkRequests() - requestsBefore).isEqualTo(2);
+    assertThat(underTest.getBytes()).isGreaterThan(0L);
+    assertThat(underTest.getRejections()).isEqualTo(0L);
+    assertThat(underTest.getFailures()).isEqualTo(0L);
+    LinkedHashMap<String, Object> attributes = underTest.attributes();
+    assertThat(attributes).containsKeys("Bulk Requests", "Documents", "Bytes", "Rejections", "Failures", "Documents per Second");
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.LinkedHashMap;
+import org.junit.Test;
+import org.sonar.server.notification.NotificationService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NotificationMonitorTest {
+
+  NotificationService notificationService = mock(NotificationService.class);
+  NotificationMonitor underTest = new NotificationMonitor(notificationService);
+
+  @Test
+  public void name() {
+    assertThat(underTest.name()).isEqualTo("Notifications");
+  }
+
+  @Test
+  public void attributes() {
+    when(notificationService.getQueueSize()).thenReturn(42L);
+    when(notificationService.getProcessedNotificationCount()).thenReturn(10L);
+    when(notificationService.getDeliveryCount()).thenReturn(8L);
+    when(notificationService.getFailedDeliveryCount()).thenReturn(1L);
+    when(notificationService.getCoalescedDeliveryCount()).thenReturn(3L);
+    when(notificationService.getLastDeliveryRate()).thenReturn(2.5);
+
+    LinkedHashMap<String, Object> attributes = underTest.attributes();
+
+    assertThat(underTest.getQueueSize()).isEqualTo(42L);
+    assertThat(attributes).containsEntry("Queue Size", 42L)
+      .containsEntry("Processed Notifications", 10L)
+      .containsEntry("Deliveries", 8L)
+      .containsEntry("Failed Deliveries", 1L)
+      .containsEntry("Coalesced Deliveries", 3L)
+      .containsEntry("Last Delivery Rate (per sec.)", 2.5)
+      .containsKeys("Batch Size", "Delivery Threads");
+  }
+}
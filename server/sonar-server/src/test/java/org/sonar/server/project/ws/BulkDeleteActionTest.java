@@ -116,8 +116,8 @@ public class BulkDeleteActionTest {
         new ComponentCleanerService(dbClient,
           new IssueAuthorizationIndexer(dbClient, es.client()),
           new IssueIndexer(dbClient, es.client()),
-          new SourceLineIndexer(dbClient, es.client()),
-          new TestIndexer(dbClient, es.client()), mockResourceTypes, new ComponentFinder(dbClient)
+          new SourceLineIndexer(dbClient, es.client(), new Settings()),
+          new TestIndexer(dbClient, es.client()), mockResourceTypes, new ComponentFinder(dbClient), new Settings()
         ),
         dbClient,
         userSessionRule
@@ -120,10 +120,11 @@ public class DeleteActionTest {
           dbClient,
           new IssueAuthorizationIndexer(dbClient, es.client()),
           new IssueIndexer(dbClient, es.client()),
-          new SourceLineIndexer(dbClient, es.client()),
+          new SourceLineIndexer(dbClient, es.client(), new Settings()),
           new TestIndexer(dbClient, es.client()),
           mockResourceTypes,
-          new ComponentFinder(dbClient)),
+          new ComponentFinder(dbClient),
+          new Settings()),
         new ComponentFinder(dbClient),
         dbClient,
         userSessionRule)));
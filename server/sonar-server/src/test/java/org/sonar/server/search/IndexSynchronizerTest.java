@@ -0,0 +1,141 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.search;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.sonar.api.config.Settings;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDao;
+import org.sonar.process.ProcessProperties;
+import org.sonar.server.activity.index.ActivityIndexer;
+import org.sonar.server.db.DbClient;
+import org.sonar.server.es.BaseIndexer;
+import org.sonar.server.es.ProjectUuidRange;
+import org.sonar.server.issue.index.IssueAuthorizationIndexer;
+import org.sonar.server.issue.index.IssueIndexer;
+import org.sonar.server.source.index.SourceLineIndexer;
+import org.sonar.server.test.index.TestIndexer;
+import org.sonar.server.user.index.UserIndexer;
+import org.sonar.server.view.index.ViewIndexer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class IndexSynchronizerTest {
+
+  DbClient dbClient = mock(DbClient.class);
+  ComponentDao componentDao = mock(ComponentDao.class);
+  SourceLineIndexer sourceLineIndexer = mockIndexer(SourceLineIndexer.class);
+  TestIndexer testIndexer = mockIndexer(TestIndexer.class);
+  IssueAuthorizationIndexer issueAuthorizationIndexer = mockIndexer(IssueAuthorizationIndexer.class);
+  IssueIndexer issueIndexer = mockIndexer(IssueIndexer.class);
+  UserIndexer userIndexer = mockIndexer(UserIndexer.class);
+  ViewIndexer viewIndexer = mockIndexer(ViewIndexer.class);
+  ActivityIndexer activityIndexer = mockIndexer(ActivityIndexer.class);
+  Settings settings = new Settings();
+
+  IndexSynchronizer underTest = new IndexSynchronizer(dbClient, mock(IndexClient.class), sourceLineIndexer, testIndexer, issueAuthorizationIndexer, issueIndexer,
+    userIndexer, viewIndexer, activityIndexer, settings);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(anyBoolean())).thenReturn(mock(DbSession.class));
+    when(dbClient.componentDao()).thenReturn(componentDao);
+  }
+
+  @Test
+  public void index_sequentially_by_default() {
+    underTest.execute();
+
+    InOrder inOrder = inOrder(activityIndexer, issueAuthorizationIndexer, issueIndexer, sourceLineIndexer, testIndexer, userIndexer, viewIndexer);
+    inOrder.verify(activityIndexer).index();
+    inOrder.verify(issueAuthorizationIndexer).index();
+    inOrder.verify(issueIndexer).index();
+    inOrder.verify(sourceLineIndexer).index();
+    inOrder.verify(testIndexer).index();
+    inOrder.verify(userIndexer).index();
+    inOrder.verify(viewIndexer).index();
+    verify(issueIndexer, never()).index(anyListOf(ProjectUuidRange.class));
+    verifyZeroInteractions(componentDao);
+  }
+
+  @Test
+  public void index_concurrently_by_ranges_of_projects() {
+    settings.setProperty(IndexSynchronizer.PROPERTY_THREADS, 2);
+    when(componentDao.selectProjectUuids(any(DbSession.class))).thenReturn(Arrays.asList("A", "B", "C", "D"));
+
+    underTest.execute();
+
+    verify(activityIndexer).index();
+    verify(userIndexer).index();
+    verify(viewIndexer).index();
+    InOrder inOrder = inOrder(issueAuthorizationIndexer, issueIndexer);
+    inOrder.verify(issueAuthorizationIndexer).index();
+    inOrder.verify(issueIndexer).index(anyListOf(ProjectUuidRange.class));
+    verify(testIndexer).index(anyListOf(ProjectUuidRange.class));
+
+    ArgumentCaptor<List> ranges = ArgumentCaptor.forClass(List.class);
+    verify(sourceLineIndexer).index(ranges.capture());
+    assertThat(ranges.getValue()).hasSize(2);
+    verify(sourceLineIndexer, never()).index();
+  }
+
+  @Test
+  public void limit_number_of_ranges_to_available_db_connections() {
+    settings.setProperty(IndexSynchronizer.PROPERTY_THREADS, 4);
+    settings.setProperty(ProcessProperties.JDBC_MAX_ACTIVE, 10);
+    when(componentDao.selectProjectUuids(any(DbSession.class))).thenReturn(Arrays.asList("A", "B", "C", "D", "E", "F"));
+
+    underTest.execute();
+
+    // 4 workers + 3 indexers * 2 ranges
+    ArgumentCaptor<List> ranges = ArgumentCaptor.forClass(List.class);
+    verify(issueIndexer).index(ranges.capture());
+    assertThat(ranges.getValue()).hasSize(2);
+  }
+
+  @Test
+  public void do_nothing_if_indexes_are_disabled() {
+    settings.setProperty("sonar.internal.es.disableIndexes", true);
+
+    underTest.execute();
+
+    verifyZeroInteractions(activityIndexer, issueIndexer, sourceLineIndexer, testIndexer, userIndexer, viewIndexer);
+  }
+
+  private static <T extends BaseIndexer> T mockIndexer(Class<T> indexerClass) {
+    T indexer = mock(indexerClass);
+    when(indexer.setEnabled(anyBoolean())).thenReturn(indexer);
+    return indexer;
+  }
+}
@@ -24,6 +24,7 @@ import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
+import org.sonar.server.es.request.ProxyClearScrollRequestBuilder;
 import org.sonar.server.tester.ServerTester;
 import org.sonar.server.tester.UserSessionRule;
 
@@ -163,12 +164,7 @@ public class SearchClientMediumTest {
   }
 
   @Test
-  public void prepare_clear_scroll_is_not_yet_implemented() {
-    try {
-      searchClient.prepareClearScroll();
-      fail();
-    } catch (Exception e) {
-      assertThat(e).isInstanceOf(IllegalStateException.class).hasMessage("Not yet implemented");
-    }
+  public void prepare_clear_scroll() {
+    assertThat(searchClient.prepareClearScroll()).isInstanceOf(ProxyClearScrollRequestBuilder.class);
   }
 }
@@ -0,0 +1,149 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.source.index;
+
+import com.google.common.collect.Iterators;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.db.DbClient;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.exceptions.NotFoundException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.mock;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.INDEX;
+import static org.sonar.server.source.index.SourceLineIndexDefinition.TYPE_BLOCK;
+
+public class SourceLineIndexBlockLayoutTest {
+
+  static final Settings SETTINGS = new Settings().setProperty(SourceLineIndexDefinition.PROPERTY_LAYOUT, SourceLineIndexDefinition.LAYOUT_BLOCK);
+
+  @ClassRule
+  public static EsTester es = new EsTester().addDefinitions(new SourceLineIndexDefinition(SETTINGS));
+
+  SourceLineIndexer indexer;
+  SourceLineIndex index;
+
+  @Before
+  public void setUp() {
+    es.truncateIndices();
+    indexer = new SourceLineIndexer(mock(DbClient.class), es.client(), SETTINGS);
+    index = new SourceLineIndex(es.client(), SETTINGS);
+  }
+
+  @Test
+  public void index_one_document_per_block_of_lines() {
+    indexFile("P1", "F1", 250);
+    indexFile("P1", "F2", 100);
+
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(4);
+  }
+
+  @Test
+  public void slice_lines_out_of_blocks() {
+    indexFile("P1", "F1", 250);
+    indexFile("P1", "F2", 10);
+
+    List<SourceLineDoc> lines = index.getLines("F1", 95, 205);
+    assertThat(lines).hasSize(111);
+    assertThat(lines.get(0).line()).isEqualTo(95);
+    assertThat(lines.get(110).line()).isEqualTo(205);
+    assertThat(lines.get(0).fileUuid()).isEqualTo("F1");
+    assertThat(lines.get(0).source()).isEqualTo("line 95");
+
+    assertThat(index.getLines("F1", 1, Integer.MAX_VALUE)).hasSize(250);
+    assertThat(index.getLines("F1", 249, 300)).hasSize(2);
+    assertThat(index.getLines("F1")).hasSize(250);
+    assertThat(index.getLines("F2")).hasSize(10);
+    assertThat(index.getLines("UNKNOWN")).isEmpty();
+  }
+
+  @Test
+  public void get_line() {
+    indexFile("P1", "F1", 250);
+
+    SourceLineDoc line = index.getLine("F1", 101);
+    assertThat(line.line()).isEqualTo(101);
+    assertThat(line.source()).isEqualTo("line 101");
+
+    try {
+      index.getLine("F1", 251);
+      failBecauseExceptionWasNotThrown(NotFoundException.class);
+    } catch (NotFoundException e) {
+      assertThat(e).hasMessage("No source found on line 251 for file 'F1'");
+    }
+  }
+
+  @Test
+  public void remove_blocks_of_removed_lines() {
+    indexFile("P1", "F1", 250);
+
+    indexFile("P1", "F1", 120);
+
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(2);
+    assertThat(index.getLines("F1")).hasSize(120);
+  }
+
+  @Test
+  public void last_commit_date_on_project() {
+    indexFile("P1", "F1", 10, DateUtils.parseDateTime("2015-06-01T10:00:00+0000"));
+    indexFile("P1", "F2", 10, DateUtils.parseDateTime("2015-07-01T10:00:00+0000"));
+    indexFile("P2", "F3", 10, DateUtils.parseDateTime("2015-08-01T10:00:00+0000"));
+
+    assertThat(index.lastCommitDateOnProject("P1")).isEqualTo(DateUtils.parseDateTime("2015-07-01T10:00:00+0000"));
+    assertThat(index.lastCommitDateOnProject("UNKNOWN")).isNull();
+  }
+
+  @Test
+  public void delete_by_file_and_by_project() {
+    indexFile("P1", "F1", 250);
+    indexFile("P1", "F2", 10);
+    indexFile("P2", "F3", 10);
+
+    indexer.deleteByFile("F1");
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(2);
+
+    indexer.deleteByProject("P1");
+    assertThat(es.countDocuments(INDEX, TYPE_BLOCK)).isEqualTo(1);
+    assertThat(index.getLines("F3")).hasSize(10);
+  }
+
+  private void indexFile(String projectUuid, String fileUuid, int lines) {
+    indexFile(projectUuid, fileUuid, lines, new Date());
+  }
+
+  private void indexFile(String projectUuid, String fileUuid, int lines, Date scmDate) {
+    DbFileSources.Data.Builder data = DbFileSources.Data.newBuilder();
+    for (int line = 1; line <= lines; line++) {
+      data.addLinesBuilder()
+        .setLine(line)
+        .setScmDate(scmDate.getTime())
+        .setSource("line " + line);
+    }
+    indexer.index(Iterators.singletonIterator(SourceLineResultSetIterator.toRow(projectUuid, fileUuid, new Date(), data.build())));
+  }
+}
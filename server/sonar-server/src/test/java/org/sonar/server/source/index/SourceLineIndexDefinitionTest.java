@@ -19,6 +19,7 @@
  */
 package org.sonar.server.source.index;
 
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
 import org.sonar.api.config.Settings;
 import org.sonar.process.ProcessProperties;
@@ -46,6 +47,18 @@ public class SourceLineIndexDefinitionTest {
     assertThat(index.getSettings().get("index.number_of_replicas")).isEqualTo("0");
   }
 
+  @Test
+  public void define_block_layout() {
+    Settings settings = new Settings();
+    settings.setProperty(SourceLineIndexDefinition.PROPERTY_LAYOUT, SourceLineIndexDefinition.LAYOUT_BLOCK);
+    IndexDefinition def = new SourceLineIndexDefinition(settings);
+    def.define(context);
+
+    NewIndex index = context.getIndices().get("sourcelines");
+    assertThat(index.getTypes().keySet()).containsOnly("sourceblock");
+    assertThat(index.getTypes().get("sourceblock").getProperty("lines")).isEqualTo(ImmutableMap.of("type", "object", "enabled", false));
+  }
+
   @Test
   public void enable_cluster() {
     Settings settings = new Settings();
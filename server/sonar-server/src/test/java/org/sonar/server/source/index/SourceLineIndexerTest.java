@@ -43,6 +43,7 @@ import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.es.EsTester;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.test.DbTests;
 import org.sonar.test.TestUtils;
 
@@ -81,7 +82,7 @@ public class SourceLineIndexerTest {
   @Before
   public void setUp() {
     es.truncateIndices();
-    indexer = new SourceLineIndexer(new DbClient(db.database(), db.myBatis()), es.client());
+    indexer = new SourceLineIndexer(new DbClient(db.database(), db.myBatis()), es.client(), new Settings());
     indexer.setEnabled(true);
   }
 
@@ -109,6 +110,18 @@ public class SourceLineIndexerTest {
     assertThat(countDocuments()).isEqualTo(3);
   }
 
+  @Test
+  public void index_source_lines_by_ranges_of_projects() throws Exception {
+    db.prepareDbUnit(getClass(), "db.xml");
+
+    try (Connection connection = db.openConnection()) {
+      FileSourceTesting.updateDataColumn(connection, "FILE_UUID", FileSourceTesting.newRandomData(3).build());
+    }
+
+    indexer.index(ImmutableList.of(new ProjectUuidRange(null, "M"), new ProjectUuidRange("M", null)));
+    assertThat(countDocuments()).isEqualTo(3);
+  }
+
   @Test
   public void index_nothing_from_unknown_project() throws Exception {
     db.prepareDbUnit(getClass(), "db.xml");
@@ -29,6 +29,7 @@ import org.junit.experimental.categories.Category;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.test.DbTests;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -55,7 +56,7 @@ public class SourceLineResultSetIteratorTest {
       FileSourceTesting.updateDataColumn(connection, "F1", FileSourceTesting.newFakeData(3).build());
     }
 
-    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, null);
+    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, ProjectUuidRange.ALL);
     assertThat(iterator.hasNext()).isTrue();
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
@@ -96,7 +97,7 @@ public class SourceLineResultSetIteratorTest {
       FileSourceTesting.updateDataColumn(connection, "F1", dataBuilder.build());
     }
 
-    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, null);
+    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, ProjectUuidRange.ALL);
     FileSourcesUpdaterHelper.Row row = iterator.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
     assertThat(row.getFileUuid()).isEqualTo("F1");
@@ -129,7 +130,7 @@ public class SourceLineResultSetIteratorTest {
   public void filter_by_date() {
     db.prepareDbUnit(getClass(), "shared.xml");
 
-    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 2000000000000L, null);
+    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 2000000000000L, ProjectUuidRange.ALL);
     assertThat(iterator.hasNext()).isFalse();
   }
 
@@ -179,7 +180,7 @@ public class SourceLineResultSetIteratorTest {
       FileSourceTesting.updateDataColumn(connection, "F1", "THIS_IS_NOT_PROTOBUF".getBytes());
     }
 
-    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, null);
+    iterator = SourceLineResultSetIterator.create(db.getDbClient(), db.getSession(), 0L, ProjectUuidRange.ALL);
     try {
       assertThat(iterator.hasNext()).isTrue();
       iterator.next();
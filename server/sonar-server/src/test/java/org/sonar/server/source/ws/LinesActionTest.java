@@ -80,7 +80,7 @@ public class LinesActionTest {
     esTester.truncateIndices();
 
     htmlSourceDecorator = new HtmlSourceDecorator();
-    sourceLineIndex = new SourceLineIndex(esTester.client());
+    sourceLineIndex = new SourceLineIndex(esTester.client(), new Settings());
     componentDao = new ComponentDao();
     DbClient dbClient = dbTester.getDbClient();
     wsTester = new WsTester(new SourcesWs(new LinesAction(dbClient, sourceLineIndex, htmlSourceDecorator, userSessionRule)));
@@ -65,7 +65,7 @@ public class ScmActionTest {
   public void setUp() {
     dbTester.truncateTables();
     esTester.truncateIndices();
-    tester = new WsTester(new SourcesWs(new ScmAction(dbClient, new SourceLineIndex(esTester.client()), userSessionRule, new ComponentFinder(dbClient))));
+    tester = new WsTester(new SourcesWs(new ScmAction(dbClient, new SourceLineIndex(esTester.client(), new Settings()), userSessionRule, new ComponentFinder(dbClient))));
   }
 
   @Test
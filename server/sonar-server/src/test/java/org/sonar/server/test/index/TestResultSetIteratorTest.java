@@ -33,6 +33,7 @@ import org.junit.experimental.categories.Category;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.server.es.ProjectUuidRange;
 import org.sonar.server.source.index.FileSourcesUpdaterHelper;
 import org.sonar.server.test.db.TestTesting;
 import org.sonar.test.DbTests;
@@ -59,7 +60,7 @@ public class TestResultSetIteratorTest {
   public void traverse_db() throws Exception {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
     TestTesting.updateDataColumn(dbTester.getSession(), "F1", newFakeTests(3));
-    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, null);
+    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
 
     FileSourcesUpdaterHelper.Row row = underTest.next();
     assertThat(row.getProjectUuid()).isEqualTo("P1");
@@ -92,7 +93,7 @@ public class TestResultSetIteratorTest {
         .setName("N1")
         .build());
     TestTesting.updateDataColumn(dbTester.getSession(), "F1", tests);
-    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, null);
+    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
 
     FileSourcesUpdaterHelper.Row row = underTest.next();
 
@@ -119,7 +120,7 @@ public class TestResultSetIteratorTest {
   @Test
   public void filter_by_date() {
     dbTester.prepareDbUnit(getClass(), "shared.xml");
-    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 2000000000000L, null);
+    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 2000000000000L, ProjectUuidRange.ALL);
 
     assertThat(underTest.hasNext()).isFalse();
   }
@@ -160,7 +161,7 @@ public class TestResultSetIteratorTest {
 
     TestTesting.updateDataColumn(dbTester.getSession(), "F1", "THIS_IS_NOT_PROTOBUF".getBytes());
 
-    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, null);
+    underTest = TestResultSetIterator.create(dbTester.getDbClient(), dbTester.getSession(), 0L, ProjectUuidRange.ALL);
     try {
       assertThat(underTest.hasNext()).isTrue();
       underTest.next();
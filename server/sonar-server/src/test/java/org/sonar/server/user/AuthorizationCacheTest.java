@@ -0,0 +1,141 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.user;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.sonar.api.web.UserRole;
+import org.sonar.core.permission.GlobalPermissions;
+import org.sonar.db.component.ResourceDao;
+import org.sonar.db.component.ResourceDto;
+import org.sonar.db.user.AuthorizationDao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AuthorizationCacheTest {
+
+  AuthorizationDao authorizationDao = mock(AuthorizationDao.class);
+  ResourceDao resourceDao = mock(ResourceDao.class);
+  AuthorizationCache underTest = new AuthorizationCache(authorizationDao, resourceDao);
+
+  @Test
+  public void global_permissions_are_loaded_once_per_user() {
+    when(authorizationDao.selectGlobalPermissions("marius")).thenReturn(Arrays.asList(GlobalPermissions.SYSTEM_ADMIN));
+
+    assertThat(underTest.globalPermissions("marius")).containsOnly(GlobalPermissions.SYSTEM_ADMIN);
+    assertThat(underTest.globalPermissions("marius")).containsOnly(GlobalPermissions.SYSTEM_ADMIN);
+    assertThat(underTest.globalPermissions(null)).isEmpty();
+
+    verify(authorizationDao).selectGlobalPermissions("marius");
+    verify(authorizationDao).selectGlobalPermissions(null);
+    assertThat(underTest.stats().hitCount()).isEqualTo(1);
+    assertThat(underTest.stats().missCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void project_permissions_are_cached_by_user_and_permission() {
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(1, UserRole.USER)).thenReturn(Arrays.asList("KEY1"));
+    when(authorizationDao.selectAuthorizedRootProjectsKeys(1, UserRole.ADMIN)).thenReturn(Arrays.asList("KEY2"));
+    when(authorizationDao.selectAuthorizedRootProjectsUuids(1, UserRole.USER)).thenReturn(Arrays.asList("UUID1"));
+
+    assertThat(underTest.authorizedRootProjectsKeys(1, UserRole.USER)).containsOnly("KEY1");
+    assertThat(underTest.authorizedRootProjectsKeys(1, UserRole.ADMIN)).containsOnly("KEY2");
+    assertThat(underTest.authorizedRootProjectsKeys(1, UserRole.USER)).containsOnly("KEY1");
+    assertThat(underTest.authorizedRootProjectsKeys(2, UserRole.USER)).isEmpty();
+    assertThat(underTest.authorizedRootProjectsUuids(1, UserRole.USER)).containsOnly("UUID1");
+    assertThat(underTest.authorizedRootProjectsUuids(1, UserRole.USER)).containsOnly("UUID1");
+
+    verify(authorizationDao).selectAuthorizedRootProjectsKeys(1, UserRole.USER);
+    verify(authorizationDao).selectAuthorizedRootProjectsUuids(1, UserRole.USER);
+    assertThat(underTest.size()).isEqualTo(4);
+  }
+
+  @Test
+  public void invalidate_drops_all_entries() {
+    when(authorizationDao.selectGlobalPermissions("marius")).thenReturn(Arrays.asList(GlobalPermissions.SYSTEM_ADMIN));
+    underTest.globalPermissions("marius");
+
+    underTest.invalidate();
+    when(authorizationDao.selectGlobalPermissions("marius")).thenReturn(Arrays.asList(GlobalPermissions.PROVISIONING));
+
+    assertThat(underTest.globalPermissions("marius")).containsOnly(GlobalPermissions.PROVISIONING);
+    assertThat(underTest.invalidationCount()).isEqualTo(1);
+    verify(authorizationDao, times(2)).selectGlobalPermissions("marius");
+  }
+
+  @Test
+  public void entries_expire() {
+    FakeTicker ticker = new FakeTicker();
+    underTest = new AuthorizationCache(authorizationDao, resourceDao, CacheBuilder.newBuilder()
+      .expireAfterWrite(AuthorizationCache.EXPIRE_AFTER_WRITE_SECONDS, TimeUnit.SECONDS)
+      .ticker(ticker));
+
+    underTest.globalPermissions("marius");
+    ticker.nanos += TimeUnit.SECONDS.toNanos(AuthorizationCache.EXPIRE_AFTER_WRITE_SECONDS - 1);
+    underTest.globalPermissions("marius");
+    verify(authorizationDao).selectGlobalPermissions("marius");
+
+    ticker.nanos += TimeUnit.SECONDS.toNanos(1);
+    underTest.globalPermissions("marius");
+    verify(authorizationDao, times(2)).selectGlobalPermissions("marius");
+  }
+
+  @Test
+  public void project_of_component_is_cached() {
+    when(resourceDao.getRootProjectByComponentKey("com.foo:Bar:BarFile.xoo")).thenReturn(new ResourceDto().setKey("com.foo:Bar"));
+    when(resourceDao.selectResource("FILE_UUID")).thenReturn(new ResourceDto().setProjectUuid("PROJECT_UUID"));
+
+    assertThat(underTest.rootProjectKey("com.foo:Bar:BarFile.xoo")).isEqualTo("com.foo:Bar");
+    assertThat(underTest.rootProjectKey("com.foo:Bar:BarFile.xoo")).isEqualTo("com.foo:Bar");
+    assertThat(underTest.projectUuid("FILE_UUID")).isEqualTo("PROJECT_UUID");
+    assertThat(underTest.projectUuid("FILE_UUID")).isEqualTo("PROJECT_UUID");
+
+    verify(resourceDao).getRootProjectByComponentKey("com.foo:Bar:BarFile.xoo");
+    verify(resourceDao).selectResource("FILE_UUID");
+  }
+
+  @Test
+  public void unknown_components_are_not_cached() {
+    assertThat(underTest.rootProjectKey("unknown")).isNull();
+    assertThat(underTest.projectUuid("UNKNOWN")).isNull();
+
+    when(resourceDao.getRootProjectByComponentKey("unknown")).thenReturn(new ResourceDto().setKey("new"));
+    when(resourceDao.selectResource("UNKNOWN")).thenReturn(new ResourceDto().setProjectUuid("NEW"));
+
+    assertThat(underTest.rootProjectKey("unknown")).isEqualTo("new");
+    assertThat(underTest.projectUuid("UNKNOWN")).isEqualTo("NEW");
+  }
+
+  private static class FakeTicker extends Ticker {
+    long nanos = 0L;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
@@ -208,7 +208,7 @@ public class ServerUserSessionTest {
   }
 
   private ServerUserSession newServerUserSession() {
-    return new ServerUserSession(authorizationDao, resourceDao);
+    return new ServerUserSession(new AuthorizationCache(authorizationDao, resourceDao));
   }
 
 }
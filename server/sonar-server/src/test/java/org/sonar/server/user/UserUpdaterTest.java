@@ -58,6 +58,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -76,6 +77,8 @@ public class UserUpdaterTest {
 
   SecurityRealmFactory realmFactory = mock(SecurityRealmFactory.class);
 
+  AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
+
   ArgumentCaptor<NewUserHandler.Context> newUserHandler = ArgumentCaptor.forClass(NewUserHandler.Context.class);
 
   Settings settings;
@@ -103,7 +106,7 @@ public class UserUpdaterTest {
     DbClient dbClient = new DbClient(db.database(), db.myBatis(), userDao, groupDao, userGroupDao);
     userIndexer = (UserIndexer) new UserIndexer(dbClient, es.client()).setEnabled(true);
     userUpdater = new UserUpdater(newUserNotifier, settings, dbClient,
-      userIndexer, system2, realmFactory);
+      userIndexer, system2, realmFactory, authorizationCache);
   }
 
   @After
@@ -479,6 +482,7 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -579,6 +583,7 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -812,6 +817,7 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -839,6 +845,17 @@ public class UserUpdaterTest {
     assertThat(membership.groups()).hasSize(1);
     assertThat(membership.groups().get(0).name()).isEqualTo("sonar-users");
     assertThat(membership.groups().get(0).isMember()).isTrue();
+    verify(authorizationCache, never()).invalidate();
+  }
+
+  @Test
+  public void invalidate_authorizations_when_deactivating_user() {
+    db.prepareDbUnit(getClass(), "associate_default_groups_when_updating_user.xml");
+
+    userUpdater.deactivateUserByLogin("marius");
+
+    assertThat(userDao.selectByLogin(session, "marius").isActive()).isFalse();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -41,11 +41,14 @@ import org.sonar.db.user.UserGroupDto;
 import org.sonar.server.db.DbClient;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.user.AuthorizationCache;
 import org.sonar.db.user.GroupDao;
 import org.sonar.server.ws.WsTester;
 import org.sonar.test.DbTests;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 @Category(DbTests.class)
 public class DeleteActionTest {
@@ -56,6 +59,8 @@ public class DeleteActionTest {
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
+  private AuthorizationCache authorizationCache = mock(AuthorizationCache.class);
+
   private WsTester ws;
 
   private GroupDao groupDao;
@@ -89,7 +94,7 @@ public class DeleteActionTest {
     defaultGroupId = defaultGroup.getId();
     session.commit();
 
-    ws = new WsTester(new UserGroupsWs(new DeleteAction(dbClient, userSession, settings)));
+    ws = new WsTester(new UserGroupsWs(new DeleteAction(dbClient, userSession, settings, authorizationCache)));
   }
 
   @After
@@ -120,6 +125,7 @@ public class DeleteActionTest {
       .execute().assertNoContent();
 
     assertThat(dbTester.select("SELECT group_id FROM groups_users")).isEmpty();
+    verify(authorizationCache).invalidate();
   }
 
   @Test
@@ -0,0 +1,133 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.util.cache;
+
+import com.google.common.base.Function;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import javax.annotation.Nonnull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class IndexedDiskCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Test
+  public void write_and_read() throws Exception {
+    verifyWriteAndRead(false);
+  }
+
+  @Test
+  public void write_and_read_compressed_blocks() throws Exception {
+    verifyWriteAndRead(true);
+  }
+
+  private void verifyWriteAndRead(boolean compressed) throws IOException {
+    IndexedDiskCache<String> cache = newCache(temp.newFile(), compressed);
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    cache.newAppender()
+      .append("A:foo")
+      .append("A:bar")
+      .append("B:baz")
+      .close();
+    cache.newAppender()
+      .append("A:qux")
+      .close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("A:foo", "A:bar", "B:baz", "A:qux");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse("A")) {
+      assertThat(traverse).containsExactly("A:foo", "A:bar", "A:qux");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse("B")) {
+      assertThat(traverse).containsExactly("B:baz");
+    }
+    try (CloseableIterator<String> traverse = cache.traverse("C")) {
+      assertThat(traverse).isEmpty();
+    }
+    assertThat(cache.keys()).containsOnly("A", "B");
+  }
+
+  @Test
+  public void objects_are_written_when_appender_is_closed() throws Exception {
+    IndexedDiskCache<String> cache = newCache(temp.newFile(), true);
+
+    IndexedDiskCache<String>.Appender appender = cache.newAppender().append("A:foo");
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).isEmpty();
+    }
+
+    appender.close();
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("A:foo");
+    }
+  }
+
+  @Test
+  public void fail_if_file_is_not_writable() throws Exception {
+    try {
+      newCache(temp.newFolder(), false);
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessageContaining("Fail to write into file");
+    }
+  }
+
+  private static IndexedDiskCache<String> newCache(File file, boolean compressed) {
+    return new IndexedDiskCache<>(file, System2.INSTANCE, StringCodec.INSTANCE, KeyPrefix.INSTANCE, compressed);
+  }
+
+  private enum StringCodec implements Codec<String> {
+    INSTANCE;
+
+    @Override
+    public void encode(String object, DataOutput output) throws IOException {
+      output.writeUTF(object);
+    }
+
+    @Override
+    public String decode(DataInput input) throws IOException {
+      return input.readUTF();
+    }
+  }
+
+  private enum KeyPrefix implements Function<String, String> {
+    INSTANCE;
+
+    @Override
+    public String apply(@Nonnull String input) {
+      return input.substring(0, input.indexOf(':'));
+    }
+  }
+}
@@ -30,6 +30,7 @@ import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.InOrder;
 import org.sonar.api.config.Settings;
 import org.sonar.api.utils.System2;
 import org.sonar.api.web.UserRole;
@@ -45,6 +46,7 @@ import org.sonar.db.user.GroupRoleDto;
 import org.sonar.db.user.RoleDao;
 import org.sonar.db.component.ComponentTesting;
 import org.sonar.server.db.DbClient;
+import org.sonar.server.es.EsClient;
 import org.sonar.server.es.EsTester;
 import org.sonar.server.es.SearchOptions;
 import org.sonar.server.es.SearchResult;
@@ -61,6 +63,9 @@ import org.sonar.test.DbTests;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
 
 @Category(DbTests.class)
 public class ViewIndexerTest {
@@ -78,6 +83,8 @@ public class ViewIndexerTest {
 
   DbSession dbSession;
 
+  ViewProjectsCache viewProjectsCache;
+
   ViewIndexer indexer;
 
   @Before
@@ -87,7 +94,8 @@ public class ViewIndexerTest {
 
     dbClient = new DbClient(dbTester.database(), dbTester.myBatis(), new RuleDao(System2.INSTANCE), new ComponentDao(), new IssueDao(dbTester.myBatis()), new RoleDao());
     dbSession = dbClient.openSession(false);
-    indexer = (ViewIndexer) new ViewIndexer(dbClient, esTester.client()).setEnabled(true);
+    viewProjectsCache = new ViewProjectsCache(esTester.client());
+    indexer = (ViewIndexer) new ViewIndexer(dbClient, esTester.client(), viewProjectsCache).setEnabled(true);
   }
 
   @After
@@ -171,7 +179,7 @@ public class ViewIndexerTest {
 
   @Test
   public void clear_views_lookup_cache_on_index_view_uuid() {
-    IssueIndex issueIndex = new IssueIndex(esTester.client(), System2.INSTANCE, userSessionRule);
+    IssueIndex issueIndex = new IssueIndex(esTester.client(), System2.INSTANCE, userSessionRule, viewProjectsCache);
     IssueIndexer issueIndexer = (IssueIndexer) new IssueIndexer(dbClient, esTester.client()).setEnabled(true);
     IssueAuthorizationIndexer issueAuthorizationIndexer = (IssueAuthorizationIndexer) new IssueAuthorizationIndexer(dbClient, esTester.client()).setEnabled(true);
 
@@ -209,6 +217,20 @@ public class ViewIndexerTest {
     assertThat(issueIndex.search(IssueQuery.builder(userSessionRule).viewUuids(newArrayList(viewUuid)).build(), new SearchOptions()).getDocs()).hasSize(2);
   }
 
+  @Test
+  public void invalidate_projects_of_view_before_clearing_views_lookup_cache() {
+    EsClient client = spy(esTester.client());
+    ViewProjectsCache cache = mock(ViewProjectsCache.class);
+    ViewIndexer underTest = (ViewIndexer) new ViewIndexer(dbClient, client, cache).setEnabled(true);
+
+    underTest.index(new ViewDoc().setUuid("EFGH").setProjects(newArrayList("KLMN", "JKLM")));
+
+    InOrder inOrder = inOrder(client, cache);
+    inOrder.verify(client).prepareRefresh(ViewIndexDefinition.INDEX);
+    inOrder.verify(cache).invalidate(newArrayList("EFGH"));
+    inOrder.verify(client).prepareClearCache();
+  }
+
   private ComponentDto addProjectWithIssue(RuleDto rule) {
     ComponentDto project = ComponentTesting.newProjectDto();
     ComponentDto file = ComponentTesting.newFileDto(project);
@@ -0,0 +1,71 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.view.index;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.server.es.EsTester;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ViewProjectsCacheTest {
+
+  @ClassRule
+  public static EsTester esTester = new EsTester().addDefinitions(new ViewIndexDefinition(new Settings()));
+
+  private ViewProjectsCache underTest;
+
+  @Before
+  public void setUp() {
+    esTester.truncateIndices();
+    underTest = new ViewProjectsCache(esTester.client());
+  }
+
+  @Test
+  public void get_project_uuids_of_view() throws Exception {
+    esTester.putDocuments(ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, new ViewDoc().setUuid("ABCD").setProjects(newArrayList("P1", "P2")));
+
+    assertThat(underTest.getProjectUuids("ABCD")).containsOnly("P1", "P2");
+  }
+
+  @Test
+  public void get_no_project_uuids_of_unknown_view() {
+    assertThat(underTest.getProjectUuids("UNKNOWN")).isEmpty();
+  }
+
+  @Test
+  public void keep_project_uuids_until_invalidation() throws Exception {
+    esTester.putDocuments(ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, new ViewDoc().setUuid("ABCD").setProjects(newArrayList("P1")));
+    assertThat(underTest.getProjectUuids("ABCD")).containsOnly("P1");
+
+    esTester.putDocuments(ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, new ViewDoc().setUuid("ABCD").setProjects(newArrayList("P1", "P2")));
+    assertThat(underTest.getProjectUuids("ABCD")).containsOnly("P1");
+
+    underTest.invalidate("ABCD");
+    assertThat(underTest.getProjectUuids("ABCD")).containsOnly("P1", "P2");
+
+    esTester.putDocuments(ViewIndexDefinition.INDEX, ViewIndexDefinition.TYPE_VIEW, new ViewDoc().setUuid("ABCD").setProjects(newArrayList("P3")));
+    underTest.invalidateAll();
+    assertThat(underTest.getProjectUuids("ABCD")).containsOnly("P3");
+  }
+}
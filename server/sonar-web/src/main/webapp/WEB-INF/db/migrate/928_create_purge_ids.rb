@@ -0,0 +1,37 @@
+#
+# SonarQube, open source software quality management tool.
+# Copyright (C) 2008-2014 SonarSource
+# mailto:contact AT sonarsource DOT com
+#
+# SonarQube is free software; you can redistribute it and/or
+# modify it under the terms of the GNU Lesser General Public
+# License as published by the Free Software Foundation; either
+# version 3 of the License, or (at your option) any later version.
+#
+# SonarQube is distributed in the hope that it will be useful,
+# but WITHOUT ANY WARRANTY; without even the implied warranty of
+# MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+# Lesser General Public License for more details.
+#
+# You should have received a copy of the GNU Lesser General Public License
+# along with this program; if not, write to the Free Software Foundation,
+# Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+#
+
+#
+# SonarQube 5.2
+#
+class CreatePurgeIds < ActiveRecord::Migration
+
+  def self.up
+    create_table :purge_ids do |t|
+      t.column :purge_key, :string, :limit => 40, :null => false
+      t.column :target_id, :big_integer, :null => true
+      t.column :target_uuid, :string, :limit => 50, :null => true
+    end
+
+    add_index 'purge_ids', 'purge_key', :name => 'purge_ids_key'
+  end
+
+end
+
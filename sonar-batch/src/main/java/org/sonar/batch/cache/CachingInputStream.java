@@ -0,0 +1,152 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.cache;
+
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.home.cache.PersistentCache;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copies the bytes read from a stream to a temporary file of {@link PersistentCache}. The file becomes the cache entry
+ * when the stream is closed after having been read until its end. Otherwise, for example on error, the file is deleted
+ * and the previous entry, if any, is kept.
+ * <p/>
+ * Failing to write the file does not prevent from reading the stream.
+ */
+class CachingInputStream extends FilterInputStream {
+  private static final Logger LOG = Loggers.get(CachingInputStream.class);
+
+  private final Path tempFile;
+  private final PersistentCache cache;
+  private final String cacheKey;
+  private final byte[] singleByte = new byte[1];
+  private OutputStream output;
+  private boolean eof = false;
+
+  CachingInputStream(InputStream in, Path tempFile, PersistentCache cache, String cacheKey) throws IOException {
+    super(in);
+    this.tempFile = tempFile;
+    this.cache = cache;
+    this.cacheKey = cacheKey;
+    this.output = new BufferedOutputStream(Files.newOutputStream(tempFile));
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b < 0) {
+      eof = true;
+    } else {
+      singleByte[0] = (byte) b;
+      write(singleByte, 0, 1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = super.read(b, off, len);
+    if (n < 0) {
+      eof = true;
+    } else {
+      write(b, off, n);
+    }
+    return n;
+  }
+
+  /**
+   * Skipped bytes are read, so that they are written to cache
+   */
+  @Override
+  public long skip(long n) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+      if (read < 0) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void write(byte[] b, int off, int len) {
+    if (output == null) {
+      return;
+    }
+    try {
+      output.write(b, off, len);
+    } catch (IOException e) {
+      LOG.warn("Error saving to WS cache", e);
+      IOUtils.closeQuietly(output);
+      output = null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      commit();
+    }
+  }
+
+  private void commit() {
+    if (output == null) {
+      deleteTempFile();
+      return;
+    }
+    try {
+      output.close();
+      if (eof) {
+        cache.put(cacheKey, tempFile);
+      }
+    } catch (IOException e) {
+      LOG.warn("Error saving to WS cache", e);
+    } finally {
+      output = null;
+      deleteTempFile();
+    }
+  }
+
+  private void deleteTempFile() {
+    try {
+      Files.deleteIfExists(tempFile);
+    } catch (IOException e) {
+      LOG.warn("Error deleting " + tempFile, e);
+    }
+  }
+}
@@ -32,6 +32,7 @@ import org.apache.commons.io.IOUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 import static org.sonar.batch.cache.WSLoader.ServerStatus.*;
 import org.sonar.home.cache.PersistentCache;
@@ -77,16 +78,30 @@ public class WSLoader {
 
   @Nonnull
   public WSLoaderResult<byte[]> load(String id) {
+    return load(id, new ByteArrayLoader());
+  }
+
+  /**
+   * Same as {@link #load(String)}, but the response is not loaded in memory. When it comes from server, it is
+   * written to cache while being read, and the cache entry is updated once the stream has been read until its end
+   * and closed. The caller is responsible for closing the stream.
+   */
+  @Nonnull
+  public WSLoaderResult<InputStream> loadStream(String id) {
+    return load(id, new StreamLoader());
+  }
+
+  private <T> WSLoaderResult<T> load(String id, DataLoader<T> loader) {
     switch (loadStrategy) {
       case CACHE_FIRST:
-        return loadFromCacheFirst(id, true);
+        return loadFromCacheFirst(id, true, loader);
       case CACHE_ONLY:
-        return loadFromCacheFirst(id, false);
+        return loadFromCacheFirst(id, false, loader);
       case SERVER_FIRST:
-        return loadFromServerFirst(id, true);
+        return loadFromServerFirst(id, true, loader);
       case SERVER_ONLY:
       default:
-        return loadFromServerFirst(id, false);
+        return loadFromServerFirst(id, false, loader);
     }
   }
 
@@ -116,13 +131,13 @@ public class WSLoader {
   }
 
   @Nonnull
-  private WSLoaderResult<byte[]> loadFromCacheFirst(String id, boolean fallback) {
+  private <T> WSLoaderResult<T> loadFromCacheFirst(String id, boolean fallback, DataLoader<T> loader) {
     try {
-      return loadFromCache(id);
+      return loadFromCache(id, loader);
     } catch (NotAvailableException cacheNotAvailable) {
       if (fallback) {
         try {
-          return loadFromServer(id);
+          return loadFromServer(id, loader);
         } catch (NotAvailableException serverNotAvailable) {
           throw new IllegalStateException(FAIL_MSG, serverNotAvailable.getCause());
         }
@@ -132,13 +147,13 @@ public class WSLoader {
   }
 
   @Nonnull
-  private WSLoaderResult<byte[]> loadFromServerFirst(String id, boolean fallback) {
+  private <T> WSLoaderResult<T> loadFromServerFirst(String id, boolean fallback, DataLoader<T> loader) {
     try {
-      return loadFromServer(id);
+      return loadFromServer(id, loader);
     } catch (NotAvailableException serverNotAvailable) {
       if (fallback) {
         try {
-          return loadFromCache(id);
+          return loadFromCache(id, loader);
         } catch (NotAvailableException cacheNotAvailable) {
           throw new IllegalStateException(FAIL_MSG, serverNotAvailable.getCause());
         }
@@ -148,13 +163,13 @@ public class WSLoader {
   }
 
   @Nonnull
-  private WSLoaderResult<byte[]> loadFromCache(String id) throws NotAvailableException {
+  private <T> WSLoaderResult<T> loadFromCache(String id, DataLoader<T> loader) throws NotAvailableException {
     try {
-      byte[] result = cache.get(client.getURI(id).toString(), null);
+      T result = loader.loadFromCache(id);
       if (result == null) {
         throw new NotAvailableException("resource not cached");
       }
-      return new WSLoaderResult<byte[]>(result, true);
+      return new WSLoaderResult<T>(result, true);
     } catch (IOException e) {
       // any exception on the cache should fail fast
       throw new IllegalStateException(e);
@@ -162,16 +177,14 @@ public class WSLoader {
   }
 
   @Nonnull
-  private WSLoaderResult<byte[]> loadFromServer(String id) throws NotAvailableException {
+  private <T> WSLoaderResult<T> loadFromServer(String id, DataLoader<T> loader) throws NotAvailableException {
     if (isOffline()) {
       throw new NotAvailableException("Server not available");
     }
     try {
       InputStream is = client.load(id, REQUEST_METHOD, true, CONNECT_TIMEOUT, READ_TIMEOUT);
       switchToOnline();
-      byte[] value = IOUtils.toByteArray(is);
-      updateCache(id, value);
-      return new WSLoaderResult<byte[]>(value, false);
+      return new WSLoaderResult<T>(loader.loadFromServer(id, is), false);
     } catch (IllegalStateException e) {
       if (e.getCause() instanceof HttpDownloader.HttpException) {
         // fail fast if it could connect but there was a application-level error
@@ -185,6 +198,47 @@ public class WSLoader {
     }
   }
 
+  private interface DataLoader<T> {
+    /**
+     * @return null if not cached
+     */
+    T loadFromCache(String id) throws IOException;
+
+    T loadFromServer(String id, InputStream is) throws IOException;
+  }
+
+  private class ByteArrayLoader implements DataLoader<byte[]> {
+    @Override
+    public byte[] loadFromCache(String id) throws IOException {
+      return cache.get(client.getURI(id).toString(), null);
+    }
+
+    @Override
+    public byte[] loadFromServer(String id, InputStream is) throws IOException {
+      byte[] value = IOUtils.toByteArray(is);
+      updateCache(id, value);
+      return value;
+    }
+  }
+
+  private class StreamLoader implements DataLoader<InputStream> {
+    @Override
+    public InputStream loadFromCache(String id) throws IOException {
+      return cache.getStream(client.getURI(id).toString());
+    }
+
+    @Override
+    public InputStream loadFromServer(String id, InputStream is) throws IOException {
+      try {
+        Path tempFile = cache.createTempFile();
+        return new CachingInputStream(is, tempFile, cache, client.getURI(id).toString());
+      } catch (IOException e) {
+        LOG.warn("Error saving to WS cache", e);
+        return is;
+      }
+    }
+  }
+
   private class NotAvailableException extends Exception {
     private static final long serialVersionUID = 1L;
 
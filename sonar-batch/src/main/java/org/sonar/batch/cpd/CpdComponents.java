@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableList;
 import java.util.List;
 
 import org.sonar.batch.cpd.index.IndexFactory;
+import org.sonar.batch.cpd.index.PersistentBlockCache;
 
 public final class CpdComponents {
 
@@ -35,6 +36,7 @@ public final class CpdComponents {
       CpdSensor.class,
       CpdMappings.class,
       IndexFactory.class,
+      PersistentBlockCache.class,
       JavaCpdEngine.class,
       DefaultCpdEngine.class);
   }
@@ -20,8 +20,10 @@
 
 package org.sonar.batch.cpd;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +41,7 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.SonarException;
 import org.sonar.batch.cpd.index.IndexFactory;
+import org.sonar.batch.cpd.index.PersistentBlockCache;
 import org.sonar.batch.cpd.index.SonarDuplicationsIndex;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
@@ -58,7 +61,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -66,6 +71,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -73,6 +79,11 @@ public class JavaCpdEngine extends CpdEngine {
 
   private static final Logger LOG = LoggerFactory.getLogger(JavaCpdEngine.class);
 
+  /**
+   * Number of threads chunking files and detecting their duplications. Default is the number of available processors.
+   */
+  public static final String THREADS_PROPERTY = "sonar.cpd.java.threads";
+
   private static final int BLOCK_SIZE = 10;
 
   /**
@@ -87,16 +98,18 @@ public class JavaCpdEngine extends CpdEngine {
   private final FileSystem fs;
   private final Settings settings;
   private final Project project;
+  private final PersistentBlockCache blockCache;
 
-  public JavaCpdEngine(@Nullable Project project, IndexFactory indexFactory, FileSystem fs, Settings settings) {
+  public JavaCpdEngine(@Nullable Project project, IndexFactory indexFactory, FileSystem fs, Settings settings, PersistentBlockCache blockCache) {
     this.project = project;
     this.indexFactory = indexFactory;
     this.fs = fs;
     this.settings = settings;
+    this.blockCache = blockCache;
   }
 
-  public JavaCpdEngine(IndexFactory indexFactory, FileSystem fs, Settings settings) {
-    this(null, indexFactory, fs, settings);
+  public JavaCpdEngine(IndexFactory indexFactory, FileSystem fs, Settings settings, PersistentBlockCache blockCache) {
+    this(null, indexFactory, fs, settings, blockCache);
   }
 
   @Override
@@ -117,20 +130,102 @@ public class JavaCpdEngine extends CpdEngine {
     if (sourceFiles.isEmpty()) {
       return;
     }
-    SonarDuplicationsIndex index = createIndex(project, languageKey, sourceFiles);
-    detect(index, context, sourceFiles);
+    int threads = threads();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("cpd-java-%d")
+      .setDaemon(true)
+      .build());
+    try {
+      SonarDuplicationsIndex index = createIndex(project, languageKey, sourceFiles, executor, 2 * threads);
+      detect(index, context, sourceFiles, executor, 2 * threads);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
-  private SonarDuplicationsIndex createIndex(@Nullable Project project, String language, Iterable<InputFile> sourceFiles) {
-    final SonarDuplicationsIndex index = indexFactory.create(project, language);
+  private int threads() {
+    int threads = settings.hasKey(THREADS_PROPERTY) ? settings.getInt(THREADS_PROPERTY) : Runtime.getRuntime().availableProcessors();
+    if (threads < 1) {
+      throw new IllegalArgumentException("Number of threads for duplication detection must be at least 1. Got " + threads);
+    }
+    return threads;
+  }
 
-    TokenChunker tokenChunker = JavaTokenProducer.build();
-    StatementChunker statementChunker = JavaStatementBuilder.build();
-    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+  /**
+   * Files are chunked concurrently, but their blocks are inserted into the index in the order of files
+   * as the index is not thread-safe. At most <code>maxPendingFiles</code> files are chunked and waiting
+   * for insertion at the same time, so that their blocks do not accumulate in memory.
+   */
+  private SonarDuplicationsIndex createIndex(@Nullable Project project, String language, List<InputFile> sourceFiles, ExecutorService executor,
+    int maxPendingFiles) {
+    final SonarDuplicationsIndex index = indexFactory.create(project, language);
 
+    ThreadLocal<FileChunker> chunkers = new ThreadLocal<FileChunker>() {
+      @Override
+      protected FileChunker initialValue() {
+        return new FileChunker();
+      }
+    };
+    Deque<PendingChunks> pendingChunks = new ArrayDeque<>();
     for (InputFile inputFile : sourceFiles) {
+      pendingChunks.add(new PendingChunks(inputFile, executor.submit(new ChunkTask(chunkers, inputFile))));
+      if (pendingChunks.size() >= maxPendingFiles) {
+        insertNext(index, pendingChunks.poll());
+      }
+    }
+    while (!pendingChunks.isEmpty()) {
+      insertNext(index, pendingChunks.poll());
+    }
+
+    return index;
+  }
+
+  private static void insertNext(SonarDuplicationsIndex index, PendingChunks chunks) {
+    InputFile inputFile = chunks.inputFile;
+    try {
+      index.insert(inputFile, chunks.blocks.get());
+    } catch (InterruptedException e) {
+      throw new SonarException("Fail during indexation of duplications for " + inputFile, e);
+    } catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private static class PendingChunks {
+    private final InputFile inputFile;
+    private final Future<List<Block>> blocks;
+
+    private PendingChunks(InputFile inputFile, Future<List<Block>> blocks) {
+      this.inputFile = inputFile;
+      this.blocks = blocks;
+    }
+  }
+
+  /**
+   * Tokenizers are not shared between threads. Blocks of files whose content is in {@link PersistentBlockCache}
+   * are not computed again.
+   */
+  private class FileChunker {
+    private final TokenChunker tokenChunker = JavaTokenProducer.build();
+    private final StatementChunker statementChunker = JavaStatementBuilder.build();
+    private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+    private final String chunking = "java:" + BLOCK_SIZE + ":" + fs.encoding();
+
+    private List<Block> chunk(InputFile inputFile) {
+      DefaultInputFile defaultInputFile = (DefaultInputFile) inputFile;
+      List<Block> blocks = blockCache.get(defaultInputFile, chunking);
+      if (blocks == null) {
+        blocks = tokenize(defaultInputFile);
+        blockCache.put(defaultInputFile, chunking, blocks);
+      } else {
+        LOG.debug("Populating index from cached blocks of {}", inputFile);
+      }
+      return blocks;
+    }
+
+    private List<Block> tokenize(DefaultInputFile inputFile) {
       LOG.debug("Populating index from {}", inputFile);
-      String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
+      String resourceEffectiveKey = inputFile.key();
 
       List<Statement> statements;
 
@@ -144,38 +239,72 @@ public class JavaCpdEngine extends CpdEngine {
         IOUtils.closeQuietly(reader);
       }
 
-      List<Block> blocks = blockChunker.chunk(resourceEffectiveKey, statements);
-      index.insert(inputFile, blocks);
+      return blockChunker.chunk(resourceEffectiveKey, statements);
     }
+  }
 
-    return index;
+  private static class ChunkTask implements Callable<List<Block>> {
+    private final ThreadLocal<FileChunker> chunkers;
+    private final InputFile inputFile;
+
+    private ChunkTask(ThreadLocal<FileChunker> chunkers, InputFile inputFile) {
+      this.chunkers = chunkers;
+      this.inputFile = inputFile;
+    }
+
+    @Override
+    public List<Block> call() {
+      return chunkers.get().chunk(inputFile);
+    }
   }
 
-  private void detect(SonarDuplicationsIndex index, org.sonar.api.batch.sensor.SensorContext context, List<InputFile> sourceFiles) {
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
-    try {
-      for (InputFile inputFile : sourceFiles) {
-        LOG.debug("Detection of duplications for {}", inputFile);
-        String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
-
-        Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
-
-        List<CloneGroup> clones;
-        try {
-          clones = executorService.submit(new Task(index, fileBlocks)).get(TIMEOUT, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-          clones = null;
-          LOG.warn("Timeout during detection of duplications for " + inputFile, e);
-        } catch (InterruptedException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        } catch (ExecutionException e) {
-          throw new SonarException("Fail during detection of duplication for " + inputFile, e);
-        }
+  /**
+   * Duplications of files are detected concurrently, the index being read-only once sorted by the first
+   * {@link SonarDuplicationsIndex#getByInputFile(InputFile, String)}. They are saved in the order of files. As a file
+   * waits for its predecessors to be saved, it is given at least {@link #TIMEOUT} seconds.
+   */
+  private static void detect(SonarDuplicationsIndex index, SensorContext context, List<InputFile> sourceFiles, ExecutorService executor, int maxPendingFiles) {
+    Deque<PendingDetection> pendingDetections = new ArrayDeque<>();
+    for (InputFile inputFile : sourceFiles) {
+      LOG.debug("Detection of duplications for {}", inputFile);
+      String resourceEffectiveKey = ((DefaultInputFile) inputFile).key();
 
-        save(context, inputFile, clones);
+      Collection<Block> fileBlocks = index.getByInputFile(inputFile, resourceEffectiveKey);
+      pendingDetections.add(new PendingDetection(inputFile, executor.submit(new Task(index, fileBlocks))));
+      if (pendingDetections.size() >= maxPendingFiles) {
+        saveNext(context, pendingDetections.poll());
       }
-    } finally {
-      executorService.shutdown();
+    }
+    while (!pendingDetections.isEmpty()) {
+      saveNext(context, pendingDetections.poll());
+    }
+  }
+
+  private static void saveNext(SensorContext context, PendingDetection detection) {
+    InputFile inputFile = detection.inputFile;
+    List<CloneGroup> clones;
+    try {
+      clones = detection.clones.get(TIMEOUT, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      clones = null;
+      detection.clones.cancel(true);
+      LOG.warn("Timeout during detection of duplications for " + inputFile, e);
+    } catch (InterruptedException e) {
+      throw new SonarException("Fail during detection of duplication for " + inputFile, e);
+    } catch (ExecutionException e) {
+      throw new SonarException("Fail during detection of duplication for " + inputFile, e);
+    }
+
+    save(context, inputFile, clones);
+  }
+
+  private static class PendingDetection {
+    private final InputFile inputFile;
+    private final Future<List<CloneGroup>> clones;
+
+    private PendingDetection(InputFile inputFile, Future<List<CloneGroup>> clones) {
+      this.inputFile = inputFile;
+      this.clones = clones;
     }
   }
 
@@ -0,0 +1,133 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.cpd.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.CheckForNull;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.home.cache.PersistentCache;
+
+/**
+ * Keeps the blocks of files in the persistent cache of the user home, so that the files which did not change since
+ * a previous analysis are not tokenized again. Entries are keyed by the hash of the file content and by the way
+ * files are chunked, the key of the file being set again when blocks are loaded.
+ */
+@BatchSide
+public class PersistentBlockCache {
+
+  public static final String ENABLED_PROPERTY = "sonar.cpd.cache.enabled";
+  private static final Logger LOG = Loggers.get(PersistentBlockCache.class);
+  private static final String KEY_PREFIX = "cpd-blocks:";
+
+  private final PersistentCache cache;
+  private final boolean enabled;
+
+  public PersistentBlockCache(PersistentCache cache, Settings settings) {
+    this.cache = cache;
+    this.enabled = !settings.hasKey(ENABLED_PROPERTY) || settings.getBoolean(ENABLED_PROPERTY);
+  }
+
+  /**
+   * @param chunking identifies the tokenizer, the block size and the encoding used to build the blocks
+   * @return the cached blocks, or null if the file content is not in cache
+   */
+  @CheckForNull
+  public List<Block> get(DefaultInputFile inputFile, String chunking) {
+    String key = key(inputFile, chunking);
+    if (key == null) {
+      return null;
+    }
+    try {
+      byte[] data = cache.get(key, null);
+      return data == null ? null : decode(inputFile.key(), data);
+    } catch (IOException e) {
+      LOG.warn("Fail to load duplication blocks of " + inputFile + " from cache", e);
+      return null;
+    }
+  }
+
+  public void put(DefaultInputFile inputFile, String chunking, List<Block> blocks) {
+    String key = key(inputFile, chunking);
+    if (key == null) {
+      return;
+    }
+    try {
+      cache.put(key, encode(blocks));
+    } catch (IOException e) {
+      LOG.warn("Fail to save duplication blocks of " + inputFile + " into cache", e);
+    }
+  }
+
+  @CheckForNull
+  private String key(DefaultInputFile inputFile, String chunking) {
+    if (!enabled || inputFile.hash() == null) {
+      return null;
+    }
+    return KEY_PREFIX + chunking + ":" + inputFile.hash();
+  }
+
+  static byte[] encode(List<Block> blocks) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeInt(blocks.size());
+    for (Block block : blocks) {
+      byte[] hash = block.getBlockHash().getBytes();
+      output.writeInt(hash.length);
+      output.write(hash);
+      output.writeInt(block.getIndexInFile());
+      output.writeInt(block.getStartLine());
+      output.writeInt(block.getEndLine());
+      output.writeInt(block.getStartUnit());
+      output.writeInt(block.getEndUnit());
+    }
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  static List<Block> decode(String resourceId, byte[] data) throws IOException {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+    int size = input.readInt();
+    List<Block> blocks = new ArrayList<>(size);
+    Block.Builder builder = Block.builder().setResourceId(resourceId);
+    for (int i = 0; i < size; i++) {
+      byte[] hash = new byte[input.readInt()];
+      input.readFully(hash);
+      builder.setBlockHash(new ByteArray(hash)).setIndexInFile(input.readInt());
+      int startLine = input.readInt();
+      builder.setLines(startLine, input.readInt());
+      int startUnit = input.readInt();
+      builder.setUnit(startUnit, input.readInt());
+      blocks.add(builder.build());
+    }
+    return blocks;
+  }
+}
@@ -21,6 +21,8 @@ package org.sonar.batch.index;
 
 import com.google.common.collect.Maps;
 
+import java.io.File;
+import java.nio.file.Files;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -34,14 +36,39 @@ import com.persistit.exception.PersistitException;
 import com.persistit.Volume;
 import org.picocontainer.Startable;
 import org.sonar.api.batch.BatchSide;
+import org.sonar.api.config.Settings;
 
 @BatchSide
 public class Caches implements Startable {
-  private final Map<String, Exchange> cacheMap = Maps.newHashMap();
+
+  /**
+   * Storage of caches: "persistit" (default) for Persistit B-trees, or "mmap" for append-only memory-mapped
+   * files indexed in memory. The latter is faster but keeps all keys in heap.
+   */
+  public static final String BACKEND_PROPERTY = "sonar.batch.cache.backend";
+  public static final String PERSISTIT_BACKEND = "persistit";
+  public static final String MMAP_BACKEND = "mmap";
+
+  private final Map<String, Cache<?>> cacheMap = Maps.newHashMap();
+  private final CachesManager cachesManager;
+  private final String backend;
   private Persistit persistit;
   private Volume volume;
+  private MappedSegments segments;
 
   public Caches(CachesManager caches) {
+    this(caches, PERSISTIT_BACKEND);
+  }
+
+  public Caches(CachesManager caches, Settings settings) {
+    this(caches, settings.hasKey(BACKEND_PROPERTY) ? settings.getString(BACKEND_PROPERTY) : PERSISTIT_BACKEND);
+  }
+
+  Caches(CachesManager caches, String backend) {
+    Preconditions.checkArgument(PERSISTIT_BACKEND.equals(backend) || MMAP_BACKEND.equals(backend),
+      "Unsupported value of property %s: %s", BACKEND_PROPERTY, backend);
+    this.cachesManager = caches;
+    this.backend = backend;
     persistit = caches.persistit();
     doStart();
   }
@@ -55,6 +82,10 @@ public class Caches implements Startable {
     try {
       persistit.flush();
       volume = persistit.createTemporaryVolume();
+      if (MMAP_BACKEND.equals(backend)) {
+        File dir = Files.createTempDirectory(cachesManager.tempDir().toPath(), "mmap").toFile();
+        segments = new MappedSegments(dir, MappedSegments.DEFAULT_SEGMENT_SIZE);
+      }
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create a cache volume", e);
     }
@@ -69,10 +100,15 @@ public class Caches implements Startable {
     Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
     Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: " + cacheName);
     try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Cache<V> cache = new Cache<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
+      Cache<V> cache;
+      if (segments != null) {
+        cache = new MappedCache<>(cacheName, segments, persistit);
+      } else {
+        Exchange exchange = persistit.getExchange(volume, cacheName, true);
+        exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
+        cache = new PersistitCache<>(cacheName, exchange);
+      }
+      cacheMap.put(cacheName, cache);
       return cache;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to create cache: " + cacheName, e);
@@ -81,12 +117,19 @@ public class Caches implements Startable {
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (Entry<String, Cache<?>> e : cacheMap.entrySet()) {
+      if (e.getValue() instanceof PersistitCache) {
+        persistit.releaseExchange(((PersistitCache<?>) e.getValue()).exchange());
+      }
     }
 
     cacheMap.clear();
 
+    if (segments != null) {
+      segments.close();
+      segments = null;
+    }
+
     if (volume != null) {
       try {
         volume.close();
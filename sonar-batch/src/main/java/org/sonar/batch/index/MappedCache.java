@@ -0,0 +1,309 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.google.common.primitives.UnsignedBytes;
+import com.persistit.Key;
+import com.persistit.Persistit;
+import com.persistit.Value;
+
+import javax.annotation.CheckForNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@link Cache} storing values in {@link MappedSegments}. Keys and values are encoded by Persistit, so that values
+ * are serialized by the same coders and keys are sorted the same way as in {@link PersistitCache}, but there is
+ * no B-tree nor locking. Locations of values are indexed in memory by a hash map, and keys are also sorted for the
+ * lookups by prefix.
+ */
+class MappedCache<V> extends Cache<V> {
+
+  private static final Comparator<byte[]> BYTES_COMPARATOR = UnsignedBytes.lexicographicalComparator();
+  // initial size of the encoding buffer, which grows up to Value.MAXIMUM_SIZE
+  private static final int INITIAL_VALUE_SIZE = 256;
+
+  private final MappedSegments segments;
+  private final Persistit persistit;
+  private final Key key;
+  private final Value value;
+  private final Map<EncodedKey, Long> locations = new HashMap<>();
+  private final NavigableSet<EncodedKey> sortedKeys = new TreeSet<>();
+
+  MappedCache(String name, MappedSegments segments, Persistit persistit) {
+    super(name);
+    this.segments = segments;
+    this.persistit = persistit;
+    this.key = new Key(persistit);
+    this.value = new Value(persistit, INITIAL_VALUE_SIZE, Value.MAXIMUM_SIZE);
+  }
+
+  @Override
+  void doPut(Object[] keyParts, V v) {
+    EncodedKey encodedKey = encode(keyParts);
+    try {
+      value.clear();
+      value.put(v);
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to put element in the cache " + name(), e);
+    }
+    long location = segments.append(value.getEncodedBytes(), value.getEncodedSize());
+    if (locations.put(encodedKey, location) == null) {
+      sortedKeys.add(encodedKey);
+    }
+  }
+
+  @CheckForNull
+  @Override
+  V doGet(Object[] keyParts) {
+    Long location = locations.get(encode(keyParts));
+    if (location == null) {
+      return null;
+    }
+    return read(location);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T read(long location) {
+    try {
+      int length = segments.length(location);
+      value.clear();
+      value.ensureFit(length);
+      segments.read(location, value.getEncodedBytes());
+      value.setEncodedSize(length);
+      return (T) value.get();
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from cache " + name(), e);
+    }
+  }
+
+  @Override
+  boolean doContainsKey(Object[] keyParts) {
+    return locations.containsKey(encode(keyParts));
+  }
+
+  @Override
+  boolean doRemove(Object[] keyParts) {
+    EncodedKey encodedKey = encode(keyParts);
+    if (locations.remove(encodedKey) != null) {
+      sortedKeys.remove(encodedKey);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  void doClear(Object[] keyParts) {
+    EncodedKey prefix = encode(keyParts);
+    Iterator<EncodedKey> it = sortedKeys.tailSet(prefix, true).iterator();
+    while (it.hasNext()) {
+      EncodedKey k = it.next();
+      if (!k.startsWith(prefix)) {
+        break;
+      }
+      it.remove();
+      locations.remove(k);
+    }
+  }
+
+  @Override
+  public void clear() {
+    locations.clear();
+    sortedKeys.clear();
+  }
+
+  @Override
+  Set<Object> doKeySet(Object[] keyParts) {
+    EncodedKey prefix = encode(keyParts);
+    Set<Object> keys = new LinkedHashSet<>();
+    EncodedKey child = nextDescendant(prefix, prefix);
+    while (child != null) {
+      Key decodingKey = decodingKey(child);
+      decodingKey.indexTo(keyParts.length + 1);
+      // skip the descendants of this child
+      EncodedKey childPrefix = new EncodedKey(Arrays.copyOf(child.bytes, decodingKey.getIndex()));
+      keys.add(decodingKey.indexTo(keyParts.length).decode());
+      child = nextDescendant(prefix, childPrefix);
+      while (child != null && child.startsWith(childPrefix)) {
+        child = nextDescendant(prefix, child);
+      }
+    }
+    return keys;
+  }
+
+  @Override
+  Iterable<V> doValues(final Object[] keyParts) {
+    final EncodedKey prefix = encode(keyParts);
+    return new Iterable<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return new DescendantIterator<V>(prefix) {
+          @Override
+          V toElement(EncodedKey k, long location) {
+            return read(location);
+          }
+        };
+      }
+    };
+  }
+
+  @Override
+  Iterable<Entry<V>> doEntries(Object[] keyParts) {
+    final EncodedKey prefix = encode(keyParts);
+    return new Iterable<Entry<V>>() {
+      @Override
+      public Iterator<Entry<V>> iterator() {
+        return new DescendantIterator<Entry<V>>(prefix) {
+          @Override
+          Entry<V> toElement(EncodedKey k, long location) {
+            Key decodingKey = decodingKey(k);
+            Object[] array = new Object[decodingKey.getDepth()];
+            for (int i = 0; i < array.length; i++) {
+              array[i] = decodingKey.indexTo(i).decode();
+            }
+            return new Entry<>(array, MappedCache.this.<V>read(location));
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Next key after the given one which is longer than the prefix and starts with it, or null
+   */
+  @CheckForNull
+  private EncodedKey nextDescendant(EncodedKey prefix, EncodedKey after) {
+    EncodedKey next = sortedKeys.higher(after);
+    if (next != null && next.startsWith(prefix)) {
+      return next;
+    }
+    return null;
+  }
+
+  private EncodedKey encode(Object[] keyParts) {
+    key.clear();
+    for (Object o : keyParts) {
+      key.append(o);
+    }
+    return new EncodedKey(Arrays.copyOf(key.getEncodedBytes(), key.getEncodedSize()));
+  }
+
+  private Key decodingKey(EncodedKey encodedKey) {
+    Key k = new Key(persistit);
+    System.arraycopy(encodedKey.bytes, 0, k.getEncodedBytes(), 0, encodedKey.bytes.length);
+    k.setEncodedSize(encodedKey.bytes.length);
+    return k;
+  }
+
+  /**
+   * Iterates over the keys starting with a prefix. The next key is looked for from the last returned one, so that
+   * the cache can be modified during iteration, as with Persistit.
+   */
+  private abstract class DescendantIterator<T> implements Iterator<T> {
+    private final EncodedKey prefix;
+    private EncodedKey last;
+    private EncodedKey next;
+
+    DescendantIterator(EncodedKey prefix) {
+      this.prefix = prefix;
+      this.last = prefix;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        next = nextDescendant(prefix, last);
+      }
+      return next != null;
+    }
+
+    @Override
+    public T next() {
+      while (hasNext()) {
+        EncodedKey k = next;
+        last = k;
+        next = null;
+        Long location = locations.get(k);
+        if (location != null) {
+          return toElement(k, location);
+        }
+        // removed since call to hasNext()
+      }
+      throw new NoSuchElementException();
+    }
+
+    abstract T toElement(EncodedKey k, long location);
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Removing an item is not supported");
+    }
+  }
+
+  /**
+   * Key encoded by Persistit. Encoded keys are sorted as unsigned bytes, and the encoding of a key
+   * starts with the encoding of its first parts.
+   */
+  private static class EncodedKey implements Comparable<EncodedKey> {
+    private final byte[] bytes;
+    private final int hashCode;
+
+    EncodedKey(byte[] bytes) {
+      this.bytes = bytes;
+      this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    boolean startsWith(EncodedKey prefix) {
+      if (prefix.bytes.length > bytes.length) {
+        return false;
+      }
+      for (int i = 0; i < prefix.bytes.length; i++) {
+        if (bytes[i] != prefix.bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int compareTo(EncodedKey o) {
+      return BYTES_COMPARATOR.compare(bytes, o.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof EncodedKey && Arrays.equals(bytes, ((EncodedKey) o).bytes));
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only storage of records in memory-mapped files. Records are never overwritten nor reclaimed, which
+ * fits the short life of scanner caches. Each record is located by a long made of the index of its segment
+ * (high int) and of its offset in this segment (low int).
+ * <p/>
+ * Not thread-safe.
+ */
+class MappedSegments {
+
+  static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+  private static final int HEADER_SIZE = 4;
+
+  private final File dir;
+  private final int segmentSize;
+  private final List<ByteBuffer> segments = new ArrayList<>();
+  private ByteBuffer current;
+  private boolean closed = false;
+
+  MappedSegments(File dir, int segmentSize) {
+    this.dir = dir;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * @return location of the record
+   */
+  long append(byte[] bytes, int length) {
+    int recordSize = HEADER_SIZE + length;
+    if (current == null || current.remaining() < recordSize) {
+      current = newSegment(Math.max(segmentSize, recordSize));
+    }
+    long location = ((long) (segments.size() - 1) << 32) | current.position();
+    current.putInt(length);
+    current.put(bytes, 0, length);
+    return location;
+  }
+
+  int length(long location) {
+    return segment(location).getInt(offset(location));
+  }
+
+  /**
+   * Copies the record to the beginning of the given array, which must be large enough
+   */
+  void read(long location, byte[] dest) {
+    ByteBuffer segment = segment(location).duplicate();
+    int offset = offset(location);
+    int length = segment.getInt(offset);
+    segment.position(offset + HEADER_SIZE);
+    segment.get(dest, 0, length);
+  }
+
+  private ByteBuffer segment(long location) {
+    return segments.get((int) (location >>> 32));
+  }
+
+  private static int offset(long location) {
+    return (int) location;
+  }
+
+  private ByteBuffer newSegment(int size) {
+    if (closed) {
+      throw new IllegalStateException("Cache storage is closed: " + dir);
+    }
+    File file = new File(dir, "segment-" + segments.size());
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      // the mapping remains valid after the channel is closed
+      MappedByteBuffer segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      segments.add(segment);
+      return segment;
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create cache segment " + file, e);
+    }
+  }
+
+  /**
+   * Files can not be deleted on Windows as long as they are mapped, that is until the buffers are garbage collected.
+   * In this case they are deleted with the temporary directory of caches.
+   */
+  void close() {
+    closed = true;
+    segments.clear();
+    current = null;
+    FileUtils.deleteQuietly(dir);
+  }
+}
@@ -64,7 +64,13 @@ public final class FileHashes {
         hashes[lineIdx - 1] = hash;
       }
     });
+    return create(hashes);
+  }
 
+  /**
+   * @param hashes hash of each line, indexed from 0. Null elements are lines without significant characters.
+   */
+  public static FileHashes create(byte[][] hashes) {
     int size = hashes.length;
     Multimap<String, Integer> linesByHash = LinkedHashMultimap.create();
     String[] hexHashes = new String[size];
@@ -0,0 +1,164 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.issue.tracking;
+
+import org.apache.commons.io.FileUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.batch.BatchSide;
+import org.sonar.api.utils.TempFolder;
+
+import javax.annotation.CheckForNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Line hashes of source files, computed while indexing the file system so that local issue tracking
+ * does not read the files a second time. This cache is shared amongst all project modules.
+ * <p/>
+ * Files are indexed by several threads, so hashes are appended to a temporary file rather than stored in a
+ * {@link org.sonar.batch.index.Cache}, which must be used by a single thread. Only the position of each
+ * file in the temporary file is kept in memory. The temporary file is created when the first hashes are put,
+ * so that it is not created when local issue tracking is not executed.
+ */
+@BatchSide
+public class LineHashesCache implements Startable {
+
+  private final TempFolder tempFolder;
+  private final ConcurrentMap<String, Long> positionsByFileKey = new ConcurrentHashMap<>();
+  private File file;
+  private volatile FileChannel channel;
+  private long size = 0L;
+
+  public LineHashesCache(TempFolder tempFolder) {
+    this.tempFolder = tempFolder;
+  }
+
+  @Override
+  public void start() {
+    // temporary file is created at first put
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to close " + file, e);
+    } finally {
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
+  /**
+   * Can be called concurrently.
+   * @param hashes hash of each line, indexed from 0. Null elements are lines without significant characters.
+   */
+  public LineHashesCache put(String fileKey, byte[][] hashes) {
+    int length = 4;
+    for (byte[] hash : hashes) {
+      length += 1 + (hash != null ? hash.length : 0);
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+    buffer.putInt(length);
+    buffer.putInt(hashes.length);
+    for (byte[] hash : hashes) {
+      if (hash == null) {
+        buffer.put((byte) 0);
+      } else {
+        buffer.put((byte) hash.length);
+        buffer.put(hash);
+      }
+    }
+    buffer.flip();
+
+    long position = reserve(buffer.remaining());
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + buffer.position());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to write line hashes of " + fileKey, e);
+    }
+    positionsByFileKey.put(fileKey, position);
+    return this;
+  }
+
+  private synchronized long reserve(int length) {
+    if (channel == null) {
+      open();
+    }
+    long position = size;
+    size += length;
+    return position;
+  }
+
+  private void open() {
+    file = tempFolder.newFile("lineHashes", ".bin");
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to open " + file, e);
+    }
+  }
+
+  @CheckForNull
+  public byte[][] get(String fileKey) {
+    Long position = positionsByFileKey.get(fileKey);
+    if (position == null) {
+      return null;
+    }
+    ByteBuffer buffer = read(position, 4);
+    buffer = read(position + 4, buffer.getInt());
+    byte[][] hashes = new byte[buffer.getInt()][];
+    for (int i = 0; i < hashes.length; i++) {
+      int length = buffer.get() & 0xFF;
+      if (length > 0) {
+        hashes[i] = new byte[length];
+        buffer.get(hashes[i]);
+      }
+    }
+    return hashes;
+  }
+
+  private ByteBuffer read(long position, int length) {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IllegalStateException("Unexpected end of " + file);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read " + file, e);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+}
@@ -58,6 +58,7 @@ public class LocalIssueTracking {
   private final IssueCache issueCache;
   private final IssueTracking tracking;
   private final ServerLineHashesLoader lastLineHashes;
+  private final LineHashesCache lineHashesCache;
   private final IssueWorkflow workflow;
   private final IssueUpdater updater;
   private final IssueChangeContext changeContext;
@@ -72,11 +73,12 @@ public class LocalIssueTracking {
   public LocalIssueTracking(BatchComponentCache resourceCache, IssueCache issueCache, IssueTracking tracking,
     ServerLineHashesLoader lastLineHashes, IssueWorkflow workflow, IssueUpdater updater,
     ActiveRules activeRules, ServerIssueRepository serverIssueRepository,
-    ProjectRepositories projectRepositories, ReportPublisher reportPublisher) {
+    ProjectRepositories projectRepositories, ReportPublisher reportPublisher, LineHashesCache lineHashesCache) {
     this.componentCache = resourceCache;
     this.issueCache = issueCache;
     this.tracking = tracking;
     this.lastLineHashes = lastLineHashes;
+    this.lineHashesCache = lineHashesCache;
     this.workflow = workflow;
     this.updater = updater;
     this.serverIssueRepository = serverIssueRepository;
@@ -172,7 +174,7 @@ public class LocalIssueTracking {
       if (file == null) {
         throw new IllegalStateException("Resource " + component.resource() + " was not found in InputPath cache");
       }
-      sourceHashHolder = new SourceHashHolder(file, lastLineHashes);
+      sourceHashHolder = new SourceHashHolder(file, lastLineHashes, lineHashesCache);
     }
     return sourceHashHolder;
   }
@@ -30,19 +30,23 @@ import java.util.Collection;
 public class SourceHashHolder {
 
   private final ServerLineHashesLoader lastSnapshots;
+  private final LineHashesCache lineHashesCache;
 
   private FileHashes hashedReference;
   private FileHashes hashedSource;
   private DefaultInputFile inputFile;
 
-  public SourceHashHolder(DefaultInputFile inputFile, ServerLineHashesLoader lastSnapshots) {
+  public SourceHashHolder(DefaultInputFile inputFile, ServerLineHashesLoader lastSnapshots, LineHashesCache lineHashesCache) {
     this.inputFile = inputFile;
     this.lastSnapshots = lastSnapshots;
+    this.lineHashesCache = lineHashesCache;
   }
 
   private void initHashes() {
     if (hashedSource == null) {
-      hashedSource = FileHashes.create(inputFile);
+      byte[][] sourceLineHashes = lineHashesCache.get(inputFile.key());
+      // line hashes are computed while indexing files, the file is read again only if they are missing
+      hashedSource = sourceLineHashes != null ? FileHashes.create(sourceLineHashes) : FileHashes.create(inputFile);
       Status status = inputFile.status();
       if (status == Status.ADDED) {
         hashedReference = null;
@@ -23,10 +23,10 @@ import org.sonar.batch.cache.WSLoaderResult;
 
 import org.sonar.batch.cache.WSLoader;
 import org.sonar.batch.util.BatchUtils;
-import com.google.common.io.ByteSource;
 import com.google.common.base.Function;
 import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -40,13 +40,16 @@ public class DefaultServerIssuesLoader implements ServerIssuesLoader {
 
   @Override
   public boolean load(String componentKey, Function<ServerIssue, Void> consumer) {
-    WSLoaderResult<ByteSource> result = wsLoader.loadSource("/batch/issues?key=" + BatchUtils.encodeForUrl(componentKey));
+    WSLoaderResult<InputStream> result = wsLoader.loadStream("/batch/issues?key=" + BatchUtils.encodeForUrl(componentKey));
     parseIssues(result.get(), consumer);
     return result.isFromCache();
   }
 
-  private static void parseIssues(ByteSource input, Function<ServerIssue, Void> consumer) {
-    try (InputStream is = input.openBufferedStream()) {
+  /**
+   * Issues are parsed while being downloaded, so that the whole response is never held in memory
+   */
+  private static void parseIssues(InputStream input, Function<ServerIssue, Void> consumer) {
+    try (InputStream is = new BufferedInputStream(input)) {
       ServerIssue previousIssue = ServerIssue.parseDelimitedFrom(is);
       while (previousIssue != null) {
         consumer.apply(previousIssue);
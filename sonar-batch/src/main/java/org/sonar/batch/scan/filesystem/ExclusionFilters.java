@@ -20,12 +20,21 @@
 package org.sonar.batch.scan.filesystem;
 
 import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.PathPattern;
 import org.sonar.api.scan.filesystem.FileExclusions;
+import org.sonar.api.utils.PathUtils;
+import org.sonar.api.utils.WildcardPattern;
+
+import javax.annotation.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @BatchSide
 public class ExclusionFilters {
@@ -38,6 +47,8 @@ public class ExclusionFilters {
   private PathPattern[] mainExclusions;
   private PathPattern[] testInclusions;
   private PathPattern[] testExclusions;
+  private DirectoryPattern[] mainDirectoryExclusions;
+  private DirectoryPattern[] testDirectoryExclusions;
 
   public ExclusionFilters(FileExclusions exclusions) {
     this.exclusionSettings = exclusions;
@@ -48,6 +59,8 @@ public class ExclusionFilters {
     mainExclusions = prepareMainExclusions();
     testInclusions = prepareTestInclusions();
     testExclusions = prepareTestExclusions();
+    mainDirectoryExclusions = DirectoryPattern.create(mainExclusions);
+    testDirectoryExclusions = DirectoryPattern.create(testExclusions);
     log("Included sources: ", mainInclusions);
     log("Excluded sources: ", mainExclusions);
     log("Included tests: ", testInclusions);
@@ -99,6 +112,34 @@ public class ExclusionFilters {
     return true;
   }
 
+  /**
+   * Whether the files of a directory may be accepted. Returns false when an exclusion pattern matches
+   * all the paths under the directory, like <code>**&#47;generated/**</code> does for <code>src/generated</code>,
+   * so that the directory does not need to be walked.
+   *
+   * @param relativePath path of the directory relative to module basedir, null if it is not located in module basedir
+   */
+  public boolean acceptDirectory(@Nullable String relativePath, Path absolutePath, InputFile.Type type) {
+    DirectoryPattern[] patterns;
+    if (InputFile.Type.MAIN == type) {
+      patterns = mainDirectoryExclusions;
+    } else if (InputFile.Type.TEST == type) {
+      patterns = testDirectoryExclusions;
+    } else {
+      throw new IllegalArgumentException("Unknown file type: " + type);
+    }
+    if (patterns.length == 0) {
+      return true;
+    }
+    String sanitizedAbsolutePath = PathUtils.sanitize(absolutePath.toString());
+    for (DirectoryPattern pattern : patterns) {
+      if (pattern.match(relativePath, sanitizedAbsolutePath)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   PathPattern[] prepareMainInclusions() {
     if (exclusionSettings.sourceInclusions().length > 0) {
       // User defined params
@@ -128,4 +169,46 @@ public class ExclusionFilters {
   PathPattern[] prepareTestExclusions() {
     return PathPattern.create(exclusionSettings.testExclusions());
   }
+
+  /**
+   * Exclusion pattern ending with <code>/**</code>. All the files under a directory are excluded when the directory
+   * matches the pattern, either with or without this suffix.
+   */
+  private static class DirectoryPattern {
+    private static final String FILE_PREFIX = "file:";
+    private static final String[] ANY_PATH_SUFFIXES = {"/**", "\\**"};
+
+    private final WildcardPattern pattern;
+    private final WildcardPattern directoryPattern;
+    private final boolean absolute;
+
+    private DirectoryPattern(String pattern, String directoryPattern, boolean absolute) {
+      this.pattern = WildcardPattern.create(pattern);
+      this.directoryPattern = WildcardPattern.create(directoryPattern);
+      this.absolute = absolute;
+    }
+
+    boolean match(@Nullable String relativePath, String absolutePath) {
+      String path = absolute ? absolutePath : relativePath;
+      return path != null && (directoryPattern.match(path) || pattern.match(path));
+    }
+
+    static DirectoryPattern[] create(PathPattern[] filePatterns) {
+      List<DirectoryPattern> result = new ArrayList<>();
+      for (PathPattern filePattern : filePatterns) {
+        String s = filePattern.toString();
+        boolean absolute = StringUtils.startsWithIgnoreCase(s, FILE_PREFIX);
+        if (absolute) {
+          s = s.substring(FILE_PREFIX.length());
+        }
+        for (String suffix : ANY_PATH_SUFFIXES) {
+          if (s.endsWith(suffix) && s.length() > suffix.length()) {
+            result.add(new DirectoryPattern(s, s.substring(0, s.length() - suffix.length()), absolute));
+            break;
+          }
+        }
+      }
+      return result.toArray(new DirectoryPattern[result.size()]);
+    }
+  }
 }
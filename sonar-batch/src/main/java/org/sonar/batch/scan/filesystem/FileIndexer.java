@@ -19,10 +19,6 @@
  */
 package org.sonar.batch.scan.filesystem;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.FileFilterUtils;
-import org.apache.commons.io.filefilter.HiddenFileFilter;
-import org.apache.commons.io.filefilter.IOFileFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.BatchSide;
@@ -35,19 +31,25 @@ import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.MessageException;
 import org.sonar.batch.util.ProgressReport;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Index input files into {@link InputPathCache}.
@@ -57,8 +59,11 @@ public class FileIndexer {
 
   private static final Logger LOG = LoggerFactory.getLogger(FileIndexer.class);
 
-  private static final IOFileFilter DIR_FILTER = FileFilterUtils.and(HiddenFileFilter.VISIBLE, FileFilterUtils.notFileFilter(FileFilterUtils.prefixFileFilter(".")));
-  private static final IOFileFilter FILE_FILTER = HiddenFileFilter.VISIBLE;
+  /**
+   * Number of pending files per indexing thread. When the queue is full, the walking thread computes
+   * metadata of files by itself, so that walking does not get too far ahead of indexing.
+   */
+  private static final int QUEUE_SIZE_PER_THREAD = 10;
 
   private final List<InputFileFilter> filters;
   private final boolean isAggregator;
@@ -66,8 +71,8 @@ public class FileIndexer {
   private final InputFileBuilderFactory inputFileBuilderFactory;
 
   private ProgressReport progressReport;
-  private ExecutorService executorService;
-  private List<Future<Void>> tasks;
+  private ThreadPoolExecutor executorService;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
 
   public FileIndexer(List<InputFileFilter> filters, ExclusionFilters exclusionFilters, InputFileBuilderFactory inputFileBuilderFactory,
     ProjectDefinition def) {
@@ -89,10 +94,17 @@ public class FileIndexer {
     Progress progress = new Progress();
 
     InputFileBuilder inputFileBuilder = inputFileBuilderFactory.create(fileSystem);
-    executorService = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
-    tasks = new ArrayList<>();
-    indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.sources(), InputFile.Type.MAIN);
-    indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
+    int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    executorService = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD),
+      new ThreadPoolExecutor.CallerRunsPolicy());
+    failure.set(null);
+    try {
+      indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.sources(), InputFile.Type.MAIN);
+      indexFiles(fileSystem, progress, inputFileBuilder, fileSystem.tests(), InputFile.Type.TEST);
+    } catch (RuntimeException e) {
+      executorService.shutdownNow();
+      throw e;
+    }
 
     waitForTasksToComplete();
 
@@ -100,20 +112,26 @@ public class FileIndexer {
 
     if (exclusionFilters.hasPattern()) {
       LOG.info(progress.excludedByPatternsCount() + " files ignored because of inclusion/exclusion patterns");
+      if (progress.excludedDirectoriesCount() > 0) {
+        LOG.debug(progress.excludedDirectoriesCount() + " directories ignored because of exclusion patterns");
+      }
     }
   }
 
   private void waitForTasksToComplete() {
     executorService.shutdown();
-    for (Future<Void> task : tasks) {
-      try {
-        task.get();
-      } catch (ExecutionException e) {
-        // Unwrap ExecutionException
-        throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
-      } catch (InterruptedException e) {
-        throw new IllegalStateException(e);
+    try {
+      while (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+        // still indexing
       }
+    } catch (InterruptedException e) {
+      executorService.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    Throwable t = failure.get();
+    if (t != null) {
+      throw t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
     }
   }
 
@@ -128,9 +146,68 @@ public class FileIndexer {
   }
 
   private void indexDirectory(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress status, File dirToIndex, InputFile.Type type) {
-    Collection<File> files = FileUtils.listFiles(dirToIndex, FILE_FILTER, DIR_FILTER);
-    for (File file : files) {
-      indexFile(inputFileBuilder, fileSystem, status, file, type);
+    try {
+      Files.walkFileTree(dirToIndex.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        new IndexFileVisitor(inputFileBuilder, fileSystem, status, dirToIndex.toPath(), type));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to index directory " + dirToIndex, e);
+    }
+  }
+
+  /**
+   * Files are indexed while walking the directory, and excluded directories are not walked.
+   * Hidden files and directories, as well as directories starting with a dot, are ignored.
+   */
+  private class IndexFileVisitor extends SimpleFileVisitor<Path> {
+    private final InputFileBuilder inputFileBuilder;
+    private final DefaultModuleFileSystem fileSystem;
+    private final Progress status;
+    private final Path root;
+    private final InputFile.Type type;
+
+    IndexFileVisitor(InputFileBuilder inputFileBuilder, DefaultModuleFileSystem fileSystem, Progress status, Path root, InputFile.Type type) {
+      this.inputFileBuilder = inputFileBuilder;
+      this.fileSystem = fileSystem;
+      this.status = status;
+      this.root = root;
+      this.type = type;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+      if (dir.equals(root)) {
+        return FileVisitResult.CONTINUE;
+      }
+      if (dir.getFileName().toString().startsWith(".") || Files.isHidden(dir)) {
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      String relativePath = inputFileBuilder.pathResolver().relativePath(fileSystem.baseDir(), dir.toFile());
+      if (!exclusionFilters.acceptDirectory(relativePath, dir, type)) {
+        status.increaseExcludedDirectoriesCount();
+        return FileVisitResult.SKIP_SUBTREE;
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+      if (failure.get() != null) {
+        return FileVisitResult.TERMINATE;
+      }
+      if (!Files.isHidden(file)) {
+        indexFile(inputFileBuilder, fileSystem, status, file.toFile(), type);
+      }
+      return FileVisitResult.CONTINUE;
+    }
+
+    @Override
+    public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+      if (e instanceof FileSystemLoopException) {
+        LOG.warn("Not indexing directory {} again, as it is already indexed through a symbolic link", file);
+      } else {
+        LOG.debug("Unable to read {}", file, e);
+      }
+      return FileVisitResult.CONTINUE;
     }
   }
 
@@ -150,24 +227,32 @@ public class FileIndexer {
   private void indexFile(final InputFileBuilder inputFileBuilder, final DefaultModuleFileSystem fs,
     final Progress status, final DefaultInputFile inputFile, final InputFile.Type type) {
 
-    tasks.add(executorService.submit(new Callable<Void>() {
+    executorService.execute(new Runnable() {
       @Override
-      public Void call() {
-        DefaultInputFile completedInputFile = inputFileBuilder.completeAndComputeMetadata(inputFile, type);
-        if (completedInputFile != null && accept(completedInputFile)) {
-          fs.add(completedInputFile);
-          status.markAsIndexed(completedInputFile);
-          File parentDir = completedInputFile.file().getParentFile();
-          String relativePath = new PathResolver().relativePath(fs.baseDir(), parentDir);
-          if (relativePath != null) {
-            DefaultInputDir inputDir = new DefaultInputDir(fs.moduleKey(), relativePath);
-            fs.add(inputDir);
-          }
+      public void run() {
+        if (failure.get() != null) {
+          return;
+        }
+        try {
+          indexCompleted(fs, status, inputFileBuilder.completeAndComputeMetadata(inputFile, type));
+        } catch (RuntimeException | Error e) {
+          failure.compareAndSet(null, e);
         }
-        return null;
       }
-    }));
+    });
+  }
 
+  private void indexCompleted(DefaultModuleFileSystem fs, Progress status, @Nullable DefaultInputFile completedInputFile) {
+    if (completedInputFile != null && accept(completedInputFile)) {
+      fs.add(completedInputFile);
+      status.markAsIndexed(completedInputFile);
+      File parentDir = completedInputFile.file().getParentFile();
+      String relativePath = new PathResolver().relativePath(fs.baseDir(), parentDir);
+      if (relativePath != null) {
+        DefaultInputDir inputDir = new DefaultInputDir(fs.moduleKey(), relativePath);
+        fs.add(inputDir);
+      }
+    }
   }
 
   private boolean accept(InputFile inputFile) {
@@ -183,6 +268,7 @@ public class FileIndexer {
   private class Progress {
     private final Set<Path> indexed = new HashSet<>();
     private int excludedByPatternsCount = 0;
+    private int excludedDirectoriesCount = 0;
 
     synchronized void markAsIndexed(InputFile inputFile) {
       if (indexed.contains(inputFile.path())) {
@@ -201,6 +287,14 @@ public class FileIndexer {
       return excludedByPatternsCount;
     }
 
+    void increaseExcludedDirectoriesCount() {
+      excludedDirectoriesCount++;
+    }
+
+    int excludedDirectoriesCount() {
+      return excludedDirectoriesCount;
+    }
+
     int count() {
       return indexed.size();
     }
@@ -26,12 +26,18 @@ import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
+import org.sonar.api.batch.fs.internal.FileMetadata.LineHashConsumer;
+import org.sonar.api.batch.fs.internal.FileMetadata.Metadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.batch.issue.tracking.LineHashesCache;
 
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 class InputFileBuilder {
 
@@ -44,9 +50,11 @@ class InputFileBuilder {
   private final DefaultModuleFileSystem fs;
   private final Settings settings;
   private final FileMetadata fileMetadata;
+  private final LineHashesCache lineHashesCache;
 
   InputFileBuilder(String moduleKey, PathResolver pathResolver, LanguageDetection langDetection,
-    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata) {
+    StatusDetection statusDetection, DefaultModuleFileSystem fs, Settings settings, FileMetadata fileMetadata,
+    @Nullable LineHashesCache lineHashesCache) {
     this.moduleKey = moduleKey;
     this.pathResolver = pathResolver;
     this.langDetection = langDetection;
@@ -54,6 +62,7 @@ class InputFileBuilder {
     this.fs = fs;
     this.settings = settings;
     this.fileMetadata = fileMetadata;
+    this.lineHashesCache = lineHashesCache;
   }
 
   String moduleKey() {
@@ -101,11 +110,29 @@ class InputFileBuilder {
     }
     inputFile.setLanguage(lang);
 
-    inputFile.initMetadata(fileMetadata.readMetadata(inputFile.file(), fs.encoding()));
+    inputFile.initMetadata(readMetadata(inputFile));
 
     inputFile.setStatus(statusDetection.status(inputFile.moduleKey(), inputFile.relativePath(), inputFile.hash()));
 
     return inputFile;
   }
 
+  /**
+   * Line hashes used by issue tracking are computed in the same pass as metadata, so that files are read only once.
+   */
+  private Metadata readMetadata(DefaultInputFile inputFile) {
+    if (lineHashesCache == null) {
+      return fileMetadata.readMetadata(inputFile.file(), fs.encoding());
+    }
+    final List<byte[]> lineHashes = new ArrayList<>();
+    Metadata metadata = fileMetadata.readMetadata(inputFile.file(), fs.encoding(), new LineHashConsumer() {
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        lineHashes.add(hash);
+      }
+    });
+    lineHashesCache.put(inputFile.key(), lineHashes.toArray(new byte[lineHashes.size()][]));
+    return metadata;
+  }
+
 }
@@ -19,11 +19,13 @@
  */
 package org.sonar.batch.scan.filesystem;
 
+import org.sonar.api.batch.AnalysisMode;
 import org.sonar.api.batch.BatchSide;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.batch.issue.tracking.LineHashesCache;
 
 @BatchSide
 public class InputFileBuilderFactory {
@@ -34,10 +36,14 @@ public class InputFileBuilderFactory {
   private final StatusDetectionFactory statusDetectionFactory;
   private final Settings settings;
   private final FileMetadata fileMetadata;
+  private final LineHashesCache lineHashesCache;
 
   public InputFileBuilderFactory(ProjectDefinition def, PathResolver pathResolver, LanguageDetectionFactory langDetectionFactory,
-    StatusDetectionFactory statusDetectionFactory, Settings settings, FileMetadata fileMetadata) {
+    StatusDetectionFactory statusDetectionFactory, Settings settings, FileMetadata fileMetadata, AnalysisMode analysisMode,
+    LineHashesCache lineHashesCache) {
     this.fileMetadata = fileMetadata;
+    // line hashes are only used by local issue tracking
+    this.lineHashesCache = analysisMode.isIssues() ? lineHashesCache : null;
     this.moduleKey = def.getKeyWithBranch();
     this.pathResolver = pathResolver;
     this.langDetectionFactory = langDetectionFactory;
@@ -46,6 +52,7 @@ public class InputFileBuilderFactory {
   }
 
   InputFileBuilder create(DefaultModuleFileSystem fs) {
-    return new InputFileBuilder(moduleKey, pathResolver, langDetectionFactory.create(), statusDetectionFactory.create(), fs, settings, fileMetadata);
+    return new InputFileBuilder(moduleKey, pathResolver, langDetectionFactory.create(), statusDetectionFactory.create(), fs, settings, fileMetadata,
+      lineHashesCache);
   }
 }
@@ -0,0 +1,76 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.home.cache.Logger;
+import org.sonar.home.cache.PersistentCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CachingInputStreamTest {
+  private static final String KEY = "http://localhost/batch/issues?key=foo";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private PersistentCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    cache = new PersistentCache(temp.newFolder().toPath(), Long.MAX_VALUE, mock(Logger.class), null);
+  }
+
+  @Test
+  public void should_cache_content_once_read_until_end() throws IOException {
+    Path tempFile = cache.createTempFile();
+    try (InputStream is = new CachingInputStream(IOUtils.toInputStream("content"), tempFile, cache, KEY)) {
+      assertThat(is.read()).isEqualTo('c');
+      assertThat(is.skip(2)).isEqualTo(2);
+      assertThat(IOUtils.toString(is)).isEqualTo("tent");
+      assertThat(cache.get(KEY, null)).isNull();
+    }
+
+    assertThat(new String(cache.get(KEY, null), StandardCharsets.UTF_8)).isEqualTo("content");
+    assertThat(tempFile.toFile()).doesNotExist();
+  }
+
+  @Test
+  public void should_keep_previous_entry_if_not_read_until_end() throws IOException {
+    cache.put(KEY, "previous".getBytes(StandardCharsets.UTF_8));
+
+    Path tempFile = cache.createTempFile();
+    try (InputStream is = new CachingInputStream(IOUtils.toInputStream("content"), tempFile, cache, KEY)) {
+      assertThat(is.read(new byte[3])).isEqualTo(3);
+    }
+
+    assertThat(new String(cache.get(KEY, null), StandardCharsets.UTF_8)).isEqualTo("previous");
+    assertThat(tempFile.toFile()).doesNotExist();
+  }
+}
@@ -88,7 +88,7 @@ public class ProjectCacheSynchronizerTest {
     String lineHashes1 = getResourceAsString("api_sources_hash_JGitBlameCommand.text");
 
     when(ws.loadString(BATCH_PROJECT)).thenReturn(new WSLoaderResult<>(batchProject, false));
-    when(ws.loadSource(ISSUES)).thenReturn(new WSLoaderResult<>(issues, false));
+    when(ws.loadStream(ISSUES)).thenReturn(new WSLoaderResult<>(issues.openStream(), false));
     when(ws.loadString(LINE_HASHES1)).thenReturn(new WSLoaderResult<>(lineHashes1, false));
     when(ws.loadString(LINE_HASHES2)).thenReturn(new WSLoaderResult<>(lineHashes2, false));
 
@@ -111,7 +111,7 @@ public class ProjectCacheSynchronizerTest {
     sync.load(false);
 
     verify(ws).loadString(BATCH_PROJECT);
-    verify(ws).loadSource(ISSUES);
+    verify(ws).loadStream(ISSUES);
     verify(ws).loadString(LINE_HASHES1);
     verify(ws).loadString(LINE_HASHES2);
     verifyNoMoreInteractions(ws);
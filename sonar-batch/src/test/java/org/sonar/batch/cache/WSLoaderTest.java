@@ -25,6 +25,7 @@ import org.sonar.batch.cache.WSLoader.LoadStrategy;
 import org.hamcrest.Matchers;
 import org.junit.rules.ExpectedException;
 import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.HttpDownloader;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
@@ -33,7 +34,9 @@ import org.mockito.Mockito;
 import org.mockito.InOrder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Path;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -63,6 +66,8 @@ public class WSLoaderTest {
   private PersistentCache cache;
   @Rule
   public ExpectedException exception = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   @Before
   public void setUp() throws IOException {
@@ -220,6 +225,56 @@ public class WSLoaderTest {
     loader.load(ID);
   }
 
+  @Test
+  public void test_stream_from_server_is_cached_once_read() throws IOException {
+    Path tempFile = temp.newFile().toPath();
+    when(cache.createTempFile()).thenReturn(tempFile);
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, client);
+
+    WSLoaderResult<InputStream> result = loader.loadStream(ID);
+    assertThat(result.isFromCache()).isFalse();
+    try (InputStream is = result.get()) {
+      assertThat(IOUtils.toString(is)).isEqualTo(serverValue);
+    }
+
+    verify(cache).put(ID, tempFile);
+    verify(cache, Mockito.never()).put(eq(ID), Mockito.any(byte[].class));
+  }
+
+  @Test
+  public void test_stream_from_server_not_cached_if_not_fully_read() throws IOException {
+    Path tempFile = temp.newFile().toPath();
+    when(cache.createTempFile()).thenReturn(tempFile);
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, client);
+
+    try (InputStream is = loader.loadStream(ID).get()) {
+      assertThat(is.read()).isEqualTo('s');
+    }
+
+    verify(cache, Mockito.never()).put(eq(ID), Mockito.any(Path.class));
+    assertThat(tempFile.toFile()).doesNotExist();
+  }
+
+  @Test
+  public void test_stream_from_cache() throws IOException {
+    turnServerOffline();
+    when(cache.getStream(ID)).thenReturn(IOUtils.toInputStream(cacheValue));
+    WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, client);
+
+    WSLoaderResult<InputStream> result = loader.loadStream(ID);
+    assertThat(result.isFromCache()).isTrue();
+    assertThat(IOUtils.toString(result.get())).isEqualTo(cacheValue);
+  }
+
+  @Test
+  public void test_stream_not_cached() throws IOException {
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("Data is not cached");
+
+    WSLoader loader = new WSLoader(LoadStrategy.CACHE_ONLY, cache, client);
+    loader.loadStream(ID);
+  }
+
   @Test
   public void test_string() {
     WSLoader loader = new WSLoader(LoadStrategy.SERVER_FIRST, cache, client);
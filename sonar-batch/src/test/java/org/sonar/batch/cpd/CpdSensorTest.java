@@ -28,6 +28,7 @@ import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Java;
 import org.sonar.batch.cpd.index.IndexFactory;
+import org.sonar.batch.cpd.index.PersistentBlockCache;
 
 import java.io.IOException;
 
@@ -47,7 +48,7 @@ public class CpdSensorTest {
   @Before
   public void setUp() throws IOException {
     IndexFactory indexFactory = mock(IndexFactory.class);
-    sonarEngine = new JavaCpdEngine(indexFactory, null, null);
+    sonarEngine = new JavaCpdEngine(indexFactory, null, null, mock(PersistentBlockCache.class));
     sonarBridgeEngine = new DefaultCpdEngine(indexFactory, new CpdMappings(), null, null);
     settings = new Settings(new PropertyDefinitions(CpdComponents.class));
 
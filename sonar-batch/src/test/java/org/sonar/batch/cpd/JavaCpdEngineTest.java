@@ -23,23 +23,37 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.DefaultFileSystem;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.api.batch.sensor.duplication.Duplication;
 import org.sonar.api.batch.sensor.duplication.NewDuplication;
 import org.sonar.api.batch.sensor.duplication.internal.DefaultDuplication;
 import org.sonar.api.batch.sensor.internal.SensorStorage;
 import org.sonar.api.batch.sensor.measure.Measure;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
+import org.sonar.batch.cpd.index.IndexFactory;
+import org.sonar.batch.cpd.index.PersistentBlockCache;
+import org.sonar.batch.cpd.index.SonarDuplicationsIndex;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.ClonePart;
+import org.sonar.home.cache.PersistentCache;
+import org.sonar.home.cache.Logger;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -50,12 +64,19 @@ public class JavaCpdEngineTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
 
-  SensorContext context = mock(SensorContext.class);
+  SensorContext context;
   DefaultInputFile inputFile;
   private SensorStorage storage = mock(SensorStorage.class);
 
   @Before
   public void before() throws IOException {
+    context = mockContext(storage);
+    inputFile = (DefaultInputFile) new DefaultInputFile("foo", "src/main/java/Foo.java").setLines(300);
+    inputFile.setModuleBaseDir(temp.newFolder().toPath());
+  }
+
+  private static SensorContext mockContext(final SensorStorage storage) {
+    SensorContext context = mock(SensorContext.class);
     when(context.newMeasure()).then(new Answer<Measure>() {
       @Override
       public Measure answer(InvocationOnMock invocation) throws Throwable {
@@ -68,8 +89,7 @@ public class JavaCpdEngineTest {
         return new DefaultDuplication(storage);
       }
     });
-    inputFile = (DefaultInputFile) new DefaultInputFile("foo", "src/main/java/Foo.java").setLines(300);
-    inputFile.setModuleBaseDir(temp.newFolder().toPath());
+    return context;
   }
 
   @SuppressWarnings("unchecked")
@@ -144,6 +164,72 @@ public class JavaCpdEngineTest {
       .isDuplicatedBy("key3", 15, 214));
   }
 
+  @Test
+  public void concurrent_analysis_saves_same_duplications_as_sequential_analysis() throws Exception {
+    DefaultFileSystem fs = createDuplicatedFiles();
+
+    List<Duplication> sequentialDuplications = analyse(fs, 1, disabledBlockCache());
+    List<Duplication> concurrentDuplications = analyse(fs, 4, disabledBlockCache());
+
+    assertThat(sequentialDuplications).isNotEmpty();
+    assertThat(concurrentDuplications).isEqualTo(sequentialDuplications);
+  }
+
+  @Test
+  public void reuse_blocks_of_files_from_persistent_cache() throws Exception {
+    DefaultFileSystem fs = createDuplicatedFiles();
+    PersistentBlockCache blockCache = new PersistentBlockCache(new PersistentCache(temp.newFolder().toPath(), Long.MAX_VALUE, mock(Logger.class), null), new Settings());
+    List<Duplication> duplications = analyse(fs, 2, blockCache);
+
+    // files are not read anymore
+    for (InputFile inputFile : fs.inputFiles(fs.predicates().all())) {
+      FileUtils.forceDelete(inputFile.file());
+    }
+
+    assertThat(analyse(fs, 2, blockCache)).isEqualTo(duplications);
+  }
+
+  private DefaultFileSystem createDuplicatedFiles() throws IOException {
+    DefaultFileSystem fs = new DefaultFileSystem(temp.newFolder().toPath());
+    StringBuilder source = new StringBuilder("class Foo {\n  void foo() {\n");
+    for (int i = 0; i < 30; i++) {
+      source.append("    call").append(i).append("();\n");
+    }
+    source.append("  }\n}\n");
+    for (int i = 0; i < 10; i++) {
+      DefaultInputFile file = new DefaultInputFile("foo", "src/main/java/Foo" + i + ".java")
+        .setModuleBaseDir(fs.baseDirPath())
+        .setLanguage("java")
+        .setType(InputFile.Type.MAIN)
+        .setLines(40)
+        .setHash(DigestUtils.md5Hex(source.toString()));
+      FileUtils.write(file.file(), source.toString());
+      fs.add(file);
+    }
+    return fs;
+  }
+
+  private static PersistentBlockCache disabledBlockCache() {
+    Settings settings = new Settings();
+    settings.setProperty(PersistentBlockCache.ENABLED_PROPERTY, false);
+    return new PersistentBlockCache(mock(PersistentCache.class), settings);
+  }
+
+  private List<Duplication> analyse(DefaultFileSystem fs, int threads, PersistentBlockCache blockCache) {
+    SensorStorage storage = mock(SensorStorage.class);
+    SensorContext context = mockContext(storage);
+    Settings settings = new Settings();
+    settings.setProperty(JavaCpdEngine.THREADS_PROPERTY, threads);
+    IndexFactory indexFactory = mock(IndexFactory.class);
+    when(indexFactory.create(null, "java")).thenReturn(new SonarDuplicationsIndex());
+
+    new JavaCpdEngine(indexFactory, fs, settings, blockCache).analyse("java", context);
+
+    ArgumentCaptor<Duplication> duplications = ArgumentCaptor.forClass(Duplication.class);
+    verify(storage, atLeast(0)).store(duplications.capture());
+    return duplications.getAllValues();
+  }
+
   private CloneGroup newCloneGroup(ClonePart... parts) {
     return CloneGroup.builder().setLength(0).setOrigin(parts[0]).setParts(Arrays.asList(parts)).build();
   }
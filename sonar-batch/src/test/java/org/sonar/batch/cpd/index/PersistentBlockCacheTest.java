@@ -0,0 +1,118 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.cpd.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Settings;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.home.cache.Logger;
+import org.sonar.home.cache.PersistentCache;
+import org.sonar.home.cache.PersistentCacheLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class PersistentBlockCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  Settings settings = new Settings();
+  PersistentCache persistentCache;
+  DefaultInputFile inputFile = new DefaultInputFile("foo", "src/main/java/Foo.java").setHash("abcd");
+  List<Block> blocks = Arrays.asList(
+    Block.builder().setResourceId("foo:src/main/java/Foo.java").setBlockHash(new ByteArray(1L)).setIndexInFile(0).setLines(1, 10).setUnit(3, 12).build(),
+    Block.builder().setResourceId("foo:src/main/java/Foo.java").setBlockHash(new ByteArray(2L)).setIndexInFile(1).setLines(2, 11).setUnit(13, 25).build());
+
+  @Before
+  public void setUp() throws IOException {
+    persistentCache = new PersistentCache(temp.newFolder().toPath(), Long.MAX_VALUE, mock(Logger.class), null);
+  }
+
+  @Test
+  public void put_and_get_blocks() {
+    PersistentBlockCache underTest = new PersistentBlockCache(persistentCache, settings);
+    assertThat(underTest.get(inputFile, "java:10")).isNull();
+
+    underTest.put(inputFile, "java:10", blocks);
+
+    assertThat(underTest.get(inputFile, "java:10")).isEqualTo(blocks);
+    assertThat(underTest.get(inputFile, "java:20")).isNull();
+  }
+
+  @Test
+  public void set_key_of_file_on_cached_blocks() {
+    PersistentBlockCache underTest = new PersistentBlockCache(persistentCache, settings);
+    underTest.put(inputFile, "java:10", blocks);
+
+    // same content, other file
+    DefaultInputFile otherFile = new DefaultInputFile("foo", "src/main/java/Bar.java").setHash("abcd");
+    List<Block> cached = underTest.get(otherFile, "java:10");
+
+    assertThat(cached).hasSize(2);
+    assertThat(cached.get(0).getResourceId()).isEqualTo("foo:src/main/java/Bar.java");
+    assertThat(cached.get(1).getBlockHash()).isEqualTo(new ByteArray(2L));
+    assertThat(cached.get(1).getStartUnit()).isEqualTo(13);
+    assertThat(cached.get(1).getEndLine()).isEqualTo(11);
+  }
+
+  @Test
+  public void content_hash_is_part_of_key() {
+    PersistentBlockCache underTest = new PersistentBlockCache(persistentCache, settings);
+    underTest.put(inputFile, "java:10", blocks);
+
+    inputFile.setHash("efgh");
+
+    assertThat(underTest.get(inputFile, "java:10")).isNull();
+  }
+
+  @Test
+  public void do_nothing_if_disabled() {
+    PersistentCache mockedCache = mock(PersistentCache.class);
+    settings.setProperty(PersistentBlockCache.ENABLED_PROPERTY, false);
+    PersistentBlockCache underTest = new PersistentBlockCache(mockedCache, settings);
+
+    underTest.put(inputFile, "java:10", blocks);
+
+    assertThat(underTest.get(inputFile, "java:10")).isNull();
+    verifyZeroInteractions(mockedCache);
+  }
+
+  @Test
+  public void ignore_cache_failures() throws IOException {
+    PersistentCache failingCache = mock(PersistentCache.class);
+    when(failingCache.get(anyString(), any(PersistentCacheLoader.class))).thenThrow(new IOException("BOOM"));
+    PersistentBlockCache underTest = new PersistentBlockCache(failingCache, settings);
+
+    assertThat(underTest.get(inputFile, "java:10")).isNull();
+  }
+}
@@ -23,6 +23,7 @@ import java.io.Serializable;
 
 import com.persistit.exception.PersistitException;
 import org.junit.Test;
+import org.sonar.api.config.Settings;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
 
@@ -82,6 +83,33 @@ public class CachesTest extends AbstractCachesTest {
     }
   }
 
+  @Test
+  public void should_select_backend_from_settings() {
+    caches.stop();
+
+    Settings settings = new Settings();
+    caches = new Caches(cachesManager, settings);
+    assertThat(caches.createCache("foo")).isInstanceOf(PersistitCache.class);
+    caches.stop();
+
+    settings.setProperty(Caches.BACKEND_PROPERTY, Caches.MMAP_BACKEND);
+    caches = new Caches(cachesManager, settings);
+    assertThat(caches.createCache("foo")).isInstanceOf(MappedCache.class);
+  }
+
+  @Test
+  public void should_fail_if_unknown_backend() {
+    caches.stop();
+    Settings settings = new Settings();
+    settings.setProperty(Caches.BACKEND_PROPERTY, "unknown");
+    try {
+      new Caches(cachesManager, settings);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessage("Unsupported value of property sonar.batch.cache.backend: unknown");
+    }
+  }
+
   private static class Element implements Serializable {
     private static final long serialVersionUID = 1L;
 
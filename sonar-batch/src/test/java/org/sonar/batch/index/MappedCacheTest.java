@@ -0,0 +1,132 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the tests of {@link CacheTest} on the memory-mapped storage
+ */
+public class MappedCacheTest extends CacheTest {
+
+  @Override
+  protected Caches createCaches() {
+    return new Caches(cachesManager, Caches.MMAP_BACKEND);
+  }
+
+  @Test
+  public void should_be_mapped_cache() {
+    assertThat(caches.createCache("foo")).isInstanceOf(MappedCache.class);
+  }
+
+  @Test
+  public void should_keep_last_value_of_key() {
+    Cache<String> cache = caches.createCache("issues");
+    cache.put("struts", "ISSUE-1", "open");
+    cache.put("struts", "ISSUE-1", "closed");
+
+    assertThat(cache.get("struts", "ISSUE-1")).isEqualTo("closed");
+    assertThat(cache.values("struts")).containsExactly("closed");
+  }
+
+  @Test
+  public void should_store_values_larger_than_segment() {
+    caches.stop();
+    caches = new Caches(cachesManager, Caches.MMAP_BACKEND);
+    Cache<String> cache = caches.createCache("large");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < MappedSegments.DEFAULT_SEGMENT_SIZE / 1000; i++) {
+      sb.append("a");
+    }
+    String value = sb.toString();
+    for (int i = 0; i < 2000; i++) {
+      cache.put("key" + i, value);
+    }
+    assertThat(cache.get("key0")).isEqualTo(value);
+    assertThat(cache.get("key1999")).isEqualTo(value);
+  }
+
+  @Test
+  public void should_iterate_while_modifying() {
+    Cache<String> cache = caches.createCache("measures");
+    cache.put("struts", "ncloc", "1");
+    cache.put("struts", "lines", "2");
+    cache.put("struts", "complexity", "3");
+
+    List<String> values = Lists.newArrayList();
+    for (String value : cache.values("struts")) {
+      values.add(value);
+      cache.remove("struts", "lines");
+    }
+    assertThat(values).containsExactly("3", "1");
+  }
+
+  @Test
+  public void should_behave_like_persistit() {
+    Cache<Integer> mapped = caches.createCache("mapped");
+    Caches persistitCaches = new Caches(cachesManager);
+    try {
+      Cache<Integer> persistit = persistitCaches.createCache("persistit");
+      List<String> parts = ImmutableList.of("a", "ab", "b", "org.sonar:b", "org.sonar:b:src/Foo.java");
+      Random random = new Random(42);
+      for (int i = 0; i < 5000; i++) {
+        String first = parts.get(random.nextInt(parts.size()));
+        int second = random.nextInt(10);
+        switch (random.nextInt(5)) {
+          case 0:
+          case 1:
+            mapped.put(first, second, i);
+            persistit.put(first, second, i);
+            break;
+          case 2:
+            mapped.put(first, i);
+            persistit.put(first, i);
+            break;
+          case 3:
+            assertThat(mapped.remove(first, second)).isEqualTo(persistit.remove(first, second));
+            break;
+          default:
+            if (random.nextInt(50) == 0) {
+              mapped.clear(first);
+              persistit.clear(first);
+            }
+        }
+        assertThat(mapped.get(first, second)).isEqualTo(persistit.get(first, second));
+        assertThat(mapped.get(first)).isEqualTo(persistit.get(first));
+      }
+
+      assertThat(mapped.keySet()).containsExactlyElementsOf(persistit.keySet());
+      assertThat(mapped.values()).containsExactlyElementsOf(persistit.values());
+      for (String part : parts) {
+        assertThat(mapped.keySet(part)).containsExactlyElementsOf(persistit.keySet(part));
+        assertThat(mapped.values(part)).containsExactlyElementsOf(persistit.values(part));
+        assertThat(mapped.containsKey(part)).isEqualTo(persistit.containsKey(part));
+      }
+    } finally {
+      persistitCaches.stop();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.batch.issue.tracking;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.TempFolder;
+import org.sonar.api.utils.internal.JUnitTempFolder;
+
+import static org.apache.commons.codec.digest.DigestUtils.md5;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+public class LineHashesCacheTest {
+
+  @Rule
+  public JUnitTempFolder temp = new JUnitTempFolder();
+
+  LineHashesCache cache;
+
+  @Before
+  public void start() {
+    cache = new LineHashesCache(temp);
+    cache.start();
+  }
+
+  @After
+  public void stop() {
+    cache.stop();
+  }
+
+  @Test
+  public void put_and_get_line_hashes() {
+    cache.put("foo:src/Foo.java", new byte[][] {md5("line1"), null, md5("line3")});
+    cache.put("foo:src/Empty.java", new byte[][] {null});
+
+    byte[][] hashes = cache.get("foo:src/Foo.java");
+    assertThat(hashes).hasSize(3);
+    assertThat(hashes[0]).isEqualTo(md5("line1"));
+    assertThat(hashes[1]).isNull();
+    assertThat(hashes[2]).isEqualTo(md5("line3"));
+
+    assertThat(cache.get("foo:src/Empty.java")).hasSize(1);
+    assertThat(cache.get("foo:src/Empty.java")[0]).isNull();
+  }
+
+  @Test
+  public void put_line_hashes_concurrently() throws Exception {
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      final String fileKey = "foo:src/File" + i + ".java";
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          cache.put(fileKey, new byte[][] {md5(fileKey)});
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < threads.length; i++) {
+      String fileKey = "foo:src/File" + i + ".java";
+      assertThat(cache.get(fileKey)[0]).isEqualTo(md5(fileKey));
+    }
+  }
+
+  @Test
+  public void temp_file_is_created_at_first_put() {
+    TempFolder tempFolder = spy(temp);
+    LineHashesCache underTest = new LineHashesCache(tempFolder);
+    underTest.start();
+    verifyZeroInteractions(tempFolder);
+
+    underTest.put("foo:src/Foo.java", new byte[][] {md5("line1")});
+    underTest.put("foo:src/Bar.java", new byte[][] {md5("line1")});
+    verify(tempFolder).newFile("lineHashes", ".bin");
+    underTest.stop();
+  }
+
+  @Test
+  public void stop_without_put() {
+    TempFolder tempFolder = mock(TempFolder.class);
+    LineHashesCache underTest = new LineHashesCache(tempFolder);
+    underTest.start();
+    underTest.stop();
+
+    verifyZeroInteractions(tempFolder);
+  }
+
+  @Test
+  public void return_null_if_file_is_unknown() {
+
+    assertThat(cache.get("foo:src/Unknown.java")).isNull();
+  }
+
+}
@@ -31,9 +31,11 @@ import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 
+import static org.apache.commons.codec.digest.DigestUtils.md5;
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,6 +47,7 @@ public class SourceHashHolderTest {
   SourceHashHolder sourceHashHolder;
 
   ServerLineHashesLoader lastSnapshots;
+  LineHashesCache lineHashesCache;
   DefaultInputFile file;
 
   private File ioFile;
@@ -52,6 +55,7 @@ public class SourceHashHolderTest {
   @Before
   public void setUp() throws Exception {
     lastSnapshots = mock(ServerLineHashesLoader.class);
+    lineHashesCache = mock(LineHashesCache.class);
     file = mock(DefaultInputFile.class);
     ioFile = temp.newFile();
     when(file.file()).thenReturn(ioFile);
@@ -59,23 +63,39 @@ public class SourceHashHolderTest {
     when(file.lines()).thenReturn(1);
     when(file.charset()).thenReturn(StandardCharsets.UTF_8);
 
-    sourceHashHolder = new SourceHashHolder(file, lastSnapshots);
+    sourceHashHolder = new SourceHashHolder(file, lastSnapshots, lineHashesCache);
   }
 
   @Test
   public void should_lazy_load_line_hashes() throws Exception {
     final String source = "source";
+    String key = "foo:src/Foo.java";
     FileUtils.write(ioFile, source + "\n", StandardCharsets.UTF_8);
+    when(file.key()).thenReturn(key);
     when(file.lines()).thenReturn(2);
 
     assertThat(sourceHashHolder.getHashedSource().getHash(1)).isEqualTo(md5Hex(source));
     assertThat(sourceHashHolder.getHashedSource().getHash(2)).isEqualTo("");
-    verify(file).key();
+    verify(lineHashesCache).get(key);
+    verify(lastSnapshots).getLineHashes(key, null);
     verify(file).status();
 
     assertThat(sourceHashHolder.getHashedSource().getHash(1)).isEqualTo(md5Hex(source));
   }
 
+  @Test
+  public void should_use_line_hashes_computed_during_indexing() throws Exception {
+    String key = "foo:src/Foo.java";
+    when(file.key()).thenReturn(key);
+    when(file.status()).thenReturn(InputFile.Status.ADDED);
+    when(lineHashesCache.get(key)).thenReturn(new byte[][] {md5("cached"), null});
+
+    assertThat(sourceHashHolder.getHashedSource().length()).isEqualTo(2);
+    assertThat(sourceHashHolder.getHashedSource().getHash(1)).isEqualTo(md5Hex("cached"));
+    assertThat(sourceHashHolder.getHashedSource().getHash(2)).isEqualTo("");
+    verify(file, never()).file();
+  }
+
   @Test
   public void should_lazy_load_reference_hashes_when_status_changed() throws Exception {
     final String source = "source";
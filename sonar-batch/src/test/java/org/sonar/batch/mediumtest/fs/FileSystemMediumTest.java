@@ -206,6 +206,26 @@ public class FileSystemMediumTest {
     assertThat(result.inputFiles()).hasSize(2);
   }
 
+  @Test
+  public void excludedAndHiddenDirectoriesAreNotIndexed() throws IOException {
+    File srcDir = new File(baseDir, "src");
+    FileUtils.write(new File(srcDir, "sample.xoo"), "Sample xoo\ncontent");
+    FileUtils.write(new File(srcDir, "generated/foo/generated.xoo"), "Generated xoo\ncontent");
+    FileUtils.write(new File(srcDir, "generated-sources/other.xoo"), "Other xoo\ncontent");
+    FileUtils.write(new File(srcDir, ".hidden/hidden.xoo"), "Hidden xoo\ncontent");
+
+    TaskResult result = tester.newTask()
+      .properties(builder
+        .put("sonar.sources", "src")
+        .put("sonar.exclusions", "**/generated/**")
+        .build())
+      .start();
+
+    assertThat(result.inputFiles()).hasSize(2);
+    assertThat(result.inputFile("src/sample.xoo")).isNotNull();
+    assertThat(result.inputFile("src/generated-sources/other.xoo")).isNotNull();
+  }
+
   @Test
   public void failForDuplicateInputFile() throws IOException {
     File srcDir = new File(baseDir, "src");
@@ -22,7 +22,6 @@ package org.sonar.batch.repository;
 import org.sonar.batch.cache.WSLoaderResult;
 
 import org.sonar.batch.cache.WSLoader;
-import com.google.common.io.ByteSource;
 import com.google.common.base.Function;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,10 +31,13 @@ import org.sonar.batch.protocol.input.BatchInput.ServerIssue;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -51,9 +53,6 @@ public class DefaultServerIssuesLoaderTest {
 
   @Test
   public void loadFromWs() throws Exception {
-    ByteSource bs = mock(ByteSource.class);
-    when(wsLoader.loadSource("/batch/issues?key=foo")).thenReturn(new WSLoaderResult<>(bs, true));
-
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
 
     ServerIssue.newBuilder().setKey("ab1").build()
@@ -61,7 +60,8 @@ public class DefaultServerIssuesLoaderTest {
     ServerIssue.newBuilder().setKey("ab2").build()
       .writeDelimitedTo(bos);
 
-    when(bs.openBufferedStream()).thenReturn(new ByteArrayInputStream(bos.toByteArray()));
+    InputStream is = new ByteArrayInputStream(bos.toByteArray());
+    when(wsLoader.loadStream("/batch/issues?key=foo")).thenReturn(new WSLoaderResult<>(is, true));
 
     final List<ServerIssue> result = new ArrayList<>();
     loader.load("foo", new Function<BatchInput.ServerIssue, Void>() {
@@ -78,9 +78,10 @@ public class DefaultServerIssuesLoaderTest {
 
   @Test(expected = IllegalStateException.class)
   public void testError() throws IOException {
-    ByteSource source = mock(ByteSource.class);
-    when(source.openBufferedStream()).thenThrow(IOException.class);
-    when(wsLoader.loadSource("/batch/issues?key=foo")).thenReturn(new WSLoaderResult<ByteSource>(source, true));
+    InputStream is = mock(InputStream.class);
+    when(is.read()).thenThrow(IOException.class);
+    when(is.read(any(byte[].class), anyInt(), anyInt())).thenThrow(IOException.class);
+    when(wsLoader.loadStream("/batch/issues?key=foo")).thenReturn(new WSLoaderResult<>(is, true));
     loader.load("foo", mock(Function.class));
   }
 }
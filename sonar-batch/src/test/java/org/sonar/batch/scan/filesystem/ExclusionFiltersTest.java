@@ -131,4 +131,43 @@ public class ExclusionFiltersTest {
     assertThat(filter.prepareMainExclusions()[0].toString()).isEqualTo("**/*Dao.java");
   }
 
+  @Test
+  public void exclude_directory_when_all_its_files_are_excluded() throws IOException {
+    File baseDir = temp.newFolder();
+    Settings settings = new Settings();
+    settings.setProperty(CoreProperties.PROJECT_EXCLUSIONS_PROPERTY, "**/generated/**,**/*Dao.java,src/main/java/org/*");
+    settings.setProperty(CoreProperties.PROJECT_TEST_EXCLUSIONS_PROPERTY, "file:" + new File(baseDir, "src/test/java/vendor").getCanonicalPath() + "/**");
+    ExclusionFilters filter = new ExclusionFilters(new FileExclusions(settings));
+
+    filter.prepare();
+
+    assertThat(filter.acceptDirectory("src/main/generated", new File(baseDir, "src/main/generated").toPath(), InputFile.Type.MAIN)).isFalse();
+    assertThat(filter.acceptDirectory("src/main/java/generated/foo", new File(baseDir, "src/main/java/generated/foo").toPath(), InputFile.Type.MAIN)).isFalse();
+    // some files of these directories are not excluded
+    assertThat(filter.acceptDirectory("src/main/java", new File(baseDir, "src/main/java").toPath(), InputFile.Type.MAIN)).isTrue();
+    assertThat(filter.acceptDirectory("src/main/java/org", new File(baseDir, "src/main/java/org").toPath(), InputFile.Type.MAIN)).isTrue();
+    assertThat(filter.acceptDirectory("src/main/generated-sources", new File(baseDir, "src/main/generated-sources").toPath(), InputFile.Type.MAIN)).isTrue();
+    // source exclusions do not apply to tests
+    assertThat(filter.acceptDirectory("src/test/generated", new File(baseDir, "src/test/generated").toPath(), InputFile.Type.TEST)).isTrue();
+
+    File vendorDir = new File(baseDir, "src/test/java/vendor");
+    assertThat(filter.acceptDirectory("src/test/java/vendor", vendorDir.getCanonicalFile().toPath(), InputFile.Type.TEST)).isFalse();
+    assertThat(filter.acceptDirectory("src/test/java", vendorDir.getParentFile().getCanonicalFile().toPath(), InputFile.Type.TEST)).isTrue();
+    assertThat(filter.acceptDirectory(null, vendorDir.getCanonicalFile().toPath(), InputFile.Type.TEST)).isFalse();
+    assertThat(filter.acceptDirectory(null, vendorDir.getCanonicalFile().toPath(), InputFile.Type.MAIN)).isTrue();
+  }
+
+  @Test
+  public void test_inclusions_exclude_directories_from_sources() throws IOException {
+    Settings settings = new Settings();
+    settings.setProperty(CoreProperties.PROJECT_TEST_INCLUSIONS_PROPERTY, "src/test/**");
+    ExclusionFilters filter = new ExclusionFilters(new FileExclusions(settings));
+
+    filter.prepare();
+
+    File baseDir = temp.newFolder();
+    assertThat(filter.acceptDirectory("src/test", new File(baseDir, "src/test").toPath(), InputFile.Type.MAIN)).isFalse();
+    assertThat(filter.acceptDirectory("src/test", new File(baseDir, "src/test").toPath(), InputFile.Type.TEST)).isTrue();
+  }
+
 }
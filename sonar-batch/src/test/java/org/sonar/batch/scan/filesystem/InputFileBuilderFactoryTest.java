@@ -21,10 +21,12 @@ package org.sonar.batch.scan.filesystem;
 
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.sonar.api.batch.AnalysisMode;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
+import org.sonar.batch.issue.tracking.LineHashesCache;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 
@@ -37,7 +39,7 @@ public class InputFileBuilderFactoryTest {
     DefaultModuleFileSystem fs = mock(DefaultModuleFileSystem.class);
 
     InputFileBuilderFactory factory = new InputFileBuilderFactory(ProjectDefinition.create().setKey("struts"), pathResolver, langDetectionFactory,
-      statusDetectionFactory, new Settings(), new FileMetadata());
+      statusDetectionFactory, new Settings(), new FileMetadata(), mock(AnalysisMode.class), mock(LineHashesCache.class));
     InputFileBuilder builder = factory.create(fs);
 
     assertThat(builder.langDetection()).isNotNull();
@@ -19,23 +19,28 @@
  */
 package org.sonar.batch.scan.filesystem;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.FileMetadata;
 import org.sonar.api.config.Settings;
 import org.sonar.api.scan.filesystem.PathResolver;
 import org.sonar.api.utils.PathUtils;
+import org.sonar.batch.issue.tracking.LineHashesCache;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class InputFileBuilderTest {
@@ -65,7 +70,7 @@ public class InputFileBuilderTest {
       .thenReturn(InputFile.Status.ADDED);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new Settings(), new FileMetadata());
+      langDetection, statusDetection, fs, new Settings(), new FileMetadata(), null);
     DefaultInputFile inputFile = builder.create(srcFile);
     builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
@@ -78,6 +83,29 @@ public class InputFileBuilderTest {
     assertThat(inputFile.lines()).isEqualTo(1);
   }
 
+  @Test
+  public void store_line_hashes_when_computing_metadata() throws Exception {
+    File basedir = temp.newFolder();
+    File srcFile = new File(basedir, "src/main/java/foo/Bar.java");
+    FileUtils.write(srcFile, "first line\n\nthird line");
+    when(fs.baseDir()).thenReturn(basedir);
+    when(fs.encoding()).thenReturn(StandardCharsets.UTF_8);
+    when(langDetection.language(any(InputFile.class))).thenReturn("java");
+    LineHashesCache lineHashesCache = mock(LineHashesCache.class);
+
+    InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
+      langDetection, statusDetection, fs, new Settings(), new FileMetadata(), lineHashesCache);
+    DefaultInputFile inputFile = builder.create(srcFile);
+    builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
+
+    ArgumentCaptor<byte[][]> hashes = ArgumentCaptor.forClass(byte[][].class);
+    verify(lineHashesCache).put(eq("struts:src/main/java/foo/Bar.java"), hashes.capture());
+    assertThat(hashes.getValue()).hasSize(3);
+    assertThat(hashes.getValue()[0]).isEqualTo(DigestUtils.md5("firstline"));
+    assertThat(hashes.getValue()[1]).isNull();
+    assertThat(hashes.getValue()[2]).isEqualTo(DigestUtils.md5("thirdline"));
+  }
+
   @Test
   public void return_null_if_file_outside_basedir() throws Exception {
     // file system
@@ -88,7 +116,7 @@ public class InputFileBuilderTest {
     when(fs.baseDir()).thenReturn(basedir);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new Settings(), new FileMetadata());
+      langDetection, statusDetection, fs, new Settings(), new FileMetadata(), null);
     DefaultInputFile inputFile = builder.create(srcFile);
 
     assertThat(inputFile).isNull();
@@ -108,7 +136,7 @@ public class InputFileBuilderTest {
     when(langDetection.language(any(InputFile.class))).thenReturn(null);
 
     InputFileBuilder builder = new InputFileBuilder("struts", new PathResolver(),
-      langDetection, statusDetection, fs, new Settings(), new FileMetadata());
+      langDetection, statusDetection, fs, new Settings(), new FileMetadata(), null);
     DefaultInputFile inputFile = builder.create(srcFile);
     inputFile = builder.completeAndComputeMetadata(inputFile, InputFile.Type.MAIN);
 
@@ -0,0 +1 @@
+׹4/com.sonarsource.it.samples:multi-modules-sample 
\ No newline at end of file
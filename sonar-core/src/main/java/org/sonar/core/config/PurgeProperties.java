@@ -101,6 +101,17 @@ public final class PurgeProperties {
         .category(CoreProperties.CATEGORY_GENERAL)
         .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
         .index(6)
+        .build(),
+
+      PropertyDefinition.builder(PurgeConstants.STAGED_PURGE)
+        .defaultValue("false")
+        .name("Stage identifiers of purged data")
+        .description("If set to true, the identifiers of the snapshots and components to purge are stored in a database table, "
+          + "then each table is cleaned by a single statement instead of one statement per block of identifiers.")
+        .type(PropertyType.BOOLEAN)
+        .category(CoreProperties.CATEGORY_GENERAL)
+        .subCategory(CoreProperties.SUBCATEGORY_DATABASE_CLEANER)
+        .index(7)
         .build()
       );
   }
@@ -0,0 +1,278 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import com.google.common.math.LongMath;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.sonar.api.rule.RuleKey;
+
+/**
+ * Same matching as {@link Tracker}, but on integer keys instead of composite keys of objects.
+ * <p>
+ * Rule keys, line hashes and messages of the issues of a file are interned to integers once per call to
+ * {@link #track(Input, Input)}. Each matching pass then combines the integers of its criteria into a {@code long}
+ * and looks up base issues in a table of primitives, without allocating keys.
+ * </p>
+ * Falls back to {@link Tracker} in the unlikely case where the combined keys of a file do not fit in a {@code long}.
+ */
+public class IndexedTracker<RAW extends Trackable, BASE extends Trackable> extends Tracker<RAW, BASE> {
+
+  @Override
+  public Tracking<RAW, BASE> track(Input<RAW> rawInput, Input<BASE> baseInput) {
+    Keys keys = new Keys(rawInput.getIssues(), baseInput.getIssues());
+    if (!keys.fitInLong()) {
+      return super.track(rawInput, baseInput);
+    }
+
+    Tracking<RAW, BASE> tracking = new Tracking<>(rawInput, baseInput);
+
+    relocateManualIssues(rawInput, baseInput, tracking);
+
+    // 1. match issues with same rule, same line and same line hash, but not necessarily with same message
+    match(tracking, keys, Pass.LINE_AND_LINE_HASH);
+
+    // 2. detect code moves by comparing blocks of codes
+    detectCodeMoves(rawInput, baseInput, tracking);
+
+    // 3. match issues with same rule, same message and same line hash
+    match(tracking, keys, Pass.LINE_HASH_AND_MESSAGE);
+
+    // 4. match issues with same rule, same line and same message
+    match(tracking, keys, Pass.LINE_AND_MESSAGE);
+
+    // 5. match issues with same rule and same line hash but different line and different message.
+    // See SONAR-2812
+    match(tracking, keys, Pass.LINE_HASH);
+
+    return tracking;
+  }
+
+  private void match(Tracking<RAW, BASE> tracking, Keys keys, Pass pass) {
+    if (tracking.isComplete()) {
+      return;
+    }
+
+    List<BASE> bases = new ArrayList<>();
+    for (BASE base : tracking.getUnmatchedBases()) {
+      bases.add(base);
+    }
+    LongToIntsMultimap baseSearch = new LongToIntsMultimap(bases.size());
+    for (int i = 0; i < bases.size(); i++) {
+      baseSearch.put(pass.key(keys, keys.bases, keys.bases.indexOf(bases.get(i))), i);
+    }
+
+    for (RAW raw : tracking.getUnmatchedRaws()) {
+      // as Tracker, take the first base issue with the same key
+      int baseIndex = baseSearch.removeFirst(pass.key(keys, keys.raws, keys.raws.indexOf(raw)));
+      if (baseIndex >= 0) {
+        tracking.match(raw, bases.get(baseIndex));
+      }
+    }
+  }
+
+  private enum Pass {
+    LINE_AND_LINE_HASH {
+      @Override
+      long key(Keys keys, Side side, int i) {
+        return ((long) side.rules[i] * keys.lineRadix + side.lines[i]) * keys.lineHashRadix + side.lineHashes[i];
+      }
+    },
+    LINE_HASH_AND_MESSAGE {
+      @Override
+      long key(Keys keys, Side side, int i) {
+        return ((long) side.rules[i] * keys.lineHashRadix + side.lineHashes[i]) * keys.messageRadix + side.messages[i];
+      }
+    },
+    LINE_AND_MESSAGE {
+      @Override
+      long key(Keys keys, Side side, int i) {
+        return ((long) side.rules[i] * keys.lineRadix + side.lines[i]) * keys.messageRadix + side.messages[i];
+      }
+    },
+    LINE_HASH {
+      @Override
+      long key(Keys keys, Side side, int i) {
+        return (long) side.rules[i] * keys.lineHashRadix + side.lineHashes[i];
+      }
+    };
+
+    abstract long key(Keys keys, Side side, int i);
+  }
+
+  /**
+   * Integer identifiers of the rule key, line, line hash and message of the raw and base issues of a file.
+   * Lines are used as is, {@code null} being 0.
+   */
+  private static final class Keys {
+    private final Map<RuleKey, Integer> ruleIds = new HashMap<>();
+    private final Map<String, Integer> lineHashIds = new HashMap<>();
+    private final Map<String, Integer> messageIds = new HashMap<>();
+    private int maxLine = 0;
+
+    private final Side raws;
+    private final Side bases;
+    private final long lineRadix;
+    private final long lineHashRadix;
+    private final long messageRadix;
+
+    private Keys(Collection<? extends Trackable> raws, Collection<? extends Trackable> bases) {
+      this.raws = new Side(this, raws);
+      this.bases = new Side(this, bases);
+      this.lineRadix = maxLine + 1L;
+      this.lineHashRadix = Math.max(1, lineHashIds.size());
+      this.messageRadix = Math.max(1, messageIds.size());
+    }
+
+    private boolean fitInLong() {
+      try {
+        long ruleRadix = Math.max(1, ruleIds.size());
+        LongMath.checkedMultiply(LongMath.checkedMultiply(ruleRadix, lineRadix), lineHashRadix);
+        LongMath.checkedMultiply(LongMath.checkedMultiply(ruleRadix, lineHashRadix), messageRadix);
+        LongMath.checkedMultiply(LongMath.checkedMultiply(ruleRadix, lineRadix), messageRadix);
+        return true;
+      } catch (ArithmeticException e) {
+        return false;
+      }
+    }
+
+    private static <K> int intern(Map<K, Integer> ids, K key) {
+      Integer id = ids.get(key);
+      if (id == null) {
+        id = ids.size();
+        ids.put(key, id);
+      }
+      return id;
+    }
+  }
+
+  private static final class Side {
+    private final Map<Trackable, Integer> indexes = new IdentityHashMap<>();
+    private final int[] rules;
+    private final int[] lines;
+    private final int[] lineHashes;
+    private final int[] messages;
+
+    private Side(Keys keys, Collection<? extends Trackable> trackables) {
+      int size = trackables.size();
+      this.rules = new int[size];
+      this.lines = new int[size];
+      this.lineHashes = new int[size];
+      this.messages = new int[size];
+      int i = 0;
+      for (Trackable trackable : trackables) {
+        indexes.put(trackable, i);
+        rules[i] = Keys.intern(keys.ruleIds, trackable.getRuleKey());
+        Integer line = trackable.getLine();
+        lines[i] = line == null ? 0 : line;
+        keys.maxLine = Math.max(keys.maxLine, lines[i]);
+        lineHashes[i] = Keys.intern(keys.lineHashIds, StringUtils.defaultString(trackable.getLineHash(), ""));
+        messages[i] = Keys.intern(keys.messageIds, trackable.getMessage());
+        i++;
+      }
+    }
+
+    private int indexOf(Trackable trackable) {
+      return indexes.get(trackable);
+    }
+  }
+
+  /**
+   * Open addressing hash table of {@code long} keys to ordered lists of {@code int} values. Lists are chained
+   * in a single array, as each value is put only once.
+   */
+  private static final class LongToIntsMultimap {
+    private static final int NONE = -1;
+
+    private final boolean[] used;
+    private final long[] keys;
+    private final int[] heads;
+    private final int[] tails;
+    private final int[] nextValues;
+    private final int mask;
+
+    private LongToIntsMultimap(int expectedValues) {
+      // load factor is at most 0.5
+      int capacity = Integer.highestOneBit(Math.max(1, expectedValues)) << 2;
+      this.used = new boolean[capacity];
+      this.keys = new long[capacity];
+      this.heads = new int[capacity];
+      this.tails = new int[capacity];
+      this.nextValues = new int[Math.max(1, expectedValues)];
+      this.mask = capacity - 1;
+      Arrays.fill(nextValues, NONE);
+    }
+
+    /**
+     * @param value must be unique and lower than the expected number of values
+     */
+    private void put(long key, int value) {
+      int slot = slot(key);
+      if (!used[slot]) {
+        used[slot] = true;
+        keys[slot] = key;
+        heads[slot] = NONE;
+      }
+      if (heads[slot] == NONE) {
+        heads[slot] = value;
+      } else {
+        nextValues[tails[slot]] = value;
+      }
+      tails[slot] = value;
+    }
+
+    /**
+     * Removes and returns the first value of the key, or -1 if there is none.
+     */
+    private int removeFirst(long key) {
+      int slot = slot(key);
+      if (!used[slot]) {
+        return NONE;
+      }
+      int value = heads[slot];
+      if (value != NONE) {
+        heads[slot] = nextValues[value];
+      }
+      return value;
+    }
+
+    /**
+     * Slot of the key, or first free slot if the key is not present. Slots are never freed.
+     */
+    private int slot(long key) {
+      int slot = hash(key) & mask;
+      while (used[slot] && keys[slot] != key) {
+        slot = (slot + 1) & mask;
+      }
+      return slot;
+    }
+
+    private static int hash(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the scenarios of {@link TrackerTest} on {@link IndexedTracker} and verifies that both trackers match the
+ * same issues on random inputs.
+ */
+public class IndexedTrackerTest extends TrackerTest {
+
+  private static final RuleKey[] RULES = {RULE_SYSTEM_PRINT, RULE_UNUSED_LOCAL_VARIABLE, RULE_UNUSED_PRIVATE_METHOD, RULE_NOT_DESIGNED_FOR_EXTENSION, RULE_MANUAL};
+  private static final String[] MESSAGES = {"msg1", "msg2", "msg3"};
+
+  public IndexedTrackerTest() {
+    tracker = new IndexedTracker<>();
+  }
+
+  @Test
+  public void same_matching_as_Tracker_on_random_inputs() {
+    Random random = new Random(42L);
+    for (int i = 0; i < 200; i++) {
+      List<String> baseLines = randomLines(random);
+      List<String> rawLines = modify(random, baseLines);
+      FakeInput baseInput = randomInput(random, baseLines);
+      FakeInput rawInput = randomInput(random, rawLines);
+
+      Tracking<Issue, Issue> expected = new Tracker<Issue, Issue>().track(rawInput, baseInput);
+      Tracking<Issue, Issue> tracking = tracker.track(rawInput, baseInput);
+
+      assertThat(tracking.getMatchedRaws()).hasSameSizeAs(expected.getMatchedRaws());
+      for (Map.Entry<Issue, Issue> entry : expected.getMatchedRaws().entrySet()) {
+        assertThat(tracking.baseFor(entry.getKey())).isSameAs(entry.getValue());
+      }
+      assertThat(tracking.getOpenManualIssuesByLine()).isEqualTo(expected.getOpenManualIssuesByLine());
+    }
+  }
+
+  private static List<String> randomLines(Random random) {
+    List<String> lines = new ArrayList<>();
+    int count = 1 + random.nextInt(40);
+    for (int i = 0; i < count; i++) {
+      lines.add("H" + random.nextInt(10));
+    }
+    return lines;
+  }
+
+  private static List<String> modify(Random random, List<String> lines) {
+    List<String> result = new ArrayList<>(lines);
+    int changes = random.nextInt(5);
+    for (int i = 0; i < changes; i++) {
+      int index = random.nextInt(result.size());
+      if (random.nextBoolean()) {
+        result.add(index, "N" + random.nextInt(5));
+      } else if (result.size() > 1) {
+        result.remove(index);
+      }
+    }
+    return result;
+  }
+
+  private static FakeInput randomInput(Random random, List<String> lineHashes) {
+    FakeInput input = new FakeInput(lineHashes.toArray(new String[lineHashes.size()]));
+    int count = random.nextInt(30);
+    for (int i = 0; i < count; i++) {
+      RuleKey rule = RULES[random.nextInt(RULES.length)];
+      String message = MESSAGES[random.nextInt(MESSAGES.length)];
+      if (random.nextInt(10) == 0) {
+        input.createIssue(rule, message);
+      } else {
+        input.createIssueOnLine(1 + random.nextInt(lineHashes.size()), rule, message);
+      }
+    }
+    return input;
+  }
+}
@@ -417,7 +417,7 @@ public class TrackerTest {
     assertThat(Iterables.getOnlyElement(openManualIssues.get(1))).isSameAs(issue);
   }
 
-  private static class Issue implements Trackable {
+  static class Issue implements Trackable {
     private final RuleKey ruleKey;
     private final Integer line;
     private final String message, lineHash;
@@ -450,7 +450,7 @@ public class TrackerTest {
     }
   }
 
-  private static class FakeInput implements Input<Issue> {
+  static class FakeInput implements Input<Issue> {
     private final List<Issue> issues = new ArrayList<>();
     private final List<String> lineHashes;
 
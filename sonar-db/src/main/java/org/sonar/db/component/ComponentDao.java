@@ -178,6 +178,14 @@ public class ComponentDao implements Dao {
     return mapper(session).selectProjects();
   }
 
+  /**
+   * Returns the UUIDs of the projects returned by {@link #selectProjects(DbSession)}, sorted
+   * according to the collation of the database. They are used as bounds of project ranges.
+   */
+  public List<String> selectProjectUuids(DbSession session) {
+    return mapper(session).selectProjectUuids();
+  }
+
   public List<ComponentDto> selectComponents(DbSession session, Collection<String> qualifiers, int offset, int limit, @Nullable String query) {
     Map<String, Object> parameters = newHashMapWithExpectedSize(2);
     addProjectQualifier(parameters);
@@ -60,7 +60,7 @@ public interface ComponentMapper {
   List<String> selectExistingUuids(@Param("uuids") Collection<String> uuids);
 
   /**
-   * Return all project (PRJ/TRK) uuids
+   * Return all enabled project (PRJ/TRK) uuids, sorted according to the database collation
    */
   List<String> selectProjectUuids();
 
@@ -22,8 +22,16 @@ package org.sonar.db.purge;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.util.List;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.session.SqlSession;
+import org.sonar.api.utils.internal.Uuids;
 
+/**
+ * By default, identifiers are split into partitions and each dependent table is cleaned by
+ * one statement per partition. In staged mode, identifiers are first inserted into the table
+ * purge_ids, then each dependent table is cleaned by a single set-based statement.
+ */
 class PurgeCommands {
 
   private static final int MAX_SNAPSHOTS_PER_QUERY = 1000;
@@ -32,23 +40,58 @@ class PurgeCommands {
   private final SqlSession session;
   private final PurgeMapper purgeMapper;
   private final PurgeProfiler profiler;
+  private final boolean staged;
 
   PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler) {
+    this(session, purgeMapper, profiler, false);
+  }
+
+  PurgeCommands(SqlSession session, PurgeMapper purgeMapper, PurgeProfiler profiler, boolean staged) {
     this.session = session;
     this.purgeMapper = purgeMapper;
     this.profiler = profiler;
+    this.staged = staged;
   }
 
   @VisibleForTesting
   PurgeCommands(SqlSession session, PurgeProfiler profiler) {
-    this(session, session.getMapper(PurgeMapper.class), profiler);
+    this(session, profiler, false);
+  }
+
+  @VisibleForTesting
+  PurgeCommands(SqlSession session, PurgeProfiler profiler, boolean staged) {
+    this(session, session.getMapper(PurgeMapper.class), profiler, staged);
   }
 
   List<Long> selectSnapshotIds(PurgeSnapshotQuery query) {
     return purgeMapper.selectSnapshotIds(query);
   }
 
+  /**
+   * Deletes the root component and all the components having it as root
+   */
+  void deleteResourcesByRootId(long rootId) {
+    if (staged) {
+      String componentsKey = Uuids.create();
+      try {
+        profiler.start("stageComponentIds (purge_ids)");
+        commitAndStop(purgeMapper.insertComponentPurgeIdsByRootId(componentsKey, rootId));
+        deleteStagedResources(componentsKey);
+      } finally {
+        unstage(componentsKey);
+      }
+      return;
+    }
+    deleteResources(purgeMapper.selectComponentIdUuidsByRootId(rootId));
+  }
+
   void deleteResources(List<IdUuidPair> componentIdUuids) {
+    if (staged) {
+      if (!componentIdUuids.isEmpty()) {
+        deleteStagedResources(componentIdUuids);
+      }
+      return;
+    }
     List<List<Long>> componentIdPartitions = Lists.partition(IdUuidPairs.ids(componentIdUuids), MAX_RESOURCES_PER_QUERY);
     List<List<String>> componentUuidsPartitions = Lists.partition(IdUuidPairs.uuids(componentIdUuids), MAX_RESOURCES_PER_QUERY);
     // Note : do not merge the delete statements into a single loop of resource ids. It's
@@ -152,6 +195,18 @@ class PurgeCommands {
 
   @VisibleForTesting
   protected void deleteSnapshots(final List<Long> snapshotIds) {
+    if (staged) {
+      if (!snapshotIds.isEmpty()) {
+        String purgeKey = Uuids.create();
+        try {
+          stageSnapshotIds(purgeKey, snapshotIds);
+          deleteStagedSnapshots(purgeKey);
+        } finally {
+          unstage(purgeKey);
+        }
+      }
+      return;
+    }
 
     List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
 
@@ -186,6 +241,13 @@ class PurgeCommands {
   @VisibleForTesting
   protected void purgeSnapshots(final List<Long> snapshotIds) {
     // note that events are not deleted
+    if (staged) {
+      if (!snapshotIds.isEmpty()) {
+        purgeStagedSnapshots(snapshotIds);
+      }
+      return;
+    }
+
     List<List<Long>> snapshotIdsPartition = Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY);
 
     deleteSnapshotDuplications(snapshotIdsPartition);
@@ -215,6 +277,145 @@ class PurgeCommands {
     profiler.stop();
   }
 
+  private void deleteStagedResources(List<IdUuidPair> componentIdUuids) {
+    String componentsKey = Uuids.create();
+    try {
+      profiler.start("stageComponentIds (purge_ids)");
+      int rowCount = 0;
+      for (List<Long> partResourceIds : Lists.partition(IdUuidPairs.ids(componentIdUuids), MAX_RESOURCES_PER_QUERY)) {
+        rowCount += rowCount(purgeMapper.insertComponentPurgeIds(componentsKey, partResourceIds));
+      }
+      session.commit();
+      profiler.stop(rowCount);
+      deleteStagedResources(componentsKey);
+    } finally {
+      unstage(componentsKey);
+    }
+  }
+
+  private void deleteStagedResources(String componentsKey) {
+    String snapshotsKey = Uuids.create();
+    try {
+      profiler.start("stageSnapshotIds (purge_ids)");
+      commitAndStop(purgeMapper.insertSnapshotPurgeIdsOfComponents(snapshotsKey, componentsKey));
+      deleteStagedSnapshots(snapshotsKey);
+    } finally {
+      unstage(snapshotsKey);
+    }
+
+    profiler.start("deleteResourceLinks (project_links)");
+    commitAndStop(purgeMapper.deleteStagedResourceLinks(componentsKey));
+
+    profiler.start("deleteResourceProperties (properties)");
+    commitAndStop(purgeMapper.deleteStagedResourceProperties(componentsKey));
+
+    profiler.start("deleteResourceIndex (resource_index)");
+    commitAndStop(purgeMapper.deleteStagedResourceIndex(componentsKey));
+
+    profiler.start("deleteResourceGroupRoles (group_roles)");
+    commitAndStop(purgeMapper.deleteStagedResourceGroupRoles(componentsKey));
+
+    profiler.start("deleteResourceUserRoles (user_roles)");
+    commitAndStop(purgeMapper.deleteStagedResourceUserRoles(componentsKey));
+
+    profiler.start("deleteResourceManualMeasures (manual_measures)");
+    commitAndStop(purgeMapper.deleteStagedResourceManualMeasures(componentsKey));
+
+    profiler.start("deleteComponentIssueChanges (issue_changes)");
+    commitAndStop(purgeMapper.deleteStagedComponentIssueChanges(componentsKey));
+
+    profiler.start("deleteComponentIssues (issues)");
+    commitAndStop(purgeMapper.deleteStagedComponentIssues(componentsKey));
+
+    profiler.start("deleteResourceActionPlans (action_plans)");
+    commitAndStop(purgeMapper.deleteStagedResourceActionPlans(componentsKey));
+
+    profiler.start("deleteComponentEvents (events)");
+    commitAndStop(purgeMapper.deleteStagedComponentEvents(componentsKey));
+
+    profiler.start("deleteResource (projects)");
+    commitAndStop(purgeMapper.deleteStagedResources(componentsKey));
+
+    profiler.start("deleteAuthors (authors)");
+    commitAndStop(purgeMapper.deleteStagedAuthors(componentsKey));
+  }
+
+  private void deleteStagedSnapshots(String purgeKey) {
+    profiler.start("deleteSnapshotDuplications (duplications_index)");
+    commitAndStop(purgeMapper.deleteStagedSnapshotDuplications(purgeKey));
+
+    profiler.start("deleteSnapshotEvents (events)");
+    commitAndStop(purgeMapper.deleteStagedSnapshotEvents(purgeKey));
+
+    profiler.start("deleteSnapshotMeasures (project_measures)");
+    commitAndStop(purgeMapper.deleteStagedSnapshotMeasures(purgeKey));
+
+    profiler.start("deleteSnapshot (snapshots)");
+    commitAndStop(purgeMapper.deleteStagedSnapshots(purgeKey));
+  }
+
+  private void purgeStagedSnapshots(List<Long> snapshotIds) {
+    String purgeKey = Uuids.create();
+    try {
+      stageSnapshotIds(purgeKey, snapshotIds);
+
+      profiler.start("deleteSnapshotDuplications (duplications_index)");
+      commitAndStop(purgeMapper.deleteStagedSnapshotDuplications(purgeKey));
+
+      profiler.start("deleteSnapshotWastedMeasures (project_measures)");
+      List<Long> metricIdsWithoutHistoricalData = purgeMapper.selectMetricIdsWithoutHistoricalData();
+      commitAndStop(purgeMapper.deleteStagedSnapshotWastedMeasures(purgeKey, metricIdsWithoutHistoricalData));
+
+      profiler.start("updatePurgeStatusToOne (snapshots)");
+      commitAndStop(purgeMapper.updateStagedPurgeStatusToOne(purgeKey));
+    } finally {
+      unstage(purgeKey);
+    }
+  }
+
+  /**
+   * Identifiers are copied from the table snapshots by a single statement per partition,
+   * instead of one insert per identifier.
+   */
+  private void stageSnapshotIds(String purgeKey, List<Long> snapshotIds) {
+    profiler.start("stageSnapshotIds (purge_ids)");
+    int rowCount = 0;
+    for (List<Long> partSnapshotIds : Lists.partition(snapshotIds, MAX_SNAPSHOTS_PER_QUERY)) {
+      rowCount += rowCount(purgeMapper.insertSnapshotPurgeIds(purgeKey, partSnapshotIds));
+    }
+    session.commit();
+    profiler.stop(rowCount);
+  }
+
+  private void unstage(String purgeKey) {
+    profiler.start("deletePurgeIds (purge_ids)");
+    commitAndStop(purgeMapper.deletePurgeIds(purgeKey));
+  }
+
+  private void commitAndStop(int result) {
+    int rowCount = rowCount(result);
+    session.commit();
+    profiler.stop(rowCount);
+  }
+
+  /**
+   * Number of rows affected by the statement that returned the given result. In batch mode, the
+   * statement is still pending, so it's flushed to get the update counts from the JDBC driver.
+   */
+  private int rowCount(int result) {
+    if (result != BatchExecutor.BATCH_UPDATE_RETURN_VALUE) {
+      return result;
+    }
+    int rowCount = 0;
+    for (BatchResult batchResult : session.flushStatements()) {
+      for (int updateCount : batchResult.getUpdateCounts()) {
+        // some drivers return Statement.SUCCESS_NO_INFO
+        rowCount += Math.max(updateCount, 0);
+      }
+    }
+    return rowCount;
+  }
+
   public void deleteFileSources(String rootUuid) {
     profiler.start("deleteFileSources (file_sources)");
     purgeMapper.deleteFileSourcesByProjectUuid(rootUuid);
@@ -33,17 +33,27 @@ public class PurgeConfiguration {
   private final IdUuidPair rootProjectIdUuid;
   private final String[] scopesWithoutHistoricalData;
   private final int maxAgeInDaysOfClosedIssues;
+  private final boolean stagedPurge;
   private final System2 system2;
 
   public PurgeConfiguration(IdUuidPair rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues) {
-    this(rootProjectId, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, System2.INSTANCE);
+    this(rootProjectId, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, false);
+  }
+
+  public PurgeConfiguration(IdUuidPair rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues, boolean stagedPurge) {
+    this(rootProjectId, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, stagedPurge, System2.INSTANCE);
   }
 
   @VisibleForTesting
   PurgeConfiguration(IdUuidPair rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues, System2 system2) {
+    this(rootProjectId, scopesWithoutHistoricalData, maxAgeInDaysOfClosedIssues, false, system2);
+  }
+
+  private PurgeConfiguration(IdUuidPair rootProjectId, String[] scopesWithoutHistoricalData, int maxAgeInDaysOfClosedIssues, boolean stagedPurge, System2 system2) {
     this.rootProjectIdUuid = rootProjectId;
     this.scopesWithoutHistoricalData = scopesWithoutHistoricalData;
     this.maxAgeInDaysOfClosedIssues = maxAgeInDaysOfClosedIssues;
+    this.stagedPurge = stagedPurge;
     this.system2 = system2;
   }
 
@@ -52,7 +62,8 @@ public class PurgeConfiguration {
     if (settings.getBoolean(PurgeConstants.PROPERTY_CLEAN_DIRECTORY)) {
       scopes = new String[] {Scopes.DIRECTORY, Scopes.FILE};
     }
-    return new PurgeConfiguration(idUuidPair, scopes, settings.getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES));
+    return new PurgeConfiguration(idUuidPair, scopes, settings.getInt(PurgeConstants.DAYS_BEFORE_DELETING_CLOSED_ISSUES),
+      settings.getBoolean(PurgeConstants.STAGED_PURGE));
   }
 
   public IdUuidPair rootProjectIdUuid() {
@@ -63,6 +74,14 @@ public class PurgeConfiguration {
     return scopesWithoutHistoricalData;
   }
 
+  /**
+   * Whether the identifiers of purged snapshots are staged in table purge_ids, so that
+   * each table is purged by a single set-based statement.
+   */
+  public boolean isStagedPurge() {
+    return stagedPurge;
+  }
+
   @CheckForNull
   public Date maxLiveDateOfClosedIssues() {
     return maxLiveDateOfClosedIssues(new Date(system2.now()));
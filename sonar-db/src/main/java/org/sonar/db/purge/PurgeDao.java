@@ -68,7 +68,7 @@ public class PurgeDao implements Dao {
 
   public void purge(DbSession session, PurgeConfiguration conf, PurgeListener listener, PurgeProfiler profiler) {
     PurgeMapper mapper = session.getMapper(PurgeMapper.class);
-    PurgeCommands commands = new PurgeCommands(session, mapper, profiler);
+    PurgeCommands commands = new PurgeCommands(session, mapper, profiler, conf.isStagedPurge());
     List<ResourceDto> projects = getProjects(conf.rootProjectIdUuid().getId(), session);
     for (ResourceDto project : projects) {
       LOG.debug("-> Clean " + project.getLongName() + " [id=" + project.getId() + "]");
@@ -179,7 +179,14 @@ public class PurgeDao implements Dao {
   }
 
   public PurgeDao deleteResourceTree(DbSession session, IdUuidPair rootIdUuid, PurgeProfiler profiler) {
-    deleteProject(rootIdUuid, mapper(session), new PurgeCommands(session, profiler));
+    return deleteResourceTree(session, rootIdUuid, profiler, false);
+  }
+
+  /**
+   * @param staged see {@link PurgeConfiguration#isStagedPurge()}
+   */
+  public PurgeDao deleteResourceTree(DbSession session, IdUuidPair rootIdUuid, PurgeProfiler profiler, boolean staged) {
+    deleteProject(rootIdUuid, mapper(session), new PurgeCommands(session, profiler, staged));
     deleteFileSources(rootIdUuid.getUuid(), new PurgeCommands(session, profiler));
     return this;
   }
@@ -194,8 +201,7 @@ public class PurgeDao implements Dao {
       deleteProject(childId, mapper, commands);
     }
 
-    List<IdUuidPair> componentIdUuids = mapper.selectComponentIdUuidsByRootId(rootProjectId.getId());
-    commands.deleteResources(componentIdUuids);
+    commands.deleteResourcesByRootId(rootProjectId.getId());
   }
 
   private void disableResource(IdUuidPair componentIdUuid, PurgeMapper mapper) {
@@ -91,4 +91,50 @@ public interface PurgeMapper {
 
   void deleteFileSourcesByUuid(String fileUuid);
 
+  int insertSnapshotPurgeIds(@Param("purgeKey") String purgeKey, @Param("snapshotIds") List<Long> snapshotIds);
+
+  int insertComponentPurgeIds(@Param("purgeKey") String purgeKey, @Param("componentIds") List<Long> componentIds);
+
+  int insertComponentPurgeIdsByRootId(@Param("purgeKey") String purgeKey, @Param("rootId") long rootId);
+
+  int insertSnapshotPurgeIdsOfComponents(@Param("purgeKey") String purgeKey, @Param("componentsPurgeKey") String componentsPurgeKey);
+
+  int deletePurgeIds(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedSnapshots(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedSnapshotDuplications(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedSnapshotEvents(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedSnapshotMeasures(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedSnapshotWastedMeasures(@Param("purgeKey") String purgeKey, @Param("mids") List<Long> metricIds);
+
+  int updateStagedPurgeStatusToOne(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceLinks(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceProperties(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceIndex(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceGroupRoles(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceUserRoles(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceManualMeasures(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedComponentIssueChanges(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedComponentIssues(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResourceActionPlans(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedComponentEvents(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedResources(@Param("purgeKey") String purgeKey);
+
+  int deleteStagedAuthors(@Param("purgeKey") String purgeKey);
+
 }
@@ -33,6 +33,7 @@ import org.sonar.api.utils.log.Logger;
 public class PurgeProfiler {
 
   private Map<String, Long> durations = new HashMap<>();
+  private Map<String, Long> rowCounts = new HashMap<>();
   private long startTime;
   private String currentTable;
   private final Clock clock;
@@ -48,6 +49,7 @@ public class PurgeProfiler {
 
   public void reset() {
     durations.clear();
+    rowCounts.clear();
   }
 
   void start(String table) {
@@ -65,6 +67,15 @@ public class PurgeProfiler {
     durations.put(currentTable, cumulatedDuration + (clock.now() - startTime));
   }
 
+  /**
+   * Same as {@link #stop()}, but also accumulates the number of rows affected by the statements of the current table.
+   */
+  void stop(long rowCount) {
+    stop();
+    Long cumulatedRowCount = rowCounts.get(currentTable);
+    rowCounts.put(currentTable, (cumulatedRowCount == null ? 0L : cumulatedRowCount) + rowCount);
+  }
+
   public void dump(long totalTime, Logger logger) {
     List<Entry<String, Long>> data = new ArrayList<>(durations.entrySet());
     Collections.sort(data, new Comparator<Entry<String, Long>>() {
@@ -78,6 +89,10 @@ public class PurgeProfiler {
       StringBuilder sb = new StringBuilder();
       sb.append("   o ").append(entry.getKey()).append(": ").append(TimeUtils.formatDuration(entry.getValue()))
         .append(" (").append((int) (entry.getValue() / percent)).append("%)");
+      Long rowCount = rowCounts.get(entry.getKey());
+      if (rowCount != null) {
+        sb.append(", ").append(rowCount).append(" rows");
+      }
       logger.info(sb.toString());
     }
   }
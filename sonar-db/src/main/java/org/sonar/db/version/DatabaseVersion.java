@@ -29,7 +29,7 @@ import org.sonar.db.MyBatis;
 
 public class DatabaseVersion {
 
-  public static final int LAST_VERSION = 927;
+  public static final int LAST_VERSION = 928;
 
   /**
    * The minimum supported version which can be upgraded. Lower
@@ -79,6 +79,7 @@ public class DatabaseVersion {
     "project_measures",
     "project_qprofiles",
     "properties",
+    "purge_ids",
     "resource_index",
     "rules",
     "rules_parameters",
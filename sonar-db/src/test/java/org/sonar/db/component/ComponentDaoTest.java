@@ -475,6 +475,13 @@ public class ComponentDaoTest {
     assertThat(result).extracting("id").containsOnly(42L, 1L);
   }
 
+  @Test
+  public void select_project_uuids() {
+    db.prepareDbUnit(getClass(), "select_provisioned_projects.xml");
+
+    assertThat(underTest.selectProjectUuids(db.getSession())).containsExactly("ABCD", "PPAA");
+  }
+
   @Test
   public void select_provisioned_projects() {
     db.prepareDbUnit(getClass(), "select_provisioned_projects.xml");
@@ -23,12 +23,22 @@ import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.sonar.api.utils.System2;
 import org.sonar.db.DbTester;
 import org.sonar.test.DbTests;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @Category(DbTests.class)
 public class PurgeCommandsTest {
@@ -117,6 +127,108 @@ public class PurgeCommandsTest {
     // The goal of this test is only to check that the query do no fail, not to check result
   }
 
+  @Test
+  public void delete_staged_snapshot() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteSnapshot.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).deleteSnapshots(PurgeSnapshotQuery.create().setId(5L));
+
+    dbTester.assertDbUnit(getClass(), "shouldDeleteSnapshot-result.xml", "snapshots", "project_measures", "duplications_index", "events");
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
+  @Test
+  public void report_row_counts_of_staged_deletions() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteSnapshot.xml");
+    PurgeProfiler profiler = mock(PurgeProfiler.class);
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).deleteSnapshots(PurgeSnapshotQuery.create().setId(5L));
+
+    InOrder inOrder = inOrder(profiler);
+    inOrder.verify(profiler).start("stageSnapshotIds (purge_ids)");
+    inOrder.verify(profiler).stop(1L);
+    inOrder.verify(profiler).start("deleteSnapshotDuplications (duplications_index)");
+    inOrder.verify(profiler).stop(1L);
+    inOrder.verify(profiler).start("deleteSnapshotEvents (events)");
+    inOrder.verify(profiler).stop(1L);
+    inOrder.verify(profiler).start("deleteSnapshotMeasures (project_measures)");
+    inOrder.verify(profiler).stop(1L);
+    inOrder.verify(profiler).start("deleteSnapshot (snapshots)");
+    inOrder.verify(profiler).stop(1L);
+    inOrder.verify(profiler).start("deletePurgeIds (purge_ids)");
+    inOrder.verify(profiler).stop(1L);
+  }
+
+  @Test
+  public void staged_deletion_of_huge_number_of_snapshots() {
+    dbTester.truncateTables();
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).deleteSnapshots(getHugeNumberOfIds());
+
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
+  @Test
+  public void purge_staged_snapshot() {
+    dbTester.prepareDbUnit(getClass(), "shouldPurgeSnapshot.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).purgeSnapshots(PurgeSnapshotQuery.create().setId(1L));
+
+    dbTester.assertDbUnit(getClass(), "shouldPurgeSnapshot-result.xml", "snapshots", "project_measures", "duplications_index", "events");
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
+  @Test
+  public void delete_wasted_measures_when_purging_staged_snapshot() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingSnapshot.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).purgeSnapshots(PurgeSnapshotQuery.create().setId(1L));
+
+    dbTester.assertDbUnit(getClass(), "shouldDeleteWastedMeasuresWhenPurgingSnapshot-result.xml", "project_measures");
+  }
+
+  @Test
+  public void delete_staged_resource() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).deleteResources(newArrayList(new IdUuidPair(1L, "1")));
+
+    assertThat(dbTester.countRowsOfTable("projects")).isZero();
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("events")).isZero();
+    assertThat(dbTester.countRowsOfTable("issues")).isZero();
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isZero();
+    assertThat(dbTester.countRowsOfTable("authors")).isZero();
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
+  @Test
+  public void unstage_ids_when_staged_deletion_fails() {
+    PurgeMapper mapper = mock(PurgeMapper.class);
+    when(mapper.deleteStagedSnapshots(anyString())).thenThrow(new IllegalStateException("Fail to delete snapshots"));
+
+    try {
+      new PurgeCommands(dbTester.getSession(), mapper, profiler, true).deleteSnapshots(newArrayList(5L));
+      fail();
+    } catch (IllegalStateException e) {
+      ArgumentCaptor<String> purgeKey = ArgumentCaptor.forClass(String.class);
+      verify(mapper).insertSnapshotPurgeIds(purgeKey.capture(), anyListOf(Long.class));
+      verify(mapper).deletePurgeIds(eq(purgeKey.getValue()));
+    }
+  }
+
+  @Test
+  public void delete_staged_resources_by_root_id() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteResource.xml");
+
+    new PurgeCommands(dbTester.getSession(), profiler, true).deleteResourcesByRootId(1L);
+
+    assertThat(dbTester.countRowsOfTable("projects")).isZero();
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("issues")).isZero();
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
   private List<IdUuidPair> getHugeNumberOfIdUuids() {
     List<IdUuidPair> hugeNbOfSnapshotIds = newArrayList();
     for (long i = 0; i < 4500; i++) {
@@ -62,6 +62,17 @@ public class PurgeConfigurationTest {
     assertThat(underTest.scopesWithoutHistoricalData()).contains(Scopes.FILE)
       .doesNotContain(Scopes.DIRECTORY);
     assertThat(underTest.maxLiveDateOfClosedIssues(now)).isEqualTo(DateUtils.addDays(now, -5));
+    assertThat(underTest.isStagedPurge()).isFalse();
+  }
+
+  @Test
+  public void staged_purge_if_in_settings() {
+    Settings settings = new Settings();
+    settings.setProperty(PurgeConstants.STAGED_PURGE, true);
+
+    PurgeConfiguration underTest = PurgeConfiguration.newDefaultPurgeConfiguration(settings, new IdUuidPair(42L, "any-uuid"));
+
+    assertThat(underTest.isStagedPurge()).isTrue();
   }
 
   @Test
@@ -70,6 +70,14 @@ public class PurgeDaoTest {
     dbTester.assertDbUnit(getClass(), "shouldDeleteHistoricalDataOfDirectoriesAndFiles-result.xml", "projects", "snapshots");
   }
 
+  @Test
+  public void delete_historical_data_of_directories_and_files_with_staged_purge() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteHistoricalDataOfDirectoriesAndFiles.xml");
+    underTest.purge(new PurgeConfiguration(new IdUuidPair(1L, "1"), new String[]{Scopes.DIRECTORY, Scopes.FILE}, 30, true), PurgeListener.EMPTY, new PurgeProfiler());
+    dbTester.assertDbUnit(getClass(), "shouldDeleteHistoricalDataOfDirectoriesAndFiles-result.xml", "projects", "snapshots");
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
   @Test
   public void disable_resources_without_last_snapshot() {
     dbTester.prepareDbUnit(getClass(), "disable_resources_without_last_snapshot.xml");
@@ -112,6 +120,20 @@ public class PurgeDaoTest {
     assertThat(dbTester.countRowsOfTable("file_sources")).isZero();
   }
 
+  @Test
+  public void delete_project_and_associated_data_with_staged_purge() {
+    dbTester.prepareDbUnit(getClass(), "shouldDeleteProject.xml");
+    underTest.deleteResourceTree(dbTester.getSession(), new IdUuidPair(1L, "A"), new PurgeProfiler(), true);
+    dbTester.getSession().commit();
+    assertThat(dbTester.countRowsOfTable("projects")).isZero();
+    assertThat(dbTester.countRowsOfTable("snapshots")).isZero();
+    assertThat(dbTester.countRowsOfTable("action_plans")).isZero();
+    assertThat(dbTester.countRowsOfTable("issues")).isZero();
+    assertThat(dbTester.countRowsOfTable("issue_changes")).isZero();
+    assertThat(dbTester.countRowsOfTable("file_sources")).isZero();
+    assertThat(dbTester.countRowsOfTable("purge_ids")).isZero();
+  }
+
   @Test
   public void should_delete_old_closed_issues() {
     dbTester.prepareDbUnit(getClass(), "should_delete_old_closed_issues.xml");
@@ -24,6 +24,7 @@ import org.junit.Test;
 import org.sonar.api.utils.log.Logger;
 
 import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.endsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -80,6 +81,25 @@ public class PurgeProfilerTest {
     verify(logger).info(contains("bar: 5ms"));
   }
 
+  @Test
+  public void dump_row_counts() {
+    profiler.start("foo");
+    clock.sleep(10);
+    profiler.stop(3);
+
+    profiler.start("foo");
+    clock.sleep(5);
+    profiler.stop(4);
+
+    profiler.start("bar");
+    clock.sleep(5);
+    profiler.stop();
+
+    profiler.dump(50, logger);
+    verify(logger).info(contains("foo: 15ms (30%), 7 rows"));
+    verify(logger).info(endsWith("bar: 5ms (10%)"));
+  }
+
   private class MockedClock extends PurgeProfiler.Clock {
     private long now = 0;
 
@@ -39,6 +39,10 @@ import org.sonar.duplications.utils.FastStringComparator;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Queries do not modify the index once it is sorted, so they can be executed concurrently after a first query,
+ * as long as no block is inserted.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -65,8 +69,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   private int[] resourceIdsIndex;
 
-  private final Block.Builder blockBuilder = Block.builder();
-
   public PackedMemoryCloneIndex() {
     this(8, DEFAULT_INITIAL_CAPACITY);
   }
@@ -95,15 +97,12 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   public Collection<Block> getByResourceId(String resourceId) {
     ensureSorted();
 
-    // prepare resourceId for binary search
-    resourceIds[size] = resourceId;
-    resourceIdsIndex[size] = size;
-
-    int index = DataUtils.binarySearch(byResourceId);
+    int index = lowerBoundByResourceId(resourceId);
 
+    Block.Builder blockBuilder = Block.builder();
     List<Block> result = new ArrayList<>();
-    int realIndex = resourceIdsIndex[index];
-    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[realIndex], resourceId) == 0) {
+    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[index]], resourceId) == 0) {
+      int realIndex = resourceIdsIndex[index];
       // extract block (note that there is no need to extract resourceId)
       int offset = realIndex * blockInts;
       int[] hash = new int[hashInts];
@@ -126,7 +125,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
       result.add(block);
 
       index++;
-      realIndex = resourceIdsIndex[index];
     }
     return result;
   }
@@ -143,18 +141,15 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
-    }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    int index = lowerBoundByHash(hash);
 
+    Block.Builder blockBuilder = Block.builder();
     List<Block> result = new ArrayList<>();
-    while (index < size && !isLessByHash(size, index)) {
+    while (index < size && compareHash(index, hash) == 0) {
       // extract block (note that there is no need to extract hash)
       String resourceId = resourceIds[index];
-      offset = index * blockInts + hashInts;
+      int offset = index * blockInts + hashInts;
       int indexInFile = blockData[offset++];
       int firstLineNumber = blockData[offset++];
       int lastLineNumber = blockData[offset++];
@@ -244,6 +239,47 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     sorted = true;
   }
 
+  /**
+   * Same as {@link DataUtils#binarySearch(DataUtils.Sortable)}, but without storing the searched value in the index
+   */
+  private int lowerBoundByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compareHash(int i, int[] hash) {
+    int i2 = i * blockInts;
+    for (int k = 0; k < hashInts; k++, i2++) {
+      if (blockData[i2] != hash[k]) {
+        return blockData[i2] < hash[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private int lowerBoundByResourceId(String resourceId) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[mid]], resourceId) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
   private boolean isLessByHash(int i, int j) {
     int i2 = i * blockInts;
     int j2 = j * blockInts;
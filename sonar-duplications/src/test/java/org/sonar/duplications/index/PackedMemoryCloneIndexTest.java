@@ -24,7 +24,13 @@ import org.junit.Test;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
@@ -89,6 +95,37 @@ public class PackedMemoryCloneIndexTest {
     assertThat(index.getByResourceId("a").size(), is(2));
   }
 
+  @Test
+  public void should_be_queried_concurrently_once_sorted() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + (i % 100), i % 10));
+    }
+    index.getBySequenceHash(new ByteArray(0L));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            boolean ok = true;
+            for (int i = 0; i < 1000; i++) {
+              ok &= index.getBySequenceHash(new ByteArray((long) (i % 10))).size() == 100;
+              ok &= index.getByResourceId("r" + (i % 100)).size() == 10;
+            }
+            return ok;
+          }
+        }));
+      }
+      for (Future<Boolean> result : results) {
+        assertThat(result.get(), is(true));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   /**
    * Given: index, which accepts blocks with 4-byte hash.
    * Expected: exception during insertion of block with 8-byte hash.
@@ -20,6 +20,7 @@
 package org.sonar.home.cache;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
@@ -27,42 +28,61 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import static java.nio.file.StandardOpenOption.CREATE;
-import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
-import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
+/**
+ * Cache of values stored in files, which can be shared by several threads and several processes.
+ * <p/>
+ * Entries are always replaced by an atomic move of a completely written temporary file, so they are read
+ * without any lock. Only the loading of a missing value is locked, so that it is loaded once. Keys are
+ * distributed over {@link #STRIPES} locks, each made of a lock of threads and of a lock file for other processes,
+ * so that values of unrelated keys are loaded concurrently.
+ */
 public class PersistentCache {
 
+  /**
+   * Number of locks. Keys are MD5 digests in hexadecimal, so the lock of a key is given by its first digit.
+   */
+  static final int STRIPES = 16;
+
   private static final Charset ENCODING = StandardCharsets.UTF_8;
   private static final String DIGEST_ALGO = "MD5";
   private static final String LOCK_FNAME = ".lock";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
 
   // eviction strategy is to expire entries after modification once a time duration has elapsed
   private final long defaultDurationToExpireMs;
   private final Logger logger;
   private final String version;
   private final Path baseDir;
+  private final Stripe[] stripes = new Stripe[STRIPES];
 
   public PersistentCache(Path baseDir, long defaultDurationToExpireMs, Logger logger, String version) {
     this.baseDir = baseDir;
     this.defaultDurationToExpireMs = defaultDurationToExpireMs;
     this.logger = logger;
     this.version = version;
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(baseDir.resolve(LOCK_FNAME + "-" + Integer.toHexString(i)));
+    }
 
     reconfigure();
     logger.debug("cache: " + baseDir + ", default expiration time (ms): " + defaultDurationToExpireMs);
   }
 
-  public synchronized void reconfigure() {
+  public void reconfigure() {
     try {
       Files.createDirectories(baseDir);
     } catch (IOException e) {
@@ -75,8 +95,8 @@ public class PersistentCache {
   }
 
   @CheckForNull
-  public synchronized String getString(@Nonnull String obj, @Nullable final PersistentCacheLoader<String> valueLoader) throws IOException {
-    byte[] cached = get(obj, new ValueLoaderDecoder(valueLoader));
+  public String getString(@Nonnull String obj, @Nullable final PersistentCacheLoader<String> valueLoader) throws IOException {
+    byte[] cached = get(obj, valueLoader == null ? null : new ValueLoaderDecoder(valueLoader));
 
     if (cached == null) {
       return null;
@@ -86,111 +106,174 @@ public class PersistentCache {
   }
 
   @CheckForNull
-  public synchronized byte[] get(@Nonnull String obj, @Nullable PersistentCacheLoader<byte[]> valueLoader) throws IOException {
+  public byte[] get(@Nonnull String obj, @Nullable PersistentCacheLoader<byte[]> valueLoader) throws IOException {
     String key = getKey(obj);
 
-    try {
-      lock();
+    byte[] cached = getCache(key);
+    if (cached != null) {
+      logger.debug("cache hit for " + obj + " -> " + key);
+      return cached;
+    }
+
+    logger.debug("cache miss for " + obj + " -> " + key);
+
+    if (valueLoader == null) {
+      return null;
+    }
 
-      byte[] cached = getCache(key);
+    Stripe stripe = stripe(key);
+    try {
+      stripe.lock();
 
+      // may have been loaded by another thread or process in the meantime
+      cached = getCache(key);
       if (cached != null) {
-        logger.debug("cache hit for " + obj + " -> " + key);
         return cached;
       }
+      deleteIfExpired(getCacheEntryPath(key));
 
-      logger.debug("cache miss for " + obj + " -> " + key);
-
-      if (valueLoader != null) {
-        byte[] value = valueLoader.get();
-        if (value != null) {
-          putCache(key, value);
-        }
-        return value;
+      byte[] value = valueLoader.get();
+      if (value != null) {
+        putCache(key, value);
       }
+      return value;
     } finally {
-      unlock();
+      stripe.unlock();
     }
-
-    return null;
   }
 
-  public synchronized void put(@Nonnull String obj, @Nonnull byte[] value) throws IOException {
+  /**
+   * Opens a stream on the cached value, so that large values do not have to be loaded in memory. As entries
+   * are replaced atomically, the stream is not affected by a later update of the entry.
+   *
+   * @return null if the value is not cached or expired
+   */
+  @CheckForNull
+  public InputStream getStream(@Nonnull String obj) throws IOException {
     String key = getKey(obj);
+
+    Path cachePath = getCacheEntryPath(key);
     try {
-      lock();
-      putCache(key, value);
-    } finally {
-      unlock();
+      if (!isCacheEntryExpired(cachePath, defaultDurationToExpireMs)) {
+        logger.debug("cache hit for " + obj + " -> " + key);
+        return Files.newInputStream(cachePath);
+      }
+    } catch (NoSuchFileException e) {
+      // not cached or deleted in the meantime
     }
+    logger.debug("cache miss for " + obj + " -> " + key);
+    return null;
+  }
+
+  public void put(@Nonnull String obj, @Nonnull byte[] value) throws IOException {
+    putCache(getKey(obj), value);
   }
 
   /**
-   * Deletes all cache entries
+   * Creates an empty file in the cache directory, to be written then moved to an entry with
+   * {@link #put(String, Path)}. It is deleted by {@link #clean()} once expired if it is not moved.
    */
-  public synchronized void clear() {
+  public Path createTempFile() throws IOException {
+    return Files.createTempFile(baseDir, "entry", TEMP_FILE_SUFFIX);
+  }
+
+  /**
+   * Moves the file to the entry of the cache, replacing the previous value if any.
+   *
+   * @param file file created by {@link #createTempFile()}
+   */
+  public void put(@Nonnull String obj, @Nonnull Path file) throws IOException {
+    Files.move(file, getCacheEntryPath(getKey(obj)), REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  /**
+   * Deletes all cache entries. Temporary files are kept, as they may be being written by other threads or
+   * processes. Abandoned ones are deleted by {@link #clean()}.
+   */
+  public void clear() {
     logger.info("cache: clearing");
     try {
-      lock();
       deleteCacheEntries(new DirectoryClearFilter());
     } catch (IOException e) {
       logger.error("Error clearing cache", e);
-    } finally {
-      unlock();
     }
   }
 
   /**
    * Deletes cache entries that are no longer valid according to the default expiration time period.
    */
-  public synchronized void clean() {
+  public void clean() {
     logger.info("cache: cleaning");
     try {
-      lock();
       deleteCacheEntries(new DirectoryCleanFilter(defaultDurationToExpireMs));
     } catch (IOException e) {
       logger.error("Error cleaning cache", e);
-    } finally {
-      unlock();
     }
   }
 
-  private void lock() throws IOException {
-    lockRandomAccessFile = new RandomAccessFile(getLockPath().toFile(), "rw");
-    lockChannel = lockRandomAccessFile.getChannel();
-    lockFile = lockChannel.lock();
+  private Stripe stripe(String key) {
+    return stripes[Character.digit(key.charAt(0), 16) % STRIPES];
   }
 
-  private RandomAccessFile lockRandomAccessFile;
-  private FileChannel lockChannel;
-  private FileLock lockFile;
+  /**
+   * Lock of the keys of a stripe. A {@link FileLock} is held by the whole JVM, so the threads are first
+   * serialized by a {@link ReentrantLock}.
+   */
+  private class Stripe {
+    private final ReentrantLock threadLock = new ReentrantLock();
+    private final Path lockPath;
+    private RandomAccessFile lockRandomAccessFile;
+    private FileChannel lockChannel;
+    private FileLock lockFile;
+
+    Stripe(Path lockPath) {
+      this.lockPath = lockPath;
+    }
 
-  private void unlock() {
-    if (lockFile != null) {
-      try {
-        lockFile.release();
-      } catch (IOException e) {
-        logger.error("Error releasing lock", e);
-      }
+    void lock() throws IOException {
+      threadLock.lock();
+      lockRandomAccessFile = new RandomAccessFile(lockPath.toFile(), "rw");
+      lockChannel = lockRandomAccessFile.getChannel();
+      lockFile = lockChannel.lock();
     }
-    if (lockChannel != null) {
-      try {
-        lockChannel.close();
-      } catch (IOException e) {
-        logger.error("Error closing file channel", e);
+
+    /**
+     * Must be called in a finally block, even if {@link #lock()} failed
+     */
+    void unlock() {
+      if (!threadLock.isHeldByCurrentThread()) {
+        return;
       }
-    }
-    if (lockRandomAccessFile != null) {
       try {
-        lockRandomAccessFile.close();
-      } catch (IOException e) {
-        logger.error("Error closing file", e);
+        if (lockFile != null) {
+          try {
+            lockFile.release();
+          } catch (IOException e) {
+            logger.error("Error releasing lock", e);
+          }
+        }
+        if (lockChannel != null) {
+          try {
+            lockChannel.close();
+          } catch (IOException e) {
+            logger.error("Error closing file channel", e);
+          }
+        }
+        if (lockRandomAccessFile != null) {
+          try {
+            lockRandomAccessFile.close();
+          } catch (IOException e) {
+            logger.error("Error closing file", e);
+          }
+        }
+
+        lockFile = null;
+        lockRandomAccessFile = null;
+        lockChannel = null;
+      } finally {
+        threadLock.unlock();
       }
     }
-
-    lockFile = null;
-    lockRandomAccessFile = null;
-    lockChannel = null;
   }
 
   private String getKey(String uri) {
@@ -207,11 +290,14 @@ public class PersistentCache {
     }
   }
 
+  /**
+   * Entries may be concurrently deleted or replaced by other processes
+   */
   private void deleteCacheEntries(DirectoryStream.Filter<Path> filter) throws IOException {
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(baseDir, filter)) {
       for (Path p : stream) {
         try {
-          Files.delete(p);
+          Files.deleteIfExists(p);
         } catch (Exception e) {
           logger.error("Error deleting " + p, e);
         }
@@ -236,10 +322,18 @@ public class PersistentCache {
     }
   }
 
+  private static boolean isLockFile(Path entry) {
+    return entry.getFileName().toString().startsWith(LOCK_FNAME);
+  }
+
+  private static boolean isTempFile(Path entry) {
+    return entry.getFileName().toString().endsWith(TEMP_FILE_SUFFIX);
+  }
+
   private static class DirectoryClearFilter implements DirectoryStream.Filter<Path> {
     @Override
     public boolean accept(Path entry) throws IOException {
-      return !LOCK_FNAME.equals(entry.getFileName().toString());
+      return !isLockFile(entry) && !isTempFile(entry);
     }
   }
 
@@ -252,41 +346,55 @@ public class PersistentCache {
 
     @Override
     public boolean accept(Path entry) throws IOException {
-      if (LOCK_FNAME.equals(entry.getFileName().toString())) {
+      if (isLockFile(entry)) {
         return false;
       }
 
-      return isCacheEntryExpired(entry, defaultDurationToExpireMs);
+      try {
+        return isCacheEntryExpired(entry, defaultDurationToExpireMs);
+      } catch (NoSuchFileException e) {
+        return false;
+      }
     }
   }
 
+  /**
+   * The value is written in a temporary file which then replaces the entry, so that readers
+   * never see a partially written value.
+   */
   private void putCache(String key, byte[] value) throws IOException {
-    Path cachePath = getCacheEntryPath(key);
-    Files.write(cachePath, value, CREATE, WRITE, TRUNCATE_EXISTING);
+    Path tempFile = createTempFile();
+    try {
+      Files.write(tempFile, value);
+      Files.move(tempFile, getCacheEntryPath(key), REPLACE_EXISTING, ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
   }
 
+  @CheckForNull
   private byte[] getCache(String key) throws IOException {
     Path cachePath = getCacheEntryPath(key);
-
-    if (!validateCacheEntry(cachePath, this.defaultDurationToExpireMs)) {
+    try {
+      if (isCacheEntryExpired(cachePath, this.defaultDurationToExpireMs)) {
+        return null;
+      }
+      return Files.readAllBytes(cachePath);
+    } catch (NoSuchFileException e) {
+      // not cached or deleted in the meantime
       return null;
     }
-
-    return Files.readAllBytes(cachePath);
   }
 
-  private boolean validateCacheEntry(Path cacheEntryPath, long durationToExpireMs) throws IOException {
-    if (!Files.exists(cacheEntryPath)) {
-      return false;
-    }
-
-    if (isCacheEntryExpired(cacheEntryPath, durationToExpireMs)) {
-      logger.debug("cache: expiring entry");
-      Files.delete(cacheEntryPath);
-      return false;
+  private void deleteIfExpired(Path cacheEntryPath) throws IOException {
+    try {
+      if (isCacheEntryExpired(cacheEntryPath, defaultDurationToExpireMs)) {
+        logger.debug("cache: expiring entry");
+        Files.deleteIfExists(cacheEntryPath);
+      }
+    } catch (NoSuchFileException e) {
+      // nothing to expire
     }
-
-    return true;
   }
 
   private static boolean isCacheEntryExpired(Path cacheEntryPath, long durationToExpireMs) throws IOException {
@@ -302,10 +410,6 @@ public class PersistentCache {
     return false;
   }
 
-  private Path getLockPath() {
-    return baseDir.resolve(LOCK_FNAME);
-  }
-
   private Path getCacheEntryPath(String key) {
     return baseDir.resolve(key);
   }
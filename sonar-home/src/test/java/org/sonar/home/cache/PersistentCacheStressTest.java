@@ -0,0 +1,163 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.home.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Shares a {@link PersistentCache} between several processes, as done by concurrent analyses on a CI agent.
+ * Each process mixes reads, loads of missing values, writes, streaming reads and cleanings, and checks that
+ * it never reads a partially written value.
+ * <p/>
+ * It is not run with unit tests. The number of processes and the number of operations per process can be set
+ * with the system properties "processes" and "operations".
+ */
+public class PersistentCacheStressTest {
+
+  private static final java.util.logging.Logger LOG = java.util.logging.Logger.getLogger(PersistentCacheStressTest.class.getName());
+  private static final int KEYS = 50;
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  @Ignore("Starts several JVMs, to be run manually as a benchmark")
+  @Test
+  public void concurrent_processes_share_cache() throws Exception {
+    int processes = Integer.getInteger("processes", 4);
+    int operations = Integer.getInteger("operations", 10000);
+    double throughput = run(temp.newFolder(), processes, operations);
+    LOG.info(String.format("%d processes, %d operations each: %.0f operations/s", processes, operations, throughput));
+    assertThat(throughput).isGreaterThan(0.0);
+  }
+
+  /**
+   * @return total number of operations per second
+   */
+  private static double run(File dir, int processes, int operations) throws Exception {
+    String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+    List<Process> started = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < processes; i++) {
+      ProcessBuilder builder = new ProcessBuilder(Arrays.asList(java, "-cp", System.getProperty("java.class.path"),
+        Analyzer.class.getName(), dir.getAbsolutePath(), String.valueOf(operations), String.valueOf(i)));
+      builder.redirectErrorStream(true);
+      started.add(builder.start());
+    }
+    for (Process process : started) {
+      String output = IOUtils.toString(process.getInputStream());
+      assertThat(process.waitFor()).as(output).isEqualTo(0);
+    }
+    long elapsedMs = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return processes * operations * 1000.0 / elapsedMs;
+  }
+
+  /**
+   * Value of a key, large enough to make partial writes visible
+   */
+  private static String value(String uri) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append(uri).append(';');
+    }
+    return sb.toString();
+  }
+
+  public static class Analyzer {
+    public static void main(String[] args) throws Exception {
+      Path dir = new File(args[0]).toPath();
+      int operations = Integer.parseInt(args[1]);
+      Random random = new Random(Long.parseLong(args[2]));
+      PersistentCache cache = new PersistentCache(dir, Long.MAX_VALUE, new SilentLogger(), null);
+
+      for (int i = 0; i < operations; i++) {
+        final String uri = "http://localhost/batch/issues?key=" + random.nextInt(KEYS);
+        String expected = value(uri);
+        switch (random.nextInt(10)) {
+          case 0:
+            cache.put(uri, expected.getBytes(StandardCharsets.UTF_8));
+            break;
+          case 1:
+            try (InputStream stream = cache.getStream(uri)) {
+              if (stream != null) {
+                check(uri, IOUtils.toString(stream, StandardCharsets.UTF_8));
+              }
+            }
+            break;
+          case 2:
+            if (random.nextInt(50) == 0) {
+              cache.clean();
+            }
+            break;
+          default:
+            check(uri, cache.getString(uri, new PersistentCacheLoader<String>() {
+              @Override
+              public String get() {
+                return value(uri);
+              }
+            }));
+        }
+      }
+    }
+
+    private static void check(String uri, String value) {
+      if (!value(uri).equals(value)) {
+        throw new IllegalStateException("Corrupted value of " + uri + ": " + value);
+      }
+    }
+  }
+
+  private static class SilentLogger implements Logger {
+    @Override
+    public void debug(String msg) {
+    }
+
+    @Override
+    public void info(String msg) {
+    }
+
+    @Override
+    public void warn(String msg) {
+    }
+
+    @Override
+    public void error(String msg) {
+    }
+
+    @Override
+    public void error(String msg, Throwable t) {
+    }
+  }
+}
@@ -21,8 +21,23 @@ package org.sonar.home.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -94,6 +109,124 @@ public class PersistentCacheTest {
     assertCacheHit(true);
   }
 
+  @Test
+  public void testGetStream() throws Exception {
+    assertThat(cache.getStream(URI)).isNull();
+
+    cache.put(URI, VALUE.getBytes());
+    try (InputStream stream = cache.getStream(URI)) {
+      assertThat(IOUtils.toString(stream)).isEqualTo(VALUE);
+    }
+  }
+
+  @Test
+  public void testStreamIsNotAffectedByUpdate() throws Exception {
+    cache.put(URI, VALUE.getBytes());
+    try (InputStream stream = cache.getStream(URI)) {
+      cache.put(URI, "other".getBytes());
+      assertThat(IOUtils.toString(stream)).isEqualTo(VALUE);
+    }
+    assertThat(new String(cache.get(URI, null), StandardCharsets.UTF_8)).isEqualTo("other");
+  }
+
+  @Test
+  public void testPutFile() throws Exception {
+    Path file = cache.createTempFile();
+    Files.write(file, VALUE.getBytes());
+    cache.put(URI, file);
+
+    assertThat(file.toFile()).doesNotExist();
+    assertCacheHit(true);
+  }
+
+  @Test
+  public void testClearKeepsTempFiles() throws Exception {
+    Path file = cache.createTempFile();
+    cache.clear();
+    assertThat(file.toFile()).exists();
+  }
+
+  @Test
+  public void testCleanDeletesExpiredTempFiles() throws Exception {
+    Path file = cache.createTempFile();
+    cache = new PersistentCache(tmp.getRoot().toPath(), -100, mock(Logger.class), null);
+    cache.clean();
+    assertThat(file.toFile()).doesNotExist();
+  }
+
+  @Test
+  public void testValueIsLoadedOnceByConcurrentThreads() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    final PersistentCacheLoader<byte[]> loader = new PersistentCacheLoader<byte[]>() {
+      @Override
+      public byte[] get() throws IOException {
+        loads.incrementAndGet();
+        return VALUE.getBytes();
+      }
+    };
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for (int i = 0; i < 50; i++) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            return cache.get(URI, loader);
+          }
+        }));
+      }
+      for (Future<byte[]> result : results) {
+        assertThat(new String(result.get())).isEqualTo(VALUE);
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLoadingDoesNotBlockOtherStripes() throws Exception {
+    // keys are MD5 digests, whose first digit gives the stripe
+    String otherUri = "other";
+    for (int i = 0; DigestUtils.md5Hex(otherUri).charAt(0) == DigestUtils.md5Hex(URI).charAt(0); i++) {
+      otherUri = "other" + i;
+    }
+
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<byte[]> blocked = executor.submit(new Callable<byte[]>() {
+        @Override
+        public byte[] call() throws Exception {
+          return cache.get(URI, new PersistentCacheLoader<byte[]>() {
+            @Override
+            public byte[] get() throws IOException {
+              loading.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+              }
+              return VALUE.getBytes();
+            }
+          });
+        }
+      });
+      loading.await();
+
+      // neither the entry being loaded, nor the other stripes are locked
+      assertThat(cache.get(URI, null)).isNull();
+      assertThat(cache.getString(otherUri, new CacheFillerString())).isEqualTo(VALUE);
+
+      release.countDown();
+      assertThat(new String(blocked.get(10, TimeUnit.SECONDS))).isEqualTo(VALUE);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void testReconfigure() throws Exception {
     cache = new PersistentCache(tmp.getRoot().toPath(), Long.MAX_VALUE, mock(Logger.class), null);
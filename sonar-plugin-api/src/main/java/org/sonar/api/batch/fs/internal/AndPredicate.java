@@ -83,6 +83,9 @@ class AndPredicate extends AbstractFilePredicate {
     if (predicates.isEmpty()) {
       return index.inputFiles();
     }
+    if (predicates.get(0) instanceof SecondaryIndexFilePredicate && index instanceof DefaultFileSystem.Cache) {
+      return intersect((DefaultFileSystem.Cache) index);
+    }
     // Optimization, use get on first predicate then filter with next predicates
     Iterable<InputFile> result = predicates.get(0).get(index);
     for (int i = 1; i < predicates.size(); i++) {
@@ -91,6 +94,32 @@ class AndPredicate extends AbstractFilePredicate {
     return result;
   }
 
+  /**
+   * Intersection of the files indexed for each {@link SecondaryIndexFilePredicate}. The smallest set of files
+   * is filtered by the other predicates, so that the larger sets are never iterated.
+   */
+  private Iterable<InputFile> intersect(DefaultFileSystem.Cache cache) {
+    int smallestIndex = -1;
+    Collection<InputFile> smallest = null;
+    for (int i = 0; i < predicates.size(); i++) {
+      OptimizedFilePredicate predicate = predicates.get(i);
+      if (predicate instanceof SecondaryIndexFilePredicate) {
+        Collection<InputFile> files = ((SecondaryIndexFilePredicate) predicate).indexedFiles(cache);
+        if (smallest == null || files.size() < smallest.size()) {
+          smallestIndex = i;
+          smallest = files;
+        }
+      }
+    }
+    Iterable<InputFile> result = smallest;
+    for (int i = 0; i < predicates.size(); i++) {
+      if (i != smallestIndex) {
+        result = predicates.get(i).filter(result);
+      }
+    }
+    return result;
+  }
+
   @VisibleForTesting
   Collection<OptimizedFilePredicate> predicates() {
     return predicates;
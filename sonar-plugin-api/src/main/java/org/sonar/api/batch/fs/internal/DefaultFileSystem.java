@@ -37,11 +37,15 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
@@ -226,7 +230,17 @@ public class DefaultFileSystem implements FileSystem {
     // nothing to do by default
   }
 
+  /**
+   * Files are also indexed by language, type and status, so that the related predicates do not
+   * have to filter all the files. Indexes are updated when these attributes of an added {@link DefaultInputFile}
+   * are changed.
+   */
   public abstract static class Cache implements Index {
+    private final Map<String, InputFile> indexedFiles = new HashMap<>();
+    private final Map<String, SortedMap<String, InputFile>> filesByLanguage = new HashMap<>();
+    private final Map<InputFile.Type, SortedMap<String, InputFile>> filesByType = new EnumMap<>(InputFile.Type.class);
+    private final Map<InputFile.Status, SortedMap<String, InputFile>> filesByStatus = new EnumMap<>(InputFile.Status.class);
+
     @Override
     public abstract Iterable<InputFile> inputFiles();
 
@@ -244,12 +258,86 @@ public class DefaultFileSystem implements FileSystem {
 
     final void add(InputFile inputFile) {
       doAdd(inputFile);
+      InputFile replaced = indexedFiles.put(inputFile.relativePath(), inputFile);
+      if (replaced != null) {
+        unindexAttributes(replaced);
+      }
+      indexAttributes(inputFile);
+      if (inputFile instanceof DefaultInputFile) {
+        ((DefaultInputFile) inputFile).setIndexes(this);
+      }
+    }
+
+    /**
+     * Called before a change of language, type or status of an added file
+     */
+    void unindex(InputFile inputFile) {
+      if (indexedFiles.get(inputFile.relativePath()) == inputFile) {
+        unindexAttributes(inputFile);
+      }
+    }
+
+    /**
+     * Called after a change of language, type or status of an added file
+     */
+    void index(InputFile inputFile) {
+      if (indexedFiles.get(inputFile.relativePath()) == inputFile) {
+        indexAttributes(inputFile);
+      }
+    }
+
+    private void indexAttributes(InputFile inputFile) {
+      index(filesByLanguage, inputFile.language(), inputFile);
+      index(filesByType, inputFile.type(), inputFile);
+      index(filesByStatus, inputFile.status(), inputFile);
+    }
+
+    private void unindexAttributes(InputFile inputFile) {
+      unindex(filesByLanguage, inputFile.language(), inputFile);
+      unindex(filesByType, inputFile.type(), inputFile);
+      unindex(filesByStatus, inputFile.status(), inputFile);
     }
 
     public void add(InputDir inputDir) {
       doAdd(inputDir);
     }
 
+    Collection<InputFile> inputFilesByLanguage(String language) {
+      return indexed(filesByLanguage, language);
+    }
+
+    Collection<InputFile> inputFilesByType(InputFile.Type type) {
+      return indexed(filesByType, type);
+    }
+
+    Collection<InputFile> inputFilesByStatus(InputFile.Status status) {
+      return indexed(filesByStatus, status);
+    }
+
+    private static <K> void index(Map<K, SortedMap<String, InputFile>> index, @Nullable K key, InputFile inputFile) {
+      if (key != null) {
+        SortedMap<String, InputFile> files = index.get(key);
+        if (files == null) {
+          files = new TreeMap<>();
+          index.put(key, files);
+        }
+        files.put(inputFile.relativePath(), inputFile);
+      }
+    }
+
+    private static <K> void unindex(Map<K, SortedMap<String, InputFile>> index, @Nullable K key, InputFile inputFile) {
+      if (key != null) {
+        SortedMap<String, InputFile> files = index.get(key);
+        if (files != null) {
+          files.remove(inputFile.relativePath());
+        }
+      }
+    }
+
+    private static <K> Collection<InputFile> indexed(Map<K, SortedMap<String, InputFile>> index, K key) {
+      SortedMap<String, InputFile> files = index.get(key);
+      return files != null ? Collections.unmodifiableCollection(files.values()) : Collections.<InputFile>emptyList();
+    }
   }
 
   /**
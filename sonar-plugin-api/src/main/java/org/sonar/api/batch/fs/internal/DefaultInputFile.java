@@ -53,6 +53,8 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   private String hash;
   private int nonBlankLines;
   private int[] originalLineOffsets;
+  // the cache which indexes this file by language, type and status, if any
+  private DefaultFileSystem.Cache indexes;
 
   public DefaultInputFile(String moduleKey, String relativePath) {
     this.moduleKey = moduleKey;
@@ -136,20 +138,46 @@ public class DefaultInputFile extends DefaultInputComponent implements InputFile
   }
 
   public DefaultInputFile setLanguage(@Nullable String language) {
+    unindex();
     this.language = language;
+    index();
     return this;
   }
 
   public DefaultInputFile setType(Type type) {
+    unindex();
     this.type = type;
+    index();
     return this;
   }
 
   public DefaultInputFile setStatus(Status status) {
+    unindex();
     this.status = status;
+    index();
     return this;
   }
 
+  /**
+   * Called when the file is added to a {@link DefaultFileSystem.Cache}, so that the cache is notified of the
+   * changes of language, type and status.
+   */
+  void setIndexes(DefaultFileSystem.Cache indexes) {
+    this.indexes = indexes;
+  }
+
+  private void unindex() {
+    if (indexes != null) {
+      indexes.unindex(this);
+    }
+  }
+
+  private void index() {
+    if (indexes != null) {
+      indexes.index(this);
+    }
+  }
+
   public DefaultInputFile setLines(int lines) {
     this.lines = lines;
     return this;
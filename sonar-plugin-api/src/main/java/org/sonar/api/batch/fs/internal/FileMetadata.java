@@ -19,7 +19,6 @@
  */
 package org.sonar.api.batch.fs.internal;
 
-import com.google.common.primitives.Ints;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.ByteOrderMark;
@@ -29,7 +28,6 @@ import org.sonar.api.CoreProperties;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
-import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import java.io.BufferedReader;
@@ -38,11 +36,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Computes hash of files. Ends of Lines are ignored, so files with
@@ -56,6 +59,18 @@ public class FileMetadata {
   private static final char LINE_FEED = '\n';
   private static final char CARRIAGE_RETURN = '\r';
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MIN_BUFFER_SIZE = 64;
+  private static final int MAX_BOM_LENGTH = 4;
+  // longest first, as the BOM of UTF-16LE is a prefix of the BOM of UTF-32LE
+  private static final byte[][] BYTE_ORDER_MARKS = {
+    ByteOrderMark.UTF_32LE.getBytes(),
+    ByteOrderMark.UTF_32BE.getBytes(),
+    ByteOrderMark.UTF_8.getBytes(),
+    ByteOrderMark.UTF_16LE.getBytes(),
+    ByteOrderMark.UTF_16BE.getBytes()
+  };
+
   public abstract static class CharHandler {
 
     protected void handleAll(char c) {
@@ -71,184 +86,317 @@ public class FileMetadata {
     }
   }
 
-  private static class LineCounter extends CharHandler {
-    private int lines = 1;
-    private int nonBlankLines = 0;
-    private boolean blankLine = true;
-    boolean alreadyLoggedInvalidCharacter = false;
-    private final File file;
-    private final Charset encoding;
+  /**
+   * Compute hash of a file ignoring line ends differences.
+   * Maximum performance is needed.
+   */
+  public Metadata readMetadata(File file, Charset encoding) {
+    Scanner scanner = new Scanner(file, encoding, true, null);
+    scanFile(file, encoding, scanner);
+    return scanner.metadata();
+  }
 
-    LineCounter(File file, Charset encoding) {
-      this.file = file;
-      this.encoding = encoding;
-    }
+  /**
+   * Same as {@link #readMetadata(File, Charset)}, the hashes of lines for issue tracking being computed
+   * during the same pass (see {@link #computeLineHashesForIssueTracking(DefaultInputFile, LineHashConsumer)}).
+   */
+  public Metadata readMetadata(File file, Charset encoding, LineHashConsumer lineHashConsumer) {
+    Scanner scanner = new Scanner(file, encoding, true, lineHashConsumer);
+    scanFile(file, encoding, scanner);
+    return scanner.metadata();
+  }
 
-    @Override
-    protected void handleAll(char c) {
-      if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
-        LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
-          lines, encoding, CoreProperties.ENCODING_PROPERTY);
-        alreadyLoggedInvalidCharacter = true;
+  /**
+   * For testing purpose
+   */
+  public Metadata readMetadata(Reader reader) {
+    Scanner scanner = new Scanner(new File("fromString"), StandardCharsets.UTF_16, true, null);
+    try {
+      char[] chars = new char[BUFFER_SIZE];
+      int read = reader.read(chars);
+      while (read != -1) {
+        scanner.scan(chars, 0, read);
+        read = reader.read(chars);
       }
+    } catch (IOException e) {
+      throw new IllegalStateException("Should never occurs", e);
     }
+    scanner.eof();
+    return scanner.metadata();
+  }
 
-    @Override
-    protected void newLine() {
-      lines++;
-      if (!blankLine) {
-        nonBlankLines++;
+  /**
+   * Reads the file by blocks of bytes, which are decoded into blocks of chars. A leading byte order mark is skipped,
+   * as well as when reading files with {@link #readFile(File, Charset, CharHandler...)}. Invalid input is replaced
+   * by the char U+FFFD.
+   */
+  private static void scanFile(File file, Charset encoding, Scanner scanner) {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      // buffers are sized for the file, as most files are small
+      int bufferSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(BUFFER_SIZE, channel.size() + 1));
+      ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+      CharBuffer chars = CharBuffer.allocate(bufferSize);
+      CharsetDecoder decoder = encoding.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      boolean bomChecked = false;
+      boolean endOfInput = false;
+      while (!endOfInput) {
+        endOfInput = channel.read(bytes) == -1;
+        bytes.flip();
+        if (!bomChecked) {
+          if (bytes.remaining() < MAX_BOM_LENGTH && !endOfInput) {
+            bytes.compact();
+            continue;
+          }
+          skipByteOrderMark(bytes);
+          bomChecked = true;
+        }
+        decode(decoder, bytes, chars, endOfInput, scanner);
+        bytes.compact();
+      }
+      while (decoder.flush(chars).isOverflow()) {
+        scanChars(chars, scanner);
       }
-      blankLine = true;
+      scanChars(chars, scanner);
+      scanner.eof();
+    } catch (IOException e) {
+      throw new IllegalStateException(String.format("Fail to read file '%s' with encoding '%s'", file.getAbsolutePath(), encoding), e);
     }
+  }
 
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      if (!Character.isWhitespace(c)) {
-        blankLine = false;
-      }
+  private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars, boolean endOfInput, Scanner scanner) {
+    while (decoder.decode(bytes, chars, endOfInput).isOverflow()) {
+      scanChars(chars, scanner);
     }
+    scanChars(chars, scanner);
+  }
 
-    @Override
-    protected void eof() {
-      if (!blankLine) {
-        nonBlankLines++;
+  private static void scanChars(CharBuffer chars, Scanner scanner) {
+    chars.flip();
+    scanner.scan(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    chars.clear();
+  }
+
+  private static void skipByteOrderMark(ByteBuffer bytes) {
+    for (byte[] bom : BYTE_ORDER_MARKS) {
+      if (startsWith(bytes, bom)) {
+        bytes.position(bytes.position() + bom.length);
+        return;
       }
     }
+  }
 
-    public int lines() {
-      return lines;
+  private static boolean startsWith(ByteBuffer bytes, byte[] prefix) {
+    if (bytes.remaining() < prefix.length) {
+      return false;
     }
-
-    public int nonBlankLines() {
-      return nonBlankLines;
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes.get(bytes.position() + i) != prefix[i]) {
+        return false;
+      }
     }
-
+    return true;
   }
 
-  private static class FileHashComputer extends CharHandler {
-    private MessageDigest globalMd5Digest = DigestUtils.getMd5Digest();
-    private StringBuilder sb = new StringBuilder();
+  /**
+   * Computes line count, hash and line offsets of a file, and optionally the hashes of its lines, in a single loop over
+   * its chars. Lines are ended the same way as by {@link #readFile(File, Charset, CharHandler...)}.
+   */
+  private static final class Scanner {
+    private final File file;
+    private final Charset encoding;
+    private final boolean metadata;
+    @Nullable
+    private final LineHashConsumer lineHashConsumer;
 
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      sb.append(c);
-    }
+    private boolean afterCR = false;
 
-    @Override
-    protected void newLine() {
-      sb.append(LINE_FEED);
-      globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
-      sb.setLength(0);
-    }
+    // lines
+    private int lines = 1;
+    private int nonBlankLines = 0;
+    private boolean blankLine = true;
+    private boolean alreadyLoggedInvalidCharacter = false;
 
-    @Override
-    protected void eof() {
-      if (sb.length() > 0) {
-        globalMd5Digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
-      }
-    }
+    // hash of file, with all EOL replaced by LINE_FEED
+    private final Utf8Digest fileHash;
 
-    @CheckForNull
-    public String getHash() {
-      return Hex.encodeHexString(globalMd5Digest.digest());
-    }
-  }
+    // hashes of lines, without whitespaces
+    private final Utf8Digest lineHash;
+    private int lineHashChars = 0;
 
-  private static class LineHashComputer extends CharHandler {
-    private final MessageDigest lineMd5Digest = DigestUtils.getMd5Digest();
-    private final StringBuilder sb = new StringBuilder();
-    private final LineHashConsumer consumer;
-    private int line = 1;
+    // offsets
+    private int currentOriginalOffset = 0;
+    private int[] originalLineOffsets = new int[64];
+    private int originalLineOffsetsCount = 1;
 
-    public LineHashComputer(LineHashConsumer consumer) {
-      this.consumer = consumer;
+    private Scanner(File file, Charset encoding, boolean metadata, @Nullable LineHashConsumer lineHashConsumer) {
+      this.file = file;
+      this.encoding = encoding;
+      this.metadata = metadata;
+      this.lineHashConsumer = lineHashConsumer;
+      this.fileHash = metadata ? new Utf8Digest() : null;
+      this.lineHash = lineHashConsumer != null ? new Utf8Digest() : null;
     }
 
-    @Override
-    protected void handleIgnoreEoL(char c) {
-      if (!Character.isWhitespace(c)) {
-        sb.append(c);
+    void scan(char[] chars, int offset, int length) {
+      int end = offset + length;
+      for (int i = offset; i < end; i++) {
+        char c = chars[i];
+        if (afterCR) {
+          if (c != CARRIAGE_RETURN && c != LINE_FEED) {
+            handleIgnoreEoL(c);
+          }
+          handleAll(c);
+          newLine();
+          afterCR = c == CARRIAGE_RETURN;
+        } else if (c == LINE_FEED) {
+          handleAll(c);
+          newLine();
+        } else if (c == CARRIAGE_RETURN) {
+          afterCR = true;
+          handleAll(c);
+        } else {
+          handleIgnoreEoL(c);
+          handleAll(c);
+        }
       }
     }
 
-    @Override
-    protected void newLine() {
-      consumer.consume(line, sb.length() > 0 ? lineMd5Digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)) : null);
-      sb.setLength(0);
-      line++;
+    private void handleIgnoreEoL(char c) {
+      boolean whitespace = Character.isWhitespace(c);
+      if (metadata) {
+        if (!whitespace) {
+          blankLine = false;
+        }
+        fileHash.update(c);
+      }
+      if (lineHashConsumer != null && !whitespace) {
+        lineHash.update(c);
+        lineHashChars++;
+      }
     }
 
-    @Override
-    protected void eof() {
-      if (this.line > 0) {
-        consumer.consume(line, sb.length() > 0 ? lineMd5Digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)) : null);
+    private void handleAll(char c) {
+      if (metadata) {
+        if (!alreadyLoggedInvalidCharacter && c == '\ufffd') {
+          LOG.warn("Invalid character encountered in file {} at line {} for encoding {}. Please fix file content or configure the encoding to be used using property '{}'.", file,
+            lines, encoding, CoreProperties.ENCODING_PROPERTY);
+          alreadyLoggedInvalidCharacter = true;
+        }
+        currentOriginalOffset++;
       }
     }
 
-  }
-
-  private static class LineOffsetCounter extends CharHandler {
-    private int currentOriginalOffset = 0;
-    private List<Integer> originalLineOffsets = new ArrayList<>();
-    private int lastValidOffset = 0;
-
-    public LineOffsetCounter() {
-      originalLineOffsets.add(0);
+    private void newLine() {
+      if (metadata) {
+        if (!blankLine) {
+          nonBlankLines++;
+        }
+        blankLine = true;
+        fileHash.update(LINE_FEED);
+        if (originalLineOffsetsCount == originalLineOffsets.length) {
+          originalLineOffsets = Arrays.copyOf(originalLineOffsets, 2 * originalLineOffsets.length);
+        }
+        originalLineOffsets[originalLineOffsetsCount] = currentOriginalOffset;
+        originalLineOffsetsCount++;
+      }
+      if (lineHashConsumer != null) {
+        consumeLineHash();
+      }
+      lines++;
     }
 
-    @Override
-    protected void handleAll(char c) {
-      currentOriginalOffset++;
+    void eof() {
+      if (metadata && !blankLine) {
+        nonBlankLines++;
+      }
+      if (lineHashConsumer != null) {
+        consumeLineHash();
+      }
     }
 
-    @Override
-    protected void newLine() {
-      originalLineOffsets.add(currentOriginalOffset);
+    private void consumeLineHash() {
+      if (lineHashChars > 0) {
+        lineHashConsumer.consume(lines, lineHash.digest());
+        lineHashChars = 0;
+      } else {
+        lineHashConsumer.consume(lines, null);
+      }
     }
 
-    @Override
-    protected void eof() {
-      lastValidOffset = currentOriginalOffset;
+    Metadata metadata() {
+      return new Metadata(lines, nonBlankLines, Hex.encodeHexString(fileHash.digest()), Arrays.copyOf(originalLineOffsets, originalLineOffsetsCount),
+        currentOriginalOffset);
     }
+  }
 
-    public List<Integer> getOriginalLineOffsets() {
-      return originalLineOffsets;
+  /**
+   * MD5 of the UTF-8 encoding of a sequence of chars, the same as {@link String#getBytes(Charset)}: unpaired
+   * surrogates are encoded as '?'.
+   */
+  private static final class Utf8Digest {
+    private final MessageDigest digest = DigestUtils.getMd5Digest();
+    private final byte[] buffer = new byte[1024];
+    private int length = 0;
+    private char highSurrogate = 0;
+
+    void update(char c) {
+      if (length > buffer.length - 4) {
+        flush();
+      }
+      if (highSurrogate != 0) {
+        char high = highSurrogate;
+        highSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          write(Character.toCodePoint(high, c));
+          return;
+        }
+        buffer[length++] = '?';
+      }
+      if (c < 0x80) {
+        buffer[length++] = (byte) c;
+      } else if (Character.isHighSurrogate(c)) {
+        highSurrogate = c;
+      } else if (Character.isLowSurrogate(c)) {
+        buffer[length++] = '?';
+      } else {
+        write(c);
+      }
     }
 
-    public int getLastValidOffset() {
-      return lastValidOffset;
+    private void write(int codePoint) {
+      if (codePoint < 0x800) {
+        buffer[length++] = (byte) (0xc0 | (codePoint >> 6));
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else if (codePoint < 0x10000) {
+        buffer[length++] = (byte) (0xe0 | (codePoint >> 12));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+      } else {
+        buffer[length++] = (byte) (0xf0 | (codePoint >> 18));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        buffer[length++] = (byte) (0x80 | (codePoint & 0x3f));
+      }
     }
 
-  }
-
-  /**
-   * Compute hash of a file ignoring line ends differences.
-   * Maximum performance is needed.
-   */
-  public Metadata readMetadata(File file, Charset encoding) {
-    LineCounter lineCounter = new LineCounter(file, encoding);
-    FileHashComputer fileHashComputer = new FileHashComputer();
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    readFile(file, encoding, lineCounter, fileHashComputer, lineOffsetCounter);
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
-  }
+    private void flush() {
+      digest.update(buffer, 0, length);
+      length = 0;
+    }
 
-  /**
-   * For testing purpose
-   */
-  public Metadata readMetadata(Reader reader) {
-    LineCounter lineCounter = new LineCounter(new File("fromString"), StandardCharsets.UTF_16);
-    FileHashComputer fileHashComputer = new FileHashComputer();
-    LineOffsetCounter lineOffsetCounter = new LineOffsetCounter();
-    try {
-      read(reader, lineCounter, fileHashComputer, lineOffsetCounter);
-    } catch (IOException e) {
-      throw new IllegalStateException("Should never occurs", e);
+    /**
+     * Hash of the chars updated since the previous call
+     */
+    byte[] digest() {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        buffer[length++] = '?';
+      }
+      flush();
+      return digest.digest();
     }
-    return new Metadata(lineCounter.lines(), lineCounter.nonBlankLines(), fileHashComputer.getHash(), lineOffsetCounter.getOriginalLineOffsets(),
-      lineOffsetCounter.getLastValidOffset());
   }
 
   public static void readFile(File file, Charset encoding, CharHandler... handlers) {
@@ -306,11 +454,11 @@ public class FileMetadata {
     final int[] originalLineOffsets;
     final int lastValidOffset;
 
-    private Metadata(int lines, int nonBlankLines, String hash, List<Integer> originalLineOffsets, int lastValidOffset) {
+    private Metadata(int lines, int nonBlankLines, String hash, int[] originalLineOffsets, int lastValidOffset) {
       this.lines = lines;
       this.nonBlankLines = nonBlankLines;
       this.hash = hash;
-      this.originalLineOffsets = Ints.toArray(originalLineOffsets);
+      this.originalLineOffsets = originalLineOffsets;
       this.lastValidOffset = lastValidOffset;
     }
   }
@@ -325,6 +473,6 @@ public class FileMetadata {
    * Compute a MD5 hash of each line of the file after removing of all blank chars
    */
   public static void computeLineHashesForIssueTracking(DefaultInputFile f, LineHashConsumer consumer) {
-    readFile(f.file(), f.charset(), new LineHashComputer(consumer));
+    scanFile(f.file(), f.charset(), new Scanner(f.file(), f.charset(), false, consumer));
   }
 }
@@ -21,10 +21,12 @@ package org.sonar.api.batch.fs.internal;
 
 import org.sonar.api.batch.fs.InputFile;
 
+import java.util.Collection;
+
 /**
  * @since 4.2
  */
-class LanguagePredicate extends AbstractFilePredicate {
+class LanguagePredicate extends SecondaryIndexFilePredicate {
   private final String language;
 
   LanguagePredicate(String language) {
@@ -35,4 +37,9 @@ class LanguagePredicate extends AbstractFilePredicate {
   public boolean apply(InputFile f) {
     return language.equals(f.language());
   }
+
+  @Override
+  Collection<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByLanguage(language);
+  }
 }
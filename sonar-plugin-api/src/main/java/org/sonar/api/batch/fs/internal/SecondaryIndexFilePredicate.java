@@ -0,0 +1,51 @@
+/*
+ * SonarQube, open source software quality management tool.
+ * Copyright (C) 2008-2014 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * SonarQube is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * SonarQube is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import org.sonar.api.batch.fs.FileSystem.Index;
+import org.sonar.api.batch.fs.InputFile;
+
+import java.util.Collection;
+
+/**
+ * Predicate on an attribute of {@link InputFile} which is indexed by {@link DefaultFileSystem.Cache}.
+ * @since 5.2
+ */
+abstract class SecondaryIndexFilePredicate extends AbstractFilePredicate {
+
+  /**
+   * Files of the cache that are valid for this predicate
+   */
+  abstract Collection<InputFile> indexedFiles(DefaultFileSystem.Cache cache);
+
+  @Override
+  public Iterable<InputFile> get(Index index) {
+    if (index instanceof DefaultFileSystem.Cache) {
+      return indexedFiles((DefaultFileSystem.Cache) index);
+    }
+    return super.get(index);
+  }
+
+  @Override
+  public int priority() {
+    return USE_SECONDARY_INDEX;
+  }
+
+}
@@ -21,10 +21,12 @@ package org.sonar.api.batch.fs.internal;
 
 import org.sonar.api.batch.fs.InputFile;
 
+import java.util.Collection;
+
 /**
  * @since 4.2
  */
-class StatusPredicate extends AbstractFilePredicate {
+class StatusPredicate extends SecondaryIndexFilePredicate {
 
   private final InputFile.Status status;
 
@@ -37,4 +39,9 @@ class StatusPredicate extends AbstractFilePredicate {
     return status == f.status();
   }
 
+  @Override
+  Collection<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByStatus(status);
+  }
+
 }
@@ -21,10 +21,12 @@ package org.sonar.api.batch.fs.internal;
 
 import org.sonar.api.batch.fs.InputFile;
 
+import java.util.Collection;
+
 /**
  * @since 4.2
  */
-class TypePredicate extends AbstractFilePredicate {
+class TypePredicate extends SecondaryIndexFilePredicate {
 
   private final InputFile.Type type;
 
@@ -37,4 +39,9 @@ class TypePredicate extends AbstractFilePredicate {
     return type == f.type();
   }
 
+  @Override
+  Collection<InputFile> indexedFiles(DefaultFileSystem.Cache cache) {
+    return cache.inputFilesByType(type);
+  }
+
 }
@@ -48,6 +48,16 @@ public class AndPredicateTest {
     assertThat(((AndPredicate) andPredicate).predicates()).containsExactly(relativePathPredicate, pathPatternPredicate1, pathPatternPredicate2);
   }
 
+  @Test
+  public void applyIndexedPredicatesBeforeOthers() {
+    PathPatternPredicate pathPatternPredicate = new PathPatternPredicate(PathPattern.create("foo/**"));
+    LanguagePredicate languagePredicate = new LanguagePredicate("java");
+    RelativePathPredicate relativePathPredicate = new RelativePathPredicate("foo");
+    FilePredicate andPredicate = AndPredicate.create(Arrays.<FilePredicate>asList(pathPatternPredicate,
+      languagePredicate, relativePathPredicate));
+    assertThat(((AndPredicate) andPredicate).predicates()).containsExactly(relativePathPredicate, languagePredicate, pathPatternPredicate);
+  }
+
   @Test
   public void simplifyAndExpressionsWhenEmpty() {
     FilePredicate andPredicate = AndPredicate.create(Arrays.<FilePredicate>asList());
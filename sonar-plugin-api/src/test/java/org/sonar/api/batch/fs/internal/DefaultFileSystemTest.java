@@ -25,6 +25,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
+import org.sonar.api.batch.fs.FilePredicates;
+import org.sonar.api.batch.fs.InputFile;
+
 import java.io.File;
 import java.nio.charset.Charset;
 
@@ -107,6 +110,54 @@ public class DefaultFileSystemTest {
     assertThat(fs.languages()).containsOnly("java", "php");
   }
 
+  @Test
+  public void files_by_type_language_and_status() {
+    fs.add(new DefaultInputFile("foo", "src/Foo.php").setLanguage("php").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.ADDED));
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.SAME));
+    fs.add(new DefaultInputFile("foo", "test/BarTest.java").setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.ADDED));
+    fs.add(new DefaultInputFile("foo", "src/readme.txt").setType(InputFile.Type.MAIN));
+
+    FilePredicates p = fs.predicates();
+    assertThat(fs.inputFiles(p.hasType(InputFile.Type.MAIN))).hasSize(3);
+    assertThat(fs.inputFiles(p.hasStatus(InputFile.Status.ADDED))).extracting("relativePath").containsOnly("src/Foo.php", "test/BarTest.java");
+    assertThat(fs.inputFiles(p.hasStatus(InputFile.Status.CHANGED))).isEmpty();
+    assertThat(fs.inputFiles(p.and(p.hasLanguage("java"), p.hasType(InputFile.Type.MAIN)))).extracting("relativePath").containsOnly("src/Bar.java");
+    assertThat(fs.inputFiles(p.and(p.hasType(InputFile.Type.MAIN), p.hasStatus(InputFile.Status.ADDED), p.hasLanguage("php"))))
+      .extracting("relativePath").containsOnly("src/Foo.php");
+    assertThat(fs.inputFiles(p.and(p.hasLanguage("java"), p.hasType(InputFile.Type.MAIN), p.matchesPathPattern("test/**")))).isEmpty();
+    assertThat(fs.inputFiles(p.and(p.hasLanguage("cobol"), p.hasType(InputFile.Type.MAIN)))).isEmpty();
+    assertThat(fs.inputFile(p.and(p.hasRelativePath("src/Bar.java"), p.hasLanguage("java")))).isNotNull();
+    assertThat(fs.inputFiles(p.or(p.hasLanguage("php"), p.hasType(InputFile.Type.TEST)))).hasSize(2);
+
+    // index is updated when a file is added again
+    fs.add(new DefaultInputFile("foo", "src/Bar.java").setLanguage("java").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.CHANGED));
+    assertThat(fs.inputFiles(p.all())).hasSize(4);
+    assertThat(fs.inputFiles(p.hasStatus(InputFile.Status.SAME))).isEmpty();
+    assertThat(fs.inputFiles(p.hasStatus(InputFile.Status.CHANGED))).extracting("relativePath").containsOnly("src/Bar.java");
+    assertThat(fs.inputFiles(p.hasLanguage("java"))).hasSize(2);
+  }
+
+  @Test
+  public void files_are_indexed_again_when_type_language_or_status_is_changed() {
+    DefaultInputFile file = new DefaultInputFile("foo", "src/Foo.php").setLanguage("php").setType(InputFile.Type.MAIN).setStatus(InputFile.Status.ADDED);
+    fs.add(file);
+
+    file.setLanguage("java").setType(InputFile.Type.TEST).setStatus(InputFile.Status.CHANGED);
+
+    FilePredicates p = fs.predicates();
+    assertThat(fs.inputFiles(p.hasLanguage("php"))).isEmpty();
+    assertThat(fs.inputFiles(p.hasType(InputFile.Type.MAIN))).isEmpty();
+    assertThat(fs.inputFiles(p.hasStatus(InputFile.Status.ADDED))).isEmpty();
+    assertThat(fs.inputFiles(p.and(p.hasLanguage("java"), p.hasType(InputFile.Type.TEST), p.hasStatus(InputFile.Status.CHANGED)))).containsOnly(file);
+
+    // a replaced file is not indexed anymore
+    DefaultInputFile replacement = new DefaultInputFile("foo", "src/Foo.php").setLanguage("java");
+    fs.add(replacement);
+    file.setLanguage("php");
+    assertThat(fs.inputFiles(p.hasLanguage("php"))).isEmpty();
+    assertThat(fs.inputFiles(p.hasLanguage("java"))).containsOnly(replacement);
+  }
+
   @Test
   public void input_file_returns_null_if_file_not_found() {
     assertThat(fs.inputFile(fs.predicates().hasRelativePath("src/Bar.java"))).isNull();
@@ -19,6 +19,7 @@
  */
 package org.sonar.api.batch.fs.internal;
 
+import com.google.common.primitives.Ints;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
@@ -32,8 +33,13 @@ import org.sonar.api.utils.log.LoggerLevel;
 import javax.annotation.Nullable;
 
 import java.io.File;
+import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -293,4 +299,69 @@ public class FileMetadataTest {
       "glyphicons-halflings-regular.woff at line 1 for encoding UTF-8. Please fix file content or configure the encoding to be used using property 'sonar.sourceEncoding'.");
   }
 
+  @Test
+  public void read_file_larger_than_buffer() throws Exception {
+    StringBuilder content = new StringBuilder();
+    StringBuilder expectedHashed = new StringBuilder();
+    List<Integer> expectedOffsets = new ArrayList<>();
+    expectedOffsets.add(0);
+    String[] eols = {"\n", "\r\n"};
+    // multi-bytes chars and surrogate pairs are split between buffers
+    for (int i = 0; i < 20_000; i++) {
+      String line = "l\u00e9\u20ac\ud83d\ude00 " + i;
+      String eol = eols[i % eols.length];
+      content.append(line).append(eol);
+      expectedHashed.append(line).append('\n');
+      expectedOffsets.add(content.length());
+    }
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, content, StandardCharsets.UTF_8);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8);
+    assertThat(metadata.lines).isEqualTo(20_001);
+    assertThat(metadata.nonBlankLines).isEqualTo(20_000);
+    assertThat(metadata.hash).isEqualTo(md5Hex(expectedHashed.toString()));
+    assertThat(metadata.originalLineOffsets).isEqualTo(Ints.toArray(expectedOffsets));
+    assertThat(metadata.lastValidOffset).isEqualTo(content.length());
+  }
+
+  @Test
+  public void start_with_utf16_bom() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, "\uFEFFfoo\nbar\r\nbaz", StandardCharsets.UTF_16LE, true);
+
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_16LE);
+    assertThat(metadata.lines).isEqualTo(3);
+    assertThat(metadata.hash).isEqualTo(md5Hex("foo\nbar\nbaz"));
+    assertThat(metadata.originalLineOffsets).containsOnly(0, 4, 9);
+  }
+
+  @Test
+  public void unpaired_surrogates_are_hashed_as_question_marks() throws Exception {
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(new StringReader("a\ud83d\nb\ude00c\n\ud83d\ude00"));
+    assertThat(metadata.hash).isEqualTo(md5Hex("a\ud83d\nb\ude00c\n\ud83d\ude00".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void compute_line_hashes_while_reading_metadata() throws Exception {
+    File tempFile = temp.newFile();
+    FileUtils.write(tempFile, " foo\nb ar\r\n\n\ud83d\ude00 \t", StandardCharsets.UTF_8, true);
+
+    final Map<Integer, String> lineHashes = new HashMap<>();
+    FileMetadata.Metadata metadata = new FileMetadata().readMetadata(tempFile, StandardCharsets.UTF_8, new LineHashConsumer() {
+      @Override
+      public void consume(int lineIdx, @Nullable byte[] hash) {
+        lineHashes.put(lineIdx, hash == null ? null : Hex.encodeHexString(hash));
+      }
+    });
+
+    assertThat(metadata.lines).isEqualTo(4);
+    assertThat(metadata.hash).isEqualTo(md5Hex(" foo\nb ar\n\n\ud83d\ude00 \t"));
+    assertThat(lineHashes).hasSize(4);
+    assertThat(lineHashes.get(1)).isEqualTo(md5Hex("foo"));
+    assertThat(lineHashes.get(2)).isEqualTo(md5Hex("bar"));
+    assertThat(lineHashes.get(3)).isNull();
+    assertThat(lineHashes.get(4)).isEqualTo(md5Hex("\ud83d\ude00"));
+  }
+
 }
@@ -281,6 +281,35 @@ public final class Issues {
      */
     org.sonarqube.ws.Common.FacetOrBuilder getFacetsOrBuilder(
         int index);
+
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    boolean hasNextCursor();
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    java.lang.String getNextCursor();
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    com.google.protobuf.ByteString
+        getNextCursorBytes();
   }
   /**
    * Protobuf type {@code sonarqube.ws.issues.Search}
@@ -452,6 +481,12 @@ public final class Issues {
               facets_.add(input.readMessage(org.sonarqube.ws.Common.Facet.PARSER, extensionRegistry));
               break;
             }
+            case 146: {
+              com.google.protobuf.ByteString bs = input.readBytes();
+              bitField0_ |= 0x00000400;
+              nextCursor_ = bs;
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -922,6 +957,63 @@ public final class Issues {
       return facets_.get(index);
     }
 
+    public static final int NEXTCURSOR_FIELD_NUMBER = 18;
+    private java.lang.Object nextCursor_;
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    public boolean hasNextCursor() {
+      return ((bitField0_ & 0x00000400) == 0x00000400);
+    }
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    public java.lang.String getNextCursor() {
+      java.lang.Object ref = nextCursor_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          nextCursor_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string nextCursor = 18;</code>
+     *
+     * <pre>
+     * Opaque token to pass as parameter "cursor" to get the next page of results, only
+     * when cursor pagination is requested and more results are available
+     * </pre>
+     */
+    public com.google.protobuf.ByteString
+        getNextCursorBytes() {
+      java.lang.Object ref = nextCursor_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        nextCursor_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
     private void initFields() {
       total_ = 0L;
       p_ = 0L;
@@ -940,6 +1032,7 @@ public final class Issues {
       languages_ = java.util.Collections.emptyList();
       facetsPresentIfEmpty_ = false;
       facets_ = java.util.Collections.emptyList();
+      nextCursor_ = "";
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -1005,6 +1098,9 @@ public final class Issues {
       for (int i = 0; i < facets_.size(); i++) {
         output.writeMessage(17, facets_.get(i));
       }
+      if (((bitField0_ & 0x00000400) == 0x00000400)) {
+        output.writeBytes(18, getNextCursorBytes());
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -1082,6 +1178,10 @@ public final class Issues {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(17, facets_.get(i));
       }
+      if (((bitField0_ & 0x00000400) == 0x00000400)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(18, getNextCursorBytes());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -1277,6 +1377,8 @@ public final class Issues {
         } else {
           facetsBuilder_.clear();
         }
+        nextCursor_ = "";
+        bitField0_ = (bitField0_ & ~0x00020000);
         return this;
       }
 
@@ -1412,6 +1514,10 @@ public final class Issues {
         } else {
           result.facets_ = facetsBuilder_.build();
         }
+        if (((from_bitField0_ & 0x00020000) == 0x00020000)) {
+          to_bitField0_ |= 0x00000400;
+        }
+        result.nextCursor_ = nextCursor_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1640,6 +1746,11 @@ public final class Issues {
             }
           }
         }
+        if (other.hasNextCursor()) {
+          bitField0_ |= 0x00020000;
+          nextCursor_ = other.nextCursor_;
+          onChanged();
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -3767,6 +3878,112 @@ public final class Issues {
         return facetsBuilder_;
       }
 
+      private java.lang.Object nextCursor_ = "";
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public boolean hasNextCursor() {
+        return ((bitField0_ & 0x00020000) == 0x00020000);
+      }
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public java.lang.String getNextCursor() {
+        java.lang.Object ref = nextCursor_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            nextCursor_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public com.google.protobuf.ByteString
+          getNextCursorBytes() {
+        java.lang.Object ref = nextCursor_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          nextCursor_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public Builder setNextCursor(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00020000;
+        nextCursor_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public Builder clearNextCursor() {
+        bitField0_ = (bitField0_ & ~0x00020000);
+        nextCursor_ = getDefaultInstance().getNextCursor();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string nextCursor = 18;</code>
+       *
+       * <pre>
+       * Opaque token to pass as parameter "cursor" to get the next page of results, only
+       * when cursor pagination is requested and more results are available
+       * </pre>
+       */
+      public Builder setNextCursorBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00020000;
+        nextCursor_ = value;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:sonarqube.ws.issues.Search)
     }
 
@@ -17866,7 +18083,7 @@ public final class Issues {
   static {
     java.lang.String[] descriptorData = {
       "\n\017ws-issues.proto\022\023sonarqube.ws.issues\032\020" +
-      "ws-commons.proto\"\326\004\n\006Search\022\r\n\005total\030\001 \001" +
+      "ws-commons.proto\"\352\004\n\006Search\022\r\n\005total\030\001 \001" +
       "(\003\022\t\n\001p\030\002 \001(\003\022\n\n\002ps\030\003 \001(\005\022,\n\006paging\030\004 \001(" +
       "\0132\034.sonarqube.ws.commons.Paging\022\021\n\tdebtT" +
       "otal\030\005 \001(\003\022*\n\006issues\030\006 \003(\0132\032.sonarqube.w" +
@@ -17881,49 +18098,50 @@ public final class Issues {
       "fEmpty\030\016 \001(\010\0220\n\tlanguages\030\017 \003(\0132\035.sonarq" +
       "ube.ws.issues.Language\022\034\n\024facetsPresentI" +
       "fEmpty\030\020 \001(\010\022+\n\006facets\030\021 \003(\0132\033.sonarqube" +
-      ".ws.commons.Facet\"\366\001\n\tOperation\022)\n\005issue" +
-      "\030\001 \001(\0132\032.sonarqube.ws.issues.Issue\0222\n\nco" +
-      "mponents\030\002 \003(\0132\036.sonarqube.ws.issues.Com" +
-      "ponent\022)\n\005rules\030\003 \003(\0132\032.sonarqube.ws.com",
-      "mons.Rule\022)\n\005users\030\004 \003(\0132\032.sonarqube.ws." +
-      "commons.User\0224\n\013actionPlans\030\005 \003(\0132\037.sona" +
-      "rqube.ws.issues.ActionPlan\"\230\006\n\005Issue\022\013\n\003" +
-      "key\030\001 \001(\t\022\014\n\004rule\030\002 \001(\t\0220\n\010severity\030\003 \001(" +
-      "\0162\036.sonarqube.ws.commons.Severity\022\021\n\tcom" +
-      "ponent\030\004 \001(\t\022\023\n\013componentId\030\005 \001(\003\022\017\n\007pro" +
-      "ject\030\006 \001(\t\022\022\n\nsubProject\030\007 \001(\t\022\014\n\004line\030\010" +
-      " \001(\005\0222\n\ttextRange\030\t \001(\0132\037.sonarqube.ws.c" +
-      "ommons.TextRange\0229\n\022secondaryLocations\030\n" +
-      " \003(\0132\035.sonarqube.ws.issues.Location\022:\n\016e",
-      "xecutionFlows\030\013 \003(\0132\".sonarqube.ws.issue" +
-      "s.ExecutionFlow\022\022\n\nresolution\030\014 \001(\t\022\016\n\006s" +
-      "tatus\030\r \001(\t\022\017\n\007message\030\016 \001(\t\022\014\n\004debt\030\017 \001" +
-      "(\t\022\020\n\010assignee\030\020 \001(\t\022\020\n\010reporter\030\021 \001(\t\022\016" +
-      "\n\006author\030\022 \001(\t\022\022\n\nactionPlan\030\023 \001(\t\022\032\n\022ta" +
-      "gsPresentIfEmpty\030\024 \001(\010\022\014\n\004tags\030\025 \003(\t\022!\n\031" +
-      "transitionsPresentIfEmpty\030\026 \001(\010\022\023\n\013trans" +
-      "itions\030\027 \003(\t\022\035\n\025actionsPresentIfEmpty\030\030 " +
-      "\001(\010\022\017\n\007actions\030\031 \003(\t\022\036\n\026commentsPresentI" +
-      "fEmpty\030\032 \001(\010\022.\n\010comments\030\033 \003(\0132\034.sonarqu",
-      "be.ws.issues.Comment\022\024\n\014creationDate\030\034 \001" +
-      "(\t\022\022\n\nupdateDate\030\035 \001(\t\022\022\n\nfUpdateAge\030\036 \001" +
-      "(\t\022\021\n\tcloseDate\030\037 \001(\t\"A\n\rExecutionFlow\0220" +
-      "\n\tlocations\030\001 \003(\0132\035.sonarqube.ws.issues." +
-      "Location\"`\n\010Location\022\023\n\013componentId\030\001 \001(" +
-      "\t\0222\n\ttextRange\030\002 \001(\0132\037.sonarqube.ws.comm" +
-      "ons.TextRange\022\013\n\003msg\030\003 \001(\t\"\220\001\n\007Comment\022\013" +
-      "\n\003key\030\001 \001(\t\022\r\n\005login\030\002 \001(\t\022\r\n\005email\030\003 \001(" +
-      "\t\022\020\n\010userName\030\004 \001(\t\022\020\n\010htmlText\030\005 \001(\t\022\020\n" +
-      "\010markdown\030\006 \001(\t\022\021\n\tupdatable\030\007 \001(\010\022\021\n\tcr",
-      "eatedAt\030\010 \001(\t\"Z\n\nActionPlan\022\013\n\003key\030\001 \001(\t" +
-      "\022\014\n\004name\030\002 \001(\t\022\016\n\006status\030\003 \001(\t\022\020\n\010deadLi" +
-      "ne\030\004 \001(\t\022\017\n\007project\030\005 \001(\t\"%\n\010Language\022\013\n" +
-      "\003key\030\001 \001(\t\022\014\n\004name\030\002 \001(\t\"\255\001\n\tComponent\022\n" +
-      "\n\002id\030\001 \001(\003\022\013\n\003key\030\002 \001(\t\022\014\n\004uuid\030\003 \001(\t\022\017\n" +
-      "\007enabled\030\004 \001(\010\022\021\n\tqualifier\030\005 \001(\t\022\014\n\004nam" +
-      "e\030\006 \001(\t\022\020\n\010longName\030\007 \001(\t\022\014\n\004path\030\010 \001(\t\022" +
-      "\021\n\tprojectId\030\t \001(\003\022\024\n\014subProjectId\030\n \001(\003" +
-      "B\034\n\020org.sonarqube.wsB\006IssuesH\001"
+      ".ws.commons.Facet\022\022\n\nnextCursor\030\022 \001(\t\"\366\001" +
+      "\n\tOperation\022)\n\005issue\030\001 \001(\0132\032.sonarqube.w" +
+      "s.issues.Issue\0222\n\ncomponents\030\002 \003(\0132\036.son" +
+      "arqube.ws.issues.Component\022)\n\005rules\030\003 \003(",
+      "\0132\032.sonarqube.ws.commons.Rule\022)\n\005users\030\004" +
+      " \003(\0132\032.sonarqube.ws.commons.User\0224\n\013acti" +
+      "onPlans\030\005 \003(\0132\037.sonarqube.ws.issues.Acti" +
+      "onPlan\"\230\006\n\005Issue\022\013\n\003key\030\001 \001(\t\022\014\n\004rule\030\002 " +
+      "\001(\t\0220\n\010severity\030\003 \001(\0162\036.sonarqube.ws.com" +
+      "mons.Severity\022\021\n\tcomponent\030\004 \001(\t\022\023\n\013comp" +
+      "onentId\030\005 \001(\003\022\017\n\007project\030\006 \001(\t\022\022\n\nsubPro" +
+      "ject\030\007 \001(\t\022\014\n\004line\030\010 \001(\005\0222\n\ttextRange\030\t " +
+      "\001(\0132\037.sonarqube.ws.commons.TextRange\0229\n\022" +
+      "secondaryLocations\030\n \003(\0132\035.sonarqube.ws.",
+      "issues.Location\022:\n\016executionFlows\030\013 \003(\0132" +
+      "\".sonarqube.ws.issues.ExecutionFlow\022\022\n\nr" +
+      "esolution\030\014 \001(\t\022\016\n\006status\030\r \001(\t\022\017\n\007messa" +
+      "ge\030\016 \001(\t\022\014\n\004debt\030\017 \001(\t\022\020\n\010assignee\030\020 \001(\t" +
+      "\022\020\n\010reporter\030\021 \001(\t\022\016\n\006author\030\022 \001(\t\022\022\n\nac" +
+      "tionPlan\030\023 \001(\t\022\032\n\022tagsPresentIfEmpty\030\024 \001" +
+      "(\010\022\014\n\004tags\030\025 \003(\t\022!\n\031transitionsPresentIf" +
+      "Empty\030\026 \001(\010\022\023\n\013transitions\030\027 \003(\t\022\035\n\025acti" +
+      "onsPresentIfEmpty\030\030 \001(\010\022\017\n\007actions\030\031 \003(\t" +
+      "\022\036\n\026commentsPresentIfEmpty\030\032 \001(\010\022.\n\010comm",
+      "ents\030\033 \003(\0132\034.sonarqube.ws.issues.Comment" +
+      "\022\024\n\014creationDate\030\034 \001(\t\022\022\n\nupdateDate\030\035 \001" +
+      "(\t\022\022\n\nfUpdateAge\030\036 \001(\t\022\021\n\tcloseDate\030\037 \001(" +
+      "\t\"A\n\rExecutionFlow\0220\n\tlocations\030\001 \003(\0132\035." +
+      "sonarqube.ws.issues.Location\"`\n\010Location" +
+      "\022\023\n\013componentId\030\001 \001(\t\0222\n\ttextRange\030\002 \001(\013" +
+      "2\037.sonarqube.ws.commons.TextRange\022\013\n\003msg" +
+      "\030\003 \001(\t\"\220\001\n\007Comment\022\013\n\003key\030\001 \001(\t\022\r\n\005login" +
+      "\030\002 \001(\t\022\r\n\005email\030\003 \001(\t\022\020\n\010userName\030\004 \001(\t\022" +
+      "\020\n\010htmlText\030\005 \001(\t\022\020\n\010markdown\030\006 \001(\t\022\021\n\tu",
+      "pdatable\030\007 \001(\010\022\021\n\tcreatedAt\030\010 \001(\t\"Z\n\nAct" +
+      "ionPlan\022\013\n\003key\030\001 \001(\t\022\014\n\004name\030\002 \001(\t\022\016\n\006st" +
+      "atus\030\003 \001(\t\022\020\n\010deadLine\030\004 \001(\t\022\017\n\007project\030" +
+      "\005 \001(\t\"%\n\010Language\022\013\n\003key\030\001 \001(\t\022\014\n\004name\030\002" +
+      " \001(\t\"\255\001\n\tComponent\022\n\n\002id\030\001 \001(\003\022\013\n\003key\030\002 " +
+      "\001(\t\022\014\n\004uuid\030\003 \001(\t\022\017\n\007enabled\030\004 \001(\010\022\021\n\tqu" +
+      "alifier\030\005 \001(\t\022\014\n\004name\030\006 \001(\t\022\020\n\010longName\030" +
+      "\007 \001(\t\022\014\n\004path\030\010 \001(\t\022\021\n\tprojectId\030\t \001(\003\022\024" +
+      "\n\014subProjectId\030\n \001(\003B\034\n\020org.sonarqube.ws" +
+      "B\006IssuesH\001"
     };
     com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -17943,7 +18161,7 @@ public final class Issues {
     internal_static_sonarqube_ws_issues_Search_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessage.FieldAccessorTable(
         internal_static_sonarqube_ws_issues_Search_descriptor,
-        new java.lang.String[] { "Total", "P", "Ps", "Paging", "DebtTotal", "Issues", "Components", "RulesPresentIfEmpty", "Rules", "UsersPresentIfEmpty", "Users", "ActionPlansPresentIfEmpty", "ActionPlans", "LanguagesPresentIfEmpty", "Languages", "FacetsPresentIfEmpty", "Facets", });
+        new java.lang.String[] { "Total", "P", "Ps", "Paging", "DebtTotal", "Issues", "Components", "RulesPresentIfEmpty", "Rules", "UsersPresentIfEmpty", "Users", "ActionPlansPresentIfEmpty", "ActionPlans", "LanguagesPresentIfEmpty", "Languages", "FacetsPresentIfEmpty", "Facets", "NextCursor", });
     internal_static_sonarqube_ws_issues_Operation_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_sonarqube_ws_issues_Operation_fieldAccessorTable = new